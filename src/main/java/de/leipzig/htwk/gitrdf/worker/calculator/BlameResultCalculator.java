@@ -24,6 +24,9 @@ import org.eclipse.jgit.util.io.EolCanonicalizingInputStream;
  *
  * The optimization in this class is, that the directory cache over the git
  * repository is only build once, and not for every 'get blame result' call.
+ *
+ * Bare repositories have no directory cache and no working tree, so only the
+ * history from HEAD is blamed.
  */
 public class BlameResultCalculator {
 
@@ -32,7 +35,7 @@ public class BlameResultCalculator {
     private final Repository repository;
 
     public BlameResultCalculator(Repository repo) throws IOException {
-        this.dirCache = repo.readDirCache();
+        this.dirCache = repo.isBare() ? null : repo.readDirCache();
         this.repository = repo;
     }
 
@@ -2,47 +2,135 @@ package de.leipzig.htwk.gitrdf.worker.calculator;
 
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.riot.system.StreamRDF;
-import org.eclipse.jgit.blame.BlameResult;
-import org.eclipse.jgit.diff.RawText;
-import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
 
 import de.leipzig.htwk.gitrdf.worker.calculator.BlameResultCalculator;
 import de.leipzig.htwk.gitrdf.worker.handler.LockHandler;
+import de.leipzig.htwk.gitrdf.worker.snapshot.BranchSnapshotStore;
+import de.leipzig.htwk.gitrdf.worker.snapshot.FileBlame;
+import de.leipzig.htwk.gitrdf.worker.snapshot.StoredBranchSnapshot;
+import de.leipzig.htwk.gitrdf.worker.snapshot.StoredSnapshotFile;
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.core.TripleCollector;
 import de.leipzig.htwk.gitrdf.worker.utils.rdf.git.RdfCommitUtils;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Writes the blame of every file at HEAD as branch snapshot.
+ * <p>
+ * If a {@link BranchSnapshotStore} is given, the per-file blame is stored after the run and the snapshot of the
+ * previous run is reused: a file keeps its stored blame if the previous HEAD is on the first-parent history of the
+ * current HEAD and no commit in between touched the file. Blame passes unchanged through such commits, so the reused
+ * entries are identical to a fresh blame. All other files are blamed again, and a rewritten history falls back to
+ * blaming every file.
+ * <p>
+ * The files that can't be reused are blamed by the configured {@link BranchSnapshotEngine}.
+ * <p>
+ * Additional commits, e.g. release tags, can be snapshotted in the same run. Their files are blamed in one
+ * {@link HistoryBlameCalculator} pass, together with the HEAD files if the history pass engine is configured, so the
+ * shared history is only visited once. Additional snapshots aren't stored.
+ */
 @Slf4j
 public class BranchSnapshotCalculator {
 
+    private static final int FILES_IN_FLIGHT_PER_THREAD = 4;
+
+    private static final int TERMINATION_TIMEOUT_SECONDS = 60;
+
     private final StreamRDF writer;
     private final Repository gitRepository;
     private final String branchSnapshotUri;
     private final LockHandler lockHandler;
-
+    private final int threadCount;
+    private final BranchSnapshotEngine engine;
+    private final FileClassifier fileClassifier;
+    private final BranchSnapshotStore snapshotStore;
+    private final String repositoryKey;
+
+    private int branchSnapshotCounter = 0;
+
+    // Blames that don't need a per-file blame, either reused from the store or computed by the history pass
+    private Map<String, FileBlame> knownBlames = Map.of();
+
+    // Files that aren't blamed, with the reason
+    private Map<String, String> skipReasons = Map.of();
+
+    /**
+     * @param threadCount   number of files blamed in parallel; a value of 0 or less uses one thread per available
+     *                      processor, 1 blames sequentially on the calling thread
+     * @param engine        engine computing the blame of the files that can't be reused
+     * @param fileClassifier decides which files are written without blame
+     * @param snapshotStore store of the previous snapshots, null to blame every file and store nothing
+     * @param repositoryKey key of the repository in the snapshot store
+     */
     public BranchSnapshotCalculator(
             StreamRDF writer,
             Repository gitRepository,
             String targetCommitUri,
-            LockHandler lockHandler) {
+            LockHandler lockHandler,
+            int threadCount,
+            BranchSnapshotEngine engine,
+            FileClassifier fileClassifier,
+            BranchSnapshotStore snapshotStore,
+            String repositoryKey) {
 
         this.writer = writer;
         this.gitRepository = gitRepository;
         this.branchSnapshotUri = targetCommitUri;
         this.lockHandler = lockHandler;
+        this.threadCount = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+        this.engine = engine;
+        this.fileClassifier = fileClassifier;
+        this.snapshotStore = snapshotStore != null && snapshotStore.isEnabled() ? snapshotStore : null;
+        this.repositoryKey = repositoryKey;
     }
 
     public void calculateBranchSnapshot() throws IOException {
+        calculateBranchSnapshots(Map.of());
+    }
+
+    /**
+     * Writes the HEAD snapshot and one snapshot for each additional commit.
+     *
+     * @param additionalSnapshotUrisByCommit snapshot URI by commit; HEAD itself is ignored
+     */
+    public void calculateBranchSnapshots(Map<ObjectId, String> additionalSnapshotUrisByCommit) throws IOException {
 
         writer.start();
 
@@ -64,150 +152,618 @@ public class BranchSnapshotCalculator {
 
         lockHandler.renewLockOnRenewTimeFulfillment();
 
-        List<String> fileNames = listRepositoryContents(gitRepository);
+        ObjectId headCommitId = gitRepository.resolve(Constants.HEAD);
+
+        Map<String, String> blobIdsByFileName = listRepositoryContents(gitRepository, headCommitId);
+        List<String> fileNames = new ArrayList<>(blobIdsByFileName.keySet());
 
         log.info("Listed {} files for branch snapshotting", fileNames.size());
 
-        iterateThroughFilesAndWriteBranchSnapshottingEntries(branchSnapshotNode, fileNames);
+        skipReasons = classifyFiles(blobIdsByFileName);
+
+        log.info("Skipping the blame of {} of {} files", skipReasons.size(), fileNames.size());
+
+        if (snapshotStore != null) {
+            knownBlames = findReusableBlames(snapshotStore.load(repositoryKey), headCommitId, blobIdsByFileName);
+            log.info("Reusing the stored blame of {} of {} files", knownBlames.size(), fileNames.size());
+        }
+
+        Map<ObjectId, AdditionalSnapshot> additionalSnapshots =
+                listAdditionalSnapshots(additionalSnapshotUrisByCommit, headCommitId);
+
+        if (engine == BranchSnapshotEngine.HISTORY_PASS || !additionalSnapshots.isEmpty()) {
+            calculateBlamesInHistoryPass(fileNames, additionalSnapshots);
+        }
+
+        List<FileBlame> fileBlames = iterateThroughFilesAndWriteBranchSnapshottingEntries(branchSnapshotNode, fileNames);
 
+        if (snapshotStore != null) {
+
+            List<StoredSnapshotFile> snapshotFiles = new ArrayList<>(fileNames.size());
+
+            for (int ii = 0; ii < fileNames.size(); ii++) {
+
+                String fileName = fileNames.get(ii);
+
+                // Skipped files aren't stored, so they are blamed once the filter no longer skips them
+                if (skipReasons.containsKey(fileName)) {
+                    continue;
+                }
+
+                snapshotFiles.add(new StoredSnapshotFile(fileName, blobIdsByFileName.get(fileName), fileBlames.get(ii)));
+            }
+
+            snapshotStore.save(repositoryKey, headCommitId.getName(), snapshotFiles);
+        }
+
+        for (AdditionalSnapshot additionalSnapshot : additionalSnapshots.values()) {
+            writeAdditionalSnapshot(additionalSnapshot);
+        }
     }
 
-    private void iterateThroughFilesAndWriteBranchSnapshottingEntries(
-            Node branchSnapshotNode, List<String> fileNames) throws IOException {
+    private Map<ObjectId, AdditionalSnapshot> listAdditionalSnapshots(
+            Map<ObjectId, String> additionalSnapshotUrisByCommit, ObjectId headCommitId) throws IOException {
 
-        BlameResultCalculator blameResultCalculator = new BlameResultCalculator(gitRepository);
+        Map<ObjectId, AdditionalSnapshot> additionalSnapshots = new LinkedHashMap<>();
 
-        int branchSnapshotCounter = 0;
+        for (Map.Entry<ObjectId, String> snapshotUriByCommit : additionalSnapshotUrisByCommit.entrySet()) {
 
-        for (int ii = 0; ii < fileNames.size(); ii++) {
+            ObjectId commitId = snapshotUriByCommit.getKey();
 
-            if (branchSnapshotCounter < 1) {
-                log.info("Branch Snapshotting iteration {} started", ii);
-                writer.start();
+            if (commitId.equals(headCommitId)) {
+                continue;
             }
 
-            branchSnapshotCounter++;
+            Map<String, String> blobIdsByFileName = listRepositoryContents(gitRepository, commitId);
 
-            String fileName = fileNames.get(ii);
+            additionalSnapshots.put(commitId, new AdditionalSnapshot(
+                    snapshotUriByCommit.getValue(), blobIdsByFileName, classifyFiles(blobIdsByFileName)));
+        }
 
-            Resource branchSnapshotFileResource = ResourceFactory.createResource();
-            Node branchSnapshotFileNode = branchSnapshotFileResource.asNode();
+        if (!additionalSnapshots.isEmpty()) {
+            log.info("Snapshotting {} additional commits", additionalSnapshots.size());
+        }
 
-            writer.triple(
-                    RdfCommitUtils.createBranchSnapshotFileEntryProperty(branchSnapshotNode, branchSnapshotFileNode));
-            writer.triple(RdfCommitUtils.createBranchSnapshotFilenameProperty(branchSnapshotFileNode, fileName));
+        return additionalSnapshots;
+    }
 
-            BlameResult blameResult;
+    private void writeAdditionalSnapshot(AdditionalSnapshot additionalSnapshot) {
 
-            try {
+        Node snapshotNode = ResourceFactory.createResource(additionalSnapshot.snapshotUri).asNode();
+
+        writer.start();
+        writer.triple(RdfCommitUtils.createBranchSnapshotProperty(snapshotNode));
+        writer.triple(RdfCommitUtils.createBranchSnapshotDateProperty(snapshotNode, LocalDateTime.now(java.time.Clock.systemUTC())));
+        writer.finish();
+
+        int fileIndex = 0;
+
+        for (String fileName : additionalSnapshot.blobIdsByFileName.keySet()) {
+
+            startBatchIfNeeded(fileIndex++);
+
+            writeFileEntry(writer, snapshotNode, fileName, additionalSnapshot.skipReasons.get(fileName),
+                    additionalSnapshot.blames.getOrDefault(fileName, FileBlame.EMPTY));
+
+            finishBatchIfFull();
+
+            lockHandler.renewLockOnRenewTimeFulfillment();
+        }
+
+        finishOpenBatch();
+    }
+
+    private Map<String, String> classifyFiles(Map<String, String> blobIdsByFileName) throws IOException {
+
+        Map<String, String> fileSkipReasons = new HashMap<>();
+        ObjectReader reader = gitRepository.newObjectReader();
+
+        try {
 
-                blameResult = blameResultCalculator.getBlameResult(fileName);
+            for (Map.Entry<String, String> file : blobIdsByFileName.entrySet()) {
 
-            } catch (Exception e) {
-                throw new IllegalStateException("Unable to blame file " + fileName, e);
+                String skipReason = fileClassifier.getSnapshotSkipReason(
+                        reader, file.getKey(), ObjectId.fromString(file.getValue()));
+
+                if (skipReason != null) {
+                    fileSkipReasons.put(file.getKey(), skipReason);
+                }
             }
 
-            if (blameResult == null) {
-                continue;
+        } finally {
+            reader.release();
+        }
+
+        return fileSkipReasons;
+    }
+
+    /**
+     * Blames the additional snapshots and, for the history pass engine, the HEAD files that can't be reused, all in
+     * one pass. Files without result aren't regular files at their commit and have no blamed lines.
+     */
+    private void calculateBlamesInHistoryPass(List<String> fileNames, Map<ObjectId, AdditionalSnapshot> additionalSnapshots)
+            throws IOException {
+
+        Map<ObjectId, Set<String>> fileNamesByCommit = new HashMap<>();
+
+        for (Map.Entry<ObjectId, AdditionalSnapshot> additionalSnapshot : additionalSnapshots.entrySet()) {
+
+            Set<String> snapshotFileNames = new HashSet<>(additionalSnapshot.getValue().blobIdsByFileName.keySet());
+            snapshotFileNames.removeAll(additionalSnapshot.getValue().skipReasons.keySet());
+
+            fileNamesByCommit.put(additionalSnapshot.getKey(), snapshotFileNames);
+        }
+
+        ObjectId headCommitId = gitRepository.resolve(Constants.HEAD);
+        Set<String> unknownFileNames = new HashSet<>();
+
+        if (engine == BranchSnapshotEngine.HISTORY_PASS) {
+
+            unknownFileNames.addAll(fileNames);
+            unknownFileNames.removeAll(knownBlames.keySet());
+            unknownFileNames.removeAll(skipReasons.keySet());
+
+            if (!unknownFileNames.isEmpty()) {
+                fileNamesByCommit.put(headCommitId, unknownFileNames);
             }
+        }
 
-            String prevCommitHash = null;
-            int linenumberBegin = 1;
+        Map<ObjectId, Map<String, FileBlame>> blamesByCommit = fileNamesByCommit.isEmpty()
+                ? Map.of()
+                : new HistoryBlameCalculator(gitRepository, lockHandler, fileClassifier).calculateBlames(fileNamesByCommit);
 
-            RawText blameText = blameResult.getResultContents();
-            int lineCount = blameText.size();
+        for (Map.Entry<ObjectId, AdditionalSnapshot> additionalSnapshot : additionalSnapshots.entrySet()) {
+            additionalSnapshot.getValue().blames = blamesByCommit.getOrDefault(additionalSnapshot.getKey(), Map.of());
+        }
 
-            for (int lineIdx = 0; lineIdx < lineCount; lineIdx++) {
+        if (engine == BranchSnapshotEngine.HISTORY_PASS) {
 
-                RevCommit commit = blameResult.getSourceCommit(lineIdx);
+            Map<String, FileBlame> blames = new HashMap<>(knownBlames);
+            blames.putAll(blamesByCommit.getOrDefault(headCommitId, Map.of()));
 
-                if (commit == null) {
-                    continue;
+            for (String fileName : unknownFileNames) {
+                blames.putIfAbsent(fileName, FileBlame.EMPTY);
+            }
+
+            knownBlames = blames;
+        }
+    }
+
+    /**
+     * @return the stored blames that are still valid at {@code headCommitId}, by file name
+     */
+    private Map<String, FileBlame> findReusableBlames(
+            StoredBranchSnapshot previousSnapshot,
+            ObjectId headCommitId,
+            Map<String, String> blobIdsByFileName) throws IOException {
+
+        if (previousSnapshot == null) {
+            return Map.of();
+        }
+
+        Set<String> changedPaths = collectPathsChangedSince(previousSnapshot.getHeadCommit(), headCommitId);
+
+        if (changedPaths == null) {
+            log.info("Stored branch snapshot at {} isn't on the first-parent history of HEAD, blaming all files",
+                    previousSnapshot.getHeadCommit());
+            return Map.of();
+        }
+
+        Map<String, FileBlame> reusable = new HashMap<>();
+
+        for (StoredSnapshotFile storedFile : previousSnapshot.getFilesByPath().values()) {
+
+            String blobId = blobIdsByFileName.get(storedFile.getPath());
+
+            if (storedFile.getBlobId().equals(blobId) && !changedPaths.contains(storedFile.getPath())) {
+                reusable.put(storedFile.getPath(), storedFile.getBlame());
+            }
+        }
+
+        return reusable;
+    }
+
+    /**
+     * Follows the first parents from {@code headCommitId} back to {@code previousHeadCommit} and collects the paths
+     * that any of these commits changed compared to its first parent.
+     *
+     * @return the changed paths, or null if {@code previousHeadCommit} isn't on the first-parent history of HEAD
+     */
+    private Set<String> collectPathsChangedSince(String previousHeadCommit, ObjectId headCommitId) throws IOException {
+
+        ObjectId previousHeadCommitId;
+
+        try {
+            previousHeadCommitId = ObjectId.fromString(previousHeadCommit);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+
+        RevWalk walk = new RevWalk(gitRepository);
+        DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
+
+        try {
+
+            if (!gitRepository.hasObject(previousHeadCommitId)) {
+                return null;
+            }
+
+            diffFormatter.setRepository(gitRepository);
+
+            Set<String> changedPaths = new HashSet<>();
+            RevCommit commit = walk.parseCommit(headCommitId);
+
+            while (!commit.equals(previousHeadCommitId)) {
+
+                if (commit.getParentCount() == 0) {
+                    return null;
                 }
 
-                String currentCommitHash = commit.getId().name();
+                RevCommit firstParent = walk.parseCommit(commit.getParent(0));
 
-                if (prevCommitHash == null) {
-                    prevCommitHash = currentCommitHash;
+                for (DiffEntry diffEntry : diffFormatter.scan(firstParent.getTree(), commit.getTree())) {
+                    changedPaths.add(diffEntry.getOldPath());
+                    changedPaths.add(diffEntry.getNewPath());
                 }
 
-                boolean isAtEnd = lineIdx == lineCount - 1;
-                boolean isNewCommit = !currentCommitHash.equals(prevCommitHash);
+                commit = firstParent;
+                lockHandler.renewLockOnRenewTimeFulfillment();
+            }
 
-                if (isNewCommit || isAtEnd) {
+            changedPaths.remove(DiffEntry.DEV_NULL);
+            return changedPaths;
 
-                    Resource branchSnapshotLineEntryResource = ResourceFactory.createResource();
-                    Node branchSnapshotLineEntryNode = branchSnapshotLineEntryResource.asNode();
+        } catch (MissingObjectException ex) {
+            return null;
+        } finally {
+            diffFormatter.release();
+            walk.release();
+        }
+    }
 
-                    int lineNumberEnd = lineIdx;
+    /**
+     * @return the blame of every file, in the order of {@code fileNames}
+     */
+    private List<FileBlame> iterateThroughFilesAndWriteBranchSnapshottingEntries(
+            Node branchSnapshotNode, List<String> fileNames) throws IOException {
 
-                    if (isAtEnd) {
+        if (threadCount > 1 && engine == BranchSnapshotEngine.PER_FILE) {
+            return iterateThroughFilesInParallelAndWriteBranchSnapshottingEntries(branchSnapshotNode, fileNames);
+        }
 
-                        lineNumberEnd += 1;
+        BlameResultCalculator blameResultCalculator = engine == BranchSnapshotEngine.PER_FILE
+                ? new BlameResultCalculator(gitRepository)
+                : null;
+        List<FileBlame> fileBlames = new ArrayList<>(fileNames.size());
 
+        for (int ii = 0; ii < fileNames.size(); ii++) {
 
-                        writer.triple(RdfCommitUtils.createBranchSnapshotLineEntryProperty(branchSnapshotFileNode, branchSnapshotLineEntryNode));
-                        writer.triple(RdfCommitUtils.createBranchSnapshotCommitHashProperty(branchSnapshotLineEntryNode, prevCommitHash));
-                        // v2.1: No longer need SPDX CheckSum triples - hash is now a plain string
-                        writer.triple(RdfCommitUtils.createLineBeginProperty(branchSnapshotLineEntryNode, linenumberBegin));
-                        writer.triple(RdfCommitUtils.createLineEndProperty(branchSnapshotLineEntryNode, lineNumberEnd));
+            startBatchIfNeeded(ii);
 
-                        if (isNewCommit) {
+            FileBlame fileBlame = blameFile(fileNames.get(ii), blameResultCalculator);
+            writeFileEntry(writer, branchSnapshotNode, fileNames.get(ii), skipReasons.get(fileNames.get(ii)), fileBlame);
+            fileBlames.add(fileBlame);
 
-                            writer.triple(RdfCommitUtils.createBranchSnapshotLineEntryProperty(branchSnapshotFileNode, branchSnapshotLineEntryNode));
-                            writer.triple(RdfCommitUtils.createBranchSnapshotCommitHashProperty(branchSnapshotLineEntryNode, currentCommitHash));
-                            // v2.1: No longer need SPDX CheckSum triples - hash is now a plain string
-                            writer.triple(RdfCommitUtils.createLineBeginProperty(branchSnapshotLineEntryNode, lineNumberEnd));
-                            writer.triple(RdfCommitUtils.createLineEndProperty(branchSnapshotLineEntryNode, lineNumberEnd));
-                        }
-                    }
+            finishBatchIfFull();
 
-                    if (isNewCommit) {
+            lockHandler.renewLockOnRenewTimeFulfillment();
+        }
 
+        finishOpenBatch();
 
-                        writer.triple(RdfCommitUtils.createBranchSnapshotLineEntryProperty(branchSnapshotFileNode, branchSnapshotLineEntryNode));
-                        writer.triple(RdfCommitUtils.createBranchSnapshotCommitHashProperty(branchSnapshotLineEntryNode, prevCommitHash));
-                        // v2.1: No longer need SPDX CheckSum triples - hash is now a plain string
-                        writer.triple(RdfCommitUtils.createLineBeginProperty(branchSnapshotLineEntryNode, linenumberBegin));
-                        writer.triple(RdfCommitUtils.createLineEndProperty(branchSnapshotLineEntryNode, lineNumberEnd));
-                        prevCommitHash = currentCommitHash;
-                    }
+        return fileBlames;
+    }
+
+    /**
+     * Blames up to {@code threadCount * FILES_IN_FLIGHT_PER_THREAD} files ahead on the worker threads, each with its
+     * own repository instance, and writes the entries on the calling thread in the order of {@code fileNames}.
+     */
+    private List<FileBlame> iterateThroughFilesInParallelAndWriteBranchSnapshottingEntries(
+            Node branchSnapshotNode, List<String> fileNames) {
+
+        log.info("Blaming files with {} threads", threadCount);
+
+        Queue<Repository> openedRepositories = new ConcurrentLinkedQueue<>();
+
+        ThreadLocal<BlameResultCalculator> threadBlameResultCalculator = ThreadLocal.withInitial(() -> {
+            try {
+                Repository threadRepository = openThreadConfinedRepository();
+                openedRepositories.add(threadRepository);
+                return new BlameResultCalculator(threadRepository);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to open repository for blame worker", e);
+            }
+        });
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "blame-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+
+            List<FileBlame> fileBlames = new ArrayList<>(fileNames.size());
+            Deque<Future<FileEntry>> inFlight = new ArrayDeque<>();
+            int maxInFlight = threadCount * FILES_IN_FLIGHT_PER_THREAD;
+            int nextToSubmit = 0;
+
+            for (int ii = 0; ii < fileNames.size(); ii++) {
+
+                while (nextToSubmit < fileNames.size() && inFlight.size() < maxInFlight) {
+                    String fileName = fileNames.get(nextToSubmit++);
+                    inFlight.add(executorService.submit(() -> {
+                        FileBlame fileBlame = blameFile(fileName, threadBlameResultCalculator.get());
+                        TripleCollector collector = new TripleCollector();
+                        writeFileEntry(collector, branchSnapshotNode, fileName, skipReasons.get(fileName), fileBlame);
+                        return new FileEntry(fileBlame, collector.getTriples());
+                    }));
+                }
+
+                FileEntry fileEntry = awaitFileEntry(inFlight.poll());
+                fileBlames.add(fileEntry.blame);
+
+                startBatchIfNeeded(ii);
 
-                    linenumberBegin = lineIdx + 1;
+                for (Triple triple : fileEntry.triples) {
+                    writer.triple(triple);
                 }
+
+                finishBatchIfFull();
+
+                lockHandler.renewLockOnRenewTimeFulfillment();
             }
 
-            if (branchSnapshotCounter > 99) {
-                writer.finish();
-                branchSnapshotCounter = 0;
+            finishOpenBatch();
+
+            return fileBlames;
+
+        } finally {
+
+            // Blames still running must not read from a closed repository
+            if (shutdownBlameWorkers(executorService)) {
+                for (Repository threadRepository : openedRepositories) {
+                    threadRepository.close();
+                }
             }
+        }
+    }
 
-            lockHandler.renewLockOnRenewTimeFulfillment();
+    /**
+     * @return true if all workers stopped, false if they didn't stop in time and their repositories must stay open
+     */
+    private boolean shutdownBlameWorkers(ExecutorService executorService) {
+
+        executorService.shutdownNow();
 
+        try {
+            for (int waitedSeconds = 0; waitedSeconds < TERMINATION_TIMEOUT_SECONDS; waitedSeconds++) {
+                if (executorService.awaitTermination(1, TimeUnit.SECONDS)) {
+                    return true;
+                }
+                lockHandler.renewLockOnRenewTimeFulfillment();
+            }
+            log.warn("Blame threads didn't stop within {} seconds, their repositories aren't closed",
+                    TERMINATION_TIMEOUT_SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for the blame threads to stop, their repositories aren't closed");
         }
 
+        return false;
+    }
+
+    private FileEntry awaitFileEntry(Future<FileEntry> fileEntry) {
+
+        while (true) {
+            try {
+                return fileEntry.get(1, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                lockHandler.renewLockOnRenewTimeFulfillment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for blame results", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException("Blame worker failed", e.getCause());
+            }
+        }
+    }
+
+    private Repository openThreadConfinedRepository() throws IOException {
+
+        FileRepositoryBuilder repositoryBuilder = new FileRepositoryBuilder().setGitDir(gitRepository.getDirectory());
+
+        if (gitRepository.isBare()) {
+            repositoryBuilder.setBare();
+        } else {
+            repositoryBuilder.setWorkTree(gitRepository.getWorkTree());
+        }
+
+        return repositoryBuilder.build();
+    }
+
+    private void startBatchIfNeeded(int fileIndex) {
+
+        if (branchSnapshotCounter < 1) {
+            log.info("Branch Snapshotting iteration {} started", fileIndex);
+            writer.start();
+        }
+
+        branchSnapshotCounter++;
+    }
+
+    private void finishBatchIfFull() {
+
+        if (branchSnapshotCounter > 99) {
+            writer.finish();
+            branchSnapshotCounter = 0;
+        }
+    }
+
+    private void finishOpenBatch() {
+
         if (branchSnapshotCounter > 0) {
             writer.finish();
+            branchSnapshotCounter = 0;
+        }
+    }
+
+    private FileBlame blameFile(String fileName, BlameResultCalculator blameResultCalculator) {
+
+        if (skipReasons.containsKey(fileName)) {
+            return FileBlame.EMPTY;
+        }
+
+        FileBlame knownBlame = knownBlames.get(fileName);
+
+        if (knownBlame != null) {
+            return knownBlame;
         }
 
+        try {
+
+            return FileBlame.fromBlameResult(blameResultCalculator.getBlameResult(fileName));
+
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to blame file " + fileName, e);
+        }
+    }
+
+    private void writeFileEntry(
+            StreamRDF target,
+            Node branchSnapshotNode,
+            String fileName,
+            String skipReason,
+            FileBlame fileBlame) {
+
+        Resource branchSnapshotFileResource = ResourceFactory.createResource();
+        Node branchSnapshotFileNode = branchSnapshotFileResource.asNode();
+
+        target.triple(
+                RdfCommitUtils.createBranchSnapshotFileEntryProperty(branchSnapshotNode, branchSnapshotFileNode));
+        target.triple(RdfCommitUtils.createBranchSnapshotFilenameProperty(branchSnapshotFileNode, fileName));
+
+        if (skipReason != null) {
+            target.triple(RdfCommitUtils.createBranchSnapshotContentSkippedProperty(branchSnapshotFileNode, skipReason));
+            return;
+        }
+
+        String prevCommitHash = null;
+        int linenumberBegin = 1;
+
+        String[] lineCommits = fileBlame.toLineCommits();
+        int lineCount = lineCommits.length;
+
+        for (int lineIdx = 0; lineIdx < lineCount; lineIdx++) {
+
+            String currentCommitHash = lineCommits[lineIdx];
+
+            if (currentCommitHash == null) {
+                continue;
+            }
+
+            if (prevCommitHash == null) {
+                prevCommitHash = currentCommitHash;
+            }
+
+            boolean isAtEnd = lineIdx == lineCount - 1;
+            boolean isNewCommit = !currentCommitHash.equals(prevCommitHash);
+
+            if (isNewCommit || isAtEnd) {
+
+                Resource branchSnapshotLineEntryResource = ResourceFactory.createResource();
+                Node branchSnapshotLineEntryNode = branchSnapshotLineEntryResource.asNode();
+
+                int lineNumberEnd = lineIdx;
+
+                if (isAtEnd) {
+
+                    lineNumberEnd += 1;
+
+
+                    target.triple(RdfCommitUtils.createBranchSnapshotLineEntryProperty(branchSnapshotFileNode, branchSnapshotLineEntryNode));
+                    target.triple(RdfCommitUtils.createBranchSnapshotCommitHashProperty(branchSnapshotLineEntryNode, prevCommitHash));
+                    // v2.1: No longer need SPDX CheckSum triples - hash is now a plain string
+                    target.triple(RdfCommitUtils.createLineBeginProperty(branchSnapshotLineEntryNode, linenumberBegin));
+                    target.triple(RdfCommitUtils.createLineEndProperty(branchSnapshotLineEntryNode, lineNumberEnd));
+
+                    if (isNewCommit) {
+
+                        target.triple(RdfCommitUtils.createBranchSnapshotLineEntryProperty(branchSnapshotFileNode, branchSnapshotLineEntryNode));
+                        target.triple(RdfCommitUtils.createBranchSnapshotCommitHashProperty(branchSnapshotLineEntryNode, currentCommitHash));
+                        // v2.1: No longer need SPDX CheckSum triples - hash is now a plain string
+                        target.triple(RdfCommitUtils.createLineBeginProperty(branchSnapshotLineEntryNode, lineNumberEnd));
+                        target.triple(RdfCommitUtils.createLineEndProperty(branchSnapshotLineEntryNode, lineNumberEnd));
+                    }
+                }
+
+                if (isNewCommit) {
+
+
+                    target.triple(RdfCommitUtils.createBranchSnapshotLineEntryProperty(branchSnapshotFileNode, branchSnapshotLineEntryNode));
+                    target.triple(RdfCommitUtils.createBranchSnapshotCommitHashProperty(branchSnapshotLineEntryNode, prevCommitHash));
+                    // v2.1: No longer need SPDX CheckSum triples - hash is now a plain string
+                    target.triple(RdfCommitUtils.createLineBeginProperty(branchSnapshotLineEntryNode, linenumberBegin));
+                    target.triple(RdfCommitUtils.createLineEndProperty(branchSnapshotLineEntryNode, lineNumberEnd));
+                    prevCommitHash = currentCommitHash;
+                }
+
+                linenumberBegin = lineIdx + 1;
+            }
+        }
     }
 
     // See: https://stackoverflow.com/q/19941597/11341498
-    private List<String> listRepositoryContents(Repository repository) throws IOException {
+    private Map<String, String> listRepositoryContents(Repository repository, ObjectId commitId) throws IOException {
 
-        Ref head = repository.getRef("HEAD");
         RevWalk walk = new RevWalk(repository);
-        RevCommit commit = walk.parseCommit(head.getObjectId());
+        RevCommit commit = walk.parseCommit(commitId);
         TreeWalk treeWalk = new TreeWalk(repository);
         treeWalk.addTree(commit.getTree());
         treeWalk.setRecursive(true);
-        List<String> fileNames = new ArrayList<String>();
+        Map<String, String> blobIdsByFileName = new LinkedHashMap<String, String>();
 
         while (treeWalk.next()) {
-            fileNames.add(treeWalk.getPathString());
+            blobIdsByFileName.put(treeWalk.getPathString(), treeWalk.getObjectId(0).getName());
         }
 
-        return fileNames;
+        return blobIdsByFileName;
+    }
+
+    /**
+     * Snapshot of a commit other than HEAD.
+     */
+    private static class AdditionalSnapshot {
+
+        private final String snapshotUri;
+
+        private final Map<String, String> blobIdsByFileName;
+
+        private final Map<String, String> skipReasons;
+
+        private Map<String, FileBlame> blames = Map.of();
+
+        AdditionalSnapshot(String snapshotUri, Map<String, String> blobIdsByFileName, Map<String, String> skipReasons) {
+            this.snapshotUri = snapshotUri;
+            this.blobIdsByFileName = blobIdsByFileName;
+            this.skipReasons = skipReasons;
+        }
+    }
+
+    private static class FileEntry {
+
+        private final FileBlame blame;
+
+        private final List<Triple> triples;
+
+        FileEntry(FileBlame blame, List<Triple> triples) {
+            this.blame = blame;
+            this.triples = triples;
+        }
     }
 
 }
@@ -0,0 +1,20 @@
+package de.leipzig.htwk.gitrdf.worker.calculator;
+
+/**
+ * How the line attribution of the branch snapshot is computed. Both engines write the same line entries.
+ */
+public enum BranchSnapshotEngine {
+
+    /**
+     * One blame per file with {@link BlameResultCalculator}, each walking the history of its file. Files can be
+     * blamed in parallel.
+     */
+    PER_FILE,
+
+    /**
+     * All files at once with {@link HistoryBlameCalculator}, in one pass over the history that parses every commit
+     * and diffs every tree only once. Doesn't look at uncommitted changes in the working tree.
+     */
+    HISTORY_PASS
+
+}
@@ -0,0 +1,111 @@
+package de.leipzig.htwk.gitrdf.worker.calculator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Walks the commit log reachable from HEAD with a single {@link RevWalk} cursor and hands the commits out in
+ * batches. Unlike repeated {@code git log --skip=n --max-count=m} calls, every commit is visited exactly once, so
+ * the whole traversal is O(n) instead of O(n²) for large histories.
+ * <p>
+ * Commit bodies (message and identities) are only retained by the walk if the caller actually needs them. Without
+ * bodies the walk only keeps the parsed headers (tree, parents and commit time) of each visited commit.
+ */
+@Slf4j
+public class CommitBatchWalker {
+
+    private final RevWalk revWalk;
+
+    private final int batchSize;
+
+    private final int commitLimit;
+
+    private int commitsWalked = 0;
+
+    private boolean exhausted = false;
+
+    /**
+     * @param repository   the repository to walk, starting at HEAD
+     * @param batchSize    maximum number of commits per batch
+     * @param commitLimit  maximum number of commits to walk overall; a value of 0 or less means no limit
+     * @param retainBodies whether message and identity fields are needed for the returned commits
+     */
+    public CommitBatchWalker(Repository repository, int batchSize, int commitLimit, boolean retainBodies)
+            throws IOException {
+
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Commit batch size must be greater than 0, but was " + batchSize);
+        }
+
+        this.revWalk = new RevWalk(repository);
+        this.revWalk.setRetainBody(retainBodies);
+        this.batchSize = batchSize;
+        this.commitLimit = commitLimit;
+
+        ObjectId head = repository.resolve(Constants.HEAD);
+
+        if (head == null) {
+            log.info("Repository has no HEAD commit, nothing to walk");
+            this.exhausted = true;
+        } else {
+            this.revWalk.markStart(this.revWalk.parseCommit(head));
+        }
+    }
+
+    /**
+     * Returns the next batch of commits in log order. An empty list signals that the walk is finished, either
+     * because the history is exhausted or because the commit limit was reached.
+     */
+    public List<RevCommit> nextBatch() throws IOException {
+
+        if (exhausted) {
+            return Collections.emptyList();
+        }
+
+        List<RevCommit> batch = new ArrayList<>(batchSize);
+
+        while (batch.size() < batchSize) {
+
+            if (isCommitLimitReached()) {
+                log.info("Max computed commits reached ({}), stopping commit walk", commitLimit);
+                exhausted = true;
+                break;
+            }
+
+            RevCommit commit = revWalk.next();
+
+            if (commit == null) {
+                exhausted = true;
+                break;
+            }
+
+            batch.add(commit);
+            commitsWalked++;
+        }
+
+        return batch;
+    }
+
+    public int getCommitsWalked() {
+        return commitsWalked;
+    }
+
+    public boolean isCommitLimitReached() {
+        return commitLimit > 0 && commitsWalked >= commitLimit;
+    }
+
+    public void release() {
+        revWalk.release();
+    }
+
+}
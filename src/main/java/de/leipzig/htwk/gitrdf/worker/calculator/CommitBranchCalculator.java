@@ -2,62 +2,165 @@ package de.leipzig.htwk.gitrdf.worker.calculator;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevWalk;
 
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index of the branches that contain each commit.
+ * <p>
+ * Every branch gets a bit index. All branch tips are walked once in topological order (children before parents),
+ * and the branch set of each commit is propagated to its parents. Identical branch sets are shared between commits,
+ * so memory grows with the number of commits plus the number of distinct sets, not with commits times branches.
+ * A lookup is a hash lookup of the commit followed by a cached bitset to name list conversion.
+ */
+@Slf4j
 public class CommitBranchCalculator {
 
-    private final Map<String, List<String>> commitToBranchMap;
+    private final List<String> branchNames = new ArrayList<>();
 
-    public CommitBranchCalculator(Iterable<Ref> branches, RevWalk gitRepositoryRevWalk) throws IOException {
-        this.commitToBranchMap = new HashMap<>();
-        iterateThroughBranchesAndBuildCommitHashmap(branches, gitRepositoryRevWalk);
+    private final BranchIndexRevWalk revWalk;
+
+    private final Map<BitSet, BitSet> internedBranchSets = new HashMap<>();
+
+    private final Map<BitSet, List<String>> branchNamesBySet = new HashMap<>();
+
+    private int indexedCommitCount = 0;
+
+    public CommitBranchCalculator(Iterable<Ref> branches, Repository repository) throws IOException {
+        this.revWalk = new BranchIndexRevWalk(repository);
+        this.revWalk.setRetainBody(false);
+        buildIndex(branches);
     }
 
     public List<String> getBranchesForShaHashOfCommit(String shaCommitHash) {
-        List<String> branches = commitToBranchMap.get(shaCommitHash);
-        return branches == null ? Collections.emptyList() : branches;
+
+        RevCommit commit = revWalk.lookupCommit(ObjectId.fromString(shaCommitHash));
+
+        BitSet branchSet = commit instanceof IndexedCommit ? ((IndexedCommit) commit).branchSet : null;
+
+        if (branchSet == null) {
+            return Collections.emptyList();
+        }
+
+        return branchNamesBySet.computeIfAbsent(branchSet, this::toBranchNames);
+    }
+
+    public void release() {
+        revWalk.release();
     }
 
-    private void iterateThroughBranchesAndBuildCommitHashmap(Iterable<Ref> branches, RevWalk gitRepositoryRevWalk)
-            throws IOException {
+    private void buildIndex(Iterable<Ref> branches) throws IOException {
+
+        revWalk.sort(RevSort.TOPO);
+
         for (Ref branchRef : branches) {
-            RevCommit branchTipCommit = gitRepositoryRevWalk.lookupCommit(branchRef.getObjectId());
-            String branchName = branchRef.getName(); // Use clean name instead
 
-            gitRepositoryRevWalk.reset();
-            gitRepositoryRevWalk.markStart(branchTipCommit);
+            IndexedCommit branchTipCommit;
 
-            RevCommit commit = null;
-            while ((commit = gitRepositoryRevWalk.next()) != null) {
-                updateCommitWithBranch(commit, branchName);
+            try {
+                branchTipCommit = (IndexedCommit) revWalk.parseCommit(branchRef.getObjectId());
+            } catch (IncorrectObjectTypeException ex) {
+                log.warn("Branch '{}' doesn't point to a commit, skipping it in the branch index", branchRef.getName());
+                continue;
             }
+
+            BitSet tipBranchSet = branchTipCommit.branchSet == null ? new BitSet() : (BitSet) branchTipCommit.branchSet.clone();
+            tipBranchSet.set(branchNames.size());
+
+            branchTipCommit.branchSet = tipBranchSet;
+            branchNames.add(branchRef.getName()); // Use clean name instead
+
+            revWalk.markStart(branchTipCommit);
         }
+
+        IndexedCommit commit;
+        while ((commit = (IndexedCommit) revWalk.next()) != null) {
+
+            // All children were emitted before, so the set of this commit is complete
+            commit.branchSet = intern(commit.branchSet);
+            indexedCommitCount++;
+
+            for (RevCommit parent : commit.getParents()) {
+                propagate(commit.branchSet, (IndexedCommit) parent);
+            }
+        }
+
+        log.info("Built branch index of {} commits and {} branches with {} distinct branch sets",
+                indexedCommitCount, branchNames.size(), internedBranchSets.size());
     }
 
-    private void updateCommitWithBranch(RevCommit commit, String branchName) {
+    private void propagate(BitSet childBranchSet, IndexedCommit parent) {
 
-        String commitHash = commit.getName();
+        if (parent.branchSet == null || parent.branchSet == childBranchSet) {
+            parent.branchSet = childBranchSet;
+            return;
+        }
 
-        List<String> branchNames = this.commitToBranchMap.get(commitHash);
+        BitSet missing = (BitSet) childBranchSet.clone();
+        missing.andNot(parent.branchSet);
+
+        if (!missing.isEmpty()) {
+            // Sets may be shared with other commits, so they are never modified in place
+            BitSet merged = (BitSet) parent.branchSet.clone();
+            merged.or(missing);
+            parent.branchSet = merged;
+        }
+    }
 
-        if (branchNames == null) {
+    private BitSet intern(BitSet branchSet) {
+        return internedBranchSets.computeIfAbsent(branchSet, key -> key);
+    }
 
-            List<String> newBranchNameList = new ArrayList<>();
-            newBranchNameList.add(branchName);
+    private List<String> toBranchNames(BitSet branchSet) {
 
-            this.commitToBranchMap.put(commitHash, newBranchNameList);
+        List<String> names = new ArrayList<>(branchSet.cardinality());
 
-        } else {
-            branchNames.add(branchName);
+        for (int branchIndex = branchSet.nextSetBit(0); branchIndex >= 0; branchIndex = branchSet.nextSetBit(branchIndex + 1)) {
+            names.add(branchNames.get(branchIndex));
         }
 
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Commit that carries the set of branches it's reachable from.
+     */
+    private static class IndexedCommit extends RevCommit {
+
+        // RevCommit is Serializable through ObjectId, but commits of a walk are never serialized
+        private static final long serialVersionUID = 1L;
+
+        private BitSet branchSet;
+
+        IndexedCommit(AnyObjectId id) {
+            super(id);
+        }
+    }
+
+    private static class BranchIndexRevWalk extends RevWalk {
+
+        BranchIndexRevWalk(Repository repository) {
+            super(repository);
+        }
+
+        @Override
+        protected RevCommit createCommit(AnyObjectId id) {
+            return new IndexedCommit(id);
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,136 @@
+package de.leipzig.htwk.gitrdf.worker.calculator;
+
+import java.io.IOException;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Checks and diffs the blob content of a single {@link DiffEntry}, without formatting a patch. The edits are the
+ * same as the ones of {@code DiffFormatter.toFileHeader(entry).toEditList()} with the default histogram algorithm.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class DiffContentCalculator {
+
+    public static final String SKIPPED_BINARY = "binary";
+
+    public static final String SKIPPED_SIZE = "size";
+
+    /**
+     * Blobs above this size are treated as binary, like {@code DiffFormatter} does with its default binary file
+     * threshold.
+     */
+    private static final long BINARY_FILE_THRESHOLD = 50L * 1024 * 1024;
+
+    private static final DiffAlgorithm DIFF_ALGORITHM
+            = DiffAlgorithm.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM);
+
+    /**
+     * Submodule entries point to commits of another repository, so there is no content to diff.
+     */
+    public static boolean hasBlobContent(DiffEntry diffEntry) {
+        return diffEntry.getOldMode() != FileMode.GITLINK && diffEntry.getNewMode() != FileMode.GITLINK;
+    }
+
+    /**
+     * Whether one side of the entry is larger than {@code maxBlobBytes}. Only the object headers are read. A
+     * threshold of 0 or less disables the check.
+     */
+    public static boolean exceedsSizeThreshold(ObjectReader reader, DiffEntry diffEntry, long maxBlobBytes)
+            throws IOException {
+
+        if (maxBlobBytes <= 0) {
+            return false;
+        }
+
+        return blobSize(reader, diffEntry.getOldId()) > maxBlobBytes
+                || blobSize(reader, diffEntry.getNewId()) > maxBlobBytes;
+    }
+
+    /**
+     * Diffs the blob content of the entry, reusing decoded blobs from the cache. The caller is expected to have
+     * checked the size threshold before.
+     *
+     * @return the edits from the old to the new content, or null if one side is binary
+     */
+    public static EditList calculateEditList(RawTextCache rawTextCache, ObjectReader reader, DiffEntry diffEntry)
+            throws IOException {
+
+        if (exceedsSizeThreshold(reader, diffEntry, BINARY_FILE_THRESHOLD)) {
+            return null;
+        }
+
+        RawText oldText = rawText(rawTextCache, reader, diffEntry.getOldId());
+        RawText newText = oldText == null ? null : rawText(rawTextCache, reader, diffEntry.getNewId());
+
+        if (oldText == null || newText == null) {
+            return null;
+        }
+
+        return DIFF_ALGORITHM.diff(RawTextComparator.DEFAULT, oldText, newText);
+    }
+
+    /**
+     * Number of added lines like {@code git diff --numstat}.
+     */
+    public static int countAddedLines(EditList editList) {
+
+        int linesAdded = 0;
+
+        for (Edit edit : editList) {
+            linesAdded += edit.getLengthB();
+        }
+
+        return linesAdded;
+    }
+
+    /**
+     * Number of deleted lines like {@code git diff --numstat}.
+     */
+    public static int countDeletedLines(EditList editList) {
+
+        int linesDeleted = 0;
+
+        for (Edit edit : editList) {
+            linesDeleted += edit.getLengthA();
+        }
+
+        return linesDeleted;
+    }
+
+    private static long blobSize(ObjectReader reader, AbbreviatedObjectId id) throws IOException {
+
+        ObjectId objectId = id == null ? null : id.toObjectId();
+
+        if (objectId == null || ObjectId.zeroId().equals(objectId)) {
+            return 0;
+        }
+
+        return reader.getObjectSize(objectId, Constants.OBJ_BLOB);
+    }
+
+    private static RawText rawText(RawTextCache rawTextCache, ObjectReader reader, AbbreviatedObjectId id)
+            throws IOException {
+
+        ObjectId objectId = id == null ? null : id.toObjectId();
+
+        if (objectId == null || ObjectId.zeroId().equals(objectId)) {
+            return RawText.EMPTY_TEXT;
+        }
+
+        return rawTextCache.get(reader, objectId);
+    }
+
+}
@@ -0,0 +1,366 @@
+package de.leipzig.htwk.gitrdf.worker.calculator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+
+import de.leipzig.htwk.gitrdf.worker.config.FileFilterConfig;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides which files are skipped by branch snapshots and commit diffs, and why.
+ * <p>
+ * Files are skipped if the {@code .gitattributes} files of the commit mark them as {@code linguist-generated},
+ * {@code linguist-vendored} or {@code binary} (also {@code -text} and {@code -diff}), or if they match one of the
+ * configured exclude globs. Snapshots can additionally skip files above a size limit and files with binary content.
+ * Every check is off by default.
+ * <p>
+ * Attribute files are read once from the given commit and apply to the whole history. Patterns follow the
+ * gitattributes rules: a pattern without slash matches the file name in any directory below the attribute file,
+ * otherwise it's matched against the path relative to the attribute file. Deeper and later lines take precedence.
+ * This is a subset of git's attribute handling, so the result can differ from {@code git check-attr}: macros other
+ * than {@code binary}, quoted patterns, {@code .git/info/attributes} and global attribute files aren't supported.
+ */
+@Slf4j
+public class FileClassifier {
+
+    public static final String SKIPPED_GENERATED = "generated";
+
+    public static final String SKIPPED_VENDORED = "vendored";
+
+    public static final String SKIPPED_EXCLUDED = "excluded";
+
+    private static final String GIT_ATTRIBUTES_FILE = ".gitattributes";
+
+    private final List<AttributeRule> attributeRules;
+
+    private final List<Glob> excludeGlobs;
+
+    private final long snapshotMaxFileBytes;
+
+    private final boolean snapshotSkipBinary;
+
+    private FileClassifier(
+            List<AttributeRule> attributeRules,
+            List<Glob> excludeGlobs,
+            long snapshotMaxFileBytes,
+            boolean snapshotSkipBinary) {
+
+        this.attributeRules = attributeRules;
+        this.excludeGlobs = excludeGlobs;
+        this.snapshotMaxFileBytes = snapshotMaxFileBytes;
+        this.snapshotSkipBinary = snapshotSkipBinary;
+    }
+
+    /**
+     * @param commitId commit to read the attribute files from; null if the repository has no commit
+     */
+    public static FileClassifier create(Repository repository, ObjectId commitId, FileFilterConfig config)
+            throws IOException {
+
+        List<AttributeRule> attributeRules = config.isGitAttributesEnabled() && commitId != null
+                ? readAttributeRules(repository, commitId)
+                : List.of();
+
+        List<Glob> excludeGlobs = new ArrayList<>();
+
+        for (String excludeGlob : config.getExcludeGlobs()) {
+            excludeGlobs.add(Glob.compile(excludeGlob));
+        }
+
+        log.info("Classifying files with {} attribute rules and {} exclude globs",
+                attributeRules.size(), excludeGlobs.size());
+
+        return new FileClassifier(
+                attributeRules, excludeGlobs, config.getSnapshotMaxFileBytes(), config.isSnapshotSkipBinary());
+    }
+
+    /**
+     * Checks the attributes and exclude globs of the path. No blob is loaded.
+     *
+     * @return the reason the file is skipped, or null if it's processed
+     */
+    public String getPathSkipReason(String path) {
+
+        for (Glob excludeGlob : excludeGlobs) {
+            if (excludeGlob.matches(path)) {
+                return SKIPPED_EXCLUDED;
+            }
+        }
+
+        if (attributeRules.isEmpty()) {
+            return null;
+        }
+
+        Map<String, String> attributes = new HashMap<>();
+
+        for (AttributeRule attributeRule : attributeRules) {
+            if (attributeRule.matches(path)) {
+                attributeRule.applyTo(attributes);
+            }
+        }
+
+        if (isSet(attributes.get("linguist-generated"))) {
+            return SKIPPED_GENERATED;
+        }
+
+        if (isSet(attributes.get("linguist-vendored"))) {
+            return SKIPPED_VENDORED;
+        }
+
+        if (isSet(attributes.get("binary")) || isUnset(attributes.get("text")) || isUnset(attributes.get("diff"))) {
+            return DiffContentCalculator.SKIPPED_BINARY;
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks the path like {@link #getPathSkipReason(String)}, then the size and the content of the blob for the
+     * branch snapshot.
+     *
+     * @return the reason the file isn't blamed, or null if it's blamed
+     */
+    public String getSnapshotSkipReason(ObjectReader reader, String path, ObjectId blobId) throws IOException {
+
+        String pathSkipReason = getPathSkipReason(path);
+
+        if (pathSkipReason != null) {
+            return pathSkipReason;
+        }
+
+        if (snapshotMaxFileBytes <= 0 && !snapshotSkipBinary) {
+            return null;
+        }
+
+        if (!reader.has(blobId, Constants.OBJ_BLOB)) {
+            return null; // submodules, which aren't blamed anyway
+        }
+
+        ObjectLoader loader = reader.open(blobId, Constants.OBJ_BLOB);
+
+        if (snapshotMaxFileBytes > 0 && loader.getSize() > snapshotMaxFileBytes) {
+            return DiffContentCalculator.SKIPPED_SIZE;
+        }
+
+        if (!snapshotSkipBinary) {
+            return null;
+        }
+
+        try (InputStream content = loader.openStream()) {
+            return RawText.isBinary(content) ? DiffContentCalculator.SKIPPED_BINARY : null;
+        }
+    }
+
+    private static boolean isSet(String value) {
+        return "true".equals(value);
+    }
+
+    private static boolean isUnset(String value) {
+        return "false".equals(value);
+    }
+
+    private static List<AttributeRule> readAttributeRules(Repository repository, ObjectId commitId) throws IOException {
+
+        List<String> attributeFiles = new ArrayList<>();
+        Map<String, String> contentByAttributeFile = new HashMap<>();
+
+        RevWalk walk = new RevWalk(repository);
+        TreeWalk treeWalk = new TreeWalk(repository);
+
+        try {
+
+            treeWalk.addTree(walk.parseCommit(commitId).getTree());
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(PathSuffixFilter.create(GIT_ATTRIBUTES_FILE));
+
+            while (treeWalk.next()) {
+
+                String path = treeWalk.getPathString();
+
+                if (!path.equals(GIT_ATTRIBUTES_FILE) && !path.endsWith("/" + GIT_ATTRIBUTES_FILE)) {
+                    continue;
+                }
+
+                byte[] content = repository.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB).getCachedBytes();
+                attributeFiles.add(path);
+                contentByAttributeFile.put(path, new String(content, StandardCharsets.UTF_8));
+            }
+
+        } finally {
+            treeWalk.release();
+            walk.release();
+        }
+
+        // Rules of deeper attribute files are applied later, so they override the ones of their parent directories
+        attributeFiles.sort(Comparator.comparingLong(path -> path.chars().filter(ch -> ch == '/').count()));
+
+        List<AttributeRule> attributeRules = new ArrayList<>();
+
+        for (String attributeFile : attributeFiles) {
+
+            String baseDirectory = attributeFile.substring(0, attributeFile.length() - GIT_ATTRIBUTES_FILE.length());
+
+            for (String line : contentByAttributeFile.get(attributeFile).split("\r?\n")) {
+
+                AttributeRule attributeRule = AttributeRule.parse(baseDirectory, line);
+
+                if (attributeRule != null) {
+                    attributeRules.add(attributeRule);
+                }
+            }
+        }
+
+        return attributeRules;
+    }
+
+    /**
+     * One line of an attribute file.
+     */
+    private static class AttributeRule {
+
+        private final String baseDirectory;
+
+        private final Glob glob;
+
+        // Attribute name to "true" (set), "false" (unset), a value, or null (unspecified)
+        private final Map<String, String> attributes;
+
+        private AttributeRule(String baseDirectory, Glob glob, Map<String, String> attributes) {
+            this.baseDirectory = baseDirectory;
+            this.glob = glob;
+            this.attributes = attributes;
+        }
+
+        static AttributeRule parse(String baseDirectory, String line) {
+
+            String[] tokens = line.trim().split("\\s+");
+
+            if (tokens[0].isEmpty() || tokens[0].startsWith("#") || tokens.length < 2 || tokens[0].endsWith("/")) {
+                return null; // empty lines, comments and directory patterns, which never match files
+            }
+
+            Map<String, String> attributes = new HashMap<>();
+
+            for (int ii = 1; ii < tokens.length; ii++) {
+
+                String token = tokens[ii];
+
+                if (token.startsWith("-")) {
+                    attributes.put(token.substring(1), "false");
+                } else if (token.startsWith("!")) {
+                    attributes.put(token.substring(1), null);
+                } else if (token.contains("=")) {
+                    attributes.put(token.substring(0, token.indexOf('=')), token.substring(token.indexOf('=') + 1));
+                } else {
+                    attributes.put(token, "true");
+                }
+            }
+
+            // The binary macro
+            if (attributes.containsKey("binary")) {
+                String value = attributes.get("binary");
+                String expanded = "true".equals(value) ? "false" : value;
+                attributes.putIfAbsent("text", expanded);
+                attributes.putIfAbsent("diff", expanded);
+            }
+
+            return new AttributeRule(baseDirectory, Glob.compile(tokens[0]), attributes);
+        }
+
+        boolean matches(String path) {
+            return path.startsWith(baseDirectory) && glob.matches(path.substring(baseDirectory.length()));
+        }
+
+        void applyTo(Map<String, String> target) {
+            for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                if (attribute.getValue() == null) {
+                    target.remove(attribute.getKey());
+                } else {
+                    target.put(attribute.getKey(), attribute.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Gitignore style glob. {@code *} and {@code ?} don't match {@code /}, {@code **} matches any number of
+     * directories. A glob without slash matches the file name in any directory.
+     */
+    private static class Glob {
+
+        private final Pattern pattern;
+
+        private final boolean matchFileName;
+
+        private Glob(Pattern pattern, boolean matchFileName) {
+            this.pattern = pattern;
+            this.matchFileName = matchFileName;
+        }
+
+        static Glob compile(String glob) {
+
+            boolean matchFileName = !glob.contains("/");
+            String anchored = glob.startsWith("/") ? glob.substring(1) : glob;
+
+            return new Glob(Pattern.compile(toRegex(anchored)), matchFileName);
+        }
+
+        boolean matches(String path) {
+            String target = matchFileName ? path.substring(path.lastIndexOf('/') + 1) : path;
+            return pattern.matcher(target).matches();
+        }
+
+        private static String toRegex(String glob) {
+
+            StringBuilder regex = new StringBuilder();
+            int ii = 0;
+
+            while (ii < glob.length()) {
+
+                char ch = glob.charAt(ii);
+
+                if (glob.startsWith("**/", ii) && (ii == 0 || glob.charAt(ii - 1) == '/')) {
+                    regex.append("(?:.*/)?");
+                    ii += 3;
+                } else if (glob.startsWith("**", ii) && ii + 2 == glob.length() && (ii == 0 || glob.charAt(ii - 1) == '/')) {
+                    regex.append(".*");
+                    ii += 2;
+                } else if (ch == '*') {
+                    regex.append("[^/]*");
+                    ii++;
+                } else if (ch == '?') {
+                    regex.append("[^/]");
+                    ii++;
+                } else if (ch == '[' && glob.indexOf(']', ii + 1) > ii + 1) {
+                    int end = glob.indexOf(']', ii + 1);
+                    String characterClass = glob.substring(ii + 1, end).replace("\\", "\\\\");
+                    regex.append('[').append(characterClass.startsWith("!") ? "^" + characterClass.substring(1) : characterClass).append(']');
+                    ii = end + 1;
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(ch)));
+                    ii++;
+                }
+            }
+
+            return regex.toString();
+        }
+    }
+
+}
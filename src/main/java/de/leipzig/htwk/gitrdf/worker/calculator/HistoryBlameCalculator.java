@@ -0,0 +1,507 @@
+package de.leipzig.htwk.gitrdf.worker.calculator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.HistogramDiff;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import de.leipzig.htwk.gitrdf.worker.handler.LockHandler;
+import de.leipzig.htwk.gitrdf.worker.snapshot.FileBlame;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Blames all files at HEAD in a single pass over the history, instead of one history walk per file.
+ * <p>
+ * Commits are visited parents first. Every commit gets the source commit of each line of each file, derived from the
+ * state of its parents: unchanged files keep the state of the first parent, changed files are diffed once against
+ * their parents and inherit the source of the unchanged lines. Each commit is parsed once and each tree diff is
+ * computed once for all files. The state of a commit is dropped as soon as all its children are visited.
+ * <p>
+ * The rules follow {@link org.eclipse.jgit.blame.BlameGenerator} as used by {@link BlameResultCalculator}: whitespace
+ * is ignored, a parent with the identical blob takes all lines, parents are tried in order, and a file missing in a
+ * parent is followed through renames and copies. The result is the same as blaming every file on its own, except that
+ * uncommitted changes in the working tree are not looked at.
+ * <p>
+ * Paths the {@link FileClassifier} skips by their path (exclude globs and attributes) aren't tracked at all, so their
+ * content is never loaded or diffed. Lines moved from such a path into a blamed file are attributed to the commit that
+ * moved them.
+ * <p>
+ * Several commits can be blamed in the same pass, e.g. HEAD and release tags.
+ */
+@Slf4j
+public class HistoryBlameCalculator {
+
+    private static final RawTextComparator TEXT_COMPARATOR = RawTextComparator.WS_IGNORE_ALL;
+
+    private final Repository repository;
+
+    private final LockHandler lockHandler;
+
+    private final FileClassifier fileClassifier;
+
+    private final DiffAlgorithm diffAlgorithm = new HistogramDiff();
+
+    // Skip decisions by path, since most paths are seen again in later commits
+    private final Map<String, Boolean> trackedByPath = new HashMap<>();
+
+    /**
+     * @param fileClassifier decides which paths aren't tracked
+     */
+    public HistoryBlameCalculator(Repository repository, LockHandler lockHandler, FileClassifier fileClassifier) {
+        this.repository = repository;
+        this.lockHandler = lockHandler;
+        this.fileClassifier = fileClassifier;
+    }
+
+    /**
+     * @param fileNames files at HEAD to return the blame of; other files are still tracked, since their lines may
+     *                  move into these files through renames
+     * @return the blame of every requested file by file name; files that aren't regular files at HEAD are missing
+     */
+    public Map<String, FileBlame> calculateBlames(Set<String> fileNames) throws IOException {
+
+        ObjectId headCommitId = repository.resolve(Constants.HEAD);
+
+        return calculateBlames(Map.of(headCommitId, fileNames)).getOrDefault(headCommitId, Map.of());
+    }
+
+    /**
+     * Blames the files of several commits in the same pass. The history shared by the commits is visited once, so
+     * the lines attributed for an older commit carry over to the newer ones instead of being blamed again.
+     *
+     * @param fileNamesByCommit files to return the blame of, by the commit to blame them at
+     * @return the blame of every requested file by commit and file name; files that aren't regular files at their
+     * commit are missing
+     */
+    public Map<ObjectId, Map<String, FileBlame>> calculateBlames(Map<ObjectId, Set<String>> fileNamesByCommit)
+            throws IOException {
+
+        RevWalk walk = new RevWalk(repository);
+        ObjectReader reader = repository.newObjectReader();
+
+        try {
+
+            walk.setRetainBody(false);
+            walk.sort(RevSort.TOPO);
+            walk.sort(RevSort.REVERSE, true);
+
+            for (ObjectId targetCommitId : fileNamesByCommit.keySet()) {
+                walk.markStart(walk.parseCommit(targetCommitId));
+            }
+
+            List<RevCommit> commits = new ArrayList<>();
+            Map<RevCommit, Integer> remainingChildren = new HashMap<>();
+
+            for (RevCommit commit : walk) {
+                commits.add(commit);
+                for (RevCommit parent : commit.getParents()) {
+                    remainingChildren.merge(parent, 1, Integer::sum);
+                }
+            }
+
+            log.info("Blaming the files of {} commits in a single pass over {} commits",
+                    fileNamesByCommit.size(), commits.size());
+
+            Map<RevCommit, Map<String, FileState>> statesByCommit = new HashMap<>();
+            Map<ObjectId, Map<String, FileBlame>> blamesByCommit = new HashMap<>();
+
+            for (RevCommit commit : commits) {
+
+                Map<String, FileState> state = calculateState(commit, statesByCommit, remainingChildren, reader);
+
+                for (RevCommit parent : commit.getParents()) {
+                    if (remainingChildren.merge(parent, -1, Integer::sum) <= 0) {
+                        statesByCommit.remove(parent);
+                    }
+                }
+
+                if (remainingChildren.getOrDefault(commit, 0) > 0) {
+                    statesByCommit.put(commit, state);
+                }
+
+                Set<String> fileNames = fileNamesByCommit.get(commit);
+
+                // The state may be taken over by a child, so the blame of a target commit is extracted right away
+                if (fileNames != null) {
+                    blamesByCommit.put(commit.copy(), extractBlames(state, fileNames));
+                }
+
+                lockHandler.renewLockOnRenewTimeFulfillment();
+            }
+
+            return blamesByCommit;
+
+        } finally {
+            reader.release();
+            walk.release();
+        }
+    }
+
+    private static Map<String, FileBlame> extractBlames(Map<String, FileState> state, Set<String> fileNames) {
+
+        Map<String, FileBlame> blames = new HashMap<>();
+
+        for (String fileName : fileNames) {
+
+            FileState fileState = state.get(fileName);
+
+            if (fileState != null) {
+                blames.put(fileName, FileBlame.fromLineCommits(toLineCommits(fileState.lineCommits)));
+            }
+        }
+
+        return blames;
+    }
+
+    private Map<String, FileState> calculateState(
+            RevCommit commit,
+            Map<RevCommit, Map<String, FileState>> statesByCommit,
+            Map<RevCommit, Integer> remainingChildren,
+            ObjectReader reader) throws IOException {
+
+        int parentCount = commit.getParentCount();
+
+        if (parentCount == 0) {
+            return calculateRootState(commit, reader);
+        }
+
+        List<Map<String, FileState>> parentStates = new ArrayList<>(parentCount);
+
+        for (RevCommit parent : commit.getParents()) {
+            parentStates.add(statesByCommit.getOrDefault(parent, Map.of()));
+        }
+
+        // The first parent state can be taken over if this commit is its last child, which is the common case
+        RevCommit firstParent = commit.getParent(0);
+        Map<String, FileState> state = remainingChildren.get(firstParent) == 1
+                && !Arrays.asList(commit.getParents()).subList(1, parentCount).contains(firstParent)
+                ? statesByCommit.remove(firstParent)
+                : null;
+
+        state = state == null ? new HashMap<>(parentStates.get(0)) : state;
+
+        TreeWalk treeWalk = new TreeWalk(reader);
+
+        try {
+
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(TreeFilter.ANY_DIFF);
+            treeWalk.addTree(commit.getTree());
+
+            for (RevCommit parent : commit.getParents()) {
+                treeWalk.addTree(parent.getTree());
+            }
+
+            RenameSources renameSources = new RenameSources(commit, reader);
+
+            // The first parent state may be the state being updated, so updates are applied after the walk
+            Map<String, FileState> changedFiles = new HashMap<>();
+
+            while (treeWalk.next()) {
+
+                String path = treeWalk.getPathString();
+
+                if (!isTracked(path)) {
+                    continue;
+                }
+
+                if (!isFile(treeWalk.getRawMode(0))) {
+                    changedFiles.put(path, null);
+                    continue;
+                }
+
+                ObjectId blobId = treeWalk.getObjectId(0);
+                ObjectId[] parentBlobIds = new ObjectId[parentCount];
+
+                for (int parentIdx = 0; parentIdx < parentCount; parentIdx++) {
+                    if (isFile(treeWalk.getRawMode(parentIdx + 1))) {
+                        parentBlobIds[parentIdx] = treeWalk.getObjectId(parentIdx + 1);
+                    }
+                }
+
+                changedFiles.put(path, calculateFileState(
+                        commit, path, blobId, parentBlobIds, parentStates, renameSources, reader));
+            }
+
+            for (Map.Entry<String, FileState> changedFile : changedFiles.entrySet()) {
+                if (changedFile.getValue() == null) {
+                    state.remove(changedFile.getKey());
+                } else {
+                    state.put(changedFile.getKey(), changedFile.getValue());
+                }
+            }
+
+        } finally {
+            treeWalk.release();
+        }
+
+        return state;
+    }
+
+    private Map<String, FileState> calculateRootState(RevCommit commit, ObjectReader reader) throws IOException {
+
+        Map<String, FileState> state = new HashMap<>();
+
+        TreeWalk treeWalk = new TreeWalk(reader);
+
+        try {
+
+            treeWalk.setRecursive(true);
+            treeWalk.addTree(commit.getTree());
+
+            while (treeWalk.next()) {
+
+                if (isFile(treeWalk.getRawMode(0)) && isTracked(treeWalk.getPathString())) {
+                    ObjectId blobId = treeWalk.getObjectId(0);
+                    state.put(treeWalk.getPathString(), attributeAll(blobId, commit, reader));
+                }
+            }
+
+        } finally {
+            treeWalk.release();
+        }
+
+        return state;
+    }
+
+    private FileState calculateFileState(
+            RevCommit commit,
+            String path,
+            ObjectId blobId,
+            ObjectId[] parentBlobIds,
+            List<Map<String, FileState>> parentStates,
+            RenameSources renameSources,
+            ObjectReader reader) throws IOException {
+
+        int parentCount = parentBlobIds.length;
+
+        // A parent with the identical blob takes all lines
+        for (int parentIdx = 0; parentIdx < parentCount; parentIdx++) {
+            if (blobId.equals(parentBlobIds[parentIdx])) {
+                return parentStates.get(parentIdx).get(path);
+            }
+        }
+
+        // Parents without the file are searched for the file it was renamed or copied from
+        FileState[] sourceStates = new FileState[parentCount];
+
+        for (int parentIdx = 0; parentIdx < parentCount; parentIdx++) {
+
+            if (parentBlobIds[parentIdx] != null) {
+                sourceStates[parentIdx] = parentStates.get(parentIdx).get(path);
+                continue;
+            }
+
+            DiffEntry rename = renameSources.find(parentIdx, path);
+
+            if (rename == null) {
+                continue;
+            }
+
+            FileState renameSourceState = parentStates.get(parentIdx).get(rename.getOldPath());
+
+            // Sources that aren't tracked have no state, their lines are attributed to this commit
+            if (renameSourceState == null) {
+                continue;
+            }
+
+            if (rename.getOldId().toObjectId().equals(blobId)) {
+                return renameSourceState;
+            }
+
+            sourceStates[parentIdx] = renameSourceState;
+        }
+
+        RawText text = loadText(reader, blobId);
+        RevCommit[] lineCommits = new RevCommit[text.size()];
+
+        for (int parentIdx = 0; parentIdx < parentCount; parentIdx++) {
+
+            FileState sourceState = sourceStates[parentIdx];
+
+            if (sourceState == null) {
+                continue;
+            }
+
+            EditList edits = diffAlgorithm.diff(TEXT_COMPARATOR, loadText(reader, sourceState.blobId), text);
+
+            if (edits.isEmpty()) {
+                // Texts only differing in whitespace: the lines map one to one
+                inheritUnchangedLines(lineCommits, sourceState.lineCommits, edits);
+                break;
+            }
+
+            inheritUnchangedLines(lineCommits, sourceState.lineCommits, edits);
+        }
+
+        for (int lineIdx = 0; lineIdx < lineCommits.length; lineIdx++) {
+            if (lineCommits[lineIdx] == null) {
+                lineCommits[lineIdx] = commit;
+            }
+        }
+
+        return new FileState(blobId, lineCommits);
+    }
+
+    /**
+     * Takes the source commit of every line outside of the edits from the parent, unless an earlier parent already
+     * provided it.
+     */
+    private static void inheritUnchangedLines(RevCommit[] lineCommits, RevCommit[] parentLineCommits, EditList edits) {
+
+        int line = 0;
+        int parentLine = 0;
+
+        for (Edit edit : edits) {
+
+            while (line < edit.getBeginB()) {
+                inheritLine(lineCommits, line++, parentLineCommits, parentLine++);
+            }
+
+            line = edit.getEndB();
+            parentLine = edit.getEndA();
+        }
+
+        while (line < lineCommits.length) {
+            inheritLine(lineCommits, line++, parentLineCommits, parentLine++);
+        }
+    }
+
+    private static void inheritLine(RevCommit[] lineCommits, int line, RevCommit[] parentLineCommits, int parentLine) {
+        if (lineCommits[line] == null && parentLine < parentLineCommits.length) {
+            lineCommits[line] = parentLineCommits[parentLine];
+        }
+    }
+
+    private FileState attributeAll(ObjectId blobId, RevCommit commit, ObjectReader reader) throws IOException {
+
+        RevCommit[] lineCommits = new RevCommit[loadText(reader, blobId).size()];
+        Arrays.fill(lineCommits, commit);
+
+        return new FileState(blobId, lineCommits);
+    }
+
+    private static RawText loadText(ObjectReader reader, ObjectId blobId) throws IOException {
+        return new RawText(reader.open(blobId, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE));
+    }
+
+    private static String[] toLineCommits(RevCommit[] lineCommits) {
+
+        String[] names = new String[lineCommits.length];
+
+        for (int lineIdx = 0; lineIdx < lineCommits.length; lineIdx++) {
+            names[lineIdx] = lineCommits[lineIdx].getId().name();
+        }
+
+        return names;
+    }
+
+    private boolean isTracked(String path) {
+        return trackedByPath.computeIfAbsent(path, key -> fileClassifier.getPathSkipReason(key) == null);
+    }
+
+    private static boolean isFile(int rawMode) {
+        return (rawMode & FileMode.TYPE_MASK) == FileMode.TYPE_FILE;
+    }
+
+    /**
+     * Source commit of every line of a file in one commit. The line array is shared between commits and never
+     * modified after creation.
+     */
+    private static class FileState {
+
+        private final ObjectId blobId;
+
+        private final RevCommit[] lineCommits;
+
+        FileState(ObjectId blobId, RevCommit[] lineCommits) {
+            this.blobId = blobId;
+            this.lineCommits = lineCommits;
+        }
+    }
+
+    /**
+     * Renames and copies between each parent and the commit, detected on first use per parent.
+     */
+    private class RenameSources {
+
+        private final RevCommit commit;
+
+        private final ObjectReader reader;
+
+        private final List<Map<String, DiffEntry>> renamesByParent = new ArrayList<>();
+
+        RenameSources(RevCommit commit, ObjectReader reader) {
+            this.commit = commit;
+            this.reader = reader;
+        }
+
+        DiffEntry find(int parentIdx, String path) throws IOException {
+
+            while (renamesByParent.size() <= parentIdx) {
+                renamesByParent.add(null);
+            }
+
+            Map<String, DiffEntry> renames = renamesByParent.get(parentIdx);
+
+            if (renames == null) {
+                renames = detectRenames(commit.getParent(parentIdx));
+                renamesByParent.set(parentIdx, renames);
+            }
+
+            return renames.get(path);
+        }
+
+        private Map<String, DiffEntry> detectRenames(RevCommit parent) throws IOException {
+
+            TreeWalk treeWalk = new TreeWalk(reader);
+
+            try {
+
+                treeWalk.setRecursive(true);
+                treeWalk.setFilter(TreeFilter.ANY_DIFF);
+                treeWalk.reset(parent.getTree(), commit.getTree());
+
+                RenameDetector renameDetector = new RenameDetector(repository);
+                renameDetector.addAll(DiffEntry.scan(treeWalk));
+
+                Map<String, DiffEntry> renames = new HashMap<>();
+
+                for (DiffEntry entry : renameDetector.compute(reader, null)) {
+                    if (entry.getChangeType() == DiffEntry.ChangeType.RENAME
+                            || entry.getChangeType() == DiffEntry.ChangeType.COPY) {
+                        renames.putIfAbsent(entry.getNewPath(), entry);
+                    }
+                }
+
+                return renames;
+
+            } finally {
+                treeWalk.release();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,235 @@
+package de.leipzig.htwk.gitrdf.worker.calculator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDF;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.core.TripleCollector;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Computes the expensive per commit triples (tree parsing, diffs and edit lists) on a bounded pool of worker
+ * threads, while the caller keeps walking commits and writing the cheap triples. Every worker thread has its own
+ * {@link ObjectReader} and {@link DiffFormatter}, since neither is thread safe.
+ * <p>
+ * Workers don't write to the {@link StreamRDF} of the run. They collect the triples of one commit, which the caller
+ * then hands to the writer in commit order via {@link PendingCommitTriples#writeTo}. Callers submit one batch of
+ * commits at a time and write it completely before walking the next one, so at most one batch of triples is buffered.
+ * <p>
+ * With a single thread the tasks run inline on the calling thread, which is the sequential behaviour.
+ */
+@Slf4j
+public class ParallelCommitProcessor implements AutoCloseable {
+
+    private static final long WAIT_SLICE_MILLIS = 1000;
+
+    private static final long TERMINATION_TIMEOUT_SECONDS = 60;
+
+    private final Repository repository;
+
+    private final int threadCount;
+
+    private final ExecutorService executorService;
+
+    private final Queue<ObjectReader> openedReaders = new ConcurrentLinkedQueue<>();
+
+    private final Queue<DiffFormatter> openedDiffFormatters = new ConcurrentLinkedQueue<>();
+
+    private final ThreadLocal<ObjectReader> threadReader;
+
+    private final ThreadLocal<DiffFormatter> threadDiffFormatter;
+
+    /**
+     * @param threadCount number of worker threads; a value of 0 or less uses one thread per available processor
+     */
+    public ParallelCommitProcessor(Repository repository, int threadCount) {
+
+        this.repository = repository;
+        this.threadCount = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+
+        this.threadReader = ThreadLocal.withInitial(this::openReader);
+        this.threadDiffFormatter = ThreadLocal.withInitial(this::openDiffFormatter);
+
+        if (this.threadCount > 1) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.executorService = Executors.newFixedThreadPool(this.threadCount, runnable -> {
+                Thread thread = new Thread(runnable, "commit-processor-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.executorService = null;
+        }
+
+        log.info("Processing commit diffs with {} thread(s)", this.threadCount);
+    }
+
+    /**
+     * Starts the task for every commit of the batch and returns the pending results in the order of the batch.
+     */
+    public List<PendingCommitTriples> submit(List<RevCommit> commits, CommitTask task) {
+
+        List<PendingCommitTriples> pending = new ArrayList<>(commits.size());
+
+        for (RevCommit commit : commits) {
+
+            if (executorService == null) {
+                pending.add(new PendingCommitTriples(commit, CompletableFuture.completedFuture(runTask(commit, task))));
+            } else {
+                pending.add(new PendingCommitTriples(commit, executorService.submit(() -> runTask(commit, task))));
+            }
+        }
+
+        return pending;
+    }
+
+    /**
+     * Stops the workers and releases their readers and diff formatters once no task uses them anymore. If the workers
+     * don't stop in time, the readers are left to the garbage collector rather than released under a running task.
+     */
+    @Override
+    public void close() {
+
+        if (executorService != null && !shutdownWorkers()) {
+            return;
+        }
+
+        for (ObjectReader reader : openedReaders) {
+            reader.release();
+        }
+
+        for (DiffFormatter diffFormatter : openedDiffFormatters) {
+            diffFormatter.release();
+        }
+    }
+
+    private boolean shutdownWorkers() {
+
+        executorService.shutdownNow();
+
+        try {
+            if (executorService.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                return true;
+            }
+            log.warn("Commit processor threads didn't stop within {} seconds, their readers aren't released",
+                    TERMINATION_TIMEOUT_SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for the commit processor threads to stop, their readers aren't released");
+        }
+
+        return false;
+    }
+
+    private TaskResult runTask(RevCommit commit, CommitTask task) {
+
+        TripleCollector collector = new TripleCollector();
+
+        try {
+            task.process(commit, threadReader.get(), threadDiffFormatter.get(), collector);
+            return new TaskResult(collector.getTriples(), null);
+        } catch (IOException ex) {
+            return new TaskResult(null, ex);
+        }
+    }
+
+    private ObjectReader openReader() {
+        ObjectReader reader = repository.newObjectReader();
+        openedReaders.add(reader);
+        return reader;
+    }
+
+    private DiffFormatter openDiffFormatter() {
+        DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
+        diffFormatter.setRepository(repository);
+        openedDiffFormatters.add(diffFormatter);
+        return diffFormatter;
+    }
+
+    /**
+     * Work done for a single commit. Triples are written to the given collector, never to the output of the run.
+     */
+    @FunctionalInterface
+    public interface CommitTask {
+
+        void process(RevCommit commit, ObjectReader reader, DiffFormatter diffFormatter, StreamRDF collector)
+                throws IOException;
+    }
+
+    private static class TaskResult {
+
+        private final List<Triple> triples;
+
+        private final IOException failure;
+
+        private TaskResult(List<Triple> triples, IOException failure) {
+            this.triples = triples;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * Triples of a single commit that are still being computed.
+     */
+    public static class PendingCommitTriples {
+
+        private final RevCommit commit;
+
+        private final Future<TaskResult> result;
+
+        private PendingCommitTriples(RevCommit commit, Future<TaskResult> result) {
+            this.commit = commit;
+            this.result = result;
+        }
+
+        /**
+         * Waits for the triples of the commit and writes them. {@code whileWaiting} is run about once per second
+         * while the commit is still being processed, e.g. to keep the order lock alive.
+         */
+        public void writeTo(StreamRDF writer, Runnable whileWaiting) throws IOException, InterruptedException {
+
+            TaskResult taskResult;
+
+            while (true) {
+                try {
+                    taskResult = result.get(WAIT_SLICE_MILLIS, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException ex) {
+                    whileWaiting.run();
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new IllegalStateException("Processing of commit '" + commit.getName() + "' failed", ex.getCause());
+                }
+            }
+
+            if (taskResult.failure != null) {
+                throw taskResult.failure;
+            }
+
+            for (Triple triple : taskResult.triples) {
+                writer.triple(triple);
+            }
+        }
+    }
+
+}
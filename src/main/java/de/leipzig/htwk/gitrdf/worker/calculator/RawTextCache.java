@@ -0,0 +1,143 @@
+package de.leipzig.htwk.gitrdf.worker.calculator;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * LRU cache of decoded blobs, bounded by the approximate heap size of the cached content. Consecutive commits share
+ * most of their blobs (the new side of a commit is the old side of its child), so each blob is usually inflated
+ * only once. Binary blobs are cached as such without their content.
+ * <p>
+ * The cache is shared by the commit processor threads. Two threads may load the same blob at the same time, which
+ * only costs one extra load.
+ */
+@Slf4j
+public class RawTextCache {
+
+    private static final CachedBlob BINARY_BLOB = new CachedBlob(null, 0);
+
+    // Per entry overhead estimate: map entry, object headers and the line index of RawText
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private static final int LINE_INDEX_BYTES_PER_LINE = 4;
+
+    private final long maxBytes;
+
+    private final LinkedHashMap<ObjectId, CachedBlob> blobs = new LinkedHashMap<>(1024, 0.75f, true);
+
+    private long cachedBytes = 0;
+
+    private long hits = 0;
+
+    private long misses = 0;
+
+    private long evictions = 0;
+
+    private long loadedBytes = 0;
+
+    /**
+     * @param maxBytes upper bound of the cached content size; 0 or less disables caching
+     */
+    public RawTextCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the decoded blob, or null if the blob is binary.
+     */
+    public RawText get(ObjectReader reader, ObjectId blobId) throws IOException {
+
+        CachedBlob cached = lookup(blobId);
+
+        if (cached != null) {
+            return cached.text;
+        }
+
+        byte[] content = reader.open(blobId, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE);
+        CachedBlob loaded = RawText.isBinary(content)
+                ? BINARY_BLOB
+                : new CachedBlob(new RawText(content), content.length);
+
+        store(blobId, loaded, content.length);
+
+        return loaded.text;
+    }
+
+    public void logStatistics() {
+
+        long lookups;
+        synchronized (this) {
+            lookups = hits + misses;
+            log.info("Raw text cache statistics: {} hits, {} misses ({}), {} evictions, {} bytes loaded, {} of {} bytes cached",
+                    hits, misses, lookups == 0 ? "n/a" : String.format("%.1f%% hit rate", 100.0 * hits / lookups),
+                    evictions, loadedBytes, cachedBytes, maxBytes);
+        }
+    }
+
+    private synchronized CachedBlob lookup(ObjectId blobId) {
+
+        CachedBlob cached = blobs.get(blobId);
+
+        if (cached != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+
+        return cached;
+    }
+
+    private synchronized void store(ObjectId blobId, CachedBlob blob, int contentLength) {
+
+        loadedBytes += contentLength;
+
+        long entryBytes = blob.estimatedBytes();
+
+        if (entryBytes > maxBytes) {
+            return;
+        }
+
+        CachedBlob previous = blobs.put(blobId.copy(), blob);
+
+        if (previous != null) {
+            cachedBytes -= previous.estimatedBytes();
+        }
+
+        cachedBytes += entryBytes;
+
+        Iterator<Map.Entry<ObjectId, CachedBlob>> eldest = blobs.entrySet().iterator();
+
+        while (cachedBytes > maxBytes && eldest.hasNext()) {
+            cachedBytes -= eldest.next().getValue().estimatedBytes();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static class CachedBlob {
+
+        private final RawText text;
+
+        private final int contentLength;
+
+        CachedBlob(RawText text, int contentLength) {
+            this.text = text;
+            this.contentLength = contentLength;
+        }
+
+        long estimatedBytes() {
+            int lines = text == null ? 0 : text.size();
+            return ENTRY_OVERHEAD_BYTES + contentLength + (long) lines * LINE_INDEX_BYTES_PER_LINE;
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package de.leipzig.htwk.gitrdf.worker.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.git.CommitDiffLevel;
+import lombok.Getter;
+
+/**
+ * Detail level of the commit diffs. Blobs larger than {@code worker.diff.max-blob-bytes} and binary blobs are never
+ * diffed, their diff entries are only marked as skipped. Decoded blobs are cached per conversion run, up to
+ * {@code worker.diff.raw-text-cache-bytes}.
+ */
+@Configuration
+@Getter
+public class CommitDiffConfig {
+
+    private final CommitDiffLevel level;
+
+    private final long maxBlobBytes;
+
+    private final long rawTextCacheBytes;
+
+    public CommitDiffConfig(
+            @Value("${worker.diff.level:HUNKS}") CommitDiffLevel level,
+            @Value("${worker.diff.max-blob-bytes:0}") long maxBlobBytes,
+            @Value("${worker.diff.raw-text-cache-bytes:67108864}") long rawTextCacheBytes) {
+
+        this.level = level;
+        this.maxBlobBytes = maxBlobBytes;
+        this.rawTextCacheBytes = rawTextCacheBytes;
+    }
+
+}
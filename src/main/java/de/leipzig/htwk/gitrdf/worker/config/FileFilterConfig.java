@@ -0,0 +1,41 @@
+package de.leipzig.htwk.gitrdf.worker.config;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+
+/**
+ * Files skipped by branch snapshots and commit diffs, see {@link de.leipzig.htwk.gitrdf.worker.calculator.FileClassifier}.
+ * {@code worker.file-filter.exclude-globs} is a comma separated list of gitignore style globs,
+ * {@code worker.file-filter.snapshot-max-file-bytes} limits the size of blamed files (0 or less disables the limit),
+ * and {@code worker.file-filter.snapshot-skip-binary} leaves files with binary content unblamed. The defaults skip
+ * nothing, so snapshots and diffs stay complete unless a filter is configured.
+ */
+@Configuration
+@Getter
+public class FileFilterConfig {
+
+    private final boolean gitAttributesEnabled;
+
+    private final List<String> excludeGlobs;
+
+    private final long snapshotMaxFileBytes;
+
+    private final boolean snapshotSkipBinary;
+
+    public FileFilterConfig(
+            @Value("${worker.file-filter.git-attributes:false}") boolean gitAttributesEnabled,
+            @Value("${worker.file-filter.exclude-globs:}") List<String> excludeGlobs,
+            @Value("${worker.file-filter.snapshot-max-file-bytes:0}") long snapshotMaxFileBytes,
+            @Value("${worker.file-filter.snapshot-skip-binary:false}") boolean snapshotSkipBinary) {
+
+        this.gitAttributesEnabled = gitAttributesEnabled;
+        this.excludeGlobs = excludeGlobs.stream().map(String::trim).filter(glob -> !glob.isEmpty()).toList();
+        this.snapshotMaxFileBytes = snapshotMaxFileBytes;
+        this.snapshotSkipBinary = snapshotSkipBinary;
+    }
+
+}
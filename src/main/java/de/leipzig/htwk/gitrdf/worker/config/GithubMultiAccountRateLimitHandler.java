@@ -1,5 +1,6 @@
 package de.leipzig.htwk.gitrdf.worker.config;
 
+import de.leipzig.htwk.gitrdf.worker.service.GithubAccountPool;
 import de.leipzig.htwk.gitrdf.worker.service.GithubAccountRotationService;
 import lombok.extern.slf4j.Slf4j;
 import org.kohsuke.github.GitHubRateLimitHandler;
@@ -16,15 +17,25 @@ import java.time.Instant;
 public class GithubMultiAccountRateLimitHandler extends GitHubRateLimitHandler {
     
     private final GithubAccountRotationService githubAccountRotationService;
+
+    private final GithubAccountPool githubAccountPool;
     
-    public GithubMultiAccountRateLimitHandler(GithubAccountRotationService githubAccountRotationService) {
+    public GithubMultiAccountRateLimitHandler(
+            GithubAccountRotationService githubAccountRotationService,
+            GithubAccountPool githubAccountPool) {
+
         this.githubAccountRotationService = githubAccountRotationService;
+        this.githubAccountPool = githubAccountPool;
     }
 
     @Override
     public void onError(GitHubConnectorResponse connectorResponse) throws IOException {
         
-        int currentAccountNumber = githubAccountRotationService.getCurrentAccountNumber();
+        // The pool sends each request with another account, so the failed account is the one of the last request
+        Integer requestAccountNumber = githubAccountPool.getLastAccountNumber();
+        int currentAccountNumber = requestAccountNumber != null
+                ? requestAccountNumber
+                : githubAccountRotationService.getCurrentAccountNumber();
         String body = getBodyFrom(connectorResponse);
         int statusCode = connectorResponse.statusCode();
         
@@ -63,35 +74,19 @@ public class GithubMultiAccountRateLimitHandler extends GitHubRateLimitHandler {
             log.info("Rotated to next available GitHub API account. {} accounts still available.", availableAccounts);
             // Don't throw exception - let the request retry with the new account
             return;
-        } else {
-            // No accounts available, sleep until earliest reset time
-            Instant earliestReset = githubAccountRotationService.getEarliestRateLimitResetTime();
-            if (earliestReset != null) {
-                long currentTimeSeconds = System.currentTimeMillis() / 1000L;
-                long sleepTimeSeconds = Math.max(1, earliestReset.getEpochSecond() - currentTimeSeconds);
-                
-                log.warn("All GitHub API accounts ({} total) are rate limited. Sleeping for {} seconds until reset at {}", 
-                        githubAccountRotationService.getTotalAccountsConfigured(), sleepTimeSeconds, earliestReset);
-                
-                try {
-                    Thread.sleep(sleepTimeSeconds * 1000);
-                    log.info("Rate limit sleep completed, retrying with refreshed accounts");
-                    return; // Allow retry with refreshed accounts
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("Interrupted while waiting for rate limit reset", e);
-                }
-            } else {
-                // Fallback: sleep for 1 hour if we can't determine reset time
-                log.warn("All GitHub API accounts are rate limited and no reset time available. Sleeping for 1 hour");
-                try {
-                    Thread.sleep(3600 * 1000);
-                    return;
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("Interrupted while waiting for rate limit reset", e);
-                }
-            }
+        }
+
+        log.warn("All GitHub API accounts ({} total) are rate limited. Earliest reset at {}",
+                githubAccountRotationService.getTotalAccountsConfigured(),
+                githubAccountRotationService.getEarliestRateLimitResetTime());
+
+        // Waits for a reset due soon, otherwise the conversion is parked until the reset
+        try {
+            githubAccountPool.awaitRequestsLeft();
+            log.info("Rate limit wait completed, retrying with refreshed accounts");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for rate limit reset", e);
         }
     }
     
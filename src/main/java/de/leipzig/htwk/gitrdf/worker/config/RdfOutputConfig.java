@@ -0,0 +1,76 @@
+package de.leipzig.htwk.gitrdf.worker.config;
+
+import java.io.IOException;
+
+import org.eclipse.jgit.lib.Repository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import de.leipzig.htwk.gitrdf.worker.utils.GitUtils;
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.core.RdfOutputMode;
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.git.BranchMembershipEncoding;
+import lombok.Getter;
+
+/**
+ * Selects the {@link RdfOutputMode} of a conversion run. Small repositories keep the configured default, repositories
+ * with at least {@code worker.rdf.streaming-commit-threshold} commits are switched to a streaming mode, so that large
+ * conversions don't need the whole graph on heap.
+ * <p>
+ * Also holds the limits of the output tidying: files up to {@code worker.rdf.tidy.in-memory-max-bytes} are pretty
+ * printed in memory, larger files are tidied with sorted runs of {@code worker.rdf.tidy.sort-run-size} triples.
+ * <p>
+ * {@code worker.rdf.branch-membership} selects how commit branches are written, see {@link BranchMembershipEncoding}.
+ */
+@Configuration
+@Getter
+public class RdfOutputConfig {
+
+    private final RdfOutputMode defaultOutputMode;
+
+    private final RdfOutputMode largeRepositoryOutputMode;
+
+    private final int streamingCommitThreshold;
+
+    private final long tidyInMemoryMaxBytes;
+
+    private final int tidySortRunSize;
+
+    private final BranchMembershipEncoding branchMembershipEncoding;
+
+    public RdfOutputConfig(
+            @Value("${worker.rdf.output-mode:MODEL}") RdfOutputMode defaultOutputMode,
+            @Value("${worker.rdf.large-repository-output-mode:TURTLE_BLOCKS}") RdfOutputMode largeRepositoryOutputMode,
+            @Value("${worker.rdf.streaming-commit-threshold:0}") int streamingCommitThreshold,
+            @Value("${worker.rdf.tidy.in-memory-max-bytes:67108864}") long tidyInMemoryMaxBytes,
+            @Value("${worker.rdf.tidy.sort-run-size:100000}") int tidySortRunSize,
+            @Value("${worker.rdf.branch-membership:PER_COMMIT}") BranchMembershipEncoding branchMembershipEncoding) {
+
+        if (!largeRepositoryOutputMode.isStreaming()) {
+            throw new IllegalArgumentException(
+                    "worker.rdf.large-repository-output-mode must be a streaming output mode, but was " + largeRepositoryOutputMode);
+        }
+
+        this.defaultOutputMode = defaultOutputMode;
+        this.largeRepositoryOutputMode = largeRepositoryOutputMode;
+        this.streamingCommitThreshold = streamingCommitThreshold;
+        this.tidyInMemoryMaxBytes = tidyInMemoryMaxBytes;
+        this.tidySortRunSize = tidySortRunSize;
+        this.branchMembershipEncoding = branchMembershipEncoding;
+    }
+
+    /**
+     * Resolves the output mode for the order whose repository is given. A threshold of 0 or less disables the
+     * switch to the large repository mode.
+     */
+    public RdfOutputMode resolveOutputMode(Repository gitRepository) throws IOException {
+
+        if (defaultOutputMode.isStreaming() || streamingCommitThreshold <= 0) {
+            return defaultOutputMode;
+        }
+
+        int commitCount = GitUtils.countCommitsReachableFromHead(gitRepository, streamingCommitThreshold);
+
+        return commitCount >= streamingCommitThreshold ? largeRepositoryOutputMode : defaultOutputMode;
+    }
+
+}
@@ -0,0 +1,151 @@
+package de.leipzig.htwk.gitrdf.worker.graphql;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import de.leipzig.htwk.gitrdf.worker.service.impl.GithubHandlerService;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends queries to the GitHub GraphQL API with the credentials of the pooled account having the most GraphQL points
+ * left. The endpoint is configurable, so a local stub server can stand in for GitHub.
+ * <p>
+ * The GraphQL API has its own point based rate limit per account. The remaining points are taken from the response
+ * headers, or from a {@code rateLimit { cost remaining }} selection of the query, and recorded for the account the
+ * query was sent with. The cost of the last query is kept here, since it depends on the query and not the account.
+ */
+@Slf4j
+@Component
+public class GithubGraphqlClient {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(2);
+
+    private static final String RATE_LIMIT_REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    private static final String RATE_LIMIT_RESET_HEADER = "X-RateLimit-Reset";
+
+    private final GithubHandlerService githubHandlerService;
+
+    private final ObjectMapper objectMapper;
+
+    private final URI endpoint;
+
+    private final HttpClient httpClient;
+
+    private volatile int lastQueryCost = 1;
+
+    public GithubGraphqlClient(
+            GithubHandlerService githubHandlerService,
+            ObjectMapper objectMapper,
+            @Value("${worker.issues.graphql-endpoint:https://api.github.com/graphql}") String endpoint) {
+
+        this.githubHandlerService = githubHandlerService;
+        this.objectMapper = objectMapper;
+        this.endpoint = URI.create(endpoint);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    /**
+     * Runs the query and returns its {@code data}. Errors of single fields are logged and their fields are null in
+     * the returned data, a response without data is an {@link IOException}.
+     */
+    public JsonNode query(String query, ObjectNode variables) throws IOException, InterruptedException {
+
+        ObjectNode requestBody = objectMapper.createObjectNode();
+        requestBody.put("query", query);
+        requestBody.set("variables", variables);
+
+        String authorization = githubHandlerService.getEncodedGraphqlAuthorization();
+
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", authorization)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(requestBody)))
+                .build();
+
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+
+        Long remaining = parseHeader(response, RATE_LIMIT_REMAINING_HEADER);
+        Long reset = parseHeader(response, RATE_LIMIT_RESET_HEADER);
+        Instant resetTime = reset == null ? null : Instant.ofEpochSecond(reset);
+
+        if (remaining != null) {
+            githubHandlerService.recordGraphqlQuota(authorization, remaining.intValue(), resetTime);
+        }
+
+        if (response.statusCode() != 200) {
+            throw new IOException("GraphQL request failed with HTTP " + response.statusCode() + ": "
+                    + new String(response.body()));
+        }
+
+        JsonNode responseBody = objectMapper.readTree(response.body());
+        JsonNode data = responseBody.path("data");
+
+        List<String> errorMessages = new ArrayList<>();
+        for (JsonNode error : responseBody.path("errors")) {
+            errorMessages.add(error.path("message").asText());
+        }
+
+        if (data.isMissingNode() || data.isNull()) {
+            throw new IOException("GraphQL request returned no data: " + errorMessages);
+        }
+
+        if (!errorMessages.isEmpty()) {
+            log.warn("GraphQL request returned partial data with errors: {}", errorMessages);
+        }
+
+        JsonNode rateLimit = data.path("rateLimit");
+
+        if (rateLimit.has("remaining")) {
+            githubHandlerService.recordGraphqlQuota(authorization, rateLimit.path("remaining").asInt(), resetTime);
+        }
+
+        if (rateLimit.has("cost")) {
+            lastQueryCost = Math.max(rateLimit.path("cost").asInt(), 1);
+        }
+
+        return data;
+    }
+
+    /**
+     * @return the points the last query cost, at least 1
+     */
+    public int getLastQueryCost() {
+        return lastQueryCost;
+    }
+
+    private static Long parseHeader(HttpResponse<?> response, String name) {
+
+        String value = response.headers().firstValue(name).orElse(null);
+
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            log.debug("Ignoring invalid rate limit header {} value '{}'", name, value);
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,565 @@
+package de.leipzig.htwk.gitrdf.worker.graphql;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.kohsuke.github.GHEventPayload;
+import org.kohsuke.github.GHIssue;
+import org.kohsuke.github.GHIssueComment;
+import org.kohsuke.github.GHPullRequest;
+import org.kohsuke.github.GHPullRequestReview;
+import org.kohsuke.github.GHPullRequestReviewComment;
+import org.kohsuke.github.GHReaction;
+import org.kohsuke.github.GitHub;
+
+import com.fasterxml.jackson.databind.InjectableValues;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fetches the comments, reviews, review comments and reactions of a batch of issues and pull requests with a single
+ * GraphQL query, instead of one REST request per issue, review and comment. Nested connections are only paged when
+ * they have more entries than the first page of the batch query.
+ * <p>
+ * The results are mapped to the same objects the REST client returns, so they can be written by the same code.
+ * Like REST listings, comments and reviews are bound to their issue or pull request. The client library binds them
+ * publicly only when parsing webhook payloads, so each one is parsed as the payload of its event together with the
+ * number and URLs of its issue or pull request and the name of the repository. Their parent is therefore a copy
+ * holding just these fields, which is enough to request their further sub-resources, e.g. reactions.
+ */
+@Slf4j
+public class GithubGraphqlIssueFetcher {
+
+    private static final String GHOST_USER_LOGIN = "ghost";
+
+    private static final long GHOST_USER_ID = 10137;
+
+    private static final String BOT_LOGIN_SUFFIX = "[bot]";
+
+    private static final String ACTOR_FRAGMENT = """
+            fragment actorFields on Actor {
+              __typename
+              login
+              url
+              avatarUrl
+              ... on User { databaseId }
+              ... on Bot { databaseId }
+              ... on Organization { databaseId }
+              ... on Mannequin { databaseId }
+            }
+            """;
+
+    private static final String REACTION_FRAGMENTS = """
+            fragment reactionFields on Reaction {
+              databaseId
+              content
+              createdAt
+              user { ...actorFields }
+            }
+            fragment reactionConnectionFields on ReactionConnection {
+              pageInfo { hasNextPage endCursor }
+              nodes { ...reactionFields }
+            }
+            """;
+
+    private static final String ISSUE_COMMENT_FRAGMENT = """
+            fragment issueCommentFields on IssueComment {
+              id
+              fullDatabaseId
+              body
+              createdAt
+              updatedAt
+              url
+              authorAssociation
+              author { ...actorFields }
+              reactions(first: 10) { ...reactionConnectionFields }
+            }
+            """;
+
+    private static final String REVIEW_COMMENT_FRAGMENT = """
+            fragment reviewCommentFields on PullRequestReviewComment {
+              id
+              fullDatabaseId
+              body
+              createdAt
+              updatedAt
+              url
+              path
+              diffHunk
+              authorAssociation
+              replyTo { fullDatabaseId }
+              commit { oid }
+              originalCommit { oid }
+              author { ...actorFields }
+              reactions(first: 10) { ...reactionConnectionFields }
+            }
+            """;
+
+    private static final String REVIEW_FRAGMENT = """
+            fragment reviewFields on PullRequestReview {
+              id
+              fullDatabaseId
+              body
+              state
+              submittedAt
+              url
+              authorAssociation
+              commit { oid }
+              author { ...actorFields }
+              comments(first: 20) {
+                pageInfo { hasNextPage endCursor }
+                nodes { ...reviewCommentFields }
+              }
+            }
+            """;
+
+    private static final String ISSUE_FIELDS = """
+            __typename
+            ... on Issue {
+              id
+              comments(first: 50) @include(if: $withComments) {
+                pageInfo { hasNextPage endCursor }
+                nodes { ...issueCommentFields }
+              }
+            }
+            ... on PullRequest {
+              id
+              comments(first: 50) @include(if: $withComments) {
+                pageInfo { hasNextPage endCursor }
+                nodes { ...issueCommentFields }
+              }
+              reviews(first: 20) @include(if: $withReviews) {
+                pageInfo { hasNextPage endCursor }
+                nodes { ...reviewFields }
+              }
+            }
+            """;
+
+    private static final String ALL_FRAGMENTS
+            = ACTOR_FRAGMENT + REACTION_FRAGMENTS + ISSUE_COMMENT_FRAGMENT + REVIEW_COMMENT_FRAGMENT + REVIEW_FRAGMENT;
+
+    private final GithubGraphqlClient graphqlClient;
+
+    private final GitHub gitHub;
+
+    private final ObjectReader objectReader;
+
+    private final String owner;
+
+    private final String repositoryName;
+
+    private final ObjectNode restRepository;
+
+    public GithubGraphqlIssueFetcher(
+            GithubGraphqlClient graphqlClient, GitHub gitHub, String owner, String repositoryName) {
+
+        this.graphqlClient = graphqlClient;
+        this.gitHub = gitHub;
+        this.owner = owner;
+        this.repositoryName = repositoryName;
+
+        // Objects mapped by this reader are bound to the given client, like objects returned by the client itself
+        ObjectReader mappingObjectReader = GitHub.getMappingObjectReader();
+        InjectableValues.Std injectableValues = (InjectableValues.Std) mappingObjectReader.getInjectableValues();
+        injectableValues.addValue(GitHub.class, gitHub);
+        this.objectReader = mappingObjectReader.with(injectableValues);
+
+        this.restRepository = JsonNodeFactory.instance.objectNode();
+        restRepository.put("name", repositoryName);
+        restRepository.put("full_name", owner + "/" + repositoryName);
+        restRepository.put("url", gitHub.getApiUrl() + "/repos/" + owner + "/" + repositoryName);
+        restRepository.putObject("owner").put("login", owner);
+    }
+
+    /**
+     * Fetches the sub-resources of the given issues and pull requests. Issues that don't exist anymore are missing
+     * in the result, as well as the reviews of pull requests whose details can't be resolved.
+     *
+     * @param withComments whether issue comments and their reactions are fetched
+     * @param withReviews whether reviews, review comments and their reactions are fetched
+     * @param pullRequestResolver resolves the pull request the reviews of an issue are bound to
+     */
+    public Map<Integer, IssueSubResources> fetch(List<GHIssue> issues, boolean withComments, boolean withReviews,
+            PullRequestResolver pullRequestResolver) throws IOException, InterruptedException {
+
+        StringBuilder query = new StringBuilder(
+                "query($owner: String!, $name: String!, $withComments: Boolean!, $withReviews: Boolean!) {\n"
+                        + "rateLimit { cost remaining }\n"
+                        + "repository(owner: $owner, name: $name) {\n");
+
+        for (GHIssue issue : issues) {
+            int issueNumber = issue.getNumber();
+            query.append("i").append(issueNumber).append(": issueOrPullRequest(number: ").append(issueNumber)
+                    .append(") {\n").append(ISSUE_FIELDS).append("}\n");
+        }
+
+        query.append("}\n}\n").append(ALL_FRAGMENTS);
+
+        ObjectNode variables = JsonNodeFactory.instance.objectNode();
+        variables.put("owner", owner);
+        variables.put("name", repositoryName);
+        variables.put("withComments", withComments);
+        variables.put("withReviews", withReviews);
+
+        JsonNode repository = graphqlClient.query(query.toString(), variables).path("repository");
+
+        Map<Integer, IssueSubResources> subResourcesByNumber = new LinkedHashMap<>();
+
+        for (GHIssue issue : issues) {
+
+            JsonNode issueNode = repository.path("i" + issue.getNumber());
+
+            if (!issueNode.isObject()) {
+                continue;
+            }
+
+            IssueSubResources subResources = new IssueSubResources();
+
+            if (withComments) {
+                readIssueComments(issueNode, issue, subResources);
+            }
+
+            if (withReviews && "PullRequest".equals(issueNode.path("__typename").asText())) {
+                readReviews(issueNode, issue.getNumber(), pullRequestResolver, subResources);
+            }
+
+            subResourcesByNumber.put(issue.getNumber(), subResources);
+        }
+
+        return subResourcesByNumber;
+    }
+
+    private void readIssueComments(JsonNode issueNode, GHIssue issue, IssueSubResources subResources)
+            throws IOException, InterruptedException {
+
+        List<GHIssueComment> comments = new ArrayList<>();
+        ObjectNode restIssue = toRestParent(issue.getNumber(), issue.getUrl(), issue.getHtmlUrl());
+
+        for (JsonNode comment : readAllNodes(issueNode.path("comments"), issueNode, Connection.ISSUE_COMMENTS)) {
+
+            ObjectNode payload = JsonNodeFactory.instance.objectNode();
+            payload.set("repository", restRepository);
+            payload.set("issue", restIssue);
+            payload.set("comment", toRestComment(comment));
+
+            GHIssueComment issueComment = parsePayload(payload, GHEventPayload.IssueComment.class).getComment();
+
+            comments.add(issueComment);
+            subResources.issueCommentReactions.put(issueComment.getId(), readReactions(comment));
+        }
+
+        subResources.issueComments = comments;
+    }
+
+    private void readReviews(JsonNode pullRequestNode, int pullRequestNumber, PullRequestResolver pullRequestResolver,
+            IssueSubResources subResources) throws IOException, InterruptedException {
+
+        List<JsonNode> reviewNodes = readAllNodes(pullRequestNode.path("reviews"), pullRequestNode, Connection.REVIEWS);
+
+        if (reviewNodes.isEmpty()) {
+            subResources.reviews = List.of();
+            return;
+        }
+
+        GHPullRequest pullRequest;
+
+        try {
+            pullRequest = pullRequestResolver.resolve(pullRequestNumber);
+        } catch (IOException ex) {
+            log.warn("Unable to resolve pull request #{}, its reviews are fetched with REST: {}",
+                    pullRequestNumber, ex.getMessage());
+            return;
+        }
+
+        List<GHPullRequestReview> reviews = new ArrayList<>();
+        ObjectNode restPullRequest
+                = toRestParent(pullRequestNumber, pullRequest.getUrl(), pullRequest.getHtmlUrl());
+
+        for (JsonNode review : reviewNodes) {
+
+            ObjectNode restReview = toRestComment(review);
+            restReview.put("state", review.path("state").asText());
+            restReview.put("commit_id", review.path("commit").path("oid").asText(null));
+            putDate(restReview, "submitted_at", review.path("submittedAt"));
+
+            ObjectNode reviewPayload = JsonNodeFactory.instance.objectNode();
+            reviewPayload.set("repository", restRepository);
+            reviewPayload.set("pull_request", restPullRequest);
+            reviewPayload.set("review", restReview);
+
+            GHPullRequestReview pullRequestReview
+                    = parsePayload(reviewPayload, GHEventPayload.PullRequestReview.class).getReview();
+
+            List<GHPullRequestReviewComment> reviewComments = new ArrayList<>();
+
+            for (JsonNode comment : readAllNodes(review.path("comments"), review, Connection.REVIEW_COMMENTS)) {
+
+                ObjectNode restComment = toRestComment(comment);
+                restComment.put("path", comment.path("path").asText(null));
+                restComment.put("diff_hunk", comment.path("diffHunk").asText(null));
+                restComment.put("commit_id", comment.path("commit").path("oid").asText(null));
+                restComment.put("original_commit_id", comment.path("originalCommit").path("oid").asText(null));
+                restComment.put("pull_request_review_id", pullRequestReview.getId());
+
+                JsonNode replyTo = comment.path("replyTo").path("fullDatabaseId");
+                if (!replyTo.isMissingNode() && !replyTo.isNull()) {
+                    restComment.put("in_reply_to_id", replyTo.asLong());
+                }
+
+                ObjectNode commentPayload = JsonNodeFactory.instance.objectNode();
+                commentPayload.set("repository", restRepository);
+                commentPayload.set("pull_request", restPullRequest);
+                commentPayload.set("comment", restComment);
+
+                GHPullRequestReviewComment reviewComment
+                        = parsePayload(commentPayload, GHEventPayload.PullRequestReviewComment.class).getComment();
+
+                reviewComments.add(reviewComment);
+                subResources.reviewCommentReactions.put(reviewComment.getId(), readReactions(comment));
+            }
+
+            reviews.add(pullRequestReview);
+            subResources.reviewComments.put(pullRequestReview.getId(), reviewComments);
+        }
+
+        subResources.reviews = reviews;
+    }
+
+    private List<GHReaction> readReactions(JsonNode reactable) throws IOException, InterruptedException {
+
+        List<GHReaction> reactions = new ArrayList<>();
+
+        for (JsonNode reaction : readAllNodes(reactable.path("reactions"), reactable, Connection.REACTIONS)) {
+
+            ObjectNode restReaction = JsonNodeFactory.instance.objectNode();
+            restReaction.put("id", reaction.path("databaseId").asLong());
+            restReaction.put("content", toRestReactionContent(reaction.path("content").asText()));
+            putDate(restReaction, "created_at", reaction.path("createdAt"));
+            restReaction.set("user", toRestUser(reaction.path("user")));
+
+            reactions.add(objectReader.forType(GHReaction.class).readValue(restReaction));
+        }
+
+        return reactions;
+    }
+
+    /**
+     * Returns the nodes of the connection, including the nodes of all further pages.
+     */
+    private List<JsonNode> readAllNodes(JsonNode connection, JsonNode parent, Connection connectionType)
+            throws IOException, InterruptedException {
+
+        List<JsonNode> nodes = new ArrayList<>();
+
+        while (connection.isObject()) {
+
+            for (JsonNode node : connection.path("nodes")) {
+                if (node.isObject()) {
+                    nodes.add(node);
+                }
+            }
+
+            JsonNode pageInfo = connection.path("pageInfo");
+
+            if (!pageInfo.path("hasNextPage").asBoolean(false)) {
+                break;
+            }
+
+            ObjectNode variables = JsonNodeFactory.instance.objectNode();
+            variables.put("id", parent.path("id").asText());
+            variables.put("after", pageInfo.path("endCursor").asText());
+
+            log.debug("Fetching next page of {} for node {}", connectionType, parent.path("id").asText());
+
+            connection = graphqlClient.query(connectionType.pageQuery, variables)
+                    .path("node").path(connectionType.fieldName);
+        }
+
+        return nodes;
+    }
+
+    /**
+     * Parses an event payload, which binds the comment or review of the payload to its issue or pull request, like the
+     * client library does for objects it fetched itself.
+     */
+    private <T extends GHEventPayload> T parsePayload(ObjectNode payload, Class<T> payloadType) throws IOException {
+        return gitHub.parseEventPayload(new StringReader(payload.toString()), payloadType);
+    }
+
+    /**
+     * Maps the fields of an issue or pull request its comments and reviews need to request their own sub-resources.
+     */
+    private static ObjectNode toRestParent(int number, URL url, URL htmlUrl) {
+
+        ObjectNode restParent = JsonNodeFactory.instance.objectNode();
+        restParent.put("number", number);
+        restParent.put("url", url == null ? null : url.toString());
+        restParent.put("html_url", htmlUrl == null ? null : htmlUrl.toString());
+
+        return restParent;
+    }
+
+    /**
+     * Maps the fields that issue comments, reviews and review comments share.
+     */
+    private ObjectNode toRestComment(JsonNode comment) {
+
+        ObjectNode restComment = JsonNodeFactory.instance.objectNode();
+        restComment.put("id", comment.path("fullDatabaseId").asLong());
+        restComment.put("node_id", comment.path("id").asText());
+        restComment.put("body", comment.path("body").asText(""));
+        restComment.put("html_url", comment.path("url").asText(null));
+        restComment.put("author_association", comment.path("authorAssociation").asText(null));
+        putDate(restComment, "created_at", comment.path("createdAt"));
+        putDate(restComment, "updated_at", comment.path("updatedAt"));
+        restComment.set("user", toRestUser(comment.path("author")));
+
+        return restComment;
+    }
+
+    /**
+     * Maps an actor to a REST user. Deleted accounts are the ghost user and bot logins end with [bot], like in REST
+     * responses.
+     */
+    private static ObjectNode toRestUser(JsonNode actor) {
+
+        ObjectNode restUser = JsonNodeFactory.instance.objectNode();
+
+        if (!actor.isObject()) {
+            restUser.put("login", GHOST_USER_LOGIN);
+            restUser.put("id", GHOST_USER_ID);
+            restUser.put("type", "User");
+            restUser.put("html_url", "https://github.com/" + GHOST_USER_LOGIN);
+            return restUser;
+        }
+
+        String type = actor.path("__typename").asText();
+        String login = actor.path("login").asText();
+
+        restUser.put("login", "Bot".equals(type) ? login + BOT_LOGIN_SUFFIX : login);
+        restUser.put("id", actor.path("databaseId").asLong());
+        restUser.put("type", type);
+        restUser.put("html_url", actor.path("url").asText(null));
+        restUser.put("avatar_url", actor.path("avatarUrl").asText(null));
+
+        return restUser;
+    }
+
+    private static String toRestReactionContent(String content) {
+        return switch (content) {
+            case "THUMBS_UP" -> "+1";
+            case "THUMBS_DOWN" -> "-1";
+            default -> content.toLowerCase();
+        };
+    }
+
+    private static void putDate(ObjectNode restObject, String fieldName, JsonNode date) {
+        if (date.isTextual()) {
+            restObject.put(fieldName, date.asText());
+        }
+    }
+
+    /**
+     * Connections that are paged separately when they overflow the first page.
+     */
+    private enum Connection {
+
+        ISSUE_COMMENTS("comments", """
+                query($id: ID!, $after: String) {
+                  rateLimit { cost remaining }
+                  node(id: $id) {
+                    ... on Issue { comments(first: 100, after: $after) { ...issueCommentConnectionFields } }
+                    ... on PullRequest { comments(first: 100, after: $after) { ...issueCommentConnectionFields } }
+                  }
+                }
+                fragment issueCommentConnectionFields on IssueCommentConnection {
+                  pageInfo { hasNextPage endCursor }
+                  nodes { ...issueCommentFields }
+                }
+                """ + ACTOR_FRAGMENT + REACTION_FRAGMENTS + ISSUE_COMMENT_FRAGMENT),
+
+        REVIEWS("reviews", """
+                query($id: ID!, $after: String) {
+                  rateLimit { cost remaining }
+                  node(id: $id) {
+                    ... on PullRequest {
+                      reviews(first: 50, after: $after) {
+                        pageInfo { hasNextPage endCursor }
+                        nodes { ...reviewFields }
+                      }
+                    }
+                  }
+                }
+                """ + ACTOR_FRAGMENT + REACTION_FRAGMENTS + REVIEW_COMMENT_FRAGMENT + REVIEW_FRAGMENT),
+
+        REVIEW_COMMENTS("comments", """
+                query($id: ID!, $after: String) {
+                  rateLimit { cost remaining }
+                  node(id: $id) {
+                    ... on PullRequestReview {
+                      comments(first: 100, after: $after) {
+                        pageInfo { hasNextPage endCursor }
+                        nodes { ...reviewCommentFields }
+                      }
+                    }
+                  }
+                }
+                """ + ACTOR_FRAGMENT + REACTION_FRAGMENTS + REVIEW_COMMENT_FRAGMENT),
+
+        REACTIONS("reactions", """
+                query($id: ID!, $after: String) {
+                  rateLimit { cost remaining }
+                  node(id: $id) {
+                    ... on Reactable { reactions(first: 100, after: $after) { ...reactionConnectionFields } }
+                  }
+                }
+                """ + ACTOR_FRAGMENT + REACTION_FRAGMENTS);
+
+        private final String fieldName;
+
+        private final String pageQuery;
+
+        Connection(String fieldName, String pageQuery) {
+            this.fieldName = fieldName;
+            this.pageQuery = pageQuery;
+        }
+    }
+
+    /**
+     * Resolves the details of a pull request, e.g. from a cache of REST responses.
+     */
+    @FunctionalInterface
+    public interface PullRequestResolver {
+
+        GHPullRequest resolve(int pullRequestNumber) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Sub-resources of a single issue or pull request. Lists are null if they weren't fetched.
+     */
+    @Getter
+    public static class IssueSubResources {
+
+        private List<GHIssueComment> issueComments;
+
+        private final Map<Long, List<GHReaction>> issueCommentReactions = new HashMap<>();
+
+        private List<GHPullRequestReview> reviews;
+
+        private final Map<Long, List<GHPullRequestReviewComment>> reviewComments = new HashMap<>();
+
+        private final Map<Long, List<GHReaction>> reviewCommentReactions = new HashMap<>();
+    }
+
+}
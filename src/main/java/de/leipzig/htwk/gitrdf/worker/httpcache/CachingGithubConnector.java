@@ -0,0 +1,129 @@
+package de.leipzig.htwk.gitrdf.worker.httpcache;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import de.leipzig.htwk.gitrdf.worker.httpcache.GithubHttpCache.CachedResponse;
+import de.leipzig.htwk.gitrdf.worker.utils.GithubConnectorUtils;
+
+/**
+ * Sends GET requests conditionally with the validators of the cached response and answers a
+ * {@code 304 Not Modified} with the cached body. All other requests and responses pass through unchanged.
+ * <p>
+ * The client never sees a {@code 304}, it gets the cached response instead. Its headers are the cached ones, updated
+ * with the headers of the {@code 304}, so the rate limit the client tracks is the current one.
+ */
+class CachingGithubConnector implements GitHubConnector {
+
+    private static final int HTTP_OK = 200;
+
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    private static final String IF_NONE_MATCH = "If-None-Match";
+
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    private static final String ETAG = "ETag";
+
+    private static final String LAST_MODIFIED = "Last-Modified";
+
+    private final GitHubConnector delegate;
+
+    private final GithubHttpCache cache;
+
+    CachingGithubConnector(GitHubConnector delegate, GithubHttpCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public GitHubConnectorResponse send(GitHubConnectorRequest request) throws IOException {
+
+        if (!isCacheable(request)) {
+            return delegate.send(request);
+        }
+
+        String url = request.url().toString();
+        String key = GithubHttpCache.key(url, request.header("Accept"));
+
+        CachedResponse cachedResponse = cache.read(key, url);
+
+        if (cachedResponse == null) {
+            cache.recordMiss();
+            return store(key, url, request, delegate.send(request));
+        }
+
+        GitHubConnectorResponse response = delegate.send(conditionalRequest(request, cachedResponse.headers()));
+
+        if (response.statusCode() != HTTP_NOT_MODIFIED) {
+            cache.recordRevalidatedChange();
+            // Changed and error responses belong to the conditional request, the client needs its own request
+            return store(key, url, request, GithubConnectorUtils.withRequest(request, response));
+        }
+
+        response.close();
+        cache.touch(key);
+        cache.recordHit(cachedResponse.body().length);
+
+        Map<String, List<String>> headers = GithubConnectorUtils.withoutBodyEncoding(cachedResponse.headers());
+        headers.putAll(GithubConnectorUtils.withoutBodyEncoding(response.allHeaders()));
+
+        return GithubConnectorUtils.bufferedResponse(request, HTTP_OK, headers, cachedResponse.body());
+    }
+
+    private static boolean isCacheable(GitHubConnectorRequest request) {
+        return "GET".equals(request.method())
+                && !request.hasBody()
+                && request.header(IF_NONE_MATCH) == null
+                && request.header(IF_MODIFIED_SINCE) == null;
+    }
+
+    private static GitHubConnectorRequest conditionalRequest(
+            GitHubConnectorRequest request,
+            Map<String, List<String>> cachedHeaders) {
+
+        Map<String, List<String>> headers = GithubConnectorUtils.copyHeaders(request);
+
+        if (cachedHeaders.containsKey(ETAG)) {
+            headers.put(IF_NONE_MATCH, cachedHeaders.get(ETAG));
+        }
+
+        if (cachedHeaders.containsKey(LAST_MODIFIED)) {
+            headers.put(IF_MODIFIED_SINCE, cachedHeaders.get(LAST_MODIFIED));
+        }
+
+        return GithubConnectorUtils.withHeaders(request, headers);
+    }
+
+    private GitHubConnectorResponse store(
+            String key,
+            String url,
+            GitHubConnectorRequest request,
+            GitHubConnectorResponse response) throws IOException {
+
+        if (response.statusCode() != HTTP_OK
+                || response.header(ETAG) == null && response.header(LAST_MODIFIED) == null
+                || String.valueOf(response.header("Cache-Control")).contains("no-store")) {
+            return response;
+        }
+
+        byte[] body;
+        Map<String, List<String>> headers = GithubConnectorUtils.withoutBodyEncoding(response.allHeaders());
+
+        try (response) {
+            body = response.bodyStream().readAllBytes();
+        }
+
+        if (cache.fits(body.length)) {
+            cache.write(key, url, headers, body);
+        }
+
+        return GithubConnectorUtils.bufferedResponse(request, HTTP_OK, headers, body);
+    }
+
+}
@@ -0,0 +1,321 @@
+package de.leipzig.htwk.gitrdf.worker.httpcache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kohsuke.github.connector.GitHubConnector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Persistent cache of GitHub REST responses, so that repeated conversions revalidate unchanged issues, users and pull
+ * requests with a conditional request instead of fetching them again. GitHub doesn't count a {@code 304 Not Modified}
+ * against the rate limit.
+ * <p>
+ * Each entry lives in {@code <directory>/<xx>/<key>}, where the key is a hash of the URL and the requested media type.
+ * A cached response is never used without revalidation, so the cache can't return outdated data; it only saves the
+ * rate limit and the transfer of unchanged bodies.
+ * <p>
+ * Entries are written to a temporary file and moved into place, so workers sharing the directory never read a partial
+ * entry. Every read touches the entry, and after every write the least recently used entries are evicted until the
+ * directory fits {@code worker.github-http-cache.max-bytes} again. The cache is best effort: entries which can't be
+ * read or written are treated as missing.
+ */
+@Slf4j
+@Component
+public class GithubHttpCache {
+
+    private static final int ENTRY_FORMAT_VERSION = 1;
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * Eviction frees a bit more than needed, so not every write lists the whole directory again
+     */
+    private static final double EVICTION_TARGET_RATIO = 0.9;
+
+    private final Clock clock;
+
+    private final File directory;
+
+    private final long maxBytes;
+
+    private final AtomicLong cachedBytes = new AtomicLong(-1);
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong revalidatedChanges = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong servedBytes = new AtomicLong();
+
+    public GithubHttpCache(
+            Clock clock,
+            @Value("${worker.github-http-cache.directory:}") String directory,
+            @Value("${worker.github-http-cache.max-bytes:1073741824}") long maxBytes) {
+
+        this.clock = clock;
+        this.directory = directory == null || directory.isBlank() ? null : new File(directory.trim());
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * @return a connector revalidating cached responses before sending requests with {@code delegate}, or
+     * {@code delegate} itself if the cache is disabled
+     */
+    public GitHubConnector wrap(GitHubConnector delegate) {
+        return isEnabled() ? new CachingGithubConnector(delegate, this) : delegate;
+    }
+
+    public void logStatistics() {
+
+        if (!isEnabled()) {
+            return;
+        }
+
+        long lookups = hits.get() + revalidatedChanges.get() + misses.get();
+
+        log.info("GitHub HTTP cache statistics since worker start: {} not modified hits, {} revalidated changes, "
+                        + "{} misses ({}), {} evictions, {} bytes served from cache, {} of {} bytes cached",
+                hits.get(), revalidatedChanges.get(), misses.get(),
+                lookups == 0 ? "n/a" : String.format("%.1f%% hit rate", 100.0 * hits.get() / lookups),
+                evictions.get(), servedBytes.get(), Math.max(cachedBytes.get(), 0), maxBytes);
+    }
+
+    static String key(String url, String accept) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(url.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(accept == null ? new byte[0] : accept.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    /**
+     * @return the cached response for the key, or null if there is none or it can't be read
+     */
+    CachedResponse read(String key, String url) {
+
+        File entryFile = entryFile(key);
+
+        if (!entryFile.isFile()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entryFile)))) {
+
+            if (in.readInt() != ENTRY_FORMAT_VERSION || !url.equals(in.readUTF())) {
+                return null;
+            }
+
+            Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            int headerCount = in.readInt();
+
+            for (int i = 0; i < headerCount; i++) {
+                String name = in.readUTF();
+                int valueCount = in.readInt();
+                List<String> values = new ArrayList<>(valueCount);
+                for (int j = 0; j < valueCount; j++) {
+                    values.add(in.readUTF());
+                }
+                headers.put(name, values);
+            }
+
+            int bodyLength = in.readInt();
+            byte[] body = in.readNBytes(bodyLength);
+
+            if (body.length != bodyLength) {
+                log.debug("Ignoring truncated GitHub HTTP cache entry {}", entryFile);
+                return null;
+            }
+
+            return new CachedResponse(headers, body);
+
+        } catch (IOException | RuntimeException ex) {
+            log.debug("Ignoring unreadable GitHub HTTP cache entry {}: {}", entryFile, ex.getMessage());
+            return null;
+        }
+    }
+
+    void write(String key, String url, Map<String, List<String>> headers, byte[] body) {
+
+        File entryFile = entryFile(key);
+        File temporaryFile = null;
+
+        try {
+
+            Files.createDirectories(entryFile.getParentFile().toPath());
+
+            // Unique among all workers sharing the directory
+            temporaryFile = Files.createTempFile(entryFile.getParentFile().toPath(), key, TEMPORARY_SUFFIX).toFile();
+
+            try (DataOutputStream out
+                         = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+
+                out.writeInt(ENTRY_FORMAT_VERSION);
+                out.writeUTF(url);
+                out.writeInt(headers.size());
+
+                for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                    out.writeUTF(header.getKey());
+                    out.writeInt(header.getValue().size());
+                    for (String value : header.getValue()) {
+                        out.writeUTF(value);
+                    }
+                }
+
+                out.writeInt(body.length);
+                out.write(body);
+            }
+
+            long previousLength = entryFile.length();
+
+            try {
+                Files.move(temporaryFile.toPath(), entryFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temporaryFile.toPath(), entryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            addCachedBytes(entryFile.length() - previousLength);
+
+        } catch (IOException | RuntimeException ex) {
+            log.debug("Unable to write GitHub HTTP cache entry {}: {}", entryFile, ex.getMessage());
+            if (temporaryFile != null) {
+                temporaryFile.delete();
+            }
+            return;
+        }
+
+        evictLeastRecentlyUsed(entryFile);
+    }
+
+    void touch(String key) {
+        entryFile(key).setLastModified(clock.millis());
+    }
+
+    void recordHit(int bodyLength) {
+        hits.incrementAndGet();
+        servedBytes.addAndGet(bodyLength);
+    }
+
+    void recordRevalidatedChange() {
+        revalidatedChanges.incrementAndGet();
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * Entries larger than the whole budget would only evict everything else
+     */
+    boolean fits(int bodyLength) {
+        return maxBytes <= 0 || bodyLength < maxBytes;
+    }
+
+    private File entryFile(String key) {
+        return new File(new File(directory, key.substring(0, 2)), key);
+    }
+
+    private void addCachedBytes(long delta) {
+        if (cachedBytes.get() < 0) {
+            cachedBytes.set(sizeOfEntries(listEntries()));
+        } else {
+            cachedBytes.addAndGet(delta);
+        }
+    }
+
+    private synchronized void evictLeastRecentlyUsed(File currentEntryFile) {
+
+        if (maxBytes <= 0 || cachedBytes.get() <= maxBytes) {
+            return;
+        }
+
+        List<File> entries = listEntries();
+
+        // Other workers sharing the directory change it as well, so the size is counted again before evicting
+        long size = sizeOfEntries(entries);
+        long targetBytes = (long) (maxBytes * EVICTION_TARGET_RATIO);
+
+        entries.sort(Comparator.comparingLong(File::lastModified));
+
+        for (File entry : entries) {
+
+            if (size <= targetBytes) {
+                break;
+            }
+
+            if (entry.equals(currentEntryFile)) {
+                continue;
+            }
+
+            long length = entry.length();
+
+            if (entry.delete()) {
+                size -= length;
+                evictions.incrementAndGet();
+            }
+        }
+
+        cachedBytes.set(size);
+    }
+
+    private List<File> listEntries() {
+
+        List<File> entries = new ArrayList<>();
+        File[] prefixDirectories = directory.listFiles(File::isDirectory);
+
+        for (File prefixDirectory : prefixDirectories == null ? new File[0] : prefixDirectories) {
+
+            File[] prefixEntries = prefixDirectory.listFiles(
+                    file -> file.isFile() && !file.getName().endsWith(TEMPORARY_SUFFIX));
+
+            if (prefixEntries != null) {
+                entries.addAll(List.of(prefixEntries));
+            }
+        }
+
+        return entries;
+    }
+
+    private static long sizeOfEntries(List<File> entries) {
+        return entries.stream().mapToLong(File::length).sum();
+    }
+
+    record CachedResponse(Map<String, List<String>> headers, byte[] body) {
+    }
+
+}
@@ -0,0 +1,39 @@
+package de.leipzig.htwk.gitrdf.worker.identity;
+
+import java.time.Instant;
+
+import de.leipzig.htwk.gitrdf.worker.utils.GithubUriUtils;
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.github.GithubUserInfo;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Cached result of an email to GitHub account lookup. A null login records that the email isn't linked to any
+ * account, so it isn't looked up again until the entry expires.
+ */
+@Getter
+@AllArgsConstructor
+public class CachedEmailIdentity {
+
+    private final String email;
+
+    private final String login;
+
+    private final long userId;
+
+    private final Instant resolvedAt;
+
+    public boolean isLinked() {
+        return login != null;
+    }
+
+    /**
+     * @return the cached account, or null if the email isn't linked to an account
+     */
+    public GithubUserInfo toUserInfo(String gitAuthorEmail) {
+        return isLinked()
+                ? new GithubUserInfo(GithubUriUtils.getUserUri(login), login, userId, null, gitAuthorEmail)
+                : null;
+    }
+
+}
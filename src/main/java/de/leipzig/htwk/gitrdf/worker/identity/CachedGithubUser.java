@@ -0,0 +1,34 @@
+package de.leipzig.htwk.gitrdf.worker.identity;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Cached profile of a GitHub account. Accounts the API reported as not found (deleted or renamed) are cached with
+ * {@code found == false} and without profile data.
+ */
+@Getter
+@AllArgsConstructor
+public class CachedGithubUser {
+
+    private final String login;
+
+    private final boolean found;
+
+    private final long userId;
+
+    private final String userType;
+
+    private final String name;
+
+    private final String email;
+
+    private final Instant resolvedAt;
+
+    public static CachedGithubUser notFound(String login, Instant resolvedAt) {
+        return new CachedGithubUser(login, false, 0L, null, null, null, resolvedAt);
+    }
+
+}
@@ -0,0 +1,20 @@
+package de.leipzig.htwk.gitrdf.worker.identity;
+
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.github.GithubUserInfo;
+
+/**
+ * Resolves the GitHub account of a commit author from local information only, without any API call.
+ */
+public interface CommitIdentityResolver {
+
+    /**
+     * Name of the resolver, used for the hit counters.
+     */
+    String getName();
+
+    /**
+     * Returns the GitHub account for the given author, or null if this resolver can't tell.
+     */
+    GithubUserInfo resolve(String authorEmail, String authorName);
+
+}
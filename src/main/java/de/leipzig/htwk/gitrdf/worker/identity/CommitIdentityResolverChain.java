@@ -0,0 +1,99 @@
+package de.leipzig.htwk.gitrdf.worker.identity;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.Repository;
+
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.github.GithubUserInfo;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the local {@link CommitIdentityResolver}s in order and counts the hits of every resolver. Commit authors that
+ * none of the resolvers know have to be resolved over the network.
+ * <p>
+ * None of the resolvers matches author names against logins, so pull request authors are not reused for commits of an
+ * author with the same name: a matching name is no evidence of the same identity.
+ */
+@Slf4j
+public class CommitIdentityResolverChain {
+
+    private final List<CommitIdentityResolver> resolvers;
+
+    @Getter
+    private final LearnedIdentityResolver learnedIdentityResolver;
+
+    private final Map<String, Long> hitsByResolver = new LinkedHashMap<>();
+
+    private long lookups = 0;
+
+    private long misses = 0;
+
+    public CommitIdentityResolverChain(List<CommitIdentityResolver> resolvers, LearnedIdentityResolver learnedIdentityResolver) {
+
+        this.resolvers = resolvers;
+        this.learnedIdentityResolver = learnedIdentityResolver;
+
+        for (CommitIdentityResolver resolver : resolvers) {
+            hitsByResolver.put(resolver.getName(), 0L);
+        }
+    }
+
+    /**
+     * Default chain: noreply emails, identities learned in this run, then the {@code .mailmap} of the repository
+     * (whose canonical emails are again checked against the first two).
+     */
+    public static CommitIdentityResolverChain createDefault(Repository gitRepository) {
+
+        NoreplyEmailIdentityResolver noreplyEmailIdentityResolver = new NoreplyEmailIdentityResolver();
+        LearnedIdentityResolver learnedIdentityResolver = new LearnedIdentityResolver();
+
+        List<CommitIdentityResolver> resolvers = new ArrayList<>();
+        resolvers.add(noreplyEmailIdentityResolver);
+        resolvers.add(learnedIdentityResolver);
+        resolvers.add(new MailmapIdentityResolver(
+                gitRepository, List.of(noreplyEmailIdentityResolver, learnedIdentityResolver)));
+
+        return new CommitIdentityResolverChain(resolvers, learnedIdentityResolver);
+    }
+
+    public GithubUserInfo resolve(String authorEmail, String authorName) {
+
+        lookups++;
+
+        for (CommitIdentityResolver resolver : resolvers) {
+
+            GithubUserInfo info = resolver.resolve(authorEmail, authorName);
+
+            if (info != null) {
+                hitsByResolver.merge(resolver.getName(), 1L, Long::sum);
+                return info;
+            }
+        }
+
+        misses++;
+        return null;
+    }
+
+    public Map<String, Long> getHitsByResolver() {
+        return Map.copyOf(hitsByResolver);
+    }
+
+    public void logStatistics() {
+
+        for (Map.Entry<String, Long> hits : hitsByResolver.entrySet()) {
+            log.info("Commit identity resolver '{}' resolved {} of {} lookups ({})",
+                    hits.getKey(), hits.getValue(), lookups, hitRate(hits.getValue()));
+        }
+
+        log.info("Commit identity resolver chain left {} of {} lookups unresolved ({})", misses, lookups, hitRate(misses));
+    }
+
+    private String hitRate(long count) {
+        return lookups == 0 ? "n/a" : String.format("%.1f%%", 100.0 * count / lookups);
+    }
+
+}
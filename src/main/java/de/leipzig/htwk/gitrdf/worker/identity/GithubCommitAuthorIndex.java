@@ -0,0 +1,239 @@
+package de.leipzig.htwk.gitrdf.worker.identity;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.kohsuke.github.GHCommit;
+import org.kohsuke.github.GHRepository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import de.leipzig.htwk.gitrdf.worker.graphql.GithubGraphqlClient;
+import de.leipzig.htwk.gitrdf.worker.utils.GithubUriUtils;
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.git.RdfGitCommitUserUtils;
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.github.GithubUserInfo;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resolves the GitHub account of commit authors from an email to login index, which is built once per conversion run
+ * by listing the commit history in pages of 100 over the GraphQL API. Only emails that don't show up in the listing
+ * fall back to a single commit lookup, and each email is looked up at most once.
+ * <p>
+ * The REST listing can't be used here: {@link GHCommit#getAuthor()} fetches the full commit (one request per commit)
+ * and then the user (another request), and there is no other public accessor for the linked account of a listed
+ * commit. The GraphQL history returns the linked account of every author, and is charged to its own rate limit.
+ */
+@Slf4j
+public class GithubCommitAuthorIndex {
+
+    public static final int PAGE_SIZE = 100;
+
+    private static final String COMMIT_HISTORY_QUERY = """
+            query($owner: String!, $name: String!, $head: GitObjectID!, $pageSize: Int!, $after: String) {
+              rateLimit { cost remaining }
+              repository(owner: $owner, name: $name) {
+                object(oid: $head) {
+                  ... on Commit {
+                    history(first: $pageSize, after: $after) {
+                      pageInfo { hasNextPage endCursor }
+                      nodes {
+                        author {
+                          email
+                          user { login databaseId }
+                        }
+                      }
+                    }
+                  }
+                }
+              }
+            }
+            """;
+
+    private final GHRepository githubRepositoryHandle;
+
+    private final GithubGraphqlClient githubGraphqlClient;
+
+    private final String headCommitHash;
+
+    private final int commitLimit;
+
+    private final Map<String, GithubUserInfo> authorsByEmail = new HashMap<>();
+
+    private final Set<String> unresolvableEmails = new HashSet<>();
+
+    private boolean listed = false;
+
+    private int listedCommits = 0;
+
+    private int listedPages = 0;
+
+    private int indexHits = 0;
+
+    private int singleCommitLookups = 0;
+
+    /**
+     * The commits are listed lazily on the first {@link #resolve(String, String)} call, so no request is made if all
+     * authors can be resolved otherwise.
+     *
+     * @param headCommitHash commit to start the listing from
+     * @param commitLimit    maximum number of commits to list; a value of 0 or less means no limit
+     */
+    public GithubCommitAuthorIndex(
+            GHRepository githubRepositoryHandle,
+            GithubGraphqlClient githubGraphqlClient,
+            String headCommitHash,
+            int commitLimit) {
+
+        this.githubRepositoryHandle = githubRepositoryHandle;
+        this.githubGraphqlClient = githubGraphqlClient;
+        this.headCommitHash = headCommitHash;
+        this.commitLimit = commitLimit;
+    }
+
+    /**
+     * Lists up to {@code commitLimit} commits reachable from {@code headCommitHash} and indexes their authors. If the
+     * listing fails midway, the commits listed so far stay indexed and the remaining emails are resolved by single
+     * commit lookups.
+     */
+    private void listCommits() {
+
+        listed = true;
+
+        ObjectNode variables = JsonNodeFactory.instance.objectNode();
+        variables.put("owner", githubRepositoryHandle.getOwnerName());
+        variables.put("name", githubRepositoryHandle.getName());
+        variables.put("head", headCommitHash);
+
+        String cursor = null;
+
+        try {
+
+            do {
+
+                int pageSize = commitLimit > 0 ? Math.min(PAGE_SIZE, commitLimit - listedCommits) : PAGE_SIZE;
+                variables.put("pageSize", pageSize);
+                variables.put("after", cursor);
+
+                JsonNode history = githubGraphqlClient.query(COMMIT_HISTORY_QUERY, variables)
+                        .path("repository").path("object").path("history");
+
+                if (history.isMissingNode() || history.isNull()) {
+                    throw new IOException("No commit history returned for commit '" + headCommitHash + "'");
+                }
+
+                listedPages++;
+
+                for (JsonNode commitNode : history.path("nodes")) {
+                    addListedCommit(commitNode.path("author"));
+                }
+
+                JsonNode pageInfo = history.path("pageInfo");
+                cursor = pageInfo.path("hasNextPage").asBoolean() ? pageInfo.path("endCursor").asText(null) : null;
+
+            } while (cursor != null && (commitLimit <= 0 || listedCommits < commitLimit));
+
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Listing commits for the author index failed after {} commits, remaining authors are resolved " +
+                    "by single commit lookups. Error is '{}'", listedCommits, ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.warn("Listing commits for the author index was interrupted after {} commits", listedCommits);
+        }
+
+        log.info("Built commit author index from {} listed commits ({} pages) with {} resolved and {} unresolvable emails",
+                listedCommits, listedPages, authorsByEmail.size(), unresolvableEmails.size());
+    }
+
+    /**
+     * Returns the GitHub account of the author of the given commit, or null if the author email isn't linked to a
+     * GitHub account.
+     *
+     * @throws IOException if the single commit lookup failed; failed lookups aren't remembered, so the email is looked
+     *                     up again for its next commit
+     */
+    public GithubUserInfo resolve(String gitHash, String email) throws IOException {
+
+        if (!listed) {
+            listCommits();
+        }
+
+        String normalizedEmail = normalize(email);
+
+        if (normalizedEmail.isEmpty()) {
+            singleCommitLookups++;
+            return RdfGitCommitUserUtils.fetchGitHubUserInfoFromCommit(githubRepositoryHandle, gitHash);
+        }
+
+        GithubUserInfo info = authorsByEmail.get(normalizedEmail);
+
+        if (info != null) {
+            indexHits++;
+            return info;
+        }
+
+        if (unresolvableEmails.contains(normalizedEmail)) {
+            indexHits++;
+            return null;
+        }
+
+        singleCommitLookups++;
+        info = RdfGitCommitUserUtils.fetchGitHubUserInfoFromCommit(githubRepositoryHandle, gitHash);
+        remember(normalizedEmail, info);
+
+        return info;
+    }
+
+    public void logStatistics() {
+        log.info("Commit author index statistics: {} listed commits, {} index hits, {} single commit lookups",
+                listedCommits, indexHits, singleCommitLookups);
+    }
+
+    private void addListedCommit(JsonNode authorNode) {
+
+        listedCommits++;
+
+        String email = authorNode.path("email").asText(null);
+
+        if (email == null || email.isEmpty()) {
+            return;
+        }
+
+        String normalizedEmail = normalize(email);
+
+        if (authorsByEmail.containsKey(normalizedEmail)) {
+            return;
+        }
+
+        // A listed author without user is a commit whose email isn't linked to any account
+        JsonNode userNode = authorNode.path("user");
+        String login = userNode.path("login").asText(null);
+
+        if (login == null || login.isEmpty()) {
+            remember(normalizedEmail, null);
+            return;
+        }
+
+        long userId = userNode.path("databaseId").asLong();
+        remember(normalizedEmail, new GithubUserInfo(GithubUriUtils.getUserUri(login), login, userId, null, email));
+    }
+
+    private void remember(String normalizedEmail, GithubUserInfo info) {
+        if (info == null) {
+            unresolvableEmails.add(normalizedEmail);
+        } else {
+            unresolvableEmails.remove(normalizedEmail);
+            authorsByEmail.put(normalizedEmail, info);
+        }
+    }
+
+    private static String normalize(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+}
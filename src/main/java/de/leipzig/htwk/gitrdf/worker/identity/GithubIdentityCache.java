@@ -0,0 +1,318 @@
+package de.leipzig.htwk.gitrdf.worker.identity;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.github.GithubUserInfo;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Identity cache shared by all workers and conversion runs. Resolved email to login mappings and GitHub account
+ * profiles are stored in Postgres, fronted by an in-process LRU. Negative results (emails without linked account,
+ * accounts that no longer exist) are cached as well, but expire sooner than positive ones.
+ * <p>
+ * The cache is best effort: database errors are logged and treated as a cache miss, so a conversion never fails
+ * because of it. Every statement runs in its own transaction, since a failed statement would otherwise abort the
+ * transaction of the conversion. Values longer than their columns, e.g. overlong commit author emails, are only kept
+ * in-process.
+ */
+@Slf4j
+@Component
+public class GithubIdentityCache {
+
+    private static final String SELECT_EMAIL_SQL
+            = "SELECT EMAIL, LOGIN, USER_ID, RESOLVED_DATE FROM GITHUB_IDENTITY_EMAIL WHERE EMAIL = ?";
+
+    private static final String UPSERT_EMAIL_SQL
+            = "INSERT INTO GITHUB_IDENTITY_EMAIL (EMAIL, LOGIN, USER_ID, RESOLVED_DATE) VALUES (?, ?, ?, ?) " +
+              "ON CONFLICT (EMAIL) DO UPDATE SET LOGIN = EXCLUDED.LOGIN, USER_ID = EXCLUDED.USER_ID, " +
+              "RESOLVED_DATE = EXCLUDED.RESOLVED_DATE";
+
+    private static final String SELECT_USER_SQL
+            = "SELECT LOGIN, FOUND, USER_ID, USER_TYPE, NAME, EMAIL, RESOLVED_DATE FROM GITHUB_IDENTITY_USER WHERE LOGIN = ?";
+
+    private static final String UPSERT_USER_SQL
+            = "INSERT INTO GITHUB_IDENTITY_USER (LOGIN, FOUND, USER_ID, USER_TYPE, NAME, EMAIL, RESOLVED_DATE) " +
+              "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+              "ON CONFLICT (LOGIN) DO UPDATE SET FOUND = EXCLUDED.FOUND, USER_ID = EXCLUDED.USER_ID, " +
+              "USER_TYPE = EXCLUDED.USER_TYPE, NAME = EXCLUDED.NAME, EMAIL = EXCLUDED.EMAIL, " +
+              "RESOLVED_DATE = EXCLUDED.RESOLVED_DATE";
+
+    // Column widths of V3__github-identity-cache.sql
+    private static final int EMAIL_COLUMN_LENGTH = 320;
+
+    private static final int LOGIN_COLUMN_LENGTH = 100;
+
+    private static final int USER_TYPE_COLUMN_LENGTH = 50;
+
+    private static final int NAME_COLUMN_LENGTH = 512;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Clock clock;
+
+    private final boolean enabled;
+
+    private final Duration positiveTtl;
+
+    private final Duration negativeTtl;
+
+    private final Map<String, CachedEmailIdentity> emailLru;
+
+    private final Map<String, CachedGithubUser> userLru;
+
+    private final AtomicLong localHits = new AtomicLong();
+
+    private final AtomicLong databaseHits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public GithubIdentityCache(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            Clock clock,
+            @Value("${worker.identity-cache.enabled:true}") boolean enabled,
+            @Value("${worker.identity-cache.ttl-hours:720}") long ttlHours,
+            @Value("${worker.identity-cache.negative-ttl-hours:24}") long negativeTtlHours,
+            @Value("${worker.identity-cache.lru-size:10000}") int lruSize) {
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.clock = clock;
+        this.enabled = enabled;
+        this.positiveTtl = Duration.ofHours(ttlHours);
+        this.negativeTtl = Duration.ofHours(negativeTtlHours);
+        this.emailLru = createLru(lruSize);
+        this.userLru = createLru(lruSize);
+    }
+
+    /**
+     * @return the fresh cache entry of the email, or null if the email has to be resolved over the network
+     */
+    public CachedEmailIdentity findEmail(String email) {
+
+        String key = normalize(email);
+
+        if (!enabled || key.isEmpty()) {
+            return null;
+        }
+
+        CachedEmailIdentity cached = emailLru.get(key);
+
+        if (cached != null && isFresh(cached.isLinked(), cached.getResolvedAt())) {
+            localHits.incrementAndGet();
+            return cached;
+        }
+
+        if (!fits(key, EMAIL_COLUMN_LENGTH)) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        try {
+
+            List<CachedEmailIdentity> rows = transactionTemplate.execute(
+                    status -> jdbcTemplate.query(SELECT_EMAIL_SQL, this::mapEmailRow, key));
+
+            if (!rows.isEmpty() && isFresh(rows.get(0).isLinked(), rows.get(0).getResolvedAt())) {
+                emailLru.put(key, rows.get(0));
+                databaseHits.incrementAndGet();
+                return rows.get(0);
+            }
+
+        } catch (DataAccessException | TransactionException ex) {
+            log.warn("Failed to read identity cache entry for email '{}': {}", key, ex.getMessage());
+        }
+
+        emailLru.remove(key);
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores the resolved account of the email. A null info is stored as negative result, so it must only be passed
+     * for an author that was looked up successfully and has no linked account, never for a failed lookup.
+     */
+    public void storeEmail(String email, GithubUserInfo info) {
+
+        String key = normalize(email);
+
+        if (!enabled || key.isEmpty()) {
+            return;
+        }
+
+        CachedEmailIdentity entry = new CachedEmailIdentity(
+                key, info == null ? null : info.login, info == null ? 0L : info.userId, clock.instant());
+
+        emailLru.put(key, entry);
+
+        if (!fits(key, EMAIL_COLUMN_LENGTH) || !fits(entry.getLogin(), LOGIN_COLUMN_LENGTH)) {
+            log.debug("Identity cache entry for email '{}' exceeds the column widths, keeping it in-process only", key);
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(UPSERT_EMAIL_SQL,
+                    entry.getEmail(), entry.getLogin(), entry.isLinked() ? entry.getUserId() : null,
+                    toDatabaseTime(entry.getResolvedAt())));
+        } catch (DataAccessException | TransactionException ex) {
+            log.warn("Failed to store identity cache entry for email '{}': {}", key, ex.getMessage());
+        }
+    }
+
+    /**
+     * @return the fresh cached profile of the login, or null if the account has to be fetched from the API
+     */
+    public CachedGithubUser findUser(String login) {
+
+        String key = normalize(login);
+
+        if (!enabled || key.isEmpty()) {
+            return null;
+        }
+
+        CachedGithubUser cached = userLru.get(key);
+
+        if (cached != null && isFresh(cached.isFound(), cached.getResolvedAt())) {
+            localHits.incrementAndGet();
+            return cached;
+        }
+
+        if (!fits(key, LOGIN_COLUMN_LENGTH)) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        try {
+
+            List<CachedGithubUser> rows = transactionTemplate.execute(
+                    status -> jdbcTemplate.query(SELECT_USER_SQL, this::mapUserRow, key));
+
+            if (!rows.isEmpty() && isFresh(rows.get(0).isFound(), rows.get(0).getResolvedAt())) {
+                userLru.put(key, rows.get(0));
+                databaseHits.incrementAndGet();
+                return rows.get(0);
+            }
+
+        } catch (DataAccessException | TransactionException ex) {
+            log.warn("Failed to read identity cache entry for user '{}': {}", key, ex.getMessage());
+        }
+
+        userLru.remove(key);
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void storeUser(String login, long userId, String userType, String name, String email) {
+        storeUser(new CachedGithubUser(login, true, userId, userType, name, email, clock.instant()));
+    }
+
+    public void storeMissingUser(String login) {
+        storeUser(CachedGithubUser.notFound(login, clock.instant()));
+    }
+
+    private void storeUser(CachedGithubUser user) {
+
+        String key = normalize(user.getLogin());
+
+        if (!enabled || key.isEmpty()) {
+            return;
+        }
+
+        userLru.put(key, user);
+
+        // Truncated values would differ from a fresh lookup, so such entries aren't stored at all
+        if (!fits(key, LOGIN_COLUMN_LENGTH) || !fits(user.getUserType(), USER_TYPE_COLUMN_LENGTH)
+                || !fits(user.getName(), NAME_COLUMN_LENGTH) || !fits(user.getEmail(), EMAIL_COLUMN_LENGTH)) {
+            log.debug("Identity cache entry for user '{}' exceeds the column widths, keeping it in-process only", key);
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(UPSERT_USER_SQL,
+                    key, user.isFound(), user.isFound() ? user.getUserId() : null,
+                    user.getUserType(), user.getName(), user.getEmail(), toDatabaseTime(user.getResolvedAt())));
+        } catch (DataAccessException | TransactionException ex) {
+            log.warn("Failed to store identity cache entry for user '{}': {}", key, ex.getMessage());
+        }
+    }
+
+    public void logStatistics() {
+        log.info("Identity cache statistics since worker start: {} in-process hits, {} database hits, {} misses",
+                localHits.get(), databaseHits.get(), misses.get());
+    }
+
+    private boolean isFresh(boolean positive, Instant resolvedAt) {
+        Duration ttl = positive ? positiveTtl : negativeTtl;
+        return resolvedAt.plus(ttl).isAfter(clock.instant());
+    }
+
+    private CachedEmailIdentity mapEmailRow(ResultSet rs, int rowNum) throws SQLException {
+        return new CachedEmailIdentity(
+                rs.getString("EMAIL"),
+                rs.getString("LOGIN"),
+                rs.getLong("USER_ID"),
+                fromDatabaseTime(rs.getObject("RESOLVED_DATE", LocalDateTime.class)));
+    }
+
+    private CachedGithubUser mapUserRow(ResultSet rs, int rowNum) throws SQLException {
+        return new CachedGithubUser(
+                rs.getString("LOGIN"),
+                rs.getBoolean("FOUND"),
+                rs.getLong("USER_ID"),
+                rs.getString("USER_TYPE"),
+                rs.getString("NAME"),
+                rs.getString("EMAIL"),
+                fromDatabaseTime(rs.getObject("RESOLVED_DATE", LocalDateTime.class)));
+    }
+
+    // Timestamps are stored as UTC, so workers in different time zones agree on the age of an entry
+    private static LocalDateTime toDatabaseTime(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private static Instant fromDatabaseTime(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC);
+    }
+
+    private static boolean fits(String value, int columnLength) {
+        return value == null || value.length() <= columnLength;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static <V> Map<String, V> createLru(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+}
@@ -0,0 +1,40 @@
+package de.leipzig.htwk.gitrdf.worker.identity;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.github.GithubUserInfo;
+
+/**
+ * Reuses identities learned earlier in the same conversion run.
+ * <p>
+ * Emails are learned from earlier resolutions (e.g. API lookups), so that an address is resolved over the network at
+ * most once, also when it is reached through a mailmap alias. Author names are never matched against logins, since a
+ * name equal to a login is no evidence that the commit belongs to that account.
+ */
+public class LearnedIdentityResolver implements CommitIdentityResolver {
+
+    private final Map<String, GithubUserInfo> identitiesByEmail = new HashMap<>();
+
+    @Override
+    public String getName() {
+        return "learned";
+    }
+
+    public void learnEmail(String email, GithubUserInfo info) {
+        if (email != null && !email.isBlank() && info != null) {
+            identitiesByEmail.put(normalize(email), info);
+        }
+    }
+
+    @Override
+    public GithubUserInfo resolve(String authorEmail, String authorName) {
+        return authorEmail == null ? null : identitiesByEmail.get(normalize(authorEmail));
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+}
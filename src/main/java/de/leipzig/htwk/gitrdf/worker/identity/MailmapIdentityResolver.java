@@ -0,0 +1,151 @@
+package de.leipzig.htwk.gitrdf.worker.identity;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.github.GithubUserInfo;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Maps commit emails to their canonical email with the {@code .mailmap} of the repository (read from the HEAD tree)
+ * and resolves the canonical email with the given downstream resolvers.
+ */
+@Slf4j
+public class MailmapIdentityResolver implements CommitIdentityResolver {
+
+    private static final String MAILMAP_PATH = ".mailmap";
+
+    private static final int MAX_MAILMAP_SIZE = 1024 * 1024;
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("<([^>]*)>");
+
+    private final Map<String, String> canonicalEmailsByCommitEmail;
+
+    private final List<CommitIdentityResolver> canonicalEmailResolvers;
+
+    public MailmapIdentityResolver(Repository gitRepository, List<CommitIdentityResolver> canonicalEmailResolvers) {
+        this.canonicalEmailsByCommitEmail = readMailmap(gitRepository);
+        this.canonicalEmailResolvers = canonicalEmailResolvers;
+    }
+
+    @Override
+    public String getName() {
+        return "mailmap";
+    }
+
+    @Override
+    public GithubUserInfo resolve(String authorEmail, String authorName) {
+
+        if (authorEmail == null || canonicalEmailsByCommitEmail.isEmpty()) {
+            return null;
+        }
+
+        String canonicalEmail = canonicalEmailsByCommitEmail.get(normalize(authorEmail));
+
+        if (canonicalEmail == null) {
+            return null;
+        }
+
+        for (CommitIdentityResolver resolver : canonicalEmailResolvers) {
+            GithubUserInfo info = resolver.resolve(canonicalEmail, authorName);
+            if (info != null) {
+                return info;
+            }
+        }
+
+        return null;
+    }
+
+    private static Map<String, String> readMailmap(Repository gitRepository) {
+
+        try {
+
+            ObjectId head = gitRepository.resolve(Constants.HEAD);
+
+            if (head == null) {
+                return Collections.emptyMap();
+            }
+
+            RevWalk revWalk = new RevWalk(gitRepository);
+
+            try {
+                RevCommit headCommit = revWalk.parseCommit(head);
+                TreeWalk treeWalk = TreeWalk.forPath(gitRepository, MAILMAP_PATH, headCommit.getTree());
+
+                if (treeWalk == null) {
+                    return Collections.emptyMap();
+                }
+
+                byte[] content = gitRepository.open(treeWalk.getObjectId(0)).getCachedBytes(MAX_MAILMAP_SIZE);
+                Map<String, String> mailmap = parseMailmap(new String(content, StandardCharsets.UTF_8));
+
+                log.info("Read {} email mappings from {}", mailmap.size(), MAILMAP_PATH);
+
+                return mailmap;
+
+            } finally {
+                revWalk.release();
+            }
+
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Failed to read {} of the repository, mailmap resolution is disabled. Error is '{}'",
+                    MAILMAP_PATH, ex.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Only entries with a proper and a commit email are relevant, e.g.
+     * {@code Proper Name <proper@email.xx> Commit Name <commit@email.xx>} or
+     * {@code <proper@email.xx> <commit@email.xx>}. Name-only entries don't change the email.
+     */
+    private static Map<String, String> parseMailmap(String content) {
+
+        Map<String, String> mailmap = new HashMap<>();
+
+        for (String line : content.split("\\R")) {
+
+            int commentStart = line.indexOf('#');
+            String entry = commentStart >= 0 ? line.substring(0, commentStart) : line;
+
+            Matcher matcher = EMAIL_PATTERN.matcher(entry);
+
+            if (!matcher.find()) {
+                continue;
+            }
+
+            String properEmail = matcher.group(1).trim();
+
+            if (!matcher.find()) {
+                continue;
+            }
+
+            String commitEmail = matcher.group(1).trim();
+
+            if (!properEmail.isEmpty() && !commitEmail.isEmpty()) {
+                mailmap.put(normalize(commitEmail), properEmail);
+            }
+        }
+
+        return mailmap;
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+}
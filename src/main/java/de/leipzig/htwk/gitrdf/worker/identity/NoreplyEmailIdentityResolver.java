@@ -0,0 +1,43 @@
+package de.leipzig.htwk.gitrdf.worker.identity;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.leipzig.htwk.gitrdf.worker.utils.GithubUriUtils;
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.github.GithubUserInfo;
+
+/**
+ * Reads the login (and user id, if present) from GitHub noreply addresses of the form
+ * {@code ID+login@users.noreply.github.com} and {@code login@users.noreply.github.com}.
+ */
+public class NoreplyEmailIdentityResolver implements CommitIdentityResolver {
+
+    private static final Pattern NOREPLY_EMAIL_PATTERN = Pattern.compile(
+            "^(?:(\\d+)\\+)?([a-z0-9](?:[a-z0-9-]*[a-z0-9])?(?:\\[bot])?)@users\\.noreply\\.github\\.com$",
+            Pattern.CASE_INSENSITIVE);
+
+    @Override
+    public String getName() {
+        return "noreply-email";
+    }
+
+    @Override
+    public GithubUserInfo resolve(String authorEmail, String authorName) {
+
+        if (authorEmail == null) {
+            return null;
+        }
+
+        Matcher matcher = NOREPLY_EMAIL_PATTERN.matcher(authorEmail.trim());
+
+        if (!matcher.matches()) {
+            return null;
+        }
+
+        String login = matcher.group(2);
+        long userId = matcher.group(1) == null ? 0 : Long.parseLong(matcher.group(1));
+
+        return new GithubUserInfo(GithubUriUtils.getUserUri(login), login, userId, null, authorEmail);
+    }
+
+}
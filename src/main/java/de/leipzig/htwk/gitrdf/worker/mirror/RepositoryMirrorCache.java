@@ -0,0 +1,526 @@
+package de.leipzig.htwk.gitrdf.worker.mirror;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.errors.CorruptObjectException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.errors.PackInvalidException;
+import org.eclipse.jgit.errors.PackMismatchException;
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.FetchResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteConfig;
+import org.eclipse.jgit.transport.URIish;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import de.leipzig.htwk.gitrdf.worker.utils.GitUtils;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Persistent bare mirrors of remote repositories, so that repeated conversions of the same repository only fetch the
+ * new objects instead of cloning the whole history.
+ * <p>
+ * Each mirror lives in {@code <directory>/<owner>/<repository>.git}. A conversion fetches into the mirror and then
+ * clones the mirror into its own working directory, which is a local copy without network transfer. The working
+ * directory doesn't depend on the mirror afterwards, so mirrors can be evicted while conversions are running.
+ * <p>
+ * Fetching, cloning and eviction hold a per-repository lock, both within the JVM and as file lock next to the mirror,
+ * so workers sharing the directory don't update the same mirror at once. After every use, the least recently used
+ * mirrors are evicted until the directory fits {@code worker.mirror-cache.max-bytes} again.
+ * <p>
+ * The cache is best effort: if the mirror can't be used, the caller falls back to a direct clone. Mirrors are only
+ * deleted when an error shows that they are corrupt, e.g. missing objects or an invalid pack, so they are created again
+ * on the next use. Other errors, like a failed transfer or a full working directory, leave the mirror as it is.
+ */
+@Slf4j
+@Component
+public class RepositoryMirrorCache {
+
+    private static final Pattern REPOSITORY_NAME_PATTERN = Pattern.compile("[A-Za-z0-9._-]+");
+
+    private static final String MIRROR_SUFFIX = ".git";
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private static final String REMOTE_NAME = "origin";
+
+    private final Clock clock;
+
+    private final File directory;
+
+    private final long maxBytes;
+
+    private final Map<String, ReentrantLock> locksByKey = new ConcurrentHashMap<>();
+
+    public RepositoryMirrorCache(
+            Clock clock,
+            @Value("${worker.mirror-cache.directory:}") String directory,
+            @Value("${worker.mirror-cache.max-bytes:21474836480}") long maxBytes) {
+
+        this.clock = clock;
+        this.directory = directory == null || directory.isBlank() ? null : new File(directory.trim());
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Updates the mirror of the repository, or creates it on first use, and clones it into the working directory.
+     * The clone looks like a direct clone of {@code remoteUrl}: the remote branches, the tags and the origin URL are
+     * the same.
+     *
+     * @param bare whether to clone without working tree, see {@link GitUtils#cloneBare}
+     * @return the cloned repository, or null if the mirror can't be used; the working directory is empty again in
+     * this case
+     */
+    public Git cloneFromMirror(
+            String ownerName,
+            String repositoryName,
+            String remoteUrl,
+            File gitWorkingDirectory,
+            boolean bare,
+            CredentialsProvider credentialsProvider,
+            int timeoutSeconds) {
+
+        if (!isEnabled()
+                || !REPOSITORY_NAME_PATTERN.matcher(ownerName).matches()
+                || !REPOSITORY_NAME_PATTERN.matcher(repositoryName).matches()) {
+            return null;
+        }
+
+        String ownerKey = ownerName.toLowerCase(Locale.ROOT);
+        String repositoryKey = repositoryName.toLowerCase(Locale.ROOT);
+
+        File ownerDirectory = new File(directory, ownerKey);
+        File mirrorDirectory = new File(ownerDirectory, repositoryKey + MIRROR_SUFFIX);
+        File lockFile = new File(ownerDirectory, repositoryKey + LOCK_SUFFIX);
+
+        Git clonedGit = null;
+
+        try {
+
+            FileUtils.forceMkdir(ownerDirectory);
+
+            MirrorLock mirrorLock = MirrorLock.acquire(lockFor(lockFile), lockFile);
+
+            try {
+
+                updateMirror(mirrorDirectory, remoteUrl, credentialsProvider, timeoutSeconds);
+
+                String mirrorUri = mirrorDirectory.toURI().toString();
+
+                clonedGit = bare
+                        ? GitUtils.cloneBare(mirrorUri, gitWorkingDirectory, null, timeoutSeconds)
+                        : Git.cloneRepository().setURI(mirrorUri).setDirectory(gitWorkingDirectory).call();
+
+                StoredConfig config = clonedGit.getRepository().getConfig();
+                config.setString(ConfigConstants.CONFIG_REMOTE_SECTION, REMOTE_NAME, ConfigConstants.CONFIG_KEY_URL, remoteUrl);
+                config.save();
+
+                mirrorDirectory.setLastModified(clock.millis());
+
+            } finally {
+                mirrorLock.close();
+            }
+
+            evictLeastRecentlyUsed(mirrorDirectory);
+
+            return clonedGit;
+
+        } catch (IOException | GitAPIException | RuntimeException ex) {
+
+            log.warn("Unable to use the mirror of {}/{}, falling back to a direct clone. Error is '{}'",
+                    ownerName, repositoryName, ex.getMessage());
+
+            if (clonedGit != null) {
+                clonedGit.close();
+            }
+
+            deleteMirrorIfCorrupt(mirrorDirectory, lockFile, ex);
+
+            deleteContents(gitWorkingDirectory);
+
+            return null;
+        }
+    }
+
+    private void updateMirror(
+            File mirrorDirectory,
+            String remoteUrl,
+            CredentialsProvider credentialsProvider,
+            int timeoutSeconds) throws IOException, GitAPIException {
+
+        boolean created = !mirrorDirectory.exists();
+
+        Git mirrorGit = created
+                ? createMirror(mirrorDirectory, remoteUrl)
+                : Git.open(mirrorDirectory);
+
+        try {
+
+            FetchResult fetchResult = mirrorGit.fetch()
+                    .setRemote(REMOTE_NAME)
+                    .setCredentialsProvider(credentialsProvider)
+                    .setTimeout(timeoutSeconds)
+                    .setRemoveDeletedRefs(true)
+                    .call();
+
+            linkHeadToDefaultBranch(mirrorGit.getRepository(), fetchResult);
+
+            log.info("{} mirror of {}", created ? "Created" : "Fetched", remoteUrl);
+
+        } finally {
+            mirrorGit.close();
+        }
+    }
+
+    /**
+     * Initializes the mirror with its remote. A mirror that can't be set up completely is deleted right away, since
+     * it would fail every later fetch without being detected as corrupt.
+     */
+    private Git createMirror(File mirrorDirectory, String remoteUrl) throws IOException, GitAPIException {
+
+        Git mirrorGit;
+
+        try {
+            mirrorGit = Git.init().setBare(true).setDirectory(mirrorDirectory).call();
+        } catch (GitAPIException | RuntimeException ex) {
+            FileUtils.deleteQuietly(mirrorDirectory);
+            throw ex;
+        }
+
+        try {
+
+            StoredConfig config = mirrorGit.getRepository().getConfig();
+            RemoteConfig remoteConfig = new RemoteConfig(config, REMOTE_NAME);
+            remoteConfig.addURI(new URIish(remoteUrl));
+            remoteConfig.addFetchRefSpec(new RefSpec("+" + Constants.R_HEADS + "*:" + Constants.R_HEADS + "*"));
+            remoteConfig.addFetchRefSpec(new RefSpec("+" + Constants.R_TAGS + "*:" + Constants.R_TAGS + "*"));
+            remoteConfig.update(config);
+            config.save();
+
+            return mirrorGit;
+
+        } catch (URISyntaxException ex) {
+            mirrorGit.close();
+            FileUtils.deleteQuietly(mirrorDirectory);
+            throw new IOException("Invalid remote URL " + remoteUrl, ex);
+        } catch (IOException | RuntimeException ex) {
+            mirrorGit.close();
+            FileUtils.deleteQuietly(mirrorDirectory);
+            throw ex;
+        }
+    }
+
+    /**
+     * @return whether the error, or one of its causes, shows that the mirror itself is broken
+     */
+    private static boolean isCorruptionError(Throwable ex) {
+
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CorruptObjectException
+                    || cause instanceof MissingObjectException
+                    || cause instanceof PackInvalidException
+                    || cause instanceof PackMismatchException
+                    || cause instanceof RepositoryNotFoundException
+                    || cause instanceof ConfigInvalidException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks that the mirror opens and that the objects of all its refs exist. Errors of a local clone only carry the
+     * message of the serving side, so a mirror with missing objects is found by looking at it.
+     */
+    private static boolean hasMissingObjects(File mirrorDirectory) {
+
+        if (!mirrorDirectory.exists()) {
+            return false;
+        }
+
+        Git mirrorGit = null;
+
+        try {
+
+            mirrorGit = Git.open(mirrorDirectory);
+            Repository mirrorRepository = mirrorGit.getRepository();
+
+            for (Ref ref : mirrorRepository.getAllRefs().values()) {
+                if (ref.getObjectId() != null && !mirrorRepository.hasObject(ref.getObjectId())) {
+                    return true;
+                }
+            }
+
+            return false;
+
+        } catch (IOException | RuntimeException ex) {
+            return true;
+        } finally {
+            if (mirrorGit != null) {
+                mirrorGit.close();
+            }
+        }
+    }
+
+    /**
+     * Points HEAD of the mirror to the default branch of the remote, so clones check out the default branch.
+     */
+    private static void linkHeadToDefaultBranch(Repository mirrorRepository, FetchResult fetchResult)
+            throws IOException {
+
+        Ref defaultBranch = GitUtils.findDefaultBranch(fetchResult);
+
+        if (defaultBranch == null || defaultBranch.getName().equals(mirrorRepository.getFullBranch())) {
+            return;
+        }
+
+        RefUpdate headUpdate = mirrorRepository.updateRef(Constants.HEAD);
+        headUpdate.disableRefLog();
+        headUpdate.link(defaultBranch.getName());
+    }
+
+    /**
+     * Deletes the least recently used mirrors, except the given one, until all mirrors fit the size budget. Mirrors
+     * that are in use are skipped.
+     */
+    private void evictLeastRecentlyUsed(File currentMirrorDirectory) {
+
+        if (maxBytes <= 0) {
+            return;
+        }
+
+        List<File> mirrorDirectories = new ArrayList<>();
+        File[] ownerDirectories = directory.listFiles(File::isDirectory);
+
+        for (File ownerDirectory : ownerDirectories == null ? new File[0] : ownerDirectories) {
+
+            File[] ownerMirrors = ownerDirectory.listFiles(file -> file.isDirectory() && file.getName().endsWith(MIRROR_SUFFIX));
+
+            if (ownerMirrors != null) {
+                mirrorDirectories.addAll(List.of(ownerMirrors));
+            }
+        }
+
+        long totalBytes = 0;
+        Map<File, Long> bytesByMirror = new HashMap<>();
+
+        for (File mirrorDirectory : mirrorDirectories) {
+            long mirrorBytes = sizeOf(mirrorDirectory);
+            bytesByMirror.put(mirrorDirectory, mirrorBytes);
+            totalBytes += mirrorBytes;
+        }
+
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+
+        mirrorDirectories.sort(Comparator.comparingLong(File::lastModified));
+
+        for (File mirrorDirectory : mirrorDirectories) {
+
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+
+            if (mirrorDirectory.equals(currentMirrorDirectory)) {
+                continue;
+            }
+
+            String mirrorName = mirrorDirectory.getName();
+            File lockFile = new File(mirrorDirectory.getParentFile(),
+                    mirrorName.substring(0, mirrorName.length() - MIRROR_SUFFIX.length()) + LOCK_SUFFIX);
+
+            try {
+
+                MirrorLock mirrorLock = MirrorLock.tryAcquire(lockFor(lockFile), lockFile);
+
+                if (mirrorLock == null) {
+                    continue;
+                }
+
+                try {
+                    FileUtils.deleteDirectory(mirrorDirectory);
+                    totalBytes -= bytesByMirror.get(mirrorDirectory);
+                } finally {
+                    mirrorLock.close();
+                }
+
+                log.info("Evicted mirror {} to stay within {} bytes", mirrorDirectory, maxBytes);
+
+            } catch (IOException ex) {
+                log.warn("Unable to evict mirror {}. Error is '{}'", mirrorDirectory, ex.getMessage());
+            }
+        }
+    }
+
+    private ReentrantLock lockFor(File lockFile) {
+        return locksByKey.computeIfAbsent(lockFile.getAbsolutePath(), key -> new ReentrantLock());
+    }
+
+    /**
+     * Deletes the mirror if the error or a look at the mirror shows that it's corrupt, and keeps it otherwise.
+     */
+    private void deleteMirrorIfCorrupt(File mirrorDirectory, File lockFile, Exception error) {
+
+        try {
+
+            MirrorLock mirrorLock = MirrorLock.tryAcquire(lockFor(lockFile), lockFile);
+
+            if (mirrorLock == null) {
+                return;
+            }
+
+            try {
+                if (isCorruptionError(error) || hasMissingObjects(mirrorDirectory)) {
+                    log.warn("Deleting corrupt mirror {}", mirrorDirectory);
+                    FileUtils.deleteDirectory(mirrorDirectory);
+                }
+            } finally {
+                mirrorLock.close();
+            }
+
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Unable to delete mirror {}. Error is '{}'", mirrorDirectory, ex.getMessage());
+        }
+    }
+
+    private static void deleteContents(File gitWorkingDirectory) {
+
+        try {
+            if (gitWorkingDirectory.exists()) {
+                FileUtils.cleanDirectory(gitWorkingDirectory);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Unable to clean working directory " + gitWorkingDirectory, ex);
+        }
+    }
+
+    private static long sizeOf(File mirrorDirectory) {
+        try {
+            return FileUtils.sizeOfDirectory(mirrorDirectory);
+        } catch (RuntimeException ex) {
+            // Deleted concurrently
+            return 0;
+        }
+    }
+
+    /**
+     * Per-repository lock held within the JVM and as exclusive file lock. File locks are held per JVM, so the JVM
+     * lock is taken first. It's closed in a finally block rather than with try-with-resources, since the lock is only
+     * held and never used in the guarded block.
+     */
+    private static final class MirrorLock implements AutoCloseable {
+
+        private final ReentrantLock jvmLock;
+
+        private final FileChannel channel;
+
+        private final FileLock fileLock;
+
+        private MirrorLock(ReentrantLock jvmLock, FileChannel channel, FileLock fileLock) {
+            this.jvmLock = jvmLock;
+            this.channel = channel;
+            this.fileLock = fileLock;
+        }
+
+        static MirrorLock acquire(ReentrantLock jvmLock, File lockFile) throws IOException {
+
+            jvmLock.lock();
+
+            FileChannel channel = null;
+
+            try {
+                channel = new RandomAccessFile(lockFile, "rw").getChannel();
+                return new MirrorLock(jvmLock, channel, channel.lock());
+            } catch (IOException | RuntimeException ex) {
+                closeQuietly(channel);
+                jvmLock.unlock();
+                throw ex;
+            }
+        }
+
+        /**
+         * @return the lock, or null if the repository is locked by another job
+         */
+        static MirrorLock tryAcquire(ReentrantLock jvmLock, File lockFile) throws IOException {
+
+            if (!jvmLock.tryLock()) {
+                return null;
+            }
+
+            FileChannel channel = null;
+
+            try {
+
+                channel = new RandomAccessFile(lockFile, "rw").getChannel();
+                FileLock fileLock = channel.tryLock();
+
+                if (fileLock == null) {
+                    closeQuietly(channel);
+                    jvmLock.unlock();
+                    return null;
+                }
+
+                return new MirrorLock(jvmLock, channel, fileLock);
+
+            } catch (IOException | RuntimeException ex) {
+                closeQuietly(channel);
+                jvmLock.unlock();
+                throw ex;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                fileLock.release();
+                channel.close();
+            } finally {
+                jvmLock.unlock();
+            }
+        }
+
+        private static void closeQuietly(FileChannel channel) {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException ignored) {
+                // The lock is released with the channel
+            }
+        }
+    }
+
+}
@@ -22,12 +22,18 @@ public class GithubAppInstallationProvider implements AppInstallationAuthorizati
 
     @Override
     public GHAppInstallation getAppInstallation(GHApp app) throws IOException {
+        return getAppInstallation(app, githubAccountRotationService.getCurrentAccount());
+    }
+
+    /**
+     * Installation of the given account, regardless of the current account
+     */
+    public GHAppInstallation getAppInstallation(GHApp app, GithubConfig.GithubApiAccount account) throws IOException {
 
         try {
-            GithubConfig.GithubApiAccount currentAccount = githubAccountRotationService.getCurrentAccount();
-            long installationId = Long.parseLong(currentAccount.getGithubAppInstallationId());
+            long installationId = Long.parseLong(account.getGithubAppInstallationId());
             
-            log.debug("Using GitHub API account {} for app installation", currentAccount.getAccountNumber());
+            log.debug("Using GitHub API account {} for app installation", account.getAccountNumber());
             
             return app.getInstallationById(installationId);
 
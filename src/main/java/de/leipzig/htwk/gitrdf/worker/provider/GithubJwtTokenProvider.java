@@ -86,12 +86,7 @@ public class GithubJwtTokenProvider implements AuthorizationProvider {
                     currentAccount.getAccountNumber(), currentAccount.getGithubAppId(), attempt, maxAttempts);
 
             try {
-                return Jwts.builder()
-                        .issuer(currentAccount.getGithubAppId())
-                        .issuedAt(getDateOneMinuteInThePast())
-                        .expiration(getDateThreeMinutesInTheFuture())
-                        .signWith(currentPrivateKey, Jwts.SIG.RS256)
-                        .compact();
+                return signJwtToken(currentAccount, currentPrivateKey);
             } catch (Exception e) {
                 log.error("Failed to generate JWT token for account {} (App ID: {}): {}, marking as invalid", 
                         currentAccount.getAccountNumber(), currentAccount.getGithubAppId(), e.getMessage());
@@ -106,6 +101,30 @@ public class GithubJwtTokenProvider implements AuthorizationProvider {
         throw new RuntimeException("No valid GitHub accounts available for JWT token generation");
     }
 
+    /**
+     * Signed jwt token of the given account, regardless of the current account. Used by the account pool, which
+     * fetches installation tokens for all accounts.
+     */
+    public String getSignedJwtTokenToFetchInstallationToken(GithubConfig.GithubApiAccount account) {
+
+        PrivateKey privateKey = privateKeys.get(account.getAccountNumber());
+
+        if (privateKey == null) {
+            throw new IllegalStateException("No private key found for GitHub API account " + account.getAccountNumber());
+        }
+
+        return signJwtToken(account, privateKey);
+    }
+
+    private String signJwtToken(GithubConfig.GithubApiAccount account, PrivateKey privateKey) {
+        return Jwts.builder()
+                .issuer(account.getGithubAppId())
+                .issuedAt(getDateOneMinuteInThePast())
+                .expiration(getDateThreeMinutesInTheFuture())
+                .signWith(privateKey, Jwts.SIG.RS256)
+                .compact();
+    }
+
     private Date getDateOneMinuteInThePast() {
         return Date.from(Instant.now(clock).minusSeconds(60));
     }
@@ -8,6 +8,7 @@ import java.time.format.DateTimeFormatter;
 import org.kohsuke.github.GHRateLimit;
 import org.kohsuke.github.RateLimitChecker;
 
+import de.leipzig.htwk.gitrdf.worker.service.GithubAccountPool;
 import de.leipzig.htwk.gitrdf.worker.service.GithubAccountRotationService;
 import lombok.extern.slf4j.Slf4j;
 
@@ -16,10 +17,16 @@ public class MultiAccountRateLimitChecker extends RateLimitChecker {
 
     private final int sleepAtOrBelow;
     private final GithubAccountRotationService githubAccountRotationService;
+    private final GithubAccountPool githubAccountPool;
+
+    public MultiAccountRateLimitChecker(
+            int sleepAtOrBelow,
+            GithubAccountRotationService githubAccountRotationService,
+            GithubAccountPool githubAccountPool) {
 
-    public MultiAccountRateLimitChecker(int sleepAtOrBelow, GithubAccountRotationService githubAccountRotationService) {
         this.sleepAtOrBelow = sleepAtOrBelow;
         this.githubAccountRotationService = githubAccountRotationService;
+        this.githubAccountPool = githubAccountPool;
     }
 
     @Override
@@ -28,54 +35,33 @@ public class MultiAccountRateLimitChecker extends RateLimitChecker {
             return false;
         }
 
-        long currentTime = System.currentTimeMillis() / 1000L;
         int remaining = record.getRemaining();
-        long resetTime = record.getResetDate().getTime() / 1000L;
 
         String localResetTimeDebug = formatDateInLocalTimezone(record.getResetDate().toInstant());
         log.debug("GitHub API - Current quota has {} remaining of {}. Reset at {} (local time)", 
                 remaining, record.getLimit(), localResetTimeDebug);
 
-        // If we're at or below the threshold, try to switch accounts instead of sleeping
+        // If we're at or below the threshold, try to continue with other accounts instead of sleeping
         if (remaining <= sleepAtOrBelow) {
-            log.warn("GitHub API rate limit threshold reached. Remaining: {}, Threshold: {}. Processing progress: {}", 
-                    remaining, sleepAtOrBelow, githubAccountRotationService.getProcessingStatistics());
-            
-            // Check if we have other accounts available
-            long availableAccounts = githubAccountRotationService.getAvailableAccountsCount();
-            int currentAccountNumber = githubAccountRotationService.getCurrentAccountNumber();
-            
-            if (availableAccounts > 1) {
-                log.info("Marking current account {} as rate limited and rotating to next account", currentAccountNumber);
-                
-                // Mark current account as rate limited
-                Instant resetInstant = Instant.ofEpochSecond(resetTime);
-                githubAccountRotationService.markAccountRateLimited(currentAccountNumber, resetInstant);
+
+            // The record is the one of the account which answered last, the pool sends the next request with the
+            // account having the most requests left
+            int requestsLeft = githubAccountPool.getRequestsLeft();
+
+            if (requestsLeft > 0) {
+                log.debug("GitHub API rate limit threshold reached with {} remaining, other accounts of the pool have {} requests left",
+                        remaining, requestsLeft);
                 
-                // Don't sleep - let the request retry with the new account
+                // Don't sleep - the pool routes the request to an account with requests left
                 return false;
             } else {
-                // No other accounts available, fall back to sleeping until the earliest reset time
-                log.warn("No other GitHub API accounts available. Falling back to waiting for earliest rate limit reset. Processing progress: {}", 
-                        githubAccountRotationService.getProcessingStatistics());
-                java.time.Instant earliestReset = githubAccountRotationService.getEarliestRateLimitResetTime();
-                long sleepTime = 0;
-                if (earliestReset != null) {
-                    sleepTime = Math.max(0, earliestReset.getEpochSecond() - currentTime);
-                }
-                
-                // If no valid sleep time calculated, use the current record's reset time
-                if (sleepTime <= 0) {
-                    sleepTime = Math.max(60, resetTime - currentTime); // At least 60 seconds
-                }
-                
-                String localResetTime = earliestReset != null
-                    ? formatDateInLocalTimezone(earliestReset)
-                    : formatDateInLocalTimezone(record.getResetDate().toInstant());
-                log.info("GitHub API - Rate limit threshold reached. {} remaining of {}. Waiting {} seconds for quota to reset at {} (local time)", 
-                        remaining, record.getLimit(), sleepTime, localResetTime);
-                Thread.sleep(sleepTime * 1000);
-                return true;
+                log.warn("GitHub API rate limit threshold reached. Remaining: {}, Threshold: {}. Processing progress: {}", 
+                        remaining, sleepAtOrBelow, githubAccountRotationService.getProcessingStatistics());
+
+                // Waits for a reset due soon, otherwise the conversion is parked until the reset. After the wait the
+                // request is sent, its response updates the record.
+                githubAccountPool.awaitRequestsLeft();
+                return false;
             }
         }
 
@@ -0,0 +1,24 @@
+package de.leipzig.htwk.gitrdf.worker.ratelimit;
+
+import java.time.Instant;
+
+import lombok.Getter;
+
+/**
+ * Thrown instead of waiting when all GitHub API accounts are exhausted for longer than
+ * {@code github.rate-limit.max-wait-seconds}. The scheduler parks the order until the reset time, so the worker can
+ * convert other orders meanwhile.
+ */
+@Getter
+public class RateLimitExhaustedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Instant resetTime;
+
+    public RateLimitExhaustedException(Instant resetTime) {
+        super("All GitHub API accounts are rate limited until " + resetTime);
+        this.resetTime = resetTime;
+    }
+
+}
@@ -0,0 +1,89 @@
+package de.leipzig.htwk.gitrdf.worker.ratelimit;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * GitHub orders waiting for the reset of the rate limit. The orders stay in status {@code RECEIVED}, and every worker
+ * leaves them alone until their wait time is over.
+ * <p>
+ * The parks of an order are counted until it's released after its conversion, so the scheduler can stop handing back
+ * the try of orders that are parked again and again.
+ * <p>
+ * Parking is best effort: database errors are logged and the order is treated as not parked, so at worst it's picked up
+ * again too early and parked once more.
+ */
+@Slf4j
+@Component
+public class RateLimitParking {
+
+    private static final String UPSERT_WAIT_SQL
+            = "INSERT INTO GITHUB_ORDER_RATE_LIMIT_WAIT (ORDER_ID, WAIT_UNTIL, PARK_COUNT) VALUES (?, ?, 1) " +
+              "ON CONFLICT (ORDER_ID) DO UPDATE SET WAIT_UNTIL = EXCLUDED.WAIT_UNTIL, " +
+              "PARK_COUNT = GITHUB_ORDER_RATE_LIMIT_WAIT.PARK_COUNT + 1 " +
+              "RETURNING PARK_COUNT";
+
+    private static final String SELECT_WAITING_SQL
+            = "SELECT ORDER_ID FROM GITHUB_ORDER_RATE_LIMIT_WAIT WHERE WAIT_UNTIL > ?";
+
+    private static final String DELETE_WAIT_SQL
+            = "DELETE FROM GITHUB_ORDER_RATE_LIMIT_WAIT WHERE ORDER_ID = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Clock clock;
+
+    public RateLimitParking(JdbcTemplate jdbcTemplate, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+    }
+
+    /**
+     * @return how often the order has been parked since its last release, including this time, or 0 if parking failed
+     */
+    public int park(long orderId, Instant waitUntil) {
+        try {
+            Integer parkCount = jdbcTemplate.queryForObject(UPSERT_WAIT_SQL, Integer.class, orderId, toUtc(waitUntil));
+            return parkCount == null ? 0 : parkCount;
+        } catch (DataAccessException ex) {
+            log.warn("Failed to park github order '{}' until {}: {}", orderId, waitUntil, ex.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * @return ids of the orders whose wait time isn't over yet
+     */
+    public Set<Long> findParkedOrderIds() {
+        try {
+            return new HashSet<>(jdbcTemplate.queryForList(SELECT_WAITING_SQL, Long.class, toUtc(clock.instant())));
+        } catch (DataAccessException ex) {
+            log.warn("Failed to read parked github orders: {}", ex.getMessage());
+            return Set.of();
+        }
+    }
+
+    public void release(long orderId) {
+        try {
+            jdbcTemplate.update(DELETE_WAIT_SQL, orderId);
+        } catch (DataAccessException ex) {
+            log.warn("Failed to release parked github order '{}': {}", orderId, ex.getMessage());
+        }
+    }
+
+    // Timestamps are stored as UTC, so workers in different time zones agree on the wait time
+    private static LocalDateTime toUtc(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+}
@@ -5,12 +5,15 @@ import java.net.URISyntaxException;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.springframework.integration.jdbc.lock.JdbcLockRegistry;
 import org.springframework.integration.support.locks.LockRegistry;
@@ -18,6 +21,7 @@ import org.springframework.integration.support.locks.RenewableLockRegistry;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
 
 import de.leipzig.htwk.gitrdf.database.common.entity.GitRepositoryOrderEntity;
 import de.leipzig.htwk.gitrdf.database.common.entity.GithubRepositoryOrderEntity;
@@ -26,6 +30,8 @@ import de.leipzig.htwk.gitrdf.database.common.repository.GitRepositoryOrderRepos
 import de.leipzig.htwk.gitrdf.database.common.repository.GithubRepositoryOrderRepository;
 import de.leipzig.htwk.gitrdf.worker.config.SchedulerConfig;
 import de.leipzig.htwk.gitrdf.worker.handler.LockHandler;
+import de.leipzig.htwk.gitrdf.worker.ratelimit.RateLimitExhaustedException;
+import de.leipzig.htwk.gitrdf.worker.ratelimit.RateLimitParking;
 import de.leipzig.htwk.gitrdf.worker.service.GitRdfConversionService;
 import de.leipzig.htwk.gitrdf.worker.service.impl.GithubConversionServiceImpl;
 import de.leipzig.htwk.gitrdf.worker.service.impl.GithubHandlerService;
@@ -60,6 +66,10 @@ public class RdfScheduler implements DisposableBean {
 
     private final SchedulerConfig schedulerConfig;
 
+    private final RateLimitParking rateLimitParking;
+
+    private final int maxRateLimitParks;
+
     private final AtomicBoolean shutdownRequested = new AtomicBoolean(false);
 
     public RdfScheduler(
@@ -70,7 +80,9 @@ public class RdfScheduler implements DisposableBean {
             GithubRepositoryOrderRepository githubRepositoryOrderRepository,
             GithubConversionServiceImpl githubConversionService,
             GithubHandlerService githubHandlerService,
-            SchedulerConfig schedulerConfig) {
+            SchedulerConfig schedulerConfig,
+            RateLimitParking rateLimitParking,
+            @Value("${github.rate-limit.max-parks:3}") int maxRateLimitParks) {
 
         this.clock = clock;
         this.lockRegistry = jdbcLockRegistry;
@@ -80,6 +92,8 @@ public class RdfScheduler implements DisposableBean {
         this.githubConversionService = githubConversionService;
         this.githubHandlerService = githubHandlerService;
         this.schedulerConfig = schedulerConfig;
+        this.rateLimitParking = rateLimitParking;
+        this.maxRateLimitParks = maxRateLimitParks;
     }
 
     @Scheduled(fixedDelay = THREE_SECONDS)
@@ -155,6 +169,22 @@ public class RdfScheduler implements DisposableBean {
 
         log.trace("Found {} repositories in status 'RECEIVED'", entitiesInStatusReceived.size());
 
+        if (entitiesInStatusReceived.isEmpty()) {
+            return;
+        }
+
+        // Github conversions use the API from their first step on, so while all accounts are exhausted the
+        // scheduler thread is left to git conversions
+        Instant rateLimitResetTime = githubHandlerService.getRateLimitResetTime();
+
+        if (rateLimitResetTime != null) {
+            log.debug("All GitHub API accounts are rate limited until {}. Leaving {} github repositories for later",
+                    rateLimitResetTime, entitiesInStatusReceived.size());
+            return;
+        }
+
+        Set<Long> parkedOrderIds = rateLimitParking.findParkedOrderIds();
+
         Lock lock = null;
 
         boolean runPerformed = false;
@@ -165,6 +195,11 @@ public class RdfScheduler implements DisposableBean {
             if (runPerformed)
                 break;
 
+            if (parkedOrderIds.contains(entity.getId())) {
+                log.trace("Github repository order '{}' waits for the rate limit reset", entity.getId());
+                continue;
+            }
+
             lock = null;
             String lockId = getGithubToRdfLockId(entity.getId());
 
@@ -209,6 +244,7 @@ public class RdfScheduler implements DisposableBean {
 
                         workEntity.setStatus(GitRepositoryOrderStatus.FAILED);
                         githubRepositoryOrderRepository.save(workEntity);
+                        rateLimitParking.release(workEntity.getId());
 
                     } else {
 
@@ -230,6 +266,9 @@ public class RdfScheduler implements DisposableBean {
                         githubConversionService.performGithubRepoToRdfConversion(
                                 workEntity.getId(), timeLog, lockHandler);
 
+                        // The parks are counted until the conversion gets through
+                        rateLimitParking.release(workEntity.getId());
+
                         watch.stop();
 
                         timeLog.setTotalTime(watch.getTime());
@@ -240,7 +279,16 @@ public class RdfScheduler implements DisposableBean {
                     }
 
                 } catch (Exception ex) {
-                    log.warn("Exception during .git repository to rdf conversion. Error is {}", ex.getMessage(), ex);
+
+                    RateLimitExhaustedException rateLimitExhaustedException
+                            = ExceptionUtils.throwableOfType(ex, RateLimitExhaustedException.class);
+
+                    if (rateLimitExhaustedException != null) {
+                        parkGithubOrder(entity.getId(), rateLimitExhaustedException.getResetTime());
+                    } else {
+                        log.warn("Exception during .git repository to rdf conversion. Error is {}", ex.getMessage(), ex);
+                    }
+
                 } finally {
                     runPerformed = true;
                     lock.unlock();
@@ -388,6 +436,45 @@ public class RdfScheduler implements DisposableBean {
 
     }
 
+    /**
+     * Puts the order back to 'Received' and lets it wait for the reset of the rate limit. The caller releases the lock,
+     * so the worker converts other orders meanwhile. Cloned mirrors, resolved identities and cached GitHub responses are
+     * kept, so the next attempt catches up quickly.
+     * <p>
+     * The attempt isn't counted for the first {@code github.rate-limit.max-parks} parks. A conversion restarts from the
+     * beginning, so an order which can't get through within one rate limit window would be parked forever otherwise.
+     */
+    private void parkGithubOrder(long id, Instant resetTime) {
+
+        Optional<GithubRepositoryOrderEntity> optionalGithubRepoEntry = githubRepositoryOrderRepository.findById(id);
+
+        if (optionalGithubRepoEntry.isEmpty()) {
+            log.warn("Couldn't find github repository order entry for id '{}' to park it until the rate limit reset",
+                    id);
+            return;
+        }
+
+        GithubRepositoryOrderEntity githubRepoEntry = optionalGithubRepoEntry.get();
+
+        int parkCount = rateLimitParking.park(id, resetTime);
+        boolean attemptCounted = parkCount > maxRateLimitParks;
+
+        githubRepoEntry.setStatus(GitRepositoryOrderStatus.RECEIVED);
+        if (!attemptCounted) {
+            githubRepoEntry.setNumberOfTries(Math.max(githubRepoEntry.getNumberOfTries() - 1, 0));
+        }
+        githubRepositoryOrderRepository.save(githubRepoEntry);
+
+        if (attemptCounted) {
+            log.warn("Parked processing of '{}' repository until the GitHub API rate limit resets at {}. It was parked "
+                    + "{} times already, so this attempt counts as a try", githubRepoEntry.getRepositoryName(), resetTime,
+                    parkCount);
+        } else {
+            log.info("Parked processing of '{}' repository until the GitHub API rate limit resets at {}",
+                    githubRepoEntry.getRepositoryName(), resetTime);
+        }
+    }
+
     private String getGitToRdfLockId(long id) {
         return id + GIT_TO_RDF_LOCK_ID_SUFFIX;
     }
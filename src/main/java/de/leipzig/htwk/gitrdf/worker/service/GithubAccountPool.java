@@ -0,0 +1,552 @@
+package de.leipzig.htwk.gitrdf.worker.service;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.GitHubBuilder;
+import org.kohsuke.github.HttpException;
+import org.kohsuke.github.authorization.AppInstallationAuthorizationProvider;
+import org.kohsuke.github.authorization.AuthorizationProvider;
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import de.leipzig.htwk.gitrdf.worker.config.GithubConfig;
+import de.leipzig.htwk.gitrdf.worker.config.GithubMultiAccountRateLimitHandler;
+import de.leipzig.htwk.gitrdf.worker.httpcache.GithubHttpCache;
+import de.leipzig.htwk.gitrdf.worker.provider.GithubAppInstallationProvider;
+import de.leipzig.htwk.gitrdf.worker.provider.GithubJwtTokenProvider;
+import de.leipzig.htwk.gitrdf.worker.ratelimit.MultiAccountRateLimitChecker;
+import de.leipzig.htwk.gitrdf.worker.ratelimit.RateLimitExhaustedException;
+import de.leipzig.htwk.gitrdf.worker.utils.GithubConnectorUtils;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Uses all configured GitHub accounts at once instead of one account until it's exhausted.
+ * <p>
+ * Every account gets its own pre-built client with an installation token provider, which refreshes the token of the
+ * account before it expires. The worker itself uses one pooled client, whose requests are each sent with the token of
+ * the account with the most requests left. The requests left per account are taken from the rate limit headers of every
+ * response. So concurrent fetches spread over all accounts, and the throughput grows with the number of accounts.
+ * <p>
+ * The GraphQL API has a separate point quota per account. It's tracked the same way, and GraphQL queries are sent with
+ * the account having the most points left.
+ * <p>
+ * Accounts reaching {@code github.rate-limit.requests-left-border} are marked as rate limited in the
+ * {@link GithubAccountRotationService} until their reset time, the same way the rate limit handler marks them. Once all
+ * accounts are exhausted, requests wait for the earliest reset if it's due within
+ * {@code github.rate-limit.max-wait-seconds}; otherwise a {@link RateLimitExhaustedException} parks the conversion.
+ */
+@Service
+@Slf4j
+public class GithubAccountPool {
+
+    /**
+     * Requests per hour of a GitHub app installation at least, assumed for accounts without response yet
+     */
+    private static final int DEFAULT_REQUEST_LIMIT = 5000;
+
+    /**
+     * GraphQL points per hour of a GitHub app installation at least, assumed for accounts without GraphQL response yet
+     */
+    private static final int DEFAULT_GRAPHQL_POINT_LIMIT = 5000;
+
+    private static final String GRAPHQL_RESOURCE = "graphql";
+
+    private static final String AUTHORIZATION_HEADER = "Authorization";
+
+    /**
+     * Assumed if the reset time of the exhausted accounts is unknown, the rate limit window of GitHub
+     */
+    private static final Duration DEFAULT_RESET_DELAY = Duration.ofHours(1);
+
+    private final GithubConfig githubConfig;
+
+    private final GithubAccountRotationService githubAccountRotationService;
+
+    private final GithubJwtTokenProvider githubJwtTokenProvider;
+
+    private final GithubAppInstallationProvider githubAppInstallationProvider;
+
+    private final GithubHttpCache githubHttpCache;
+
+    private final Clock clock;
+
+    private final long maxWaitSeconds;
+
+    private volatile List<PooledAccount> pooledAccounts;
+
+    private volatile GitHub pooledGithub;
+
+    /**
+     * Account of the last request sent by the current thread, for the rate limit handler of the client
+     */
+    private final ThreadLocal<Integer> lastAccountNumber = new ThreadLocal<>();
+
+    public GithubAccountPool(
+            GithubConfig githubConfig,
+            GithubAccountRotationService githubAccountRotationService,
+            GithubJwtTokenProvider githubJwtTokenProvider,
+            GithubAppInstallationProvider githubAppInstallationProvider,
+            GithubHttpCache githubHttpCache,
+            Clock clock,
+            @Value("${github.rate-limit.max-wait-seconds:60}") long maxWaitSeconds) {
+
+        this.githubConfig = githubConfig;
+        this.githubAccountRotationService = githubAccountRotationService;
+        this.githubJwtTokenProvider = githubJwtTokenProvider;
+        this.githubAppInstallationProvider = githubAppInstallationProvider;
+        this.githubHttpCache = githubHttpCache;
+        this.clock = clock;
+        this.maxWaitSeconds = maxWaitSeconds;
+    }
+
+    /**
+     * @return the client routing each request to the account with the most requests left
+     */
+    public GitHub getGithub() {
+        getPooledAccounts();
+        return pooledGithub;
+    }
+
+    /**
+     * Authorization header value of the account with the most requests left, for requests that don't go through the
+     * GitHub client, e.g. to the GraphQL API
+     */
+    public String getEncodedAuthorization() throws IOException {
+        return getEncodedAuthorization(false);
+    }
+
+    /**
+     * Authorization header value of the account with the most GraphQL points left
+     */
+    public String getEncodedGraphqlAuthorization() throws IOException {
+        return getEncodedAuthorization(true);
+    }
+
+    private String getEncodedAuthorization(boolean graphql) throws IOException {
+
+        List<PooledAccount> accounts = getPooledAccounts();
+
+        for (int attempt = 0; attempt < accounts.size(); attempt++) {
+
+            PooledAccount pooledAccount = graphql ? selectGraphqlAccount(accounts) : selectAccount(accounts);
+            int accountNumber = pooledAccount.account.getAccountNumber();
+
+            try {
+
+                String authorization = pooledAccount.authorizationProvider.getEncodedAuthorization();
+                pooledAccount.rememberAuthorization(authorization);
+                return authorization;
+
+            } catch (HttpException ex) {
+
+                // Only a rejected app or installation is a credentials problem, other errors are passed on
+                if (ex.getResponseCode() / 100 != 4) {
+                    throw ex;
+                }
+
+                log.error("GitHub rejected the installation token request of account {} with status {}",
+                        accountNumber, ex.getResponseCode());
+                githubAccountRotationService.markAccountInvalidCredentials(accountNumber);
+
+            } catch (IllegalStateException ex) {
+                log.error("Unable to sign the installation token request of account {}: {}",
+                        accountNumber, ex.getMessage());
+                githubAccountRotationService.markAccountInvalidCredentials(accountNumber);
+            }
+
+            if (githubAccountRotationService.getAccountsWithValidCredentialsCount() == 0) {
+                break;
+            }
+        }
+
+        throw new IOException("None of the configured GitHub API accounts could provide an installation token");
+    }
+
+    /**
+     * @return requests left above the rate limit border, summed over all available accounts
+     */
+    public int getRequestsLeft() {
+
+        int rateLimitBorder = githubConfig.getRateLimitRequestsLeftBorder();
+        int requestsLeft = 0;
+
+        for (PooledAccount pooledAccount : getPooledAccounts()) {
+            if (githubAccountRotationService.isAccountAvailable(pooledAccount.account.getAccountNumber())) {
+                requestsLeft += Math.max(pooledAccount.requestsLeft(clock.instant()) - rateLimitBorder, 0);
+            }
+        }
+
+        return requestsLeft;
+    }
+
+    /**
+     * @return GraphQL points left above the rate limit border, summed over all accounts with valid credentials
+     */
+    public int getGraphqlPointsLeft() {
+
+        int rateLimitBorder = githubConfig.getRateLimitRequestsLeftBorder();
+        int pointsLeft = 0;
+
+        for (PooledAccount pooledAccount : getPooledAccounts()) {
+            if (githubAccountRotationService.hasValidCredentials(pooledAccount.account.getAccountNumber())) {
+                pointsLeft += Math.max(pooledAccount.graphqlPointsLeft(clock.instant()) - rateLimitBorder, 0);
+            }
+        }
+
+        return pointsLeft;
+    }
+
+    /**
+     * Records the GraphQL points left of the account a query was sent with.
+     *
+     * @param authorization the authorization header value the query was sent with
+     * @param resetTime the reset of the GraphQL quota, or null to keep the known one
+     */
+    public void recordGraphqlQuota(String authorization, int remaining, Instant resetTime) {
+
+        Integer accountNumber = findAccountNumber(authorization);
+
+        if (accountNumber != null) {
+            findPooledAccount(accountNumber).recordGraphqlQuota(remaining, resetTime);
+        }
+    }
+
+    /**
+     * @return the earliest time an exhausted account has requests left again, or null if there are requests left now
+     * (or no account has valid credentials)
+     */
+    public Instant getRateLimitResetTime() {
+
+        if (getRequestsLeft() > 0 || githubAccountRotationService.getAccountsWithValidCredentialsCount() == 0) {
+            return null;
+        }
+
+        Instant resetTime = githubAccountRotationService.getEarliestRateLimitResetTime();
+
+        return resetTime != null ? resetTime : clock.instant().plus(DEFAULT_RESET_DELAY);
+    }
+
+    /**
+     * Returns right away if any account has requests left, and waits for the earliest reset of the rate limit if it's
+     * due within {@code github.rate-limit.max-wait-seconds}.
+     *
+     * @throws RateLimitExhaustedException if the reset is due later, so the conversion is parked instead of holding
+     *                                     the worker
+     */
+    public void awaitRequestsLeft() throws InterruptedException {
+
+        Instant resetTime = getRateLimitResetTime();
+
+        if (resetTime == null) {
+            return;
+        }
+
+        Duration wait = Duration.between(clock.instant(), resetTime);
+
+        if (wait.getSeconds() > maxWaitSeconds) {
+            throw new RateLimitExhaustedException(resetTime);
+        }
+
+        if (!wait.isNegative()) {
+            log.info("All GitHub API accounts are rate limited. Waiting {} seconds for the reset at {}",
+                    wait.getSeconds(), resetTime);
+            Thread.sleep(wait.toMillis());
+        }
+    }
+
+    /**
+     * @return the number of the account the last request of the current thread was sent with, or null if it was sent
+     * with no account of the pool, e.g. to fetch an installation token
+     */
+    public Integer getLastAccountNumber() {
+        return lastAccountNumber.get();
+    }
+
+    private Integer findAccountNumber(String authorization) {
+
+        if (authorization == null) {
+            return null;
+        }
+
+        for (PooledAccount pooledAccount : getPooledAccounts()) {
+            if (pooledAccount.hasHandedOut(authorization)) {
+                return pooledAccount.account.getAccountNumber();
+            }
+        }
+
+        return null;
+    }
+
+    private PooledAccount findPooledAccount(int accountNumber) {
+        return getPooledAccounts().stream()
+                .filter(pooledAccount -> pooledAccount.account.getAccountNumber() == accountNumber)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private List<PooledAccount> getPooledAccounts() {
+
+        if (pooledAccounts == null) {
+            synchronized (this) {
+                if (pooledAccounts == null) {
+                    createClients();
+                }
+            }
+        }
+
+        return pooledAccounts;
+    }
+
+    private void createClients() {
+
+        GitHubConnector connector = new AccountRoutingConnector(githubHttpCache.wrap(GitHubConnector.DEFAULT));
+
+        List<PooledAccount> accounts = new ArrayList<>();
+
+        try {
+
+            for (GithubConfig.GithubApiAccount account : githubConfig.getGithubApiAccounts()) {
+
+                AppInstallationAuthorizationProvider authorizationProvider = new AppInstallationAuthorizationProvider(
+                        app -> githubAppInstallationProvider.getAppInstallation(app, account),
+                        () -> "Bearer " + githubJwtTokenProvider.getSignedJwtTokenToFetchInstallationToken(account));
+
+                // Building the client of the account binds the provider, so it can fetch installation tokens
+                newGithubBuilder(connector)
+                        .withAuthorizationProvider(authorizationProvider)
+                        .build();
+
+                accounts.add(new PooledAccount(account, authorizationProvider));
+            }
+
+            pooledGithub = newGithubBuilder(connector)
+                    .withAuthorizationProvider(this::getEncodedAuthorization)
+                    .build();
+
+            // Published last, the pool is initialized once the accounts are visible
+            pooledAccounts = List.copyOf(accounts);
+
+        } catch (IOException ex) {
+            throw new IllegalStateException("Unable to create the GitHub clients of the account pool", ex);
+        }
+
+        log.info("Created GitHub clients for a pool of {} accounts", accounts.size());
+    }
+
+    private GitHubBuilder newGithubBuilder(GitHubConnector connector) {
+        return new GitHubBuilder()
+                .withConnector(connector)
+                .withRateLimitChecker(new MultiAccountRateLimitChecker(
+                        githubConfig.getRateLimitRequestsLeftBorder(), githubAccountRotationService, this))
+                .withRateLimitHandler(new GithubMultiAccountRateLimitHandler(githubAccountRotationService, this));
+    }
+
+    private PooledAccount selectAccount(List<PooledAccount> accounts) {
+
+        Instant now = clock.instant();
+        PooledAccount selectedAccount = null;
+
+        for (PooledAccount pooledAccount : accounts) {
+
+            if (!githubAccountRotationService.isAccountAvailable(pooledAccount.account.getAccountNumber())) {
+                continue;
+            }
+
+            if (selectedAccount == null || pooledAccount.requestsLeft(now) > selectedAccount.requestsLeft(now)) {
+                selectedAccount = pooledAccount;
+            }
+        }
+
+        if (selectedAccount != null) {
+            return selectedAccount;
+        }
+
+        return selectFallbackAccount(accounts);
+    }
+
+    /**
+     * Accounts whose REST quota is exhausted can still have GraphQL points, so only the credentials are checked
+     */
+    private PooledAccount selectGraphqlAccount(List<PooledAccount> accounts) {
+
+        Instant now = clock.instant();
+        PooledAccount selectedAccount = null;
+
+        for (PooledAccount pooledAccount : accounts) {
+
+            if (!githubAccountRotationService.hasValidCredentials(pooledAccount.account.getAccountNumber())) {
+                continue;
+            }
+
+            if (selectedAccount == null
+                    || pooledAccount.graphqlPointsLeft(now) > selectedAccount.graphqlPointsLeft(now)) {
+                selectedAccount = pooledAccount;
+            }
+        }
+
+        return selectedAccount != null ? selectedAccount : selectFallbackAccount(accounts);
+    }
+
+    private PooledAccount selectFallbackAccount(List<PooledAccount> accounts) {
+
+        // All accounts are exhausted, the rate limit checker waits for the reset or parks the conversion
+        int fallbackAccountNumber = githubAccountRotationService.getCurrentAccountNumber();
+
+        return accounts.stream()
+                .filter(pooledAccount -> pooledAccount.account.getAccountNumber() == fallbackAccountNumber)
+                .findFirst()
+                .orElse(accounts.get(0));
+    }
+
+    private void recordQuota(int accountNumber, GitHubConnectorResponse response) {
+
+        String resource = response.header("X-RateLimit-Resource");
+        String remainingHeader = response.header("X-RateLimit-Remaining");
+        String resetHeader = response.header("X-RateLimit-Reset");
+
+        // Search has its own quota which isn't tracked, GraphQL has its own quota per account as well
+        boolean graphql = GRAPHQL_RESOURCE.equals(resource);
+
+        if (resource != null && !"core".equals(resource) && !graphql || remainingHeader == null || resetHeader == null) {
+            return;
+        }
+
+        try {
+
+            int remaining = Integer.parseInt(remainingHeader.trim());
+            Instant resetTime = Instant.ofEpochSecond(Long.parseLong(resetHeader.trim()));
+            PooledAccount pooledAccount = findPooledAccount(accountNumber);
+
+            if (graphql) {
+                pooledAccount.recordGraphqlQuota(remaining, resetTime);
+                return;
+            }
+
+            pooledAccount.remaining = remaining;
+            pooledAccount.resetTime = resetTime;
+
+            if (remaining <= githubConfig.getRateLimitRequestsLeftBorder()
+                    && githubAccountRotationService.isAccountAvailable(accountNumber)) {
+                githubAccountRotationService.markAccountRateLimited(accountNumber, resetTime);
+            }
+
+        } catch (NumberFormatException ex) {
+            log.debug("Ignoring invalid rate limit headers '{}' and '{}'", remainingHeader, resetHeader);
+        }
+    }
+
+    /**
+     * Records the requests left of the account behind every response. The client retries a request with the
+     * authorization of the failed attempt, so retries of accounts which aren't available anymore are sent with
+     * another account.
+     */
+    private class AccountRoutingConnector implements GitHubConnector {
+
+        private final GitHubConnector delegate;
+
+        private AccountRoutingConnector(GitHubConnector delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public GitHubConnectorResponse send(GitHubConnectorRequest request) throws IOException {
+
+            Integer accountNumber = findAccountNumber(request.header(AUTHORIZATION_HEADER));
+            GitHubConnectorRequest sentRequest = request;
+
+            if (accountNumber != null && !githubAccountRotationService.isAccountAvailable(accountNumber)) {
+
+                String authorization = getEncodedAuthorization();
+                accountNumber = findAccountNumber(authorization);
+
+                Map<String, List<String>> headers = GithubConnectorUtils.copyHeaders(request);
+                headers.put(AUTHORIZATION_HEADER, List.of(authorization));
+                sentRequest = GithubConnectorUtils.withHeaders(request, headers);
+            }
+
+            lastAccountNumber.set(accountNumber);
+
+            GitHubConnectorResponse response = delegate.send(sentRequest);
+
+            if (accountNumber != null) {
+                recordQuota(accountNumber, response);
+            }
+
+            return sentRequest == request ? response : GithubConnectorUtils.withRequest(request, response);
+        }
+    }
+
+    private static class PooledAccount {
+
+        private final GithubConfig.GithubApiAccount account;
+
+        private final AuthorizationProvider authorizationProvider;
+
+        private volatile int remaining = -1;
+
+        private volatile Instant resetTime;
+
+        private volatile int graphqlRemaining = -1;
+
+        private volatile Instant graphqlResetTime;
+
+        private volatile String authorization;
+
+        /**
+         * Requests started shortly before a token refresh still carry the previous token
+         */
+        private volatile String previousAuthorization;
+
+        private PooledAccount(GithubConfig.GithubApiAccount account, AuthorizationProvider authorizationProvider) {
+            this.account = account;
+            this.authorizationProvider = authorizationProvider;
+        }
+
+        private int requestsLeft(Instant now) {
+
+            if (remaining < 0 || resetTime != null && now.isAfter(resetTime)) {
+                return DEFAULT_REQUEST_LIMIT;
+            }
+
+            return remaining;
+        }
+
+        private int graphqlPointsLeft(Instant now) {
+
+            if (graphqlRemaining < 0 || graphqlResetTime != null && now.isAfter(graphqlResetTime)) {
+                return DEFAULT_GRAPHQL_POINT_LIMIT;
+            }
+
+            return graphqlRemaining;
+        }
+
+        private synchronized void recordGraphqlQuota(int remaining, Instant resetTime) {
+            this.graphqlRemaining = remaining;
+            if (resetTime != null) {
+                this.graphqlResetTime = resetTime;
+            }
+        }
+
+        private synchronized void rememberAuthorization(String authorization) {
+            if (!authorization.equals(this.authorization)) {
+                this.previousAuthorization = this.authorization;
+                this.authorization = authorization;
+            }
+        }
+
+        private boolean hasHandedOut(String authorization) {
+            return authorization.equals(this.authorization) || authorization.equals(previousAuthorization);
+        }
+    }
+
+}
@@ -164,7 +164,7 @@ public class GithubAccountRotationService {
     /**
      * Check if an account is available (not rate limited and has valid credentials)
      */
-    private boolean isAccountAvailable(int accountNumber) {
+    public boolean isAccountAvailable(int accountNumber) {
         // Check if credentials are valid first
         if (!accountValidCredentials.getOrDefault(accountNumber, true)) {
             return false;
@@ -176,6 +176,13 @@ public class GithubAccountRotationService {
         return accountAvailability.getOrDefault(accountNumber, true);
     }
     
+    /**
+     * Check if an account has valid credentials, regardless of its rate limit
+     */
+    public boolean hasValidCredentials(int accountNumber) {
+        return accountValidCredentials.getOrDefault(accountNumber, true);
+    }
+
     /**
      * Check if rate limit has expired and reset account availability
      */
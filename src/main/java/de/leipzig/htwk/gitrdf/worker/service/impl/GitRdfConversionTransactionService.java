@@ -13,17 +13,13 @@ import java.sql.SQLException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.graph.Triple;
-import org.apache.jena.rdf.model.Model;
-import org.apache.jena.rdf.model.ModelFactory;
-import org.apache.jena.riot.RDFDataMgr;
-import org.apache.jena.riot.RDFFormat;
 import org.apache.jena.riot.system.StreamRDF;
-import org.apache.jena.riot.system.StreamRDFLib;
-import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
@@ -36,8 +32,13 @@ import org.springframework.transaction.annotation.Transactional;
 import de.leipzig.htwk.gitrdf.database.common.entity.GitRepositoryOrderEntity;
 import de.leipzig.htwk.gitrdf.database.common.entity.enums.GitRepositoryOrderStatus;
 import de.leipzig.htwk.gitrdf.database.common.entity.lob.GitRepositoryOrderEntityLobs;
+import de.leipzig.htwk.gitrdf.worker.calculator.CommitBatchWalker;
+import de.leipzig.htwk.gitrdf.worker.config.RdfOutputConfig;
+import de.leipzig.htwk.gitrdf.worker.utils.GitBundleUtils;
 import de.leipzig.htwk.gitrdf.worker.utils.GitUtils;
 import de.leipzig.htwk.gitrdf.worker.utils.ZipUtils;
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.core.RdfOutputMode;
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.core.RdfOutputSink;
 import de.leipzig.htwk.gitrdf.worker.utils.rdf.core.RdfTurtleTidier;
 import jakarta.persistence.EntityManager;
 
@@ -52,10 +53,15 @@ public class GitRdfConversionTransactionService {
 
     private final int commitsPerIteration;
 
+    private final RdfOutputConfig rdfOutputConfig;
+
     public GitRdfConversionTransactionService(
-            EntityManager entityManager, @Value("${worker.commits-per-iteration}") int commitsPerIteration) {
+            EntityManager entityManager,
+            RdfOutputConfig rdfOutputConfig,
+            @Value("${worker.commits-per-iteration}") int commitsPerIteration) {
 
         this.entityManager = entityManager;
+        this.rdfOutputConfig = rdfOutputConfig;
         this.commitsPerIteration = commitsPerIteration;
     }
 
@@ -67,15 +73,29 @@ public class GitRdfConversionTransactionService {
 
         GitRepositoryOrderEntity gitRepositoryOrderEntity = entityManager.find(GitRepositoryOrderEntity.class, id);
 
-        File tempGitRepositoryParentFile = ZipUtils.extractZip(gitRepositoryOrderEntityLobs.getGitZipFile());
+        // Uploads are either git bundles or zips, of which only the .git directory is read
+        BufferedInputStream uploadInputStream
+                = new BufferedInputStream(gitRepositoryOrderEntityLobs.getGitZipFile().getBinaryStream());
+
+        File tempGitRepositoryParentFile = GitBundleUtils.isBundle(uploadInputStream)
+                ? GitBundleUtils.unbundle(uploadInputStream)
+                : ZipUtils.extractGitDirectory(uploadInputStream);
+
+        InputStream needsToBeClosedOutsideOfTransaction;
+
+        try {
 
-        File gitFile
-                = GitUtils.getDotGitFileFromParentDirectoryFileAndThrowExceptionIfNoOrMoreThanOneExists(tempGitRepositoryParentFile);
+            File gitFile
+                    = GitUtils.getDotGitFileFromParentDirectoryFileAndThrowExceptionIfNoOrMoreThanOneExists(tempGitRepositoryParentFile);
 
-        // set Ascii stream is not supported -> use ClobProxy instead, wrap outputstream in reader?
-        //writeRdf(gitFile, gitRepositoryOrderEntityLobs.getRdfFile().setAsciiStream(POSITION_START));
+            // set Ascii stream is not supported -> use ClobProxy instead, wrap outputstream in reader?
+            //writeRdf(gitFile, gitRepositoryOrderEntityLobs.getRdfFile().setAsciiStream(POSITION_START));
 
-        InputStream needsToBeClosedOutsideOfTransaction = writeRdf(gitFile, gitRepositoryOrderEntityLobs);
+            needsToBeClosedOutsideOfTransaction = writeRdf(gitFile, gitRepositoryOrderEntityLobs);
+
+        } finally {
+            FileUtils.deleteQuietly(tempGitRepositoryParentFile);
+        }
 
         gitRepositoryOrderEntity.setStatus(GitRepositoryOrderStatus.DONE);
 
@@ -87,33 +107,31 @@ public class GitRdfConversionTransactionService {
 
         File tempFile = Files.createTempFile("temp-rdf-write-file", ".dat").toFile();
 
-        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+        Repository gitRepository = new FileRepositoryBuilder().setGitDir(gitFile).build();
 
-            // Apache Jena 5.5.0+: Use model-based approach similar to RdfTurtleTidier
-            // Create a model to collect triples, then write it out using RDFDataMgr
-            Model model = ModelFactory.createDefaultModel();
-            StreamRDF writer = StreamRDFLib.graph(model.getGraph());
-            
-            writer.prefix(GIT_NAMESPACE, GIT_URI);
+        RdfOutputMode outputMode = rdfOutputConfig.resolveOutputMode(gitRepository);
 
-            Repository gitRepository = new FileRepositoryBuilder().setGitDir(gitFile).build();
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(tempFile));
+             RdfOutputSink rdfOutputSink = RdfOutputSink.open(outputMode, outputStream)) {
 
-            Git gitHandler = new Git(gitRepository);
+            StreamRDF writer = rdfOutputSink.getWriter();
+            
+            writer.prefix(GIT_NAMESPACE, GIT_URI);
 
-            for (int iteration = 0; iteration < Integer.MAX_VALUE; iteration++) {
+            CommitBatchWalker commitBatchWalker = new CommitBatchWalker(gitRepository, commitsPerIteration, 0, true);
 
-                int skipCount = calculateSkipCountAndThrowExceptionIfIntegerOverflowIsImminent(iteration, commitsPerIteration);
+            while (true) {
 
-                Iterable<RevCommit> commits = gitHandler.log().setSkip(skipCount).setMaxCount(commitsPerIteration).call();
+                List<RevCommit> commits = commitBatchWalker.nextBatch();
 
-                boolean finished = true;
+                if (commits.isEmpty()) {
+                    break;
+                }
 
                 writer.start();
 
                 for (RevCommit commit : commits) {
 
-                    finished = false;
-
                     String gitHash = commit.getId().name();
 
                     writer.triple(createAuthorNameProperty(gitHash, commit.getAuthorIdent().getName()));
@@ -135,24 +153,16 @@ public class GitRdfConversionTransactionService {
                 }
 
                 writer.finish();
-                
-                // Write the collected model to the output stream using RDFDataMgr
-                RDFDataMgr.write(outputStream, model, RDFFormat.TURTLE);
-
-                if (finished) {
-                    break;
-                }
-
-                if (iteration + 1 == Integer.MAX_VALUE) {
-                    throw new RuntimeException(
-                            "While iterating through commit log and transforming log to rdf: Exceeded iteration max count (integer overflow)");
-                }
-
             }
 
+            commitBatchWalker.release();
+
+        } finally {
+            gitRepository.close();
         }
 
-        RdfTurtleTidier.tidyFile(tempFile);
+        RdfTurtleTidier.tidyFile(
+                tempFile, rdfOutputConfig.getTidyInMemoryMaxBytes(), rdfOutputConfig.getTidySortRunSize());
 
         BufferedInputStream bufferedInputStream = new BufferedInputStream(new FileInputStream(tempFile));
 
@@ -198,21 +208,6 @@ public class GitRdfConversionTransactionService {
          */
     }
 
-    private int calculateSkipCountAndThrowExceptionIfIntegerOverflowIsImminent(
-            int currentIteration, int commitsPerIteration) {
-
-        long longCurrentIteration = (long) currentIteration;
-        long longCommitsPerIteration = (long) commitsPerIteration;
-
-        long skips = longCurrentIteration * longCommitsPerIteration;
-
-        if (skips > Integer.MAX_VALUE) {
-            throw new RuntimeException("While iterating through commit log and transforming log to rdf: Exceeded skip max count (integer overflow)");
-        }
-
-        return (int) skips;
-    }
-
     private static Node literal(String value) {
         return NodeFactory.createLiteral(value);
     }
@@ -1,83 +1,91 @@
 package de.leipzig.htwk.gitrdf.worker.service.impl;
 
-import de.leipzig.htwk.gitrdf.worker.config.GithubConfig;
-import de.leipzig.htwk.gitrdf.worker.config.GithubMultiAccountRateLimitHandler;
-import de.leipzig.htwk.gitrdf.worker.provider.GithubAppInstallationProvider;
-import de.leipzig.htwk.gitrdf.worker.provider.GithubJwtTokenProvider;
-import de.leipzig.htwk.gitrdf.worker.ratelimit.MultiAccountRateLimitChecker;
-import de.leipzig.htwk.gitrdf.worker.service.GithubAccountRotationService;
+import de.leipzig.htwk.gitrdf.worker.ratelimit.RateLimitExhaustedException;
+import de.leipzig.htwk.gitrdf.worker.service.GithubAccountPool;
 import lombok.extern.slf4j.Slf4j;
 import org.kohsuke.github.GHRepository;
 import org.kohsuke.github.GitHub;
-import org.kohsuke.github.GitHubBuilder;
 import org.kohsuke.github.PagedIterable;
-import org.kohsuke.github.authorization.AppInstallationAuthorizationProvider;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.time.Instant;
 import org.springframework.beans.factory.annotation.Value;
 
 @Service
 @Slf4j
 public class GithubHandlerService {
 
-    private final GithubConfig githubConfig;
-
-    private final GithubJwtTokenProvider githubJwtTokenProvider;
-
-    private final GithubAppInstallationProvider githubAppInstallationProvider;
-    
-    private final GithubAccountRotationService githubAccountRotationService;
+    private final GithubAccountPool githubAccountPool;
     
     private final int maxCommitPages;
 
     public GithubHandlerService(
-            GithubConfig githubConfig,
-            GithubJwtTokenProvider githubJwtTokenProvider,
-            GithubAppInstallationProvider githubAppInstallationProvider,
-            GithubAccountRotationService githubAccountRotationService,
+            GithubAccountPool githubAccountPool,
             @Value("${worker.max-commit-pages:500}") int maxCommitPages) {
 
-        this.githubConfig = githubConfig;
-        this.githubJwtTokenProvider = githubJwtTokenProvider;
-        this.githubAppInstallationProvider = githubAppInstallationProvider;
-        this.githubAccountRotationService = githubAccountRotationService;
+        this.githubAccountPool = githubAccountPool;
         this.maxCommitPages = maxCommitPages;
     }
 
-    private volatile GitHub currentGithubClient;
-    private volatile int lastUsedAccountNumber = -1;
-
+    /**
+     * Client sending each request with the account of the pool having the most requests left
+     */
     public GitHub getGithub() throws IOException {
-        int currentAccountNumber = githubAccountRotationService.getCurrentAccountNumber();
-        
-        // Create a new client if account has changed or no client exists
-        if (currentGithubClient == null || lastUsedAccountNumber != currentAccountNumber) {
-            synchronized (this) {
-                // Double-check pattern
-                if (currentGithubClient == null || lastUsedAccountNumber != currentAccountNumber) {
-                    currentGithubClient = createGithubClient();
-                    lastUsedAccountNumber = currentAccountNumber;
-                    log.info("Created new GitHub client for account {}", currentAccountNumber);
-                }
-            }
-        }
-        
-        return currentGithubClient;
+        return githubAccountPool.getGithub();
     }
-    
-    private GitHub createGithubClient() throws IOException {
-        AppInstallationAuthorizationProvider appInstallationAuthorizationProvider
-                = new AppInstallationAuthorizationProvider(this.githubAppInstallationProvider, this.githubJwtTokenProvider);
-
-        MultiAccountRateLimitChecker rateLimitChecker
-                = new MultiAccountRateLimitChecker(githubConfig.getRateLimitRequestsLeftBorder(), githubAccountRotationService);
-
-        return new GitHubBuilder()
-                .withAuthorizationProvider(appInstallationAuthorizationProvider)
-                .withRateLimitChecker(rateLimitChecker)
-                .withRateLimitHandler(new GithubMultiAccountRateLimitHandler(githubAccountRotationService))
-                .build();
+
+    /**
+     * Authorization header value of the account with the most requests left, for requests that don't go through the
+     * GitHub client, e.g. to the GraphQL API
+     */
+    public String getEncodedAuthorization() throws IOException {
+        return githubAccountPool.getEncodedAuthorization();
+    }
+
+    /**
+     * Authorization header value of the account with the most GraphQL points left
+     */
+    public String getEncodedGraphqlAuthorization() throws IOException {
+        return githubAccountPool.getEncodedGraphqlAuthorization();
+    }
+
+    /**
+     * GraphQL points left above the rate limit border, summed over all accounts
+     */
+    public int getGraphqlPointsLeft() {
+        return githubAccountPool.getGraphqlPointsLeft();
+    }
+
+    /**
+     * Records the GraphQL points left of the account behind the given authorization
+     */
+    public void recordGraphqlQuota(String authorization, int remaining, Instant resetTime) {
+        githubAccountPool.recordGraphqlQuota(authorization, remaining, resetTime);
+    }
+
+    /**
+     * Requests left above the rate limit border, summed over all available accounts
+     */
+    public int getRequestsLeft() {
+        return githubAccountPool.getRequestsLeft();
+    }
+
+    /**
+     * Earliest reset of the rate limit if all accounts are exhausted, otherwise null
+     */
+    public Instant getRateLimitResetTime() {
+        return githubAccountPool.getRateLimitResetTime();
+    }
+
+    /**
+     * Waits for a reset of the rate limit due soon if all accounts are exhausted. Conversions call it between their
+     * steps as well, since many steps log and skip failed requests, including those failing on the rate limit.
+     *
+     * @throws RateLimitExhaustedException if the reset is due later, so the conversion is parked
+     */
+    public void awaitRequestsLeft() throws InterruptedException {
+        githubAccountPool.awaitRequestsLeft();
     }
 
     /**
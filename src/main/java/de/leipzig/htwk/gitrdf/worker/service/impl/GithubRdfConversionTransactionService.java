@@ -19,23 +19,20 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.jena.graph.Node;
-import org.apache.jena.rdf.model.Model;
-import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
-import org.apache.jena.riot.RDFDataMgr;
-import org.apache.jena.riot.RDFFormat;
 import org.apache.jena.riot.system.StreamRDF;
 
-import org.apache.jena.riot.system.StreamRDFLib;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ListBranchCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
@@ -51,7 +48,6 @@ import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.patch.FileHeader;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevObject;
 import org.eclipse.jgit.revwalk.RevTag;
@@ -59,7 +55,6 @@ import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.submodule.SubmoduleWalk;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
-import org.eclipse.jgit.util.io.DisabledOutputStream;
 import org.hibernate.engine.jdbc.BlobProxy;
 import org.kohsuke.github.GHCheckRun;
 import org.kohsuke.github.GHIssue;
@@ -89,13 +84,42 @@ import de.leipzig.htwk.gitrdf.database.common.entity.GithubRepositoryOrderEntity
 import de.leipzig.htwk.gitrdf.database.common.entity.enums.GitRepositoryOrderStatus;
 import de.leipzig.htwk.gitrdf.database.common.entity.lob.GithubRepositoryOrderEntityLobs;
 import de.leipzig.htwk.gitrdf.worker.calculator.BranchSnapshotCalculator;
+import de.leipzig.htwk.gitrdf.worker.calculator.BranchSnapshotEngine;
+import de.leipzig.htwk.gitrdf.worker.calculator.CommitBatchWalker;
 import de.leipzig.htwk.gitrdf.worker.calculator.CommitBranchCalculator;
+import de.leipzig.htwk.gitrdf.worker.calculator.DiffContentCalculator;
+import de.leipzig.htwk.gitrdf.worker.calculator.FileClassifier;
+import de.leipzig.htwk.gitrdf.worker.calculator.ParallelCommitProcessor;
+import de.leipzig.htwk.gitrdf.worker.calculator.ParallelCommitProcessor.PendingCommitTriples;
+import de.leipzig.htwk.gitrdf.worker.calculator.RawTextCache;
+import de.leipzig.htwk.gitrdf.worker.config.CommitDiffConfig;
+import de.leipzig.htwk.gitrdf.worker.config.FileFilterConfig;
 import de.leipzig.htwk.gitrdf.worker.config.GithubConfig;
+import de.leipzig.htwk.gitrdf.worker.config.RdfOutputConfig;
+import de.leipzig.htwk.gitrdf.worker.graphql.GithubGraphqlClient;
+import de.leipzig.htwk.gitrdf.worker.httpcache.GithubHttpCache;
+import de.leipzig.htwk.gitrdf.worker.graphql.GithubGraphqlIssueFetcher;
+import de.leipzig.htwk.gitrdf.worker.graphql.GithubGraphqlIssueFetcher.IssueSubResources;
 import de.leipzig.htwk.gitrdf.worker.handler.LockHandler;
+import de.leipzig.htwk.gitrdf.worker.identity.CommitIdentityResolverChain;
+import de.leipzig.htwk.gitrdf.worker.identity.CachedEmailIdentity;
+import de.leipzig.htwk.gitrdf.worker.identity.GithubCommitAuthorIndex;
+import de.leipzig.htwk.gitrdf.worker.identity.GithubIdentityCache;
+import de.leipzig.htwk.gitrdf.worker.mirror.RepositoryMirrorCache;
+import de.leipzig.htwk.gitrdf.worker.ratelimit.RateLimitExhaustedException;
 import de.leipzig.htwk.gitrdf.worker.service.GithubAccountRotationService;
+import de.leipzig.htwk.gitrdf.worker.service.impl.github.GithubIssuePrefetcher;
+import de.leipzig.htwk.gitrdf.worker.service.impl.github.IssueFetchEngine;
+import de.leipzig.htwk.gitrdf.worker.snapshot.BranchSnapshotStore;
 import de.leipzig.htwk.gitrdf.worker.timemeasurement.TimeLog;
+import de.leipzig.htwk.gitrdf.worker.utils.CloneStrategy;
+import de.leipzig.htwk.gitrdf.worker.utils.GitUtils;
 import de.leipzig.htwk.gitrdf.worker.utils.GithubUriUtils;
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.core.RdfOutputMode;
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.core.RdfOutputSink;
 import de.leipzig.htwk.gitrdf.worker.utils.rdf.core.RdfTurtleTidier;
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.git.BranchMembershipEncoding;
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.git.CommitDiffLevel;
 import de.leipzig.htwk.gitrdf.worker.utils.rdf.git.RdfCommitUtils;
 import de.leipzig.htwk.gitrdf.worker.utils.rdf.git.RdfGitCommitUserUtils;
 import de.leipzig.htwk.gitrdf.worker.utils.rdf.github.GithubUserInfo;
@@ -129,6 +153,9 @@ public class GithubRdfConversionTransactionService {
 
     private static final boolean PROCESS_COMMENT_REACTIONS = true;
 
+    // Rough number of requests needed for the sub-resources of a single issue, used to derive the prefetch budget
+    private static final int ISSUE_PREFETCH_REQUESTS_PER_ISSUE = 8;
+
 
     public static final String GIT_NAMESPACE = "git";
     public static final String GIT_URI = "https://purl.archive.org/git2rdf/v2/git2RDFLab-git#";
@@ -161,9 +188,43 @@ public class GithubRdfConversionTransactionService {
     private final EntityManager entityManager;
 
     private final int commitsPerIteration;
+
+    private final int commitDiffThreads;
+
+    private final int branchSnapshotThreads;
+
+    private final BranchSnapshotEngine branchSnapshotEngine;
+
+    private final int branchSnapshotReleaseTags;
+
+    private final CloneStrategy cloneStrategy;
+
+    private final int issuePrefetchLookahead;
+
+    private final int issuePrefetchThreads;
+
+    private final IssueFetchEngine issueFetchEngine;
+
+    private final int issueGraphqlBatchSize;
     
     private final GithubAccountRotationService githubAccountRotationService;
 
+    private final RdfOutputConfig rdfOutputConfig;
+
+    private final GithubIdentityCache githubIdentityCache;
+
+    private final CommitDiffConfig commitDiffConfig;
+
+    private final FileFilterConfig fileFilterConfig;
+
+    private final BranchSnapshotStore branchSnapshotStore;
+
+    private final RepositoryMirrorCache repositoryMirrorCache;
+
+    private final GithubGraphqlClient githubGraphqlClient;
+
+    private final GithubHttpCache githubHttpCache;
+
     private static final int RETRY_DELAY_MS = 1000;
 
     /**
@@ -174,16 +235,16 @@ public class GithubRdfConversionTransactionService {
 
     /**
      * Caches for GitHub API objects to avoid unnecessary API calls during a
-     * conversion run.
+     * conversion run. They are filled concurrently by the issue prefetcher.
      */
-    private final Map<Integer, GHPullRequest> pullRequestCache = new HashMap<>();
-    private final Map<Integer, List<GHPullRequestReview>> reviewCache = new HashMap<>();
-    private final Map<Long, List<GHPullRequestReviewComment>> reviewCommentsCache = new HashMap<>();
-    private final Map<Long, GHPullRequestReviewComment> individualReviewCommentsCache = new HashMap<>();
-    private final Map<Integer, List<GHIssueComment>> issueCommentsCache = new HashMap<>();
-    private final Map<Long, List<GHReaction>> reviewCommentReactionsCache = new HashMap<>();
-    private final Map<Long, List<GHReaction>> issueCommentReactionsCache = new HashMap<>();
-    private final Map<Integer, List<GHPullRequestCommitDetail>> commitCache = new HashMap<>();
+    private final Map<Integer, GHPullRequest> pullRequestCache = new ConcurrentHashMap<>();
+    private final Map<Integer, List<GHPullRequestReview>> reviewCache = new ConcurrentHashMap<>();
+    private final Map<Long, List<GHPullRequestReviewComment>> reviewCommentsCache = new ConcurrentHashMap<>();
+    private final Map<Long, GHPullRequestReviewComment> individualReviewCommentsCache = new ConcurrentHashMap<>();
+    private final Map<Integer, List<GHIssueComment>> issueCommentsCache = new ConcurrentHashMap<>();
+    private final Map<Long, List<GHReaction>> reviewCommentReactionsCache = new ConcurrentHashMap<>();
+    private final Map<Long, List<GHReaction>> issueCommentReactionsCache = new ConcurrentHashMap<>();
+    private final Map<Integer, List<GHPullRequestCommitDetail>> commitCache = new ConcurrentHashMap<>();
 
     private static class PullRequestInfo {
         final String issueUri;
@@ -202,12 +263,46 @@ public class GithubRdfConversionTransactionService {
             EntityManager entityManager,
             GithubConfig githubConfig,
             GithubAccountRotationService githubAccountRotationService,
-            @Value("${worker.commits-per-iteration}") int commitsPerIteration) {
+            RdfOutputConfig rdfOutputConfig,
+            GithubIdentityCache githubIdentityCache,
+            CommitDiffConfig commitDiffConfig,
+            FileFilterConfig fileFilterConfig,
+            BranchSnapshotStore branchSnapshotStore,
+            RepositoryMirrorCache repositoryMirrorCache,
+            GithubGraphqlClient githubGraphqlClient,
+            GithubHttpCache githubHttpCache,
+            @Value("${worker.commits-per-iteration}") int commitsPerIteration,
+            @Value("${worker.commit-diff-threads:0}") int commitDiffThreads,
+            @Value("${worker.branch-snapshot-threads:0}") int branchSnapshotThreads,
+            @Value("${worker.branch-snapshot-engine:PER_FILE}") BranchSnapshotEngine branchSnapshotEngine,
+            @Value("${worker.branch-snapshot-release-tags:0}") int branchSnapshotReleaseTags,
+            @Value("${worker.clone-strategy:AUTO}") CloneStrategy cloneStrategy,
+            @Value("${worker.issues.prefetch-lookahead:16}") int issuePrefetchLookahead,
+            @Value("${worker.issues.prefetch-threads:8}") int issuePrefetchThreads,
+            @Value("${worker.issues.fetch-engine:REST}") IssueFetchEngine issueFetchEngine,
+            @Value("${worker.issues.graphql-batch-size:50}") int issueGraphqlBatchSize) {
 
         this.githubHandlerService = githubHandlerService;
+        this.rdfOutputConfig = rdfOutputConfig;
+        this.githubIdentityCache = githubIdentityCache;
+        this.commitDiffConfig = commitDiffConfig;
+        this.fileFilterConfig = fileFilterConfig;
+        this.branchSnapshotStore = branchSnapshotStore;
+        this.repositoryMirrorCache = repositoryMirrorCache;
+        this.githubGraphqlClient = githubGraphqlClient;
+        this.githubHttpCache = githubHttpCache;
         this.githubConfig = githubConfig;
         this.entityManager = entityManager;
         this.commitsPerIteration = commitsPerIteration;
+        this.commitDiffThreads = commitDiffThreads;
+        this.branchSnapshotThreads = branchSnapshotThreads;
+        this.branchSnapshotEngine = branchSnapshotEngine;
+        this.branchSnapshotReleaseTags = branchSnapshotReleaseTags;
+        this.cloneStrategy = cloneStrategy;
+        this.issuePrefetchLookahead = issuePrefetchLookahead;
+        this.issuePrefetchThreads = issuePrefetchThreads;
+        this.issueFetchEngine = issueFetchEngine;
+        this.issueGraphqlBatchSize = issueGraphqlBatchSize;
         this.githubAccountRotationService = githubAccountRotationService;
     }
 
@@ -220,6 +315,8 @@ public class GithubRdfConversionTransactionService {
             TimeLog timeLog,
             LockHandler lockHandler) throws IOException, GitAPIException, URISyntaxException, InterruptedException {
 
+        timeLog.startMemoryMeasurement();
+
         // Clear caches for this conversion run
         pullRequestCache.clear();
         reviewCache.clear();
@@ -232,6 +329,8 @@ public class GithubRdfConversionTransactionService {
         
         // Clear GitHub user cache to ensure users are created in each repository's RDF model
         GithubUserValidator.clearProcessedUsersCache();
+        // User profiles resolved in earlier runs or by other workers are kept in the persistent identity cache
+        GithubUserValidator.useIdentityCache(githubIdentityCache);
         
         Git gitHandler = null;
 
@@ -263,13 +362,19 @@ public class GithubRdfConversionTransactionService {
                 // Continue with processing - the service will fall back to using limits
             }
 
+            // An order picked up while all accounts are exhausted is parked before cloning
+            githubHandlerService.awaitRequestsLeft();
+
             lockHandler.renewLockOnRenewTimeFulfillment();
 
             StopWatch downloadWatch = new StopWatch();
 
             downloadWatch.start();
 
-            gitHandler = performGitClone(owner, repo, gitWorkingDirectory);
+            boolean bareClone = cloneStrategy.isBare(githubRepositoryOrderEntity.getGithubRepositoryFilter()
+                    .getGitCommitRepositoryFilter().isEnableBranchSnapshot());
+
+            gitHandler = performGitClone(owner, repo, gitWorkingDirectory, bareClone);
 
             downloadWatch.stop();
 
@@ -438,19 +543,37 @@ public class GithubRdfConversionTransactionService {
         return matcher.find() ? matcher.group(1) : null;
     }
 
-    private Git performGitClone(String ownerName, String repositoryName, File gitWorkingDirectory)
-            throws GitAPIException {
+    private Git performGitClone(String ownerName, String repositoryName, File gitWorkingDirectory, boolean bare)
+            throws GitAPIException, IOException {
 
         String gitRepoTargetUrl = String.format("https://github.com/%s/%s.git", ownerName, repositoryName);
 
         int timeoutSecondsOnNoDataTransfer = 60;
 
+        UsernamePasswordCredentialsProvider credentialsProvider = new UsernamePasswordCredentialsProvider(
+                githubConfig.getGithubSystemUserName(),
+                githubConfig.getGithubSystemUserPersonalAccessToken()); // ---> maybe we dont even need this for public repositories?
+
+        if (repositoryMirrorCache.isEnabled()) {
+
+            Git mirroredGit = repositoryMirrorCache.cloneFromMirror(
+                    ownerName, repositoryName, gitRepoTargetUrl, gitWorkingDirectory, bare,
+                    credentialsProvider, timeoutSecondsOnNoDataTransfer);
+
+            if (mirroredGit != null) {
+                return mirroredGit;
+            }
+        }
+
+        if (bare) {
+            return GitUtils.cloneBare(
+                    gitRepoTargetUrl, gitWorkingDirectory, credentialsProvider, timeoutSecondsOnNoDataTransfer);
+        }
+
         return Git.cloneRepository()
                 .setURI(gitRepoTargetUrl)
                 .setDirectory(gitWorkingDirectory)
-                .setCredentialsProvider(new UsernamePasswordCredentialsProvider(
-                        githubConfig.getGithubSystemUserName(),
-                        githubConfig.getGithubSystemUserPersonalAccessToken())) // ---> maybe we dont even need this for public repositories?
+                .setCredentialsProvider(credentialsProvider)
                 .setTimeout(timeoutSecondsOnNoDataTransfer)
                 .call();
     }
@@ -475,7 +598,13 @@ public class GithubRdfConversionTransactionService {
                 .getGithubIssueRepositoryFilter();
 
         Map<String, RdfGitCommitUserUtils> uniqueGitCommiterWithHash = new HashMap<>();
-        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(rdfTempFile))) {
+
+        RdfOutputMode outputMode = rdfOutputConfig.resolveOutputMode(gitRepository);
+        log.info("Writing rdf of '{}' repository with output mode {}", repositoryName, outputMode);
+
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(rdfTempFile));
+             RdfOutputSink rdfOutputSink = RdfOutputSink.open(outputMode, outputStream);
+             ParallelCommitProcessor commitProcessor = new ParallelCommitProcessor(gitRepository, commitDiffThreads)) {
 
 
             GitHub gitHubHandle = githubHandlerService.getGithub();
@@ -483,12 +612,14 @@ public class GithubRdfConversionTransactionService {
             lockHandler.renewLockOnRenewTimeFulfillment();
 
             String githubRepositoryName = String.format("%s/%s", owner, repositoryName);
+
+            FileClassifier fileClassifier = FileClassifier.create(
+                    gitRepository, gitRepository.resolve(Constants.HEAD), fileFilterConfig);
             String repositoryUri = GithubUriUtils.getRepositoryUri(owner, repositoryName);
 
             GHRepository githubRepositoryHandle = gitHubHandle.getRepository(githubRepositoryName);
             // See: https://jena.apache.org/documentation/io/rdf-output.html#streamed-block-formats
-            Model model = ModelFactory.createDefaultModel();
-            StreamRDF writer = StreamRDFLib.graph(model.getGraph());
+            StreamRDF writer = rdfOutputSink.getWriter();
 
 
             writer.prefix(XSD_SCHEMA_NAMESPACE, XSD_SCHEMA_URI);
@@ -499,17 +630,18 @@ public class GithubRdfConversionTransactionService {
             writer.prefix(PLATFORM_NAMESPACE, PLATFORM_URI);
             writer.prefix(PLATFORM_GITHUB_NAMESPACE, PLATFORM_GITHUB_URI);
 
-            DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
-            diffFormatter.setRepository(gitRepository);
-            ObjectReader reader = gitRepository.newObjectReader();
-
             Iterable<Ref> branches = gitHandler.branchList().setListMode(ListBranchCommand.ListMode.ALL).call();
-            RevWalk revWalk = new RevWalk(gitRepository);
+
+            BranchMembershipEncoding branchMembershipEncoding = rdfOutputConfig.getBranchMembershipEncoding();
+            boolean writeCommitBranches = gitCommitRepositoryFilter.isEnableCommitBranch()
+                    && branchMembershipEncoding == BranchMembershipEncoding.PER_COMMIT;
+            boolean writeBranchMergeBases = gitCommitRepositoryFilter.isEnableCommitBranch()
+                    && branchMembershipEncoding == BranchMembershipEncoding.HEAD_REACHABILITY;
 
             CommitBranchCalculator commitBranchCalculator = null;
-            if (gitCommitRepositoryFilter.isEnableCommitBranch()) {
+            if (writeCommitBranches) {
                 log.info("Start constructing commit branch calculator");
-                commitBranchCalculator = new CommitBranchCalculator(branches, revWalk);
+                commitBranchCalculator = new CommitBranchCalculator(branches, gitRepository);
             }
 
             lockHandler.renewLockOnRenewTimeFulfillment();
@@ -567,6 +699,9 @@ public class GithubRdfConversionTransactionService {
             lockHandler.renewLockOnRenewTimeFulfillment();
 
             // Branches
+            ObjectId convertedHeadId = gitRepository.resolve(Constants.HEAD);
+            RevWalk mergeBaseWalk = writeBranchMergeBases && convertedHeadId != null ? new RevWalk(gitRepository) : null;
+
             writer.start();
             for (Ref branchRef : branches) {
                 String fullBranchName = branchRef.getName();
@@ -596,9 +731,21 @@ public class GithubRdfConversionTransactionService {
                 writer.triple(RdfCommitUtils.createBranchNameProperty(branchUri, cleanBranchName));
                 writer.triple(RdfCommitUtils.createBranchHeadCommitProperty(branchUri, headCommitUri));
                 writer.triple(RdfCommitUtils.createBranchOfProperty(branchUri, repositoryUri));
+
+                // Compact membership: the branch contains its merge bases with HEAD and all their ancestors
+                if (mergeBaseWalk != null) {
+                    for (ObjectId mergeBase : GitUtils.findMergeBases(mergeBaseWalk, convertedHeadId, branchRef.getObjectId())) {
+                        String mergeBaseUri = GithubUriUtils.getCommitUri(owner, repositoryName, mergeBase.getName());
+                        writer.triple(RdfCommitUtils.createBranchMergeBaseWithHeadProperty(branchUri, mergeBaseUri));
+                    }
+                }
             }
             writer.finish();
 
+            if (mergeBaseWalk != null) {
+                mergeBaseWalk.release();
+            }
+
             lockHandler.renewLockOnRenewTimeFulfillment();
 
             // Submodules
@@ -654,28 +801,46 @@ public class GithubRdfConversionTransactionService {
                 Map<ObjectId, List<String>> commitToTags = getTagsForCommits(gitRepository);
                 log.info("Completed building tags map with {} entries", commitToTags.size());
 
+                // Local identity resolution first: noreply emails, the mailmap and emails resolved by earlier lookups
+                CommitIdentityResolverChain commitIdentityResolverChain
+                        = CommitIdentityResolverChain.createDefault(gitRepository);
+
                 log.info("Building pull request map for commits...");
                 Map<String, PullRequestInfo> commitPrMap = buildCommitPrMap(githubRepositoryHandle, gitRepository);
                 log.info("Completed building PR map with {} entries", commitPrMap.size());
 
-                for (int iteration = 0; iteration < Integer.MAX_VALUE; iteration++) {
-
-
-                    log.info("Start iterations of git commits. Current iteration count: {}", iteration);
+                GithubCommitAuthorIndex commitAuthorIndex = null;
+                ObjectId headCommitId = gitRepository.resolve(Constants.HEAD);
+                if (gitCommitRepositoryFilter.isEnableAuthorEmail() && headCommitId != null) {
+                    commitAuthorIndex = new GithubCommitAuthorIndex(
+                            githubRepositoryHandle, githubGraphqlClient, headCommitId.name(), PROCESS_COMMIT_LIMIT);
+                }
 
-                    log.info("Checking whether github installation token needs refresh");
+                RawTextCache rawTextCache = new RawTextCache(commitDiffConfig.getRawTextCacheBytes());
 
+                // Issue references are parsed from the commit message, so commit bodies are always needed here
+                CommitBatchWalker commitBatchWalker = new CommitBatchWalker(
+                        gitRepository, commitsPerIteration, PROCESS_COMMIT_LIMIT, true);
 
-                    int skipCount = calculateSkipCountAndThrowExceptionIfIntegerOverflowIsImminent(iteration,
-                            commitsPerIteration);
+                for (int iteration = 0; ; iteration++) {
 
-                    log.info("Calculated skip count for this iteration is: {}", skipCount);
+                    log.info("Start iterations of git commits. Current iteration count: {}", iteration);
 
+                    List<RevCommit> commits = commitBatchWalker.nextBatch();
 
-                    Iterable<RevCommit> commits = gitHandler.log().setSkip(skipCount).setMaxCount(commitsPerIteration)
-                            .call();
+                    if (commits.isEmpty()) {
+                        break;
+                    }
 
-                    boolean finished = true;
+                    // Diffs are computed on the commit processor threads while the loop below writes the other
+                    // triples, and are written in commit order at the end of every commit
+                    List<PendingCommitTriples> pendingCommitDiffs = null;
+                    if (gitCommitRepositoryFilter.isEnableCommitDiff()) {
+                        pendingCommitDiffs = commitProcessor.submit(commits,
+                                (commit, reader, diffFormatter, collector) -> calculateCommitDiff(
+                                        commit, reader, diffFormatter, rawTextCache, fileClassifier, collector,
+                                        GithubUriUtils.getCommitUri(owner, repositoryName, commit.getName())));
+                    }
 
                     log.info("Starting commit writer rdf");
 
@@ -683,15 +848,10 @@ public class GithubRdfConversionTransactionService {
 
                     log.info("Starting commit loop");
 
-                    for (RevCommit commit : commits) {
+                    for (int commitIndex = 0; commitIndex < commits.size(); commitIndex++) {
+                        RevCommit commit = commits.get(commitIndex);
                         commitsProcessed++;
                         githubAccountRotationService.updateProcessedCommitsCount(commitsProcessed);
-                        if (commitsProcessed > PROCESS_COMMIT_LIMIT && PROCESS_COMMIT_LIMIT > 0) {
-                            log.info("Max computed commits reached, stopping commit processing.");
-                            finished = true;
-                            break;
-                        }
-                        finished = false;
 
                         ObjectId commitId = commit.getId();
                         String gitHash = commitId.name();
@@ -740,7 +900,7 @@ public class GithubRdfConversionTransactionService {
                         if (gitCommitRepositoryFilter.isEnableAuthorEmail()) {
                             calculateAuthorEmail( // Also brings github identifier into rdf
                                     authorIdent, uniqueGitCommiterWithHash, writer, commitUri, gitHash,
-                                    githubRepositoryHandle, gitHubHandle);
+                                    commitIdentityResolverChain, commitAuthorIndex, gitHubHandle);
                         }
 
                         if (log.isDebugEnabled())
@@ -828,7 +988,7 @@ public class GithubRdfConversionTransactionService {
 
                         // Branch
                         // TODO: better way to handle merges? (so commit could have multiple branches)
-                        if (gitCommitRepositoryFilter.isEnableCommitBranch()) {
+                        if (writeCommitBranches) {
                             calculateCommitBranch(commitBranchCalculator, writer, commit, commitUri, owner,
                                     repositoryName);
                         }
@@ -856,8 +1016,9 @@ public class GithubRdfConversionTransactionService {
                         if (log.isDebugEnabled())
                             log.debug("Check commit diff");
 
-                        if (gitCommitRepositoryFilter.isEnableCommitDiff()) {
-                            calculateCommitDiff(commit, reader, diffFormatter, writer, commitUri);
+                        if (pendingCommitDiffs != null) {
+                            pendingCommitDiffs.get(commitIndex)
+                                    .writeTo(writer, lockHandler::renewLockOnRenewTimeFulfillment);
                         }
                     }
 
@@ -868,15 +1029,27 @@ public class GithubRdfConversionTransactionService {
 
                     lockHandler.renewLockOnRenewTimeFulfillment();
 
-                    if (finished) {
-                        break;
-                    }
+                    // Identities and pull requests of skipped requests would be missing, so a rate limit hit during
+                    // the batch parks the conversion here
+                    githubHandlerService.awaitRequestsLeft();
+                }
 
+                commitBatchWalker.release();
 
-                    if (iteration + 1 == Integer.MAX_VALUE) {
-                        throw new RuntimeException(
-                                "While iterating through commit log and transforming log to rdf: Exceeded iteration max count (integer overflow)");
-                    }
+                if (commitBranchCalculator != null) {
+                    commitBranchCalculator.release();
+                }
+
+                commitIdentityResolverChain.logStatistics();
+
+                if (commitAuthorIndex != null) {
+                    commitAuthorIndex.logStatistics();
+                }
+
+                githubIdentityCache.logStatistics();
+
+                if (gitCommitRepositoryFilter.isEnableCommitDiff()) {
+                    rawTextCache.logStatistics();
                 }
             }
             log.info("Git commit iterations finished");
@@ -907,9 +1080,21 @@ public class GithubRdfConversionTransactionService {
                         gitRepository,
 
                         GithubUriUtils.getCommitUri(owner, repositoryName, headCommitId.getName()),
-                        lockHandler);
+                        lockHandler,
+                        branchSnapshotThreads,
+                        branchSnapshotEngine,
+                        fileClassifier,
+                        branchSnapshotStore,
+                        githubRepositoryName);
+
+                Map<ObjectId, String> releaseSnapshotUrisByCommit = new LinkedHashMap<>();
+
+                for (ObjectId taggedCommitId : GitUtils.findLatestTaggedCommits(gitRepository, branchSnapshotReleaseTags)) {
+                    releaseSnapshotUrisByCommit.put(
+                            taggedCommitId, GithubUriUtils.getCommitUri(owner, repositoryName, taggedCommitId.getName()));
+                }
 
-                branchSnapshotCalculator.calculateBranchSnapshot();
+                branchSnapshotCalculator.calculateBranchSnapshots(releaseSnapshotUrisByCommit);
 
                 branchSnapshottingWatch.stop();
 
@@ -921,6 +1106,8 @@ public class GithubRdfConversionTransactionService {
 
             lockHandler.renewLockOnRenewTimeFulfillment();
 
+            githubHandlerService.awaitRequestsLeft();
+
             // issues
             StopWatch issueWatch = new StopWatch();
             issueWatch.start();
@@ -944,700 +1131,721 @@ public class GithubRdfConversionTransactionService {
                             .pageSize(pageSize)
                             .list();
 
-                    for (GHIssue ghIssue : issues) {
+                    GithubGraphqlIssueFetcher graphqlIssueFetcher = issueFetchEngine == IssueFetchEngine.GRAPHQL
+                            ? new GithubGraphqlIssueFetcher(githubGraphqlClient, gitHubHandle, owner, repositoryName)
+                            : null;
 
-                        if (issueCounter < 1) {
-                            log.info("Start issue rdf conversion batch for issueId '{}'", ghIssue.getId());
-                            writer.start();
-                            doesWriterContainNonWrittenRdfStreamElements = true;
-                        }
+                    try (GithubIssuePrefetcher issuePrefetcher = new GithubIssuePrefetcher(
+                            issues.iterator(),
+                            issuePrefetchLookahead,
+                            graphqlIssueFetcher != null ? issueGraphqlBatchSize : 1,
+                            issuePrefetchThreads,
+                            () -> issuePrefetchBudget(graphqlIssueFetcher != null),
+                            batch -> prefetchIssueSubResources(
+                                    batch, githubRepositoryHandle, githubIssueRepositoryFilter, graphqlIssueFetcher),
+                            lockHandler)) {
 
-                        // Early exit if we've hit our limit
-                        if (issuesProcessed >= PROCESS_ISSUE_LIMIT) {
-                            log.info("Reached issue processing limit of {}", PROCESS_ISSUE_LIMIT);
-                            break;
-                        }
+                        while (issuePrefetcher.hasNext()) {
 
-                        int issueNumber = ghIssue.getNumber();
-                        String issueUri;
-                        if (ghIssue.isPullRequest()) {
-                            issueUri = GithubUriUtils.getPullRequestUri(owner, repositoryName, String.valueOf(issueNumber));
-                        } else {
-                            issueUri = GithubUriUtils.getIssueUri(owner, repositoryName, String.valueOf(issueNumber));
-                        }
+                            GHIssue ghIssue = issuePrefetcher.next();
 
-                        if (issueUri == null || issueUri.isEmpty()) {
-                            log.warn(
-                                    "Issue with number {} fallback to githubRepositoryURI because its issueUri is null or empty",
-                                    issueNumber);
-                            issueUri = GithubUriUtils.getRepositoryUri(owner, repositoryName);
-                        }
+                            // Requests failing on the rate limit are logged and skipped within an issue, so the
+                            // conversion is parked between issues
+                            githubHandlerService.awaitRequestsLeft();
 
-                        if (githubIssueRepositoryFilter.isEnableIssueState() && ghIssue.getState() == null) {
-                            continue;
-                        }
+                            if (issueCounter < 1) {
+                                log.info("Start issue rdf conversion batch for issueId '{}'", ghIssue.getId());
+                                writer.start();
+                                doesWriterContainNonWrittenRdfStreamElements = true;
+                            }
 
-                        // // ********************** ** REMOVE ON DEPLOYMENT ** **********************
-                        // // ZonedDateTime oneYearAgo = ZonedDateTime.now().minusYears(1);
-                        // // // REMOVE ON DEPLOYMENT
-                        // // Date dcreatedAt = ghIssue.getCreatedAt();
-                        // // if (dcreatedAt == null || dcreatedAt.toInstant().isBefore(oneYearAgo.toInstant())) {
-                        // //     continue;
-                        // // }
-
-                        // if (PROCESS_ISSUE_ONLY.length > 0) {
-                        //     boolean shouldProcessIssue = false;
-                        //     for (String issueId : PROCESS_ISSUE_ONLY) {
-                        //         if (issueId.equals(String.valueOf(issueNumber))) {
-                        //             shouldProcessIssue = true;
-                        //             break;
-                        //         }
-                        //     }
-                        //     if (!shouldProcessIssue) {
-                        //         continue; // Skip this issue
-                        //     }
-                        // }
-                        // // ********************** ** **************** ** **********************
-
-                        // Create correct RDF type based on whether this is an issue or pull request
-                        if (ghIssue.isPullRequest()) {
-                            writer.triple(RdfGithubPullRequestUtils.createRdfTypeProperty(issueUri));
-                        } else {
-                            writer.triple(RdfGithubIssueUtils.createRdfTypeProperty(issueUri));
-                        }
+                            // Early exit if we've hit our limit
+                            if (issuesProcessed >= PROCESS_ISSUE_LIMIT) {
+                                log.info("Reached issue processing limit of {}", PROCESS_ISSUE_LIMIT);
+                                break;
+                            }
 
-                        if (githubIssueRepositoryFilter.isEnableIssueNumber()) {
-                            writer.triple(RdfPlatformTicketUtils.createNumberProperty(issueUri, issueNumber));
-                        }
+                            int issueNumber = ghIssue.getNumber();
+                            String issueUri;
+                            if (ghIssue.isPullRequest()) {
+                                issueUri = GithubUriUtils.getPullRequestUri(owner, repositoryName, String.valueOf(issueNumber));
+                            } else {
+                                issueUri = GithubUriUtils.getIssueUri(owner, repositoryName, String.valueOf(issueNumber));
+                            }
 
-                        // Add GitHub issue ID (internal ID)
-                        if (githubIssueRepositoryFilter.isEnableIssueNumber()) {
-                            writer.triple(RdfGithubIssueUtils.createIssueIdProperty(issueUri, ghIssue.getId()));
-                        }
+                            if (issueUri == null || issueUri.isEmpty()) {
+                                log.warn(
+                                        "Issue with number {} fallback to githubRepositoryURI because its issueUri is null or empty",
+                                        issueNumber);
+                                issueUri = GithubUriUtils.getRepositoryUri(owner, repositoryName);
+                            }
 
+                            if (githubIssueRepositoryFilter.isEnableIssueState() && ghIssue.getState() == null) {
+                                continue;
+                            }
 
-                        if (ghIssue.getNodeId() != null) {
-                            writer.triple(RdfGithubIssueUtils.createIssueNodeIdProperty(issueUri, ghIssue.getNodeId()));
-                        }
+                            // // ********************** ** REMOVE ON DEPLOYMENT ** **********************
+                            // // ZonedDateTime oneYearAgo = ZonedDateTime.now().minusYears(1);
+                            // // // REMOVE ON DEPLOYMENT
+                            // // Date dcreatedAt = ghIssue.getCreatedAt();
+                            // // if (dcreatedAt == null || dcreatedAt.toInstant().isBefore(oneYearAgo.toInstant())) {
+                            // //     continue;
+                            // // }
+
+                            // if (PROCESS_ISSUE_ONLY.length > 0) {
+                            //     boolean shouldProcessIssue = false;
+                            //     for (String issueId : PROCESS_ISSUE_ONLY) {
+                            //         if (issueId.equals(String.valueOf(issueNumber))) {
+                            //             shouldProcessIssue = true;
+                            //             break;
+                            //         }
+                            //     }
+                            //     if (!shouldProcessIssue) {
+                            //         continue; // Skip this issue
+                            //     }
+                            // }
+                            // // ********************** ** **************** ** **********************
+
+                            // Create correct RDF type based on whether this is an issue or pull request
+                            if (ghIssue.isPullRequest()) {
+                                writer.triple(RdfGithubPullRequestUtils.createRdfTypeProperty(issueUri));
+                            } else {
+                                writer.triple(RdfGithubIssueUtils.createRdfTypeProperty(issueUri));
+                            }
+
+                            if (githubIssueRepositoryFilter.isEnableIssueNumber()) {
+                                writer.triple(RdfPlatformTicketUtils.createNumberProperty(issueUri, issueNumber));
+                            }
+
+                            // Add GitHub issue ID (internal ID)
+                            if (githubIssueRepositoryFilter.isEnableIssueNumber()) {
+                                writer.triple(RdfGithubIssueUtils.createIssueIdProperty(issueUri, ghIssue.getId()));
+                            }
+
+
+                            if (ghIssue.getNodeId() != null) {
+                                writer.triple(RdfGithubIssueUtils.createIssueNodeIdProperty(issueUri, ghIssue.getNodeId()));
+                            }
                         
-                        writer.triple(RdfPlatformTicketUtils.createLockedProperty(issueUri, ghIssue.isLocked()));
+                            writer.triple(RdfPlatformTicketUtils.createLockedProperty(issueUri, ghIssue.isLocked()));
 
-                        if (githubIssueRepositoryFilter.isEnableIssueTitle() && ghIssue.getTitle() != null) {
-                            writer.triple(RdfPlatformTicketUtils.createTitleProperty(issueUri, ghIssue.getTitle()));
-                        }
+                            if (githubIssueRepositoryFilter.isEnableIssueTitle() && ghIssue.getTitle() != null) {
+                                writer.triple(RdfPlatformTicketUtils.createTitleProperty(issueUri, ghIssue.getTitle()));
+                            }
 
-                        if (githubIssueRepositoryFilter.isEnableIssueBody() && ghIssue.getBody() != null) {
-                            writer.triple(RdfPlatformTicketUtils.createBodyProperty(issueUri, ghIssue.getBody()));
-                        }
+                            if (githubIssueRepositoryFilter.isEnableIssueBody() && ghIssue.getBody() != null) {
+                                writer.triple(RdfPlatformTicketUtils.createBodyProperty(issueUri, ghIssue.getBody()));
+                            }
 
-                        if (githubIssueRepositoryFilter.isEnableIssueState() && ghIssue.getState() != null) {
-                            writer.triple(RdfPlatformTicketUtils.createStateProperty(
-                                    issueUri, ghIssue.getState().toString()));
-                        }
+                            if (githubIssueRepositoryFilter.isEnableIssueState() && ghIssue.getState() != null) {
+                                writer.triple(RdfPlatformTicketUtils.createStateProperty(
+                                        issueUri, ghIssue.getState().toString()));
+                            }
 
-                        if (githubIssueRepositoryFilter.isEnableIssueUser()) {
-                            if (ghIssue.getUser() != null && ghIssue.getUser().getLogin() != null) {
-                                // Validate and ensure GitHub user exists in RDF
-                                String githubIssueUserUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, ghIssue.getUser());
-                                if (githubIssueUserUri != null) {
-                                    writer.triple(
-                                            RdfPlatformTicketUtils.createSubmitterProperty(issueUri, githubIssueUserUri));
-                                } else {
-                                    log.warn("User validation failed for issue submitter '{}' in issue #{}, creating fallback", 
-                                            ghIssue.getUser().getLogin(), issueNumber);
-                                    try {
-                                        String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, ghIssue.getUser().getLogin());
-                                        if (fallbackUserUri != null) {
-                                            writer.triple(RdfPlatformTicketUtils.createSubmitterProperty(issueUri, fallbackUserUri));
+                            if (githubIssueRepositoryFilter.isEnableIssueUser()) {
+                                if (ghIssue.getUser() != null && ghIssue.getUser().getLogin() != null) {
+                                    // Validate and ensure GitHub user exists in RDF
+                                    String githubIssueUserUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, ghIssue.getUser());
+                                    if (githubIssueUserUri != null) {
+                                        writer.triple(
+                                                RdfPlatformTicketUtils.createSubmitterProperty(issueUri, githubIssueUserUri));
+                                    } else {
+                                        log.warn("User validation failed for issue submitter '{}' in issue #{}, creating fallback", 
+                                                ghIssue.getUser().getLogin(), issueNumber);
+                                        try {
+                                            String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, ghIssue.getUser().getLogin());
+                                            if (fallbackUserUri != null) {
+                                                writer.triple(RdfPlatformTicketUtils.createSubmitterProperty(issueUri, fallbackUserUri));
+                                            }
+                                        } catch (Exception e) {
+                                            log.warn("Fallback user creation failed for issue submitter: {}", e.getMessage());
                                         }
-                                    } catch (Exception e) {
-                                        log.warn("Fallback user creation failed for issue submitter: {}", e.getMessage());
                                     }
-                                }
-                            } else {
-                                // Try to handle cases where user or login is null, including deleted users
-                                if (ghIssue.getUser() == null) {
-                                    log.warn("Cannot create submitter for issue #{}: GitHub user object is null (possibly deleted account)", issueNumber);
-                                } else if (ghIssue.getUser().getLogin() == null) {
-                                    log.warn("Cannot create submitter for issue #{}: GitHub user login is null (user ID: {})", 
-                                            issueNumber, ghIssue.getUser().getId());
-                                    // Attempt to create a fallback submitter if we have user ID but no login
-                                    try {
-                                        String fallbackLogin = "user-" + ghIssue.getUser().getId();
-                                        String githubIssueUserUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, fallbackLogin);
-                                        if (githubIssueUserUri != null) {
-                                            writer.triple(RdfPlatformTicketUtils.createSubmitterProperty(issueUri, githubIssueUserUri));
-                                            log.info("Created fallback submitter for issue #{} using ID-based login: {}", issueNumber, fallbackLogin);
+                                } else {
+                                    // Try to handle cases where user or login is null, including deleted users
+                                    if (ghIssue.getUser() == null) {
+                                        log.warn("Cannot create submitter for issue #{}: GitHub user object is null (possibly deleted account)", issueNumber);
+                                    } else if (ghIssue.getUser().getLogin() == null) {
+                                        log.warn("Cannot create submitter for issue #{}: GitHub user login is null (user ID: {})", 
+                                                issueNumber, ghIssue.getUser().getId());
+                                        // Attempt to create a fallback submitter if we have user ID but no login
+                                        try {
+                                            String fallbackLogin = "user-" + ghIssue.getUser().getId();
+                                            String githubIssueUserUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, fallbackLogin);
+                                            if (githubIssueUserUri != null) {
+                                                writer.triple(RdfPlatformTicketUtils.createSubmitterProperty(issueUri, githubIssueUserUri));
+                                                log.info("Created fallback submitter for issue #{} using ID-based login: {}", issueNumber, fallbackLogin);
+                                            }
+                                        } catch (Exception e) {
+                                            log.warn("Failed to create fallback submitter for issue #{}: {}", issueNumber, e.getMessage());
                                         }
-                                    } catch (Exception e) {
-                                        log.warn("Failed to create fallback submitter for issue #{}: {}", issueNumber, e.getMessage());
                                     }
                                 }
+                            } else {
+                                log.debug("Submitter creation skipped for issue #{}: issue user processing is disabled", issueNumber);
                             }
-                        } else {
-                            log.debug("Submitter creation skipped for issue #{}: issue user processing is disabled", issueNumber);
-                        }
 
-                        if (githubIssueRepositoryFilter.isEnableIssueReviewers() && ghIssue.isPullRequest()) {
-                            try {
-                                GHPullRequest pr = getPullRequestCached(
-                                        ghIssue.getRepository(), issueNumber);
-                                if (pr != null) {
-                                    List<GHUser> reviewers = pr.getRequestedReviewers();
-                                    if (reviewers != null && !reviewers.isEmpty()) {
-                                        for (GHUser reviewer : reviewers) {
-                                            if (reviewer != null && reviewer.getLogin() != null) {
-                                                try {
-                                                    // Validate and ensure GitHub user exists in RDF
-                                                    String reviewerUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, reviewer);
-                                                    if (reviewerUri != null) {
-                                                        writer.triple(RdfGithubIssueUtils.createIssueRequestedReviewerProperty(issueUri,
-                                                                reviewerUri));
-                                                    } else {
-                                                        log.warn("User validation failed for requested reviewer '{}' in issue #{}, creating fallback", 
-                                                                reviewer.getLogin(), issueNumber);
-                                                        try {
-                                                            String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, reviewer.getLogin());
-                                                            if (fallbackUserUri != null) {
-                                                                writer.triple(RdfGithubIssueUtils.createIssueRequestedReviewerProperty(issueUri, fallbackUserUri));
+                            if (githubIssueRepositoryFilter.isEnableIssueReviewers() && ghIssue.isPullRequest()) {
+                                try {
+                                    GHPullRequest pr = getPullRequestCached(
+                                            ghIssue.getRepository(), issueNumber);
+                                    if (pr != null) {
+                                        List<GHUser> reviewers = pr.getRequestedReviewers();
+                                        if (reviewers != null && !reviewers.isEmpty()) {
+                                            for (GHUser reviewer : reviewers) {
+                                                if (reviewer != null && reviewer.getLogin() != null) {
+                                                    try {
+                                                        // Validate and ensure GitHub user exists in RDF
+                                                        String reviewerUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, reviewer);
+                                                        if (reviewerUri != null) {
+                                                            writer.triple(RdfGithubIssueUtils.createIssueRequestedReviewerProperty(issueUri,
+                                                                    reviewerUri));
+                                                        } else {
+                                                            log.warn("User validation failed for requested reviewer '{}' in issue #{}, creating fallback", 
+                                                                    reviewer.getLogin(), issueNumber);
+                                                            try {
+                                                                String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, reviewer.getLogin());
+                                                                if (fallbackUserUri != null) {
+                                                                    writer.triple(RdfGithubIssueUtils.createIssueRequestedReviewerProperty(issueUri, fallbackUserUri));
+                                                                }
+                                                            } catch (Exception e) {
+                                                                log.warn("Fallback user creation failed for requested reviewer: {}", e.getMessage());
                                                             }
-                                                        } catch (Exception e) {
-                                                            log.warn("Fallback user creation failed for requested reviewer: {}", e.getMessage());
                                                         }
+                                                    } catch (Exception e) {
+                                                        log.warn("Error processing requested reviewer {} for issue {}: {}", 
+                                                                reviewer.getLogin(), issueNumber, e.getMessage());
                                                     }
-                                                } catch (Exception e) {
-                                                    log.warn("Error processing requested reviewer {} for issue {}: {}", 
-                                                            reviewer.getLogin(), issueNumber, e.getMessage());
                                                 }
                                             }
                                         }
                                     }
+                                } catch (Exception e) {
+                                    log.warn("Error processing reviewers for issue {}: {}", issueNumber, e.getMessage());
                                 }
-                            } catch (Exception e) {
-                                log.warn("Error processing reviewers for issue {}: {}", issueNumber, e.getMessage());
                             }
-                        }
 
-                        // Milestone - process issue/PR milestone with proper milestone entity
-                        if (githubIssueRepositoryFilter.isEnableIssueMilestone()) {
-                            try {
-                                GHMilestone milestone = ghIssue.getMilestone();
-                                if (milestone != null) {
-                                    String milestoneUri = GithubUriUtils.getMilestoneUri(owner, repositoryName, String.valueOf(milestone.getNumber()));
+                            // Milestone - process issue/PR milestone with proper milestone entity
+                            if (githubIssueRepositoryFilter.isEnableIssueMilestone()) {
+                                try {
+                                    GHMilestone milestone = ghIssue.getMilestone();
+                                    if (milestone != null) {
+                                        String milestoneUri = GithubUriUtils.getMilestoneUri(owner, repositoryName, String.valueOf(milestone.getNumber()));
                                     
-                                    // Create milestone entity
-                                    writer.triple(RdfPlatformMilestoneUtils.createRdfTypeProperty(milestoneUri));
-                                    writer.triple(RdfPlatformMilestoneUtils.createIdProperty(milestoneUri, String.valueOf(milestone.getId())));
+                                        // Create milestone entity
+                                        writer.triple(RdfPlatformMilestoneUtils.createRdfTypeProperty(milestoneUri));
+                                        writer.triple(RdfPlatformMilestoneUtils.createIdProperty(milestoneUri, String.valueOf(milestone.getId())));
                                     
-                                    if (milestone.getTitle() != null) {
-                                        writer.triple(RdfPlatformMilestoneUtils.createTitleProperty(milestoneUri, milestone.getTitle()));
-                                    }
+                                        if (milestone.getTitle() != null) {
+                                            writer.triple(RdfPlatformMilestoneUtils.createTitleProperty(milestoneUri, milestone.getTitle()));
+                                        }
                                     
-                                    if (milestone.getDescription() != null && !milestone.getDescription().isEmpty()) {
-                                        writer.triple(RdfPlatformMilestoneUtils.createDescriptionProperty(milestoneUri, milestone.getDescription()));
-                                    }
+                                        if (milestone.getDescription() != null && !milestone.getDescription().isEmpty()) {
+                                            writer.triple(RdfPlatformMilestoneUtils.createDescriptionProperty(milestoneUri, milestone.getDescription()));
+                                        }
                                     
-                                    if (milestone.getState() != null) {
-                                        writer.triple(RdfPlatformMilestoneUtils.createStateProperty(milestoneUri, milestone.getState().toString()));
-                                    }
+                                        if (milestone.getState() != null) {
+                                            writer.triple(RdfPlatformMilestoneUtils.createStateProperty(milestoneUri, milestone.getState().toString()));
+                                        }
                                     
-                                    if (milestone.getHtmlUrl() != null) {
-                                        writer.triple(RdfPlatformMilestoneUtils.createUrlProperty(milestoneUri, milestone.getHtmlUrl().toString()));
-                                    }
+                                        if (milestone.getHtmlUrl() != null) {
+                                            writer.triple(RdfPlatformMilestoneUtils.createUrlProperty(milestoneUri, milestone.getHtmlUrl().toString()));
+                                        }
                                     
-                                    if (milestone.getCreatedAt() != null) {
-                                        writer.triple(RdfPlatformMilestoneUtils.createCreatedAtProperty(milestoneUri, localDateTimeFrom(milestone.getCreatedAt())));
-                                    }
+                                        if (milestone.getCreatedAt() != null) {
+                                            writer.triple(RdfPlatformMilestoneUtils.createCreatedAtProperty(milestoneUri, localDateTimeFrom(milestone.getCreatedAt())));
+                                        }
                                     
-                                    if (milestone.getUpdatedAt() != null) {
-                                        writer.triple(RdfPlatformMilestoneUtils.createUpdatedAtProperty(milestoneUri, localDateTimeFrom(milestone.getUpdatedAt())));
-                                    }
+                                        if (milestone.getUpdatedAt() != null) {
+                                            writer.triple(RdfPlatformMilestoneUtils.createUpdatedAtProperty(milestoneUri, localDateTimeFrom(milestone.getUpdatedAt())));
+                                        }
                                     
-                                    if (milestone.getClosedAt() != null) {
-                                        writer.triple(RdfPlatformMilestoneUtils.createClosedAtProperty(milestoneUri, localDateTimeFrom(milestone.getClosedAt())));
-                                    }
+                                        if (milestone.getClosedAt() != null) {
+                                            writer.triple(RdfPlatformMilestoneUtils.createClosedAtProperty(milestoneUri, localDateTimeFrom(milestone.getClosedAt())));
+                                        }
                                     
-                                    if (milestone.getDueOn() != null) {
-                                        writer.triple(RdfPlatformMilestoneUtils.createDueDateProperty(milestoneUri, localDateTimeFrom(milestone.getDueOn())));
-                                    }
+                                        if (milestone.getDueOn() != null) {
+                                            writer.triple(RdfPlatformMilestoneUtils.createDueDateProperty(milestoneUri, localDateTimeFrom(milestone.getDueOn())));
+                                        }
                                     
-                                    // Link milestone to issue/PR
-                                    writer.triple(RdfPlatformMilestoneUtils.createHasMilestoneProperty(issueUri, milestoneUri));
-                                    writer.triple(RdfPlatformMilestoneUtils.createMilestoneOfProperty(milestoneUri, issueUri));
+                                        // Link milestone to issue/PR
+                                        writer.triple(RdfPlatformMilestoneUtils.createHasMilestoneProperty(issueUri, milestoneUri));
+                                        writer.triple(RdfPlatformMilestoneUtils.createMilestoneOfProperty(milestoneUri, issueUri));
+                                    }
+                                } catch (Exception e) {
+                                    log.warn("Error processing milestone for issue {}: {}", issueNumber, e.getMessage());
                                 }
-                            } catch (Exception e) {
-                                log.warn("Error processing milestone for issue {}: {}", issueNumber, e.getMessage());
                             }
-                        }
 
-                        if (githubIssueRepositoryFilter.isEnableIssueCreatedAt() && ghIssue.getCreatedAt() != null) {
-                            try {
-                                LocalDateTime createdAt = localDateTimeFrom(ghIssue.getCreatedAt());
-                                writer.triple(RdfPlatformTicketUtils.createCreatedAtProperty(issueUri, createdAt));
-                            } catch (Exception e) {
-                                log.warn("Error processing created date for issue {}: {}", issueNumber, e.getMessage());
+                            if (githubIssueRepositoryFilter.isEnableIssueCreatedAt() && ghIssue.getCreatedAt() != null) {
+                                try {
+                                    LocalDateTime createdAt = localDateTimeFrom(ghIssue.getCreatedAt());
+                                    writer.triple(RdfPlatformTicketUtils.createCreatedAtProperty(issueUri, createdAt));
+                                } catch (Exception e) {
+                                    log.warn("Error processing created date for issue {}: {}", issueNumber, e.getMessage());
+                                }
                             }
-                        }
 
-                        if (githubIssueRepositoryFilter.isEnableIssueUpdatedAt()) {
-                            try {
-                                Date updatedAtUtilDate = ghIssue.getUpdatedAt();
-                                if (updatedAtUtilDate != null) {
-                                    LocalDateTime updatedAt = localDateTimeFrom(updatedAtUtilDate);
-                                    writer.triple(
-                                            RdfPlatformTicketUtils.createUpdatedAtProperty(issueUri, updatedAt));
+                            if (githubIssueRepositoryFilter.isEnableIssueUpdatedAt()) {
+                                try {
+                                    Date updatedAtUtilDate = ghIssue.getUpdatedAt();
+                                    if (updatedAtUtilDate != null) {
+                                        LocalDateTime updatedAt = localDateTimeFrom(updatedAtUtilDate);
+                                        writer.triple(
+                                                RdfPlatformTicketUtils.createUpdatedAtProperty(issueUri, updatedAt));
+                                    }
+                                } catch (Exception e) {
+                                    log.warn("Error processing updated date for issue {}: {}", issueNumber, e.getMessage());
                                 }
-                            } catch (Exception e) {
-                                log.warn("Error processing updated date for issue {}: {}", issueNumber, e.getMessage());
                             }
-                        }
 
-                        if (githubIssueRepositoryFilter.isEnableIssueClosedAt()) {
-                            Date closedAtUtilDate = ghIssue.getClosedAt();
-                            if (closedAtUtilDate != null) {
-                                LocalDateTime closedAt = localDateTimeFrom(closedAtUtilDate);
-                                writer.triple(
-                                        RdfPlatformTicketUtils.createClosedAtProperty(issueUri, closedAt));
+                            if (githubIssueRepositoryFilter.isEnableIssueClosedAt()) {
+                                Date closedAtUtilDate = ghIssue.getClosedAt();
+                                if (closedAtUtilDate != null) {
+                                    LocalDateTime closedAt = localDateTimeFrom(closedAtUtilDate);
+                                    writer.triple(
+                                            RdfPlatformTicketUtils.createClosedAtProperty(issueUri, closedAt));
+                                }
                             }
-                        }
-                        // SHIT
-                        if (githubIssueRepositoryFilter.isEnableIssueMergedBy()) {
-                            if (ghIssue.isPullRequest()) {
-                                GHPullRequest pullRequest = getPullRequestCached(
-                                        githubRepositoryHandle, issueNumber);
-                                writeMergeInfo(ghIssue, pullRequest, writer, issueUri, gitHubHandle);
-                                writeWorkflowRunInfo(pullRequest, writer, issueUri, repositoryUri);
+                            // SHIT
+                            if (githubIssueRepositoryFilter.isEnableIssueMergedBy()) {
+                                if (ghIssue.isPullRequest()) {
+                                    GHPullRequest pullRequest = getPullRequestCached(
+                                            githubRepositoryHandle, issueNumber);
+                                    writeMergeInfo(ghIssue, pullRequest, writer, issueUri, gitHubHandle);
+                                    writeWorkflowRunInfo(pullRequest, writer, issueUri, repositoryUri);
+                                }
                             }
-                        }
 
-                        // GitHub issues can have multiple assignees
-                        if (githubIssueRepositoryFilter.isEnableIssueAssignees()) {
-                            List<GHUser> assignees = ghIssue.getAssignees();
-                            for (GHUser assignee : assignees) {
-                                if (assignee != null && assignee.getLogin() != null) {
-                                    // Validate and ensure GitHub user exists in RDF
-                                    String assigneeUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, assignee);
-                                    if (assigneeUri != null) {
-                                        writer.triple(RdfPlatformTicketUtils.createAssigneeProperty(issueUri, assigneeUri));
-                                    } else {
-                                        log.warn("User validation failed for assignee '{}' in issue #{}, creating fallback", 
-                                                assignee.getLogin(), issueNumber);
-                                        try {
-                                            String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, assignee.getLogin());
-                                            if (fallbackUserUri != null) {
-                                                writer.triple(RdfPlatformTicketUtils.createAssigneeProperty(issueUri, fallbackUserUri));
+                            // GitHub issues can have multiple assignees
+                            if (githubIssueRepositoryFilter.isEnableIssueAssignees()) {
+                                List<GHUser> assignees = ghIssue.getAssignees();
+                                for (GHUser assignee : assignees) {
+                                    if (assignee != null && assignee.getLogin() != null) {
+                                        // Validate and ensure GitHub user exists in RDF
+                                        String assigneeUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, assignee);
+                                        if (assigneeUri != null) {
+                                            writer.triple(RdfPlatformTicketUtils.createAssigneeProperty(issueUri, assigneeUri));
+                                        } else {
+                                            log.warn("User validation failed for assignee '{}' in issue #{}, creating fallback", 
+                                                    assignee.getLogin(), issueNumber);
+                                            try {
+                                                String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, assignee.getLogin());
+                                                if (fallbackUserUri != null) {
+                                                    writer.triple(RdfPlatformTicketUtils.createAssigneeProperty(issueUri, fallbackUserUri));
+                                                }
+                                            } catch (Exception e) {
+                                                log.warn("Fallback user creation failed for assignee: {}", e.getMessage());
                                             }
-                                        } catch (Exception e) {
-                                            log.warn("Fallback user creation failed for assignee: {}", e.getMessage());
                                         }
                                     }
                                 }
                             }
-                        }
 
-                        // Labels - process issue/PR labels
-                        if (githubIssueRepositoryFilter.isEnableIssueLabels()) {
-                            try {
-                                Collection<org.kohsuke.github.GHLabel> labels = ghIssue.getLabels();
-                                if (labels != null && !labels.isEmpty()) {
-                                    for (org.kohsuke.github.GHLabel label : labels) {
-                                        if (label != null && label.getName() != null) {
-                                            String labelUri = GithubUriUtils.getLabelUri(owner, repositoryName, label.getName());
+                            // Labels - process issue/PR labels
+                            if (githubIssueRepositoryFilter.isEnableIssueLabels()) {
+                                try {
+                                    Collection<org.kohsuke.github.GHLabel> labels = ghIssue.getLabels();
+                                    if (labels != null && !labels.isEmpty()) {
+                                        for (org.kohsuke.github.GHLabel label : labels) {
+                                            if (label != null && label.getName() != null) {
+                                                String labelUri = GithubUriUtils.getLabelUri(owner, repositoryName, label.getName());
                                             
-                                            // Create label entity
-                                            writer.triple(RdfPlatformLabelUtils.createRdfTypeProperty(labelUri));
-                                            writer.triple(RdfPlatformLabelUtils.createNameProperty(labelUri, label.getName()));
+                                                // Create label entity
+                                                writer.triple(RdfPlatformLabelUtils.createRdfTypeProperty(labelUri));
+                                                writer.triple(RdfPlatformLabelUtils.createNameProperty(labelUri, label.getName()));
                                             
-                                            if (label.getDescription() != null && !label.getDescription().isEmpty()) {
-                                                writer.triple(RdfPlatformLabelUtils.createDescriptionProperty(labelUri, label.getDescription()));
-                                            }
+                                                if (label.getDescription() != null && !label.getDescription().isEmpty()) {
+                                                    writer.triple(RdfPlatformLabelUtils.createDescriptionProperty(labelUri, label.getDescription()));
+                                                }
                                             
-                                            if (label.getColor() != null) {
-                                                writer.triple(RdfPlatformLabelUtils.createColorProperty(labelUri, label.getColor()));
-                                            }
+                                                if (label.getColor() != null) {
+                                                    writer.triple(RdfPlatformLabelUtils.createColorProperty(labelUri, label.getColor()));
+                                                }
                                             
-                                            if (label.getUrl() != null) {
-                                                writer.triple(RdfPlatformLabelUtils.createUrlProperty(labelUri, label.getUrl().toString()));
-                                            }
+                                                if (label.getUrl() != null) {
+                                                    writer.triple(RdfPlatformLabelUtils.createUrlProperty(labelUri, label.getUrl().toString()));
+                                                }
                                             
-                                            // Link label to issue/PR
-                                            writer.triple(RdfPlatformLabelUtils.createHasLabelProperty(issueUri, labelUri));
-                                            writer.triple(RdfPlatformLabelUtils.createLabelOfProperty(labelUri, issueUri));
+                                                // Link label to issue/PR
+                                                writer.triple(RdfPlatformLabelUtils.createHasLabelProperty(issueUri, labelUri));
+                                                writer.triple(RdfPlatformLabelUtils.createLabelOfProperty(labelUri, issueUri));
+                                            }
                                         }
                                     }
+                                } catch (Exception e) {
+                                    log.warn("Error processing labels for issue {}: {}", issueNumber, e.getMessage());
                                 }
-                            } catch (Exception e) {
-                                log.warn("Error processing labels for issue {}: {}", issueNumber, e.getMessage());
-                            }
 
-                        }
+                            }
 
-                        // Reviews
-                        if (githubIssueRepositoryFilter.isEnableIssueReviewers() && ghIssue.isPullRequest()) {
-                            GHPullRequest pr = getPullRequestCached(
-                                    ghIssue.getRepository(), issueNumber);
-                            List<GHPullRequestReview> reviews = getReviewsCached(pr);
+                            // Reviews
+                            if (githubIssueRepositoryFilter.isEnableIssueReviewers() && ghIssue.isPullRequest()) {
+                                GHPullRequest pr = getPullRequestCached(
+                                        ghIssue.getRepository(), issueNumber);
+                                List<GHPullRequestReview> reviews = getReviewsCached(pr);
 
-                            for (GHPullRequestReview review : reviews) {
-                                long reviewId = review.getId();
-                                if (!seenReviewIds.add(reviewId)) {
-                                    continue;
-                                }
-                                String reviewURI;
-                                String reviewUrl;
-                                if (ghIssue.isPullRequest()) {
-                                    reviewURI = GithubUriUtils.getPullRequestReviewUri(issueUri, String.valueOf(reviewId));
-                                    reviewUrl = GithubUriUtils.getIssueReviewUrl("https://github.com/" + owner + "/" + repositoryName, String.valueOf(issueNumber), String.valueOf(reviewId));
-                                } else {
-                                    reviewURI = GithubUriUtils.getIssueReviewUri(issueUri, String.valueOf(reviewId));
-                                    reviewUrl = GithubUriUtils.getIssueReviewUrl("https://github.com/" + owner + "/" + repositoryName, String.valueOf(issueNumber), String.valueOf(reviewId));
-                                }
-                                // String reviewURL = review.getUrl().toString();
-                                // String reviewUri = issueUri + "/reviews/" + reviewId;
+                                for (GHPullRequestReview review : reviews) {
+                                    long reviewId = review.getId();
+                                    if (!seenReviewIds.add(reviewId)) {
+                                        continue;
+                                    }
+                                    String reviewURI;
+                                    String reviewUrl;
+                                    if (ghIssue.isPullRequest()) {
+                                        reviewURI = GithubUriUtils.getPullRequestReviewUri(issueUri, String.valueOf(reviewId));
+                                        reviewUrl = GithubUriUtils.getIssueReviewUrl("https://github.com/" + owner + "/" + repositoryName, String.valueOf(issueNumber), String.valueOf(reviewId));
+                                    } else {
+                                        reviewURI = GithubUriUtils.getIssueReviewUri(issueUri, String.valueOf(reviewId));
+                                        reviewUrl = GithubUriUtils.getIssueReviewUrl("https://github.com/" + owner + "/" + repositoryName, String.valueOf(issueNumber), String.valueOf(reviewId));
+                                    }
+                                    // String reviewURL = review.getUrl().toString();
+                                    // String reviewUri = issueUri + "/reviews/" + reviewId;
 
-                                // Static Properties
-                                writer.triple(RdfGithubIssueReviewUtils.createIssueReviewProperty(issueUri, reviewURI));
-                                writer.triple(RdfGithubIssueReviewUtils.createReviewApiUrlProperty(reviewURI, reviewUrl));
-                                writer.triple(RdfGithubIssueReviewUtils.createIssueReviewRdfTypeProperty(reviewURI));
-                                writer.triple(
-                                        RdfGithubIssueReviewUtils.createReviewIdentifierProperty(reviewURI, reviewId));
-                                writer.triple(RdfGithubIssueReviewUtils.createReviewOfProperty(reviewURI, issueUri));
+                                    // Static Properties
+                                    writer.triple(RdfGithubIssueReviewUtils.createIssueReviewProperty(issueUri, reviewURI));
+                                    writer.triple(RdfGithubIssueReviewUtils.createReviewApiUrlProperty(reviewURI, reviewUrl));
+                                    writer.triple(RdfGithubIssueReviewUtils.createIssueReviewRdfTypeProperty(reviewURI));
+                                    writer.triple(
+                                            RdfGithubIssueReviewUtils.createReviewIdentifierProperty(reviewURI, reviewId));
+                                    writer.triple(RdfGithubIssueReviewUtils.createReviewOfProperty(reviewURI, issueUri));
 
-                                // Dynamic Properties 
-                                if (review.getBody() != null && !review.getBody().isEmpty()) {
-                                    writer.triple(RdfGithubIssueReviewUtils.createReviewDescriptionProperty(
-                                            reviewURI, review.getBody()));
-                                }
-                                if (review.getState() != null) {
-                                    writer.triple(RdfGithubIssueReviewUtils.createReviewStateProperty(
-                                            reviewURI, review.getState().toString()));
-                                }
-                                if (review.getSubmittedAt() != null) {
-                                    writer.triple(RdfGithubIssueReviewUtils.createReviewSubmittedAtProperty(
-                                            reviewURI, localDateTimeFrom(review.getSubmittedAt())));
-                                }
-                                if (review.getUser() != null && review.getUser().getLogin() != null) {
-                                    // Validate and ensure GitHub user exists in RDF
-                                    String reviewUserUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, review.getUser());
-                                    if (reviewUserUri != null) {
-                                        writer.triple(RdfGithubIssueReviewUtils.createReviewUserProperty(
-                                                reviewURI, reviewUserUri));
-                                    } else {
-                                        log.warn("User validation failed for review user '{}' in review {}, creating fallback", 
-                                                review.getUser().getLogin(), review.getId());
-                                        try {
-                                            String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, review.getUser().getLogin());
-                                            if (fallbackUserUri != null) {
-                                                writer.triple(RdfGithubIssueReviewUtils.createReviewUserProperty(reviewURI, fallbackUserUri));
+                                    // Dynamic Properties 
+                                    if (review.getBody() != null && !review.getBody().isEmpty()) {
+                                        writer.triple(RdfGithubIssueReviewUtils.createReviewDescriptionProperty(
+                                                reviewURI, review.getBody()));
+                                    }
+                                    if (review.getState() != null) {
+                                        writer.triple(RdfGithubIssueReviewUtils.createReviewStateProperty(
+                                                reviewURI, review.getState().toString()));
+                                    }
+                                    if (review.getSubmittedAt() != null) {
+                                        writer.triple(RdfGithubIssueReviewUtils.createReviewSubmittedAtProperty(
+                                                reviewURI, localDateTimeFrom(review.getSubmittedAt())));
+                                    }
+                                    if (review.getUser() != null && review.getUser().getLogin() != null) {
+                                        // Validate and ensure GitHub user exists in RDF
+                                        String reviewUserUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, review.getUser());
+                                        if (reviewUserUri != null) {
+                                            writer.triple(RdfGithubIssueReviewUtils.createReviewUserProperty(
+                                                    reviewURI, reviewUserUri));
+                                        } else {
+                                            log.warn("User validation failed for review user '{}' in review {}, creating fallback", 
+                                                    review.getUser().getLogin(), review.getId());
+                                            try {
+                                                String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, review.getUser().getLogin());
+                                                if (fallbackUserUri != null) {
+                                                    writer.triple(RdfGithubIssueReviewUtils.createReviewUserProperty(reviewURI, fallbackUserUri));
+                                                }
+                                            } catch (Exception e) {
+                                                log.warn("Fallback user creation failed for review user: {}", e.getMessage());
                                             }
-                                        } catch (Exception e) {
-                                            log.warn("Fallback user creation failed for review user: {}", e.getMessage());
                                         }
+                                    } else {
+                                        log.warn("Cannot create review user for review {} in issue #{}: user is {} or login is {}", 
+                                                review.getId(), issueNumber,
+                                                review.getUser() == null ? "null" : "valid",
+                                                review.getUser() == null ? "null" : (review.getUser().getLogin() == null ? "null" : "valid"));
+                                    }
+                                    if (review.getCommitId() != null) {
+                                        writer.triple(RdfGithubIssueReviewUtils.createReviewCommitIdProperty(
+                                                reviewURI, review.getCommitId()));
                                     }
-                                } else {
-                                    log.warn("Cannot create review user for review {} in issue #{}: user is {} or login is {}", 
-                                            review.getId(), issueNumber,
-                                            review.getUser() == null ? "null" : "valid",
-                                            review.getUser() == null ? "null" : (review.getUser().getLogin() == null ? "null" : "valid"));
-                                }
-                                if (review.getCommitId() != null) {
-                                    writer.triple(RdfGithubIssueReviewUtils.createReviewCommitIdProperty(
-                                            reviewURI, review.getCommitId()));
-                                }
 
-                                // Review Comments
-                                List<GHPullRequestReviewComment> reviewComments = getReviewCommentsCached(review);
-                                int reviewCommentCount = reviewComments.size();
+                                    // Review Comments
+                                    List<GHPullRequestReviewComment> reviewComments = getReviewCommentsCached(review);
+                                    int reviewCommentCount = reviewComments.size();
 
-                                // If there are no review comments, skip further processing about comments for this review
-                                if (reviewCommentCount == 0) {
-                                    continue;
-                                }
+                                    // If there are no review comments, skip further processing about comments for this review
+                                    if (reviewCommentCount == 0) {
+                                        continue;
+                                    }
 
-                                // Create a mutable copy and sort comments by creation time to identify the earliest (first) comment
-                                reviewComments = new ArrayList<>(reviewComments);
-                                reviewComments.sort((c1, c2) -> {
-                                    try {
-                                        if (c1.getCreatedAt() == null && c2.getCreatedAt() == null) return 0;
-                                        if (c1.getCreatedAt() == null) return 1;
-                                        if (c2.getCreatedAt() == null) return -1;
-                                        return c1.getCreatedAt().compareTo(c2.getCreatedAt());
-                                    } catch (IOException e) {
-                                        log.warn("IOException while comparing comment creation times: {}", e.getMessage());
-                                        return 0; // treat as equal if comparison fails
+                                    // Create a mutable copy and sort comments by creation time to identify the earliest (first) comment
+                                    reviewComments = new ArrayList<>(reviewComments);
+                                    reviewComments.sort((c1, c2) -> {
+                                        try {
+                                            if (c1.getCreatedAt() == null && c2.getCreatedAt() == null) return 0;
+                                            if (c1.getCreatedAt() == null) return 1;
+                                            if (c2.getCreatedAt() == null) return -1;
+                                            return c1.getCreatedAt().compareTo(c2.getCreatedAt());
+                                        } catch (IOException e) {
+                                            log.warn("IOException while comparing comment creation times: {}", e.getMessage());
+                                            return 0; // treat as equal if comparison fails
+                                        }
+                                    });
+
+                                    String firstCommentURI = null;
+                                    if (!reviewComments.isEmpty()) {
+                                        long firstCommentId = reviewComments.get(0).getId();
+                                        firstCommentURI = GithubUriUtils.getIssueReviewCommentUri(
+                                                issueUri, String.valueOf(firstCommentId));
+                                        // Link review to first comment only using platform:hasComment
+                                        writer.triple(RdfGithubIssueReviewUtils.createReviewCommentProperty(
+                                                reviewURI, firstCommentURI));
                                     }
-                                });
-
-                                String firstCommentURI = null;
-                                if (!reviewComments.isEmpty()) {
-                                    long firstCommentId = reviewComments.get(0).getId();
-                                    firstCommentURI = GithubUriUtils.getIssueReviewCommentUri(
-                                            issueUri, String.valueOf(firstCommentId));
-                                    // Link review to first comment only using platform:hasComment
-                                    writer.triple(RdfGithubIssueReviewUtils.createReviewCommentProperty(
-                                            reviewURI, firstCommentURI));
-                                }
 
-                                // Process the comments of the review
-                                for (GHPullRequestReviewComment c : reviewComments) {
-                                    long cid = c.getId();
+                                    // Process the comments of the review
+                                    for (GHPullRequestReviewComment c : reviewComments) {
+                                        long cid = c.getId();
                                     
-                                    // Cache individual comment for potential parent lookups
-                                    individualReviewCommentsCache.put(cid, c);
+                                        // Cache individual comment for potential parent lookups
+                                        individualReviewCommentsCache.put(cid, c);
 
-                                    // Setup the URI for a review comment of a pull request
-                                    String reviewCommentURI = GithubUriUtils.getPullRequestReviewCommentUri(
-                                            issueUri, String.valueOf(cid));
+                                        // Setup the URI for a review comment of a pull request
+                                        String reviewCommentURI = GithubUriUtils.getPullRequestReviewCommentUri(
+                                                issueUri, String.valueOf(cid));
 
-                                    // Create the RDF triples for the review comment
-                                    writer.triple(RdfGithubCommentUtils.createCommentRdfType(reviewCommentURI));
-                                    writer.triple(RdfGithubCommentUtils.createCommentId(reviewCommentURI, cid));
+                                        // Create the RDF triples for the review comment
+                                        writer.triple(RdfGithubCommentUtils.createCommentRdfType(reviewCommentURI));
+                                        writer.triple(RdfGithubCommentUtils.createCommentId(reviewCommentURI, cid));
                                     
-                                    // Add comment API URL (review comments use pulls/comments API)
-                                    String repoString = "https://github.com/" + owner + "/" + repositoryName;
-                                    String commentApiUrl = GithubUriUtils.getIssueReviewCommentUrl(repoString, String.valueOf(cid));
-                                    writer.triple(RdfGithubCommentUtils.createCommentApiUrl(reviewCommentURI, commentApiUrl));
+                                        // Add comment API URL (review comments use pulls/comments API)
+                                        String repoString = "https://github.com/" + owner + "/" + repositoryName;
+                                        String commentApiUrl = GithubUriUtils.getIssueReviewCommentUrl(repoString, String.valueOf(cid));
+                                        writer.triple(RdfGithubCommentUtils.createCommentApiUrl(reviewCommentURI, commentApiUrl));
 
-                                    // Content and user
-                                    if (c.getBody() != null && !c.getBody().isEmpty()) {
-                                        writer.triple(
-                                                RdfGithubCommentUtils.createCommentBody(reviewCommentURI, c.getBody()));
-                                    }
-                                    if (c.getUser() != null && c.getUser().getLogin() != null) {
-                                        // Validate and ensure GitHub user exists in RDF
-                                        String commentUserUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, c.getUser());
-                                        if (commentUserUri != null) {
-                                            writer.triple(RdfGithubCommentUtils.createCommentUser(
-                                                    reviewCommentURI, commentUserUri));
-                                        } else {
-                                            log.warn("User validation failed for review comment author '{}', creating fallback", c.getUser().getLogin());
-                                            try {
-                                                String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, c.getUser().getLogin());
-                                                if (fallbackUserUri != null) {
-                                                    writer.triple(RdfGithubCommentUtils.createCommentUser(reviewCommentURI, fallbackUserUri));
+                                        // Content and user
+                                        if (c.getBody() != null && !c.getBody().isEmpty()) {
+                                            writer.triple(
+                                                    RdfGithubCommentUtils.createCommentBody(reviewCommentURI, c.getBody()));
+                                        }
+                                        if (c.getUser() != null && c.getUser().getLogin() != null) {
+                                            // Validate and ensure GitHub user exists in RDF
+                                            String commentUserUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, c.getUser());
+                                            if (commentUserUri != null) {
+                                                writer.triple(RdfGithubCommentUtils.createCommentUser(
+                                                        reviewCommentURI, commentUserUri));
+                                            } else {
+                                                log.warn("User validation failed for review comment author '{}', creating fallback", c.getUser().getLogin());
+                                                try {
+                                                    String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, c.getUser().getLogin());
+                                                    if (fallbackUserUri != null) {
+                                                        writer.triple(RdfGithubCommentUtils.createCommentUser(reviewCommentURI, fallbackUserUri));
+                                                    }
+                                                } catch (Exception e) {
+                                                    log.warn("Fallback user creation failed for review comment author: {}", e.getMessage());
                                                 }
-                                            } catch (Exception e) {
-                                                log.warn("Fallback user creation failed for review comment author: {}", e.getMessage());
                                             }
                                         }
-                                    }
-                                    if (c.getCreatedAt() != null) {
-                                        writer.triple(RdfGithubCommentUtils.createCommentCreatedAt(
-                                                reviewCommentURI, localDateTimeFrom(c.getCreatedAt())));
-                                    }
+                                        if (c.getCreatedAt() != null) {
+                                            writer.triple(RdfGithubCommentUtils.createCommentCreatedAt(
+                                                    reviewCommentURI, localDateTimeFrom(c.getCreatedAt())));
+                                        }
+
+                                        // NEW COMMENT CHAIN STRUCTURE
+                                        Long parentId = c.getInReplyToId();
+                                        boolean isFirstComment = reviewCommentURI.equals(firstCommentURI);
+                                        boolean isRoot = (parentId == null || parentId.equals(cid) || parentId <= 0);
 
-                                    // NEW COMMENT CHAIN STRUCTURE
-                                    Long parentId = c.getInReplyToId();
-                                    boolean isFirstComment = reviewCommentURI.equals(firstCommentURI);
-                                    boolean isRoot = (parentId == null || parentId.equals(cid) || parentId <= 0);
-
-                                    if (isFirstComment) {
-                                        // First comment comments on the review itself
-                                        writer.triple(RdfPlatformCommentUtils.createCommentOnProperty(
-                                                reviewCommentURI, reviewURI));
-                                    } else if (!isRoot && parentId != null && parentId > 0) {
-                                        // This is a reply, it comments on the parent comment
-                                        String parentCommentUri = GithubUriUtils.getPullRequestReviewCommentUri(
-                                                issueUri, String.valueOf(parentId));
-
-                                        // Validate and ensure parent comment exists before creating relationships
-                                        if (validateAndEnsureParentReviewComment(writer, githubRepositoryHandle, 
-                                                parentId, repositoryUri, issueUri, gitHubHandle)) {
+                                        if (isFirstComment) {
+                                            // First comment comments on the review itself
                                             writer.triple(RdfPlatformCommentUtils.createCommentOnProperty(
-                                                    reviewCommentURI, parentCommentUri));
+                                                    reviewCommentURI, reviewURI));
+                                        } else if (!isRoot && parentId != null && parentId > 0) {
+                                            // This is a reply, it comments on the parent comment
+                                            String parentCommentUri = GithubUriUtils.getPullRequestReviewCommentUri(
+                                                    issueUri, String.valueOf(parentId));
+
+                                            // Validate and ensure parent comment exists before creating relationships
+                                            if (validateAndEnsureParentReviewComment(writer, githubRepositoryHandle, 
+                                                    parentId, repositoryUri, issueUri, gitHubHandle)) {
+                                                writer.triple(RdfPlatformCommentUtils.createCommentOnProperty(
+                                                        reviewCommentURI, parentCommentUri));
                                             
-                                            // Create platform:hasComment link from parent to this comment
-                                            writer.triple(RdfGithubCommentUtils.createHasCommentProperty(
-                                                    parentCommentUri, reviewCommentURI));
+                                                // Create platform:hasComment link from parent to this comment
+                                                writer.triple(RdfGithubCommentUtils.createHasCommentProperty(
+                                                        parentCommentUri, reviewCommentURI));
+                                            }
+                                        } else {
+                                            // Root comment that's not the first - comments on the review
+                                            writer.triple(RdfPlatformCommentUtils.createCommentOnProperty(
+                                                    reviewCommentURI, reviewURI));
                                         }
-                                    } else {
-                                        // Root comment that's not the first - comments on the review
-                                        writer.triple(RdfPlatformCommentUtils.createCommentOnProperty(
-                                                reviewCommentURI, reviewURI));
-                                    }
 
-                                    // Reactions
-                                    if (PROCESS_COMMENT_REACTIONS) {
-                                        List<GHReaction> reactions = getReviewCommentReactionsCached(c);
-                                        for (GHReaction r : reactions) {
-                                            String reactionURI = GithubUriUtils.getIssueReviewCommentReactionUri(
-                                                    issueUri, String.valueOf(cid), String.valueOf(r.getId()));
-
-                                            writer.triple(RdfGithubCommentUtils.createCommentReaction(
-                                                    reviewCommentURI,
-                                                    reactionURI));
-                                            writer.triple(
-                                                    RdfGithubReactionUtils.createReactionRdfTypeProperty(reactionURI));
-                                            writer.triple(RdfGithubReactionUtils.createReactionIdProperty(reactionURI,
-                                                    r.getId()));
-                                            // Reaction relationship handled via hasReaction from comment
-
-                                            if (r.getContent() != null) {
-                                                writer.triple(RdfGithubReactionUtils.createReactionContentProperty(
-                                                        reactionURI, r.getContent().toString()));
-                                            }
-                                            if (r.getUser() != null && r.getUser().getLogin() != null) {
-                                                // Validate and ensure GitHub user exists in RDF
-                                                String reactionByUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, r.getUser());
-                                                if (reactionByUri != null) {
-                                                    writer.triple(
-                                                            RdfGithubReactionUtils.createReactionByProperty(reactionURI,
-                                                                    reactionByUri));
-                                                } else {
-                                                    log.warn("User validation failed for reaction user '{}', creating fallback", r.getUser().getLogin());
-                                                    try {
-                                                        String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, r.getUser().getLogin());
-                                                        if (fallbackUserUri != null) {
-                                                            writer.triple(RdfGithubReactionUtils.createReactionByProperty(reactionURI, fallbackUserUri));
+                                        // Reactions
+                                        if (PROCESS_COMMENT_REACTIONS) {
+                                            List<GHReaction> reactions = getReviewCommentReactionsCached(c);
+                                            for (GHReaction r : reactions) {
+                                                String reactionURI = GithubUriUtils.getIssueReviewCommentReactionUri(
+                                                        issueUri, String.valueOf(cid), String.valueOf(r.getId()));
+
+                                                writer.triple(RdfGithubCommentUtils.createCommentReaction(
+                                                        reviewCommentURI,
+                                                        reactionURI));
+                                                writer.triple(
+                                                        RdfGithubReactionUtils.createReactionRdfTypeProperty(reactionURI));
+                                                writer.triple(RdfGithubReactionUtils.createReactionIdProperty(reactionURI,
+                                                        r.getId()));
+                                                // Reaction relationship handled via hasReaction from comment
+
+                                                if (r.getContent() != null) {
+                                                    writer.triple(RdfGithubReactionUtils.createReactionContentProperty(
+                                                            reactionURI, r.getContent().toString()));
+                                                }
+                                                if (r.getUser() != null && r.getUser().getLogin() != null) {
+                                                    // Validate and ensure GitHub user exists in RDF
+                                                    String reactionByUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, r.getUser());
+                                                    if (reactionByUri != null) {
+                                                        writer.triple(
+                                                                RdfGithubReactionUtils.createReactionByProperty(reactionURI,
+                                                                        reactionByUri));
+                                                    } else {
+                                                        log.warn("User validation failed for reaction user '{}', creating fallback", r.getUser().getLogin());
+                                                        try {
+                                                            String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, r.getUser().getLogin());
+                                                            if (fallbackUserUri != null) {
+                                                                writer.triple(RdfGithubReactionUtils.createReactionByProperty(reactionURI, fallbackUserUri));
+                                                            }
+                                                        } catch (Exception e) {
+                                                            log.warn("Fallback user creation failed for reaction user: {}", e.getMessage());
                                                         }
-                                                    } catch (Exception e) {
-                                                        log.warn("Fallback user creation failed for reaction user: {}", e.getMessage());
                                                     }
                                                 }
-                                            }
-                                            if (r.getCreatedAt() != null) {
-                                                writer.triple(RdfGithubReactionUtils.createReactionCreatedAtProperty(
-                                                        reactionURI, localDateTimeFrom(r.getCreatedAt())));
+                                                if (r.getCreatedAt() != null) {
+                                                    writer.triple(RdfGithubReactionUtils.createReactionCreatedAtProperty(
+                                                            reactionURI, localDateTimeFrom(r.getCreatedAt())));
+                                                }
                                             }
                                         }
                                     }
                                 }
                             }
-                        }
 
-                        // Normal Issue Comments
-                        if (githubIssueRepositoryFilter.isEnableIssueComments()) {
-                            List<GHIssueComment> issueComments = getIssueCommentsCached(ghIssue);
-                            for (GHIssueComment c : issueComments) {
-                                long cid = c.getId();
-                                String issueCommentURI;
-                                String commentApiUrl;
-                                String repoString = "https://github.com/" + owner + "/" + repositoryName;
+                            // Normal Issue Comments
+                            if (githubIssueRepositoryFilter.isEnableIssueComments()) {
+                                List<GHIssueComment> issueComments = getIssueCommentsCached(ghIssue);
+                                for (GHIssueComment c : issueComments) {
+                                    long cid = c.getId();
+                                    String issueCommentURI;
+                                    String commentApiUrl;
+                                    String repoString = "https://github.com/" + owner + "/" + repositoryName;
                                 
-                                if (ghIssue.isPullRequest()) {
-                                    issueCommentURI = GithubUriUtils.getPullRequestCommentUri(issueUri, String.valueOf(cid));
-                                    commentApiUrl = GithubUriUtils.getPullRequestCommentUrl(repoString, String.valueOf(cid));
-                                } else {
-                                    issueCommentURI = GithubUriUtils.getIssueCommentUri(issueUri, String.valueOf(cid));
-                                    commentApiUrl = GithubUriUtils.getIssueCommentUrl(repoString, String.valueOf(cid));
-                                }
+                                    if (ghIssue.isPullRequest()) {
+                                        issueCommentURI = GithubUriUtils.getPullRequestCommentUri(issueUri, String.valueOf(cid));
+                                        commentApiUrl = GithubUriUtils.getPullRequestCommentUrl(repoString, String.valueOf(cid));
+                                    } else {
+                                        issueCommentURI = GithubUriUtils.getIssueCommentUri(issueUri, String.valueOf(cid));
+                                        commentApiUrl = GithubUriUtils.getIssueCommentUrl(repoString, String.valueOf(cid));
+                                    }
 
-                                // Link in Issue to Comment
-                                writer.triple(RdfGithubIssueReviewUtils.createReviewCommentProperty(issueUri,
-                                        issueCommentURI));
-                                writer.triple(RdfGithubCommentUtils.createCommentRdfType(issueCommentURI));
-                                writer.triple(RdfGithubCommentUtils.createCommentId(issueCommentURI, cid));
-                                writer.triple(RdfGithubCommentUtils.createHasCommentProperty(issueUri, issueCommentURI));
+                                    // Link in Issue to Comment
+                                    writer.triple(RdfGithubIssueReviewUtils.createReviewCommentProperty(issueUri,
+                                            issueCommentURI));
+                                    writer.triple(RdfGithubCommentUtils.createCommentRdfType(issueCommentURI));
+                                    writer.triple(RdfGithubCommentUtils.createCommentId(issueCommentURI, cid));
+                                    writer.triple(RdfGithubCommentUtils.createHasCommentProperty(issueUri, issueCommentURI));
                                 
-                                // Add platform:commentOn to link comment back to the issue
-                                writer.triple(RdfPlatformCommentUtils.createCommentOnProperty(issueCommentURI, issueUri));
+                                    // Add platform:commentOn to link comment back to the issue
+                                    writer.triple(RdfPlatformCommentUtils.createCommentOnProperty(issueCommentURI, issueUri));
                                 
-                                // Add comment API URL
-                                writer.triple(RdfGithubCommentUtils.createCommentApiUrl(issueCommentURI, commentApiUrl));
+                                    // Add comment API URL
+                                    writer.triple(RdfGithubCommentUtils.createCommentApiUrl(issueCommentURI, commentApiUrl));
 
-                                if (c.getBody() != null && !c.getBody().isEmpty()) {
-                                    writer.triple(RdfGithubCommentUtils.createCommentBody(
-                                            issueCommentURI, c.getBody()));
-                                }
-                                try {
-                                    if (c.getUser() != null && c.getUser().getLogin() != null) {
-                                        // Validate and ensure GitHub user exists in RDF
-                                        String commentUserUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, c.getUser());
-                                        if (commentUserUri != null) {
-                                            writer.triple(RdfGithubCommentUtils.createCommentUser(
-                                                    issueCommentURI,
-                                                    commentUserUri));
-                                        } else {
-                                            log.warn("User validation failed for comment author '{}', creating fallback", c.getUser().getLogin());
-                                            String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, c.getUser().getLogin());
+                                    if (c.getBody() != null && !c.getBody().isEmpty()) {
+                                        writer.triple(RdfGithubCommentUtils.createCommentBody(
+                                                issueCommentURI, c.getBody()));
+                                    }
+                                    try {
+                                        if (c.getUser() != null && c.getUser().getLogin() != null) {
+                                            // Validate and ensure GitHub user exists in RDF
+                                            String commentUserUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, c.getUser());
+                                            if (commentUserUri != null) {
+                                                writer.triple(RdfGithubCommentUtils.createCommentUser(
+                                                        issueCommentURI,
+                                                        commentUserUri));
+                                            } else {
+                                                log.warn("User validation failed for comment author '{}', creating fallback", c.getUser().getLogin());
+                                                String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, c.getUser().getLogin());
+                                                if (fallbackUserUri != null) {
+                                                    writer.triple(RdfGithubCommentUtils.createCommentUser(issueCommentURI, fallbackUserUri));
+                                                }
+                                            }
+                                        }
+                                    } catch (org.kohsuke.github.HttpException e) {
+                                        log.warn("GitHub API error (HTTP {}) fetching user for issue comment {}. Creating fallback user.", 
+                                                e.getResponseCode(), cid);
+                                        try {
+                                            String fallbackLogin = "unknown-user-comment-" + cid;
+                                            String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, fallbackLogin);
                                             if (fallbackUserUri != null) {
                                                 writer.triple(RdfGithubCommentUtils.createCommentUser(issueCommentURI, fallbackUserUri));
                                             }
+                                        } catch (Exception fallbackException) {
+                                            log.error("Failed to create fallback user for comment {}: {}", cid, fallbackException.getMessage());
                                         }
                                     }
-                                } catch (org.kohsuke.github.HttpException e) {
-                                    log.warn("GitHub API error (HTTP {}) fetching user for issue comment {}. Creating fallback user.", 
-                                            e.getResponseCode(), cid);
-                                    try {
-                                        String fallbackLogin = "unknown-user-comment-" + cid;
-                                        String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, fallbackLogin);
-                                        if (fallbackUserUri != null) {
-                                            writer.triple(RdfGithubCommentUtils.createCommentUser(issueCommentURI, fallbackUserUri));
-                                        }
-                                    } catch (Exception fallbackException) {
-                                        log.error("Failed to create fallback user for comment {}: {}", cid, fallbackException.getMessage());
+                                    if (c.getCreatedAt() != null) {
+                                        writer.triple(RdfGithubCommentUtils.createCommentCreatedAt(
+                                                issueCommentURI,
+                                                localDateTimeFrom(c.getCreatedAt())));
                                     }
-                                }
-                                if (c.getCreatedAt() != null) {
-                                    writer.triple(RdfGithubCommentUtils.createCommentCreatedAt(
-                                            issueCommentURI,
-                                            localDateTimeFrom(c.getCreatedAt())));
-                                }
 
-                                // Reactions
-                                List<GHReaction> reactions = getIssueCommentReactionsCached(c);
-                                for (GHReaction r : reactions) {
-
-                                    String reactionURI = GithubUriUtils.getIssueCommentReactionUri(issueUri,
-                                            String.valueOf(cid), String.valueOf(r.getId()));
-
-                                    writer.triple(RdfGithubCommentUtils.createCommentReaction(issueCommentURI,
-                                            reactionURI));
-                                    writer.triple(RdfGithubReactionUtils.createReactionRdfTypeProperty(reactionURI));
-                                    writer.triple(RdfGithubReactionUtils.createReactionIdProperty(
-                                            reactionURI, r.getId()));
-                                    // Reaction relationship handled via hasReaction from comment
-                                    if (r.getContent() != null) {
-                                        writer.triple(RdfGithubReactionUtils.createReactionContentProperty(
-                                                reactionURI, r.getContent().toString()));
-                                    }
-                                    if (r.getUser() != null && r.getUser().getLogin() != null) {
-                                        // Validate and ensure GitHub user exists in RDF
-                                        String reactionByUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, r.getUser());
-                                        if (reactionByUri != null) {
-                                            writer.triple(RdfGithubReactionUtils.createReactionByProperty(
-                                                    reactionURI, reactionByUri));
-                                        } else {
-                                            log.warn("User validation failed for reaction user '{}', creating fallback", r.getUser().getLogin());
-                                            try {
-                                                String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, r.getUser().getLogin());
-                                                if (fallbackUserUri != null) {
-                                                    writer.triple(RdfGithubReactionUtils.createReactionByProperty(reactionURI, fallbackUserUri));
+                                    // Reactions
+                                    List<GHReaction> reactions = getIssueCommentReactionsCached(c);
+                                    for (GHReaction r : reactions) {
+
+                                        String reactionURI = GithubUriUtils.getIssueCommentReactionUri(issueUri,
+                                                String.valueOf(cid), String.valueOf(r.getId()));
+
+                                        writer.triple(RdfGithubCommentUtils.createCommentReaction(issueCommentURI,
+                                                reactionURI));
+                                        writer.triple(RdfGithubReactionUtils.createReactionRdfTypeProperty(reactionURI));
+                                        writer.triple(RdfGithubReactionUtils.createReactionIdProperty(
+                                                reactionURI, r.getId()));
+                                        // Reaction relationship handled via hasReaction from comment
+                                        if (r.getContent() != null) {
+                                            writer.triple(RdfGithubReactionUtils.createReactionContentProperty(
+                                                    reactionURI, r.getContent().toString()));
+                                        }
+                                        if (r.getUser() != null && r.getUser().getLogin() != null) {
+                                            // Validate and ensure GitHub user exists in RDF
+                                            String reactionByUri = GithubUserValidator.validateAndEnsureUser(writer, gitHubHandle, r.getUser());
+                                            if (reactionByUri != null) {
+                                                writer.triple(RdfGithubReactionUtils.createReactionByProperty(
+                                                        reactionURI, reactionByUri));
+                                            } else {
+                                                log.warn("User validation failed for reaction user '{}', creating fallback", r.getUser().getLogin());
+                                                try {
+                                                    String fallbackUserUri = GithubUserValidator.createSafeUserEntity(writer, r.getUser().getLogin());
+                                                    if (fallbackUserUri != null) {
+                                                        writer.triple(RdfGithubReactionUtils.createReactionByProperty(reactionURI, fallbackUserUri));
+                                                    }
+                                                } catch (Exception e) {
+                                                    log.warn("Fallback user creation failed for reaction user: {}", e.getMessage());
                                                 }
-                                            } catch (Exception e) {
-                                                log.warn("Fallback user creation failed for reaction user: {}", e.getMessage());
                                             }
                                         }
-                                    }
-                                    if (r.getCreatedAt() != null) {
-                                        writer.triple(RdfGithubReactionUtils.createReactionCreatedAtProperty(
-                                                reactionURI, localDateTimeFrom(r.getCreatedAt())));
+                                        if (r.getCreatedAt() != null) {
+                                            writer.triple(RdfGithubReactionUtils.createReactionCreatedAtProperty(
+                                                    reactionURI, localDateTimeFrom(r.getCreatedAt())));
+                                        }
                                     }
                                 }
                             }
-                        }
 
-                        // Count the iteration of issues
-                        issueCounter++;
-                        // Count the outside of limit the number of issues to process
-                        issuesProcessed++;
-                        githubAccountRotationService.updateProcessedIssuesCount(issuesProcessed);
-
-                        if (issueCounter > 100) {
-                            log.info("Finish issue rdf conversion batch");
-                            writer.finish();
-                            doesWriterContainNonWrittenRdfStreamElements = false;
-                            issueCounter = 0;
-                            lockHandler.renewLockOnRenewTimeFulfillment();
+                            // Count the iteration of issues
+                            issueCounter++;
+                            // Count the outside of limit the number of issues to process
+                            issuesProcessed++;
+                            githubAccountRotationService.updateProcessedIssuesCount(issuesProcessed);
+
+                            if (issueCounter > 100) {
+                                log.info("Finish issue rdf conversion batch");
+                                writer.finish();
+                                doesWriterContainNonWrittenRdfStreamElements = false;
+                                issueCounter = 0;
+                                lockHandler.renewLockOnRenewTimeFulfillment();
                             
-                            // Restart writer for next batch if there are more issues to process
-                            if (issuesProcessed < PROCESS_ISSUE_LIMIT) {
-                                log.info("Start next issue rdf conversion batch");
-                                writer.start();
-                                doesWriterContainNonWrittenRdfStreamElements = true;
+                                // Restart writer for next batch if there are more issues to process
+                                if (issuesProcessed < PROCESS_ISSUE_LIMIT) {
+                                    log.info("Start next issue rdf conversion batch");
+                                    writer.start();
+                                    doesWriterContainNonWrittenRdfStreamElements = true;
+                                }
+                            } else {
+                                log.info("Processed issue #{} with id {} and uri '{}'", issueCounter, issueUri);
                             }
-                        } else {
-                            log.info("Processed issue #{} with id {} and uri '{}'", issueCounter, issueUri);
                         }
                     }
 
@@ -1651,17 +1859,28 @@ public class GithubRdfConversionTransactionService {
             issueWatch.stop();
             lockHandler.renewLockOnRenewTimeFulfillment();
 
+            githubHandlerService.awaitRequestsLeft();
+
+            githubHttpCache.logStatistics();
+
             timeLog.setGithubIssueConversionTime(issueWatch.getTime());
 
             log.info("Finished overall processing. Start to load rdf file into postgres blob storage");
-            
-            // Write the final collected model to the output stream using RDFDataMgr
-            RDFDataMgr.write(outputStream, model, RDFFormat.TURTLE);
-            
-        } // Close the outputStream try-with-resources block
-        
+
+        } // Closing the sink writes the collected model (or finishes the stream) before the outputStream is closed
+
         // Tidy up the Turtle RDF
-        RdfTurtleTidier.tidyFile(rdfTempFile);
+        StopWatch tidyWatch = new StopWatch();
+
+        tidyWatch.start();
+
+        RdfTurtleTidier.tidyFile(
+                rdfTempFile, rdfOutputConfig.getTidyInMemoryMaxBytes(), rdfOutputConfig.getTidySortRunSize());
+
+        tidyWatch.stop();
+
+        timeLog.setTidyTime(tidyWatch.getTime());
+        timeLog.finishMemoryMeasurement();
 
         BufferedInputStream bufferedInputStream = new BufferedInputStream(new FileInputStream(rdfTempFile));
 
@@ -1818,7 +2037,8 @@ public class GithubRdfConversionTransactionService {
             StreamRDF writer,
             String commitUri,
             String gitHash,
-            GHRepository githubRepositoryHandle,
+            CommitIdentityResolverChain commitIdentityResolverChain,
+            GithubCommitAuthorIndex commitAuthorIndex,
             GitHub gitHubHandle) {
 
         if (authorIdent == null) {
@@ -1831,7 +2051,25 @@ public class GithubRdfConversionTransactionService {
         log.info("Set rdf github user in commit");
 
 
-        GithubUserInfo info = RdfGitCommitUserUtils.getGitHubUserInfoFromCommit(githubRepositoryHandle, gitHash);
+        GithubUserInfo info = commitIdentityResolverChain.resolve(email, authorIdent.getName());
+
+        // Only authors that can't be resolved locally or from the identity cache reach the GitHub API
+        if (info == null && commitAuthorIndex != null) {
+            CachedEmailIdentity cachedIdentity = githubIdentityCache.findEmail(email);
+            if (cachedIdentity != null) {
+                info = cachedIdentity.toUserInfo(email);
+                commitIdentityResolverChain.getLearnedIdentityResolver().learnEmail(email, info);
+            } else {
+                // Only an author that was looked up successfully is cached, an error isn't a missing GitHub account
+                try {
+                    info = commitAuthorIndex.resolve(gitHash, email);
+                    githubIdentityCache.storeEmail(email, info);
+                    commitIdentityResolverChain.getLearnedIdentityResolver().learnEmail(email, info);
+                } catch (IOException ex) {
+                    log.info("Could not retrieve github-user from commit hash '{}'", gitHash, ex);
+                }
+            }
+        }
 
 
         if (!uniqueGitCommiterWithHash.containsKey(email)) {
@@ -1972,6 +2210,8 @@ public class GithubRdfConversionTransactionService {
             RevCommit commit,
             ObjectReader currentRepositoryObjectReader,
             DiffFormatter currentRepositoryDiffFormatter,
+            RawTextCache rawTextCache,
+            FileClassifier fileClassifier,
             StreamRDF writer,
             String commitUri) throws IOException {
 
@@ -2031,8 +2271,6 @@ public class GithubRdfConversionTransactionService {
 
                     writer.triple(RdfCommitUtils.createCommitDiffEntryChangeTypeProperty(diffEntryNode, changeType));
 
-                    FileHeader fileHeader = currentRepositoryDiffFormatter.toFileHeader(diffEntry);
-
                     if (log.isDebugEnabled())
                         log.debug("Switch through diff entry change type");
 
@@ -2042,23 +2280,23 @@ public class GithubRdfConversionTransactionService {
                             if (log.isDebugEnabled())
                                 log.debug("Set RDF ADD commit diff entry new file name property");
                             writer.triple(
-                                    RdfCommitUtils.createCommitDiffEntryNewFileNameProperty(diffEntryNode, fileHeader));
+                                    RdfCommitUtils.createCommitDiffEntryNewFileNameProperty(diffEntryNode, diffEntry));
                             break;
                         case COPY:
                         case RENAME:
                             if (log.isDebugEnabled())
                                 log.debug("Set RDF COPY/RENAME commit diff entry new file name property");
                             writer.triple(
-                                    RdfCommitUtils.createCommitDiffEntryOldFileNameProperty(diffEntryNode, fileHeader));
+                                    RdfCommitUtils.createCommitDiffEntryOldFileNameProperty(diffEntryNode, diffEntry));
                             writer.triple(
-                                    RdfCommitUtils.createCommitDiffEntryNewFileNameProperty(diffEntryNode, fileHeader));
+                                    RdfCommitUtils.createCommitDiffEntryNewFileNameProperty(diffEntryNode, diffEntry));
                             break;
                         case DELETE:
                         case MODIFY:
                             if (log.isDebugEnabled())
                                 log.debug("Set RDF DELETE/MODIFY commit diff entry new file name property");
                             writer.triple(
-                                    RdfCommitUtils.createCommitDiffEntryOldFileNameProperty(diffEntryNode, fileHeader));
+                                    RdfCommitUtils.createCommitDiffEntryOldFileNameProperty(diffEntryNode, diffEntry));
                             break;
                         default:
                             throw new IllegalStateException("Unexpected changeType: " + changeType);
@@ -2066,10 +2304,49 @@ public class GithubRdfConversionTransactionService {
 
                     // Diff Lines (added/changed/removed)
 
+                    CommitDiffLevel diffLevel = commitDiffConfig.getLevel();
+
+                    if (diffLevel == CommitDiffLevel.NAME_STATUS || !DiffContentCalculator.hasBlobContent(diffEntry)) {
+                        continue;
+                    }
+
+                    String pathSkipReason = fileClassifier.getPathSkipReason(
+                            diffEntry.getChangeType() == DiffEntry.ChangeType.DELETE
+                                    ? diffEntry.getOldPath()
+                                    : diffEntry.getNewPath());
+
+                    if (pathSkipReason != null) {
+                        writer.triple(RdfCommitUtils.createCommitDiffEntryContentSkippedProperty(
+                                diffEntryNode, pathSkipReason));
+                        continue;
+                    }
+
+                    if (DiffContentCalculator.exceedsSizeThreshold(
+                            currentRepositoryObjectReader, diffEntry, commitDiffConfig.getMaxBlobBytes())) {
+                        writer.triple(RdfCommitUtils.createCommitDiffEntryContentSkippedProperty(
+                                diffEntryNode, DiffContentCalculator.SKIPPED_SIZE));
+                        continue;
+                    }
+
                     if (log.isDebugEnabled())
-                        log.debug("Retrieve file header edit list");
+                        log.debug("Retrieve edit list from cached blob content");
 
-                    EditList editList = fileHeader.toEditList();
+                    EditList editList = DiffContentCalculator.calculateEditList(
+                            rawTextCache, currentRepositoryObjectReader, diffEntry);
+
+                    if (editList == null) {
+                        writer.triple(RdfCommitUtils.createCommitDiffEntryContentSkippedProperty(
+                                diffEntryNode, DiffContentCalculator.SKIPPED_BINARY));
+                        continue;
+                    }
+
+                    if (diffLevel == CommitDiffLevel.NUMSTAT) {
+                        writer.triple(RdfCommitUtils.createCommitDiffEntryLinesAddedProperty(
+                                diffEntryNode, DiffContentCalculator.countAddedLines(editList)));
+                        writer.triple(RdfCommitUtils.createCommitDiffEntryLinesDeletedProperty(
+                                diffEntryNode, DiffContentCalculator.countDeletedLines(editList)));
+                        continue;
+                    }
 
                     if (log.isDebugEnabled())
                         log.debug("Loop trough edit list. There are '{}' edit list entries", editList.size());
@@ -2123,22 +2400,6 @@ public class GithubRdfConversionTransactionService {
 
     }
 
-    private int calculateSkipCountAndThrowExceptionIfIntegerOverflowIsImminent(
-            int currentIteration, int commitsPerIteration) {
-
-        long longCurrentIteration = (long) currentIteration;
-        long longCommitsPerIteration = (long) commitsPerIteration;
-
-        long skips = longCurrentIteration * longCommitsPerIteration;
-
-        if (skips > Integer.MAX_VALUE) {
-            throw new RuntimeException(
-                    "While iterating through commit log and transforming log to rdf: Exceeded skip max count (integer overflow)");
-        }
-
-        return (int) skips;
-    }
-
     private LocalDateTime localDateTimeFrom(Date utilDate) {
         return localDateTimeFrom(utilDate.getTime());
     }
@@ -2326,6 +2587,100 @@ public class GithubRdfConversionTransactionService {
                         );
     }
 
+    /**
+     * Fetches the sub-resources the issue loop reads for the given issues into the caches. Runs on a prefetch
+     * thread, so nothing is written here. With GraphQL, only what the batch query didn't return is fetched with REST.
+     */
+    private void prefetchIssueSubResources(List<GHIssue> issues, GHRepository repo, GithubIssueRepositoryFilter filter,
+            GithubGraphqlIssueFetcher graphqlIssueFetcher) throws IOException, InterruptedException {
+
+        if (graphqlIssueFetcher != null) {
+            prefetchIssueSubResourcesWithGraphql(issues, repo, filter, graphqlIssueFetcher);
+        }
+
+        for (GHIssue issue : issues) {
+            prefetchIssueSubResources(issue, repo, filter);
+        }
+    }
+
+    private void prefetchIssueSubResourcesWithGraphql(List<GHIssue> issues, GHRepository repo,
+            GithubIssueRepositoryFilter filter, GithubGraphqlIssueFetcher graphqlIssueFetcher)
+            throws InterruptedException {
+
+        boolean withComments = filter.isEnableIssueComments();
+        boolean withReviews = filter.isEnableIssueReviewers();
+
+        if (!withComments && !withReviews) {
+            return;
+        }
+
+        Map<Integer, IssueSubResources> subResourcesByNumber;
+
+        try {
+            subResourcesByNumber = graphqlIssueFetcher.fetch(issues, withComments, withReviews,
+                    number -> getPullRequestCached(repo, number));
+        } catch (IOException e) {
+            log.warn("GraphQL fetch of {} issues starting at #{} failed, fetching them with REST: {}",
+                    issues.size(), issues.get(0).getNumber(), e.getMessage());
+            return;
+        }
+
+        subResourcesByNumber.forEach((number, subResources) -> {
+            if (subResources.getIssueComments() != null) {
+                issueCommentsCache.put(number, subResources.getIssueComments());
+            }
+            if (subResources.getReviews() != null) {
+                reviewCache.put(number, subResources.getReviews());
+            }
+            issueCommentReactionsCache.putAll(subResources.getIssueCommentReactions());
+            reviewCommentsCache.putAll(subResources.getReviewComments());
+            reviewCommentReactionsCache.putAll(subResources.getReviewCommentReactions());
+        });
+    }
+
+    private void prefetchIssueSubResources(GHIssue issue, GHRepository repo, GithubIssueRepositoryFilter filter)
+            throws IOException, InterruptedException {
+
+        if (issue.isPullRequest() && (filter.isEnableIssueReviewers() || filter.isEnableIssueMergedBy())) {
+
+            GHPullRequest pr = getPullRequestCached(repo, issue.getNumber());
+
+            if (filter.isEnableIssueReviewers()) {
+                for (GHPullRequestReview review : getReviewsCached(pr)) {
+                    for (GHPullRequestReviewComment comment : getReviewCommentsCached(review)) {
+                        if (PROCESS_COMMENT_REACTIONS) {
+                            getReviewCommentReactionsCached(comment);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (filter.isEnableIssueComments()) {
+            for (GHIssueComment comment : getIssueCommentsCached(issue)) {
+                getIssueCommentReactionsCached(comment);
+            }
+        }
+    }
+
+    /**
+     * @return number of issue batches that may be prefetched concurrently, based on the requests (and GraphQL points)
+     * of all pooled accounts left before the rate limit border is reached
+     */
+    private int issuePrefetchBudget(boolean graphql) {
+
+        int requestsLeft = githubHandlerService.getRequestsLeft();
+
+        if (!graphql) {
+            return requestsLeft / ISSUE_PREFETCH_REQUESTS_PER_ISSUE;
+        }
+
+        int pointsLeft = githubHandlerService.getGraphqlPointsLeft();
+
+        // Pull request details are still fetched with REST, at most one request per issue of a batch
+        return Math.min(pointsLeft / githubGraphqlClient.getLastQueryCost(), requestsLeft / issueGraphqlBatchSize);
+    }
+
     private GHPullRequest getPullRequestCached(GHRepository repo, int number)
             throws IOException, InterruptedException {
         GHPullRequest pr = pullRequestCache.get(number);
@@ -2603,6 +2958,9 @@ public class GithubRdfConversionTransactionService {
         for (int attempt = 1; attempt <= 2; attempt++) {
             try {
                 return callable.call();
+            } catch (RateLimitExhaustedException e) {
+                // Parks the conversion, retrying wouldn't help before the reset
+                throw e;
             } catch (org.kohsuke.github.HttpException e) {
                 last = e;
                 if (attempt == 2) {
@@ -0,0 +1,235 @@
+package de.leipzig.htwk.gitrdf.worker.service.impl.github;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import org.kohsuke.github.GHIssue;
+
+import de.leipzig.htwk.gitrdf.worker.handler.LockHandler;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Iterates the issues of a repository in their original order, while the sub-resources (pull request details,
+ * reviews, comments, reactions) of the next issues are already fetched on virtual threads. The prefetch task is
+ * expected to warm the caches the caller reads while writing an issue, so the caller itself stays sequential.
+ * <p>
+ * {@link #next()} waits until the prefetch of the returned issue has finished, so the caller never fetches the same
+ * resource concurrently. The lock of the order is renewed while waiting. Failed prefetches are logged, the caller
+ * fetches the resource again with its own error handling.
+ * <p>
+ * Issues can be prefetched in batches, e.g. for one GraphQL query per batch. A batch is only started once it's full
+ * or the issues are exhausted, and the window then holds at least two batches, so the next batch is fetched while
+ * the issues of the previous one are written.
+ * <p>
+ * The number of concurrent prefetches is capped by the configured thread count and by the request budget, which
+ * is asked again before every submission. Without budget the issues are passed through and fetched by the caller.
+ */
+@Slf4j
+public class GithubIssuePrefetcher implements Iterator<GHIssue>, AutoCloseable {
+
+    private final Iterator<GHIssue> issues;
+
+    private final int lookahead;
+
+    private final int batchSize;
+
+    private final int maxConcurrentPrefetches;
+
+    private final IntSupplier requestBudget;
+
+    private final PrefetchTask prefetchTask;
+
+    private final LockHandler lockHandler;
+
+    private final ExecutorService executorService;
+
+    private final Deque<PendingIssue> window = new ArrayDeque<>();
+
+    private final AtomicInteger runningPrefetches = new AtomicInteger();
+
+    /**
+     * @param lookahead number of issues after the current one whose sub-resources are prefetched; 0 disables it
+     * @param batchSize number of issues prefetched together by one task
+     * @param maxConcurrentPrefetches upper bound of concurrently prefetched batches; 0 disables prefetching
+     * @param requestBudget number of batches that may currently be prefetched without exhausting the rate limit
+     */
+    public GithubIssuePrefetcher(
+            Iterator<GHIssue> issues,
+            int lookahead,
+            int batchSize,
+            int maxConcurrentPrefetches,
+            IntSupplier requestBudget,
+            PrefetchTask prefetchTask,
+            LockHandler lockHandler) {
+
+        this.issues = issues;
+        this.batchSize = Math.max(batchSize, 1);
+        this.lookahead = lookahead > 0 ? Math.max(lookahead, this.batchSize > 1 ? 2 * this.batchSize : 1) : 0;
+        this.maxConcurrentPrefetches = Math.max(maxConcurrentPrefetches, 0);
+        this.requestBudget = requestBudget;
+        this.prefetchTask = prefetchTask;
+        this.lockHandler = lockHandler;
+
+        if (this.lookahead > 0 && this.maxConcurrentPrefetches > 0) {
+            this.executorService = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("issue-prefetch-", 1).factory());
+            log.info("Prefetching sub-resources of up to {} issues ahead in batches of {} with at most {} concurrent "
+                    + "prefetches", this.lookahead, this.batchSize, this.maxConcurrentPrefetches);
+        } else {
+            this.executorService = null;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        fillWindow();
+        return !window.isEmpty();
+    }
+
+    @Override
+    public GHIssue next() {
+
+        fillWindow();
+
+        PendingIssue pendingIssue = window.poll();
+
+        if (pendingIssue == null) {
+            throw new NoSuchElementException();
+        }
+
+        awaitPrefetch(pendingIssue);
+
+        // Keeps the window full while the caller writes the returned issue
+        fillWindow();
+
+        return pendingIssue.issue;
+    }
+
+    @Override
+    public void close() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void fillWindow() {
+
+        while (window.size() < Math.max(lookahead, 1) && issues.hasNext()) {
+            window.add(new PendingIssue(issues.next()));
+        }
+
+        if (executorService == null) {
+            return;
+        }
+
+        int allowedPrefetches = Math.min(maxConcurrentPrefetches, requestBudget.getAsInt());
+
+        List<PendingIssue> batch = new ArrayList<>(batchSize);
+
+        for (PendingIssue pendingIssue : window) {
+
+            if (runningPrefetches.get() >= allowedPrefetches) {
+                return;
+            }
+
+            if (pendingIssue.prefetch != null) {
+                continue;
+            }
+
+            batch.add(pendingIssue);
+
+            if (batch.size() == batchSize) {
+                submit(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        // A partial batch is only left when the window can't grow anymore
+        if (!batch.isEmpty() && !issues.hasNext() && runningPrefetches.get() < allowedPrefetches) {
+            submit(batch);
+        }
+    }
+
+    private void submit(List<PendingIssue> batch) {
+
+        List<GHIssue> batchIssues = batch.stream().map(pendingIssue -> pendingIssue.issue).toList();
+
+        runningPrefetches.incrementAndGet();
+        Future<?> prefetch = executorService.submit(() -> runPrefetch(batchIssues));
+
+        for (PendingIssue pendingIssue : batch) {
+            pendingIssue.prefetch = prefetch;
+        }
+    }
+
+    private void runPrefetch(List<GHIssue> batchIssues) {
+        try {
+            prefetchTask.prefetch(batchIssues);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Prefetch of issue #{} and following failed, their resources are fetched again while "
+                    + "writing: {}", batchIssues.get(0).getNumber(), ex.getMessage());
+        } finally {
+            runningPrefetches.decrementAndGet();
+        }
+    }
+
+    private void awaitPrefetch(PendingIssue pendingIssue) {
+
+        if (pendingIssue.prefetch == null) {
+            return;
+        }
+
+        while (true) {
+            try {
+                pendingIssue.prefetch.get(1, TimeUnit.SECONDS);
+                return;
+            } catch (TimeoutException ex) {
+                lockHandler.renewLockOnRenewTimeFulfillment();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException ex) {
+                // runPrefetch handles all failures itself, so this is unexpected
+                log.warn("Prefetch of issue #{} failed: {}", pendingIssue.issue.getNumber(),
+                        ex.getCause().getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fetches the sub-resources of a batch of issues into the caches of the caller. Runs on a prefetch thread.
+     */
+    @FunctionalInterface
+    public interface PrefetchTask {
+
+        void prefetch(List<GHIssue> issues) throws IOException, InterruptedException;
+    }
+
+    private static class PendingIssue {
+
+        private final GHIssue issue;
+
+        private Future<?> prefetch;
+
+        private PendingIssue(GHIssue issue) {
+            this.issue = issue;
+        }
+    }
+
+}
@@ -0,0 +1,19 @@
+package de.leipzig.htwk.gitrdf.worker.service.impl.github;
+
+/**
+ * How the comments, reviews and reactions of issues and pull requests are fetched. Both engines fill the same caches,
+ * so the written triples are the same.
+ */
+public enum IssueFetchEngine {
+
+    /**
+     * One REST request per issue, review, comment list and reaction list
+     */
+    REST,
+
+    /**
+     * One GraphQL query per batch of issues, nested lists are only paged when they overflow. Pull request details
+     * are still fetched with REST.
+     */
+    GRAPHQL
+}
@@ -0,0 +1,143 @@
+package de.leipzig.htwk.gitrdf.worker.snapshot;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stores the per-file blame of the last branch snapshot of every repository, so that the next conversion of the same
+ * repository only has to re-blame the files that changed since then.
+ * <p>
+ * The store is best effort: database errors are logged and treated as a missing snapshot, so a conversion never fails
+ * because of it. Snapshots are saved in their own transaction, so a failed save doesn't roll back the conversion.
+ */
+@Slf4j
+@Component
+public class BranchSnapshotStore {
+
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    private static final String SELECT_SNAPSHOT_SQL
+            = "SELECT HEAD_COMMIT FROM BRANCH_SNAPSHOT WHERE REPOSITORY_KEY = ?";
+
+    private static final String SELECT_FILES_SQL
+            = "SELECT PATH, BLOB_ID, LINE_COMMITS FROM BRANCH_SNAPSHOT_FILE WHERE REPOSITORY_KEY = ?";
+
+    private static final String DELETE_FILES_SQL
+            = "DELETE FROM BRANCH_SNAPSHOT_FILE WHERE REPOSITORY_KEY = ?";
+
+    private static final String INSERT_FILE_SQL
+            = "INSERT INTO BRANCH_SNAPSHOT_FILE (REPOSITORY_KEY, PATH, BLOB_ID, LINE_COMMITS) VALUES (?, ?, ?, ?)";
+
+    private static final String UPSERT_SNAPSHOT_SQL
+            = "INSERT INTO BRANCH_SNAPSHOT (REPOSITORY_KEY, HEAD_COMMIT, CREATED_DATE) VALUES (?, ?, ?) " +
+              "ON CONFLICT (REPOSITORY_KEY) DO UPDATE SET HEAD_COMMIT = EXCLUDED.HEAD_COMMIT, " +
+              "CREATED_DATE = EXCLUDED.CREATED_DATE";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Clock clock;
+
+    private final boolean enabled;
+
+    public BranchSnapshotStore(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            Clock clock,
+            @Value("${worker.branch-snapshot-incremental:true}") boolean enabled) {
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.clock = clock;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the last stored snapshot of the repository, or null if there is none or it can't be read
+     */
+    public StoredBranchSnapshot load(String repositoryKey) {
+
+        if (!enabled) {
+            return null;
+        }
+
+        try {
+
+            List<String> headCommits = jdbcTemplate.queryForList(SELECT_SNAPSHOT_SQL, String.class, repositoryKey);
+
+            if (headCommits.isEmpty()) {
+                return null;
+            }
+
+            Map<String, StoredSnapshotFile> filesByPath = new HashMap<>();
+
+            jdbcTemplate.query(SELECT_FILES_SQL, rs -> {
+                String path = rs.getString("PATH");
+                filesByPath.put(path, new StoredSnapshotFile(
+                        path, rs.getString("BLOB_ID"), FileBlame.decode(rs.getString("LINE_COMMITS"))));
+            }, repositoryKey);
+
+            return new StoredBranchSnapshot(headCommits.get(0), filesByPath);
+
+        } catch (DataAccessException | IllegalArgumentException ex) {
+            log.warn("Failed to read stored branch snapshot of '{}', blaming all files: {}", repositoryKey, ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the stored snapshot of the repository.
+     */
+    public void save(String repositoryKey, String headCommit, List<StoredSnapshotFile> files) {
+
+        if (!enabled) {
+            return;
+        }
+
+        try {
+
+            transactionTemplate.executeWithoutResult(status -> {
+
+                jdbcTemplate.update(DELETE_FILES_SQL, repositoryKey);
+
+                jdbcTemplate.batchUpdate(INSERT_FILE_SQL, files, INSERT_BATCH_SIZE, (ps, file) -> {
+                    ps.setString(1, repositoryKey);
+                    ps.setString(2, file.getPath());
+                    ps.setString(3, file.getBlobId());
+                    ps.setString(4, file.getBlame().encode());
+                });
+
+                // Stored as UTC, like the identity cache timestamps
+                jdbcTemplate.update(UPSERT_SNAPSHOT_SQL,
+                        repositoryKey, headCommit, LocalDateTime.ofInstant(clock.instant(), ZoneOffset.UTC));
+            });
+
+            log.info("Stored branch snapshot of '{}' at {} with {} files", repositoryKey, headCommit, files.size());
+
+        } catch (DataAccessException | TransactionException ex) {
+            log.warn("Failed to store branch snapshot of '{}': {}", repositoryKey, ex.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+package de.leipzig.htwk.gitrdf.worker.snapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * Blame of a single file: the source commit of every line, stored as runs of consecutive lines with the same
+ * commit. Lines without a source commit are kept as runs without commit.
+ */
+public class FileBlame {
+
+    public static final FileBlame EMPTY = new FileBlame(List.of(), new int[0]);
+
+    private static final String NO_COMMIT = "-";
+
+    private final List<String> runCommits;
+
+    private final int[] runLengths;
+
+    private FileBlame(List<String> runCommits, int[] runLengths) {
+        this.runCommits = runCommits;
+        this.runLengths = runLengths;
+    }
+
+    public static FileBlame fromBlameResult(BlameResult blameResult) {
+
+        if (blameResult == null) {
+            return EMPTY;
+        }
+
+        int lineCount = blameResult.getResultContents().size();
+        String[] lineCommits = new String[lineCount];
+
+        for (int lineIdx = 0; lineIdx < lineCount; lineIdx++) {
+            RevCommit commit = blameResult.getSourceCommit(lineIdx);
+            lineCommits[lineIdx] = commit == null ? null : commit.getId().name();
+        }
+
+        return fromLineCommits(lineCommits);
+    }
+
+    public static FileBlame fromLineCommits(String[] lineCommits) {
+
+        List<String> runCommits = new ArrayList<>();
+        List<Integer> runLengths = new ArrayList<>();
+
+        for (String lineCommit : lineCommits) {
+
+            int last = runCommits.size() - 1;
+
+            if (last >= 0 && sameCommit(runCommits.get(last), lineCommit)) {
+                runLengths.set(last, runLengths.get(last) + 1);
+            } else {
+                runCommits.add(lineCommit);
+                runLengths.add(1);
+            }
+        }
+
+        return new FileBlame(runCommits, runLengths.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * @return the source commit hash of every line, null for lines without source commit
+     */
+    public String[] toLineCommits() {
+
+        int lineCount = 0;
+        for (int runLength : runLengths) {
+            lineCount += runLength;
+        }
+
+        String[] lineCommits = new String[lineCount];
+        int lineIdx = 0;
+
+        for (int run = 0; run < runLengths.length; run++) {
+            for (int ii = 0; ii < runLengths[run]; ii++) {
+                lineCommits[lineIdx++] = runCommits.get(run);
+            }
+        }
+
+        return lineCommits;
+    }
+
+    /**
+     * Encodes the runs as {@code <commit>*<length>} separated by {@code ;}, with {@code -} for runs without commit.
+     */
+    public String encode() {
+
+        StringBuilder encoded = new StringBuilder();
+
+        for (int run = 0; run < runLengths.length; run++) {
+
+            if (run > 0) {
+                encoded.append(';');
+            }
+
+            String commit = runCommits.get(run);
+            encoded.append(commit == null ? NO_COMMIT : commit).append('*').append(runLengths[run]);
+        }
+
+        return encoded.toString();
+    }
+
+    public static FileBlame decode(String encoded) {
+
+        if (encoded == null || encoded.isEmpty()) {
+            return EMPTY;
+        }
+
+        String[] runs = encoded.split(";");
+        List<String> runCommits = new ArrayList<>(runs.length);
+        int[] runLengths = new int[runs.length];
+
+        for (int run = 0; run < runs.length; run++) {
+
+            int separator = runs[run].lastIndexOf('*');
+
+            if (separator < 0) {
+                throw new IllegalArgumentException("Malformed blame run '" + runs[run] + "'");
+            }
+
+            String commit = runs[run].substring(0, separator);
+            runCommits.add(NO_COMMIT.equals(commit) ? null : commit);
+            runLengths[run] = Integer.parseInt(runs[run].substring(separator + 1));
+        }
+
+        return new FileBlame(runCommits, runLengths);
+    }
+
+    private static boolean sameCommit(String left, String right) {
+        return left == null ? right == null : left.equals(right);
+    }
+
+}
@@ -0,0 +1,19 @@
+package de.leipzig.htwk.gitrdf.worker.snapshot;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Branch snapshot of a previous conversion run: the HEAD commit it was taken at and the blame of every file by path.
+ */
+@Getter
+@AllArgsConstructor
+public class StoredBranchSnapshot {
+
+    private final String headCommit;
+
+    private final Map<String, StoredSnapshotFile> filesByPath;
+
+}
@@ -0,0 +1,19 @@
+package de.leipzig.htwk.gitrdf.worker.snapshot;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Blame of one file of a stored branch snapshot, together with the blob it was computed for.
+ */
+@Getter
+@AllArgsConstructor
+public class StoredSnapshotFile {
+
+    private final String path;
+
+    private final String blobId;
+
+    private final FileBlame blame;
+
+}
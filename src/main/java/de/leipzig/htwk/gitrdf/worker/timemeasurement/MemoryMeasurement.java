@@ -0,0 +1,70 @@
+package de.leipzig.htwk.gitrdf.worker.timemeasurement;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class MemoryMeasurement {
+
+    private static final Path PROC_SELF_STATUS = Path.of("/proc/self/status");
+
+    private static final Path PROC_SELF_CLEAR_REFS = Path.of("/proc/self/clear_refs");
+
+    /**
+     * Resets the peak resident set size to the current resident set size, see proc(5)
+     */
+    private static final String RESET_PEAK_RESIDENT_SET_SIZE = "5";
+
+    private static final String PEAK_RESIDENT_SET_SIZE_KEY = "VmHWM:";
+
+    /**
+     * Resets the peak resident set size of the worker process, so it covers the work from now on instead of the whole
+     * life of the process.
+     *
+     * @return false if the peak can't be reset, e.g. on operating systems without procfs or on kernels before 4.0
+     */
+    public static boolean resetPeakResidentSetSize() {
+
+        try {
+            Files.writeString(PROC_SELF_CLEAR_REFS, RESET_PEAK_RESIDENT_SET_SIZE);
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            log.debug("Peak resident set size can't be reset: {}", ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Returns the peak resident set size of the worker process in bytes since its start or the last
+     * {@link #resetPeakResidentSetSize()}, as reported by {@code /proc/self/status}. Returns -1 if the value is not
+     * available, e.g. on operating systems without procfs.
+     */
+    public static long getPeakResidentSetSizeInBytes() {
+
+        try {
+
+            List<String> lines = Files.readAllLines(PROC_SELF_STATUS);
+
+            for (String line : lines) {
+                if (line.startsWith(PEAK_RESIDENT_SET_SIZE_KEY)) {
+                    // Format is 'VmHWM:    123456 kB'
+                    String kiloBytes = line.substring(PEAK_RESIDENT_SET_SIZE_KEY.length()).replace("kB", "").trim();
+                    return Long.parseLong(kiloBytes) * 1024;
+                }
+            }
+
+        } catch (IOException | RuntimeException ex) {
+            log.debug("Peak resident set size is not available: {}", ex.getMessage());
+        }
+
+        return -1;
+    }
+
+}
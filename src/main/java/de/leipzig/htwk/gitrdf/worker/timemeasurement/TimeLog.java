@@ -11,11 +11,15 @@ public class TimeLog {
     private long gitCommitConversionTime;
     private long gitBranchSnapshottingTime;
     private long githubIssueConversionTime;
+    private long tidyTime;
+    private long peakResidentSetSizeInBytes;
     private long conversionTime;
     private long totalTime;
 
     private boolean enabled;
 
+    private boolean peakResidentSetSizeReset;
+
     public TimeLog(boolean enabled) {
 
         this.identifier = "Not set";
@@ -23,6 +27,8 @@ public class TimeLog {
         this.gitCommitConversionTime = 0;
         this.gitBranchSnapshottingTime = 0;
         this.githubIssueConversionTime = 0;
+        this.tidyTime = 0;
+        this.peakResidentSetSizeInBytes = -1;
         this.conversionTime = 0;
         this.totalTime = 0;
 
@@ -33,6 +39,24 @@ public class TimeLog {
         this.enabled = enabled;
     }
 
+    /**
+     * Resets the peak resident set size of the worker process when the order starts. The worker converts one order at
+     * a time, so the peak measured at the end belongs to this order.
+     */
+    public void startMemoryMeasurement() {
+        this.peakResidentSetSizeReset = MemoryMeasurement.resetPeakResidentSetSize();
+    }
+
+    /**
+     * Takes the peak resident set size since {@link #startMemoryMeasurement()}. It stays -1 if the peak couldn't be
+     * reset, since the peak of the whole process life isn't a value of this order.
+     */
+    public void finishMemoryMeasurement() {
+        if (this.peakResidentSetSizeReset) {
+            this.peakResidentSetSizeInBytes = MemoryMeasurement.getPeakResidentSetSizeInBytes();
+        }
+    }
+
     public void printTimes() {
 
         if (!this.enabled) {
@@ -45,8 +69,10 @@ public class TimeLog {
         log.info("TIME MEASUREMENT DONE: Git-Commit conversion time in milliseconds is: '{}'", this.gitCommitConversionTime);
         log.info("TIME MEASUREMENT DONE: Git branch-snapshotting conversion time in milliseconds is: '{}'", this.gitBranchSnapshottingTime);
         log.info("TIME MEASUREMENT DONE: Github-Issue conversion time in milliseconds is: '{}'", this.githubIssueConversionTime);
+        log.info("TIME MEASUREMENT DONE: Rdf tidy time in milliseconds is: '{}'", this.tidyTime);
         log.info("TIME MEASUREMENT DONE: Conversion time in milliseconds is: '{}'", this.conversionTime);
         log.info("TIME MEASUREMENT DONE: Total time in milliseconds is: '{}'", this.totalTime);
+        log.info("MEMORY MEASUREMENT DONE: Peak resident set size of the order in bytes is: '{}'", this.peakResidentSetSizeInBytes);
 
     }
 
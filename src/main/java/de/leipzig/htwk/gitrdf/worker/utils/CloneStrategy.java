@@ -0,0 +1,31 @@
+package de.leipzig.htwk.gitrdf.worker.utils;
+
+/**
+ * How the repository of a GitHub order is cloned.
+ * <p>
+ * A bare clone skips writing the working tree and the index. All commit, branch, tag and blame data is read from the
+ * object database, so the RDF output is the same as with a checkout.
+ */
+public enum CloneStrategy {
+
+    /**
+     * Clone with working tree checkout.
+     */
+    CHECKOUT,
+
+    /**
+     * Clone without working tree. The branch snapshot then blames the history from HEAD only, which is the same as
+     * the checkout of a fresh clone.
+     */
+    BARE,
+
+    /**
+     * Bare clone, unless the order writes a branch snapshot.
+     */
+    AUTO;
+
+    public boolean isBare(boolean branchSnapshotEnabled) {
+        return this == BARE || this == AUTO && !branchSnapshotEnabled;
+    }
+
+}
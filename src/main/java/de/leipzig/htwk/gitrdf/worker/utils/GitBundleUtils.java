@@ -0,0 +1,182 @@
+package de.leipzig.htwk.gitrdf.worker.utils;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.FetchResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.Transport;
+import org.eclipse.jgit.transport.TransportBundleStream;
+import org.eclipse.jgit.transport.URIish;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads uploaded git bundles ({@code git bundle create}) as an alternative to zipped {@code .git} directories.
+ * A bundle is a ref list followed by a single pack, so it is unbundled by streaming the pack into a bare repository,
+ * without extracting anything.
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class GitBundleUtils {
+
+    private static final byte[] BUNDLE_SIGNATURE_PREFIX = "# v".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] BUNDLE_SIGNATURE_SUFFIX = " git bundle\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final String SUPPORTED_BUNDLE_SIGNATURE = "# v2 git bundle\n";
+
+    private static final int SIGNATURE_PEEK_LENGTH = 32;
+
+    private static final List<String> FALLBACK_HEAD_BRANCHES
+            = List.of(Constants.R_HEADS + Constants.MASTER, Constants.R_HEADS + "main");
+
+    /**
+     * Checks whether the stream starts with a bundle signature of any version. The stream is reset afterwards.
+     */
+    public static boolean isBundle(BufferedInputStream inputStream) throws IOException {
+        return readSignature(inputStream) != null;
+    }
+
+    /**
+     * Unbundles the stream into a new bare repository, which is placed as {@code .git} directory in a new temp
+     * directory, like an extracted zip upload. All refs of the bundle are kept. HEAD points to the branch the
+     * bundled HEAD points to, or to master, main or the first branch if the bundle has no HEAD.
+     *
+     * @return the directory containing the {@code .git} directory
+     */
+    public static File unbundle(BufferedInputStream inputStream) throws IOException {
+
+        String signature = readSignature(inputStream);
+
+        if (!SUPPORTED_BUNDLE_SIGNATURE.equals(signature)) {
+            throw new IOException("Unsupported git bundle version '" + (signature == null ? "" : signature.trim())
+                    + "', only v2 bundles can be read");
+        }
+
+        File gitRepositoryTempDirectory = Files.createTempDirectory("GitRepositoryTempDirectory").toFile();
+
+        try {
+
+            Git git = Git.init()
+                    .setBare(true)
+                    .setDirectory(new File(gitRepositoryTempDirectory, Constants.DOT_GIT))
+                    .call();
+
+            try {
+
+                Repository repository = git.getRepository();
+                FetchResult fetchResult;
+
+                Transport transport = new TransportBundleStream(repository, new URIish("bundle"), inputStream);
+
+                try {
+                    fetchResult = transport.fetch(NullProgressMonitor.INSTANCE, List.of(new RefSpec("+refs/*:refs/*")));
+                } finally {
+                    transport.close();
+                }
+
+                linkHead(repository, fetchResult);
+
+                log.info("Unbundled {} refs", fetchResult.getAdvertisedRefs().size());
+
+            } finally {
+                git.close();
+            }
+
+            return gitRepositoryTempDirectory;
+
+        } catch (GitAPIException | URISyntaxException ex) {
+            FileUtils.deleteQuietly(gitRepositoryTempDirectory);
+            throw new IOException("Unable to unbundle git bundle", ex);
+        } catch (IOException | RuntimeException ex) {
+            FileUtils.deleteQuietly(gitRepositoryTempDirectory);
+            throw ex;
+        }
+    }
+
+    private static void linkHead(Repository repository, FetchResult fetchResult) throws IOException {
+
+        Ref headBranch = GitUtils.findDefaultBranch(fetchResult);
+        Ref bundledHead = fetchResult.getAdvertisedRef(Constants.HEAD);
+
+        RefUpdate headUpdate = repository.updateRef(Constants.HEAD, headBranch == null && bundledHead != null);
+        headUpdate.disableRefLog();
+
+        if (headBranch != null) {
+            headUpdate.link(headBranch.getName());
+            return;
+        }
+
+        if (bundledHead != null) {
+            // The bundled HEAD is detached
+            headUpdate.setNewObjectId(bundledHead.getObjectId());
+            headUpdate.forceUpdate();
+            return;
+        }
+
+        String fallbackBranch = FALLBACK_HEAD_BRANCHES.stream()
+                .filter(branch -> fetchResult.getAdvertisedRef(branch) != null)
+                .findFirst()
+                .orElse(fetchResult.getAdvertisedRefs().stream()
+                        .map(Ref::getName)
+                        .filter(name -> name.startsWith(Constants.R_HEADS))
+                        .sorted()
+                        .findFirst()
+                        .orElse(null));
+
+        if (fallbackBranch != null) {
+            headUpdate.link(fallbackBranch);
+        }
+    }
+
+    /**
+     * @return the first line of the stream including the line break if it's a bundle signature, else null
+     */
+    private static String readSignature(BufferedInputStream inputStream) throws IOException {
+
+        inputStream.mark(SIGNATURE_PEEK_LENGTH);
+
+        byte[] peek = inputStream.readNBytes(SIGNATURE_PEEK_LENGTH);
+
+        inputStream.reset();
+
+        if (!startsWith(peek, 0, BUNDLE_SIGNATURE_PREFIX)) {
+            return null;
+        }
+
+        for (int ii = BUNDLE_SIGNATURE_PREFIX.length; ii < peek.length; ii++) {
+
+            if (startsWith(peek, ii, BUNDLE_SIGNATURE_SUFFIX)) {
+                return new String(peek, 0, ii + BUNDLE_SIGNATURE_SUFFIX.length, StandardCharsets.US_ASCII);
+            }
+
+            if (peek[ii] < '0' || peek[ii] > '9') {
+                return null;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, byte[] prefix) {
+        return bytes.length >= offset + prefix.length
+                && Arrays.equals(bytes, offset, offset + prefix.length, prefix, 0, prefix.length);
+    }
+
+}
@@ -2,8 +2,34 @@ package de.leipzig.htwk.gitrdf.worker.utils;
 
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.FetchResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteConfig;
+import org.eclipse.jgit.transport.TagOpt;
+import org.eclipse.jgit.transport.URIish;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class GitUtils {
@@ -23,4 +49,184 @@ public final class GitUtils {
         return files[0];
     }
 
+    /**
+     * Counts the commits reachable from HEAD, but stops counting once {@code limit} is reached. Only commit headers
+     * are parsed. A limit of 0 or less counts the whole history.
+     */
+    public static int countCommitsReachableFromHead(Repository repository, int limit) throws IOException {
+
+        ObjectId head = repository.resolve(Constants.HEAD);
+
+        if (head == null) {
+            return 0;
+        }
+
+        RevWalk revWalk = new RevWalk(repository);
+
+        try {
+            revWalk.setRetainBody(false);
+            revWalk.markStart(revWalk.parseCommit(head));
+
+            int count = 0;
+
+            while ((limit <= 0 || count < limit) && revWalk.next() != null) {
+                count++;
+            }
+
+            return count;
+
+        } finally {
+            revWalk.release();
+        }
+    }
+
+    /**
+     * Returns the merge bases of the two commits, i.e. the newest commits reachable from both. If one commit is an
+     * ancestor of the other, that commit is the only merge base. The given walk is reset before use.
+     */
+    public static List<ObjectId> findMergeBases(RevWalk revWalk, ObjectId first, ObjectId second) throws IOException {
+
+        revWalk.reset();
+        revWalk.setRevFilter(RevFilter.MERGE_BASE);
+        revWalk.markStart(revWalk.parseCommit(first));
+        revWalk.markStart(revWalk.parseCommit(second));
+
+        List<ObjectId> mergeBases = new ArrayList<>();
+
+        RevCommit mergeBase;
+        while ((mergeBase = revWalk.next()) != null) {
+            mergeBases.add(mergeBase.getId());
+        }
+
+        return mergeBases;
+    }
+
+    /**
+     * Returns the commits of the newest {@code limit} tags, newest first by commit time. Tags on the same commit
+     * count once, and tags that don't point to a commit are ignored.
+     */
+    public static List<ObjectId> findLatestTaggedCommits(Repository repository, int limit) throws IOException {
+
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        RevWalk revWalk = new RevWalk(repository);
+
+        try {
+
+            Set<RevCommit> taggedCommits = new LinkedHashSet<>();
+
+            for (Ref tagRef : repository.getRefDatabase().getRefs(Constants.R_TAGS).values()) {
+
+                RevObject tagTarget = revWalk.peel(revWalk.parseAny(tagRef.getObjectId()));
+
+                if (tagTarget instanceof RevCommit taggedCommit) {
+                    taggedCommits.add(taggedCommit);
+                }
+            }
+
+            return taggedCommits.stream()
+                    .sorted(Comparator.comparingInt(RevCommit::getCommitTime).reversed())
+                    .limit(limit)
+                    .map(RevCommit::copy)
+                    .toList();
+
+        } finally {
+            revWalk.release();
+        }
+    }
+
+    /**
+     * Clones the repository without working tree and index. The refs are laid out like in a regular clone: the
+     * branches of the remote under {@code refs/remotes/origin/}, the tags, and a local branch for the default branch
+     * of the remote, which HEAD points to. So the branch list and the commit history are the same as with a checkout.
+     */
+    public static Git cloneBare(String uri, File directory, CredentialsProvider credentialsProvider, int timeoutSeconds)
+            throws IOException, GitAPIException {
+
+        Git git = Git.init().setBare(true).setDirectory(directory).call();
+
+        try {
+
+            Repository repository = git.getRepository();
+            StoredConfig config = repository.getConfig();
+
+            RemoteConfig remoteConfig = new RemoteConfig(config, Constants.DEFAULT_REMOTE_NAME);
+            remoteConfig.addURI(new URIish(uri));
+            remoteConfig.addFetchRefSpec(new RefSpec()
+                    .setForceUpdate(true)
+                    .setSourceDestination(Constants.R_HEADS + "*",
+                            Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/*"));
+            remoteConfig.update(config);
+            config.save();
+
+            FetchResult fetchResult = git.fetch()
+                    .setRemote(Constants.DEFAULT_REMOTE_NAME)
+                    .setCredentialsProvider(credentialsProvider)
+                    .setTimeout(timeoutSeconds)
+                    .setTagOpt(TagOpt.FETCH_TAGS)
+                    .call();
+
+            Ref defaultBranch = findDefaultBranch(fetchResult);
+
+            if (defaultBranch != null) {
+
+                RefUpdate branchUpdate = repository.updateRef(defaultBranch.getName());
+                branchUpdate.setNewObjectId(defaultBranch.getObjectId());
+                branchUpdate.forceUpdate();
+
+                RefUpdate headUpdate = repository.updateRef(Constants.HEAD);
+                headUpdate.disableRefLog();
+                headUpdate.link(defaultBranch.getName());
+
+                String branchName = Repository.shortenRefName(defaultBranch.getName());
+                config.setString(ConfigConstants.CONFIG_BRANCH_SECTION, branchName,
+                        ConfigConstants.CONFIG_KEY_REMOTE, Constants.DEFAULT_REMOTE_NAME);
+                config.setString(ConfigConstants.CONFIG_BRANCH_SECTION, branchName,
+                        ConfigConstants.CONFIG_KEY_MERGE, defaultBranch.getName());
+                config.save();
+            }
+
+            return git;
+
+        } catch (URISyntaxException ex) {
+            git.close();
+            throw new IOException("Invalid remote URL " + uri, ex);
+        } catch (IOException | GitAPIException | RuntimeException ex) {
+            git.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the advertised branch that the remote HEAD points to. Only the commit of the remote HEAD is advertised,
+     * so the branch is guessed like {@link Git#cloneRepository()} does: master if it matches, else the first matching
+     * branch. Returns null if the remote has no HEAD or no branch matches.
+     */
+    public static Ref findDefaultBranch(FetchResult fetchResult) {
+
+        Ref remoteHead = fetchResult.getAdvertisedRef(Constants.HEAD);
+
+        if (remoteHead == null || remoteHead.getObjectId() == null) {
+            return null;
+        }
+
+        ObjectId remoteHeadId = remoteHead.getObjectId();
+        Ref master = fetchResult.getAdvertisedRef(Constants.R_HEADS + Constants.MASTER);
+
+        if (master != null && remoteHeadId.equals(master.getObjectId())) {
+            return master;
+        }
+
+        for (Ref advertisedRef : fetchResult.getAdvertisedRefs()) {
+            if (advertisedRef.getName().startsWith(Constants.R_HEADS)
+                    && remoteHeadId.equals(advertisedRef.getObjectId())) {
+                return advertisedRef;
+            }
+        }
+
+        return null;
+    }
+
 }
@@ -0,0 +1,163 @@
+package de.leipzig.htwk.gitrdf.worker.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Helpers for connectors that change requests of the GitHub client on their way, e.g. to add headers.
+ * <p>
+ * The client binds the objects parsed from a response to itself through the request of the response, so a response
+ * to a changed request has to be bound to the original request again, see {@link #withRequest}.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class GithubConnectorUtils {
+
+    /**
+     * A buffered body is decoded, so these headers of the original response don't apply to it anymore
+     */
+    private static final Set<String> BODY_ENCODING_HEADERS
+            = Set.of("content-encoding", "content-length", "transfer-encoding");
+
+    /**
+     * @return the request with the given headers instead of its own
+     */
+    public static GitHubConnectorRequest withHeaders(GitHubConnectorRequest request, Map<String, List<String>> headers) {
+        return new HeaderReplacingRequest(request, headers);
+    }
+
+    /**
+     * @return a copy of the request headers, which can be changed and passed to {@link #withHeaders}
+     */
+    public static Map<String, List<String>> copyHeaders(GitHubConnectorRequest request) {
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.putAll(request.allHeaders());
+        return headers;
+    }
+
+    /**
+     * Reads and closes the response.
+     *
+     * @return the same response bound to the given request
+     */
+    public static GitHubConnectorResponse withRequest(
+            GitHubConnectorRequest request,
+            GitHubConnectorResponse response) throws IOException {
+
+        try (response) {
+            InputStream bodyStream = response.bodyStream();
+            byte[] body = bodyStream == null ? new byte[0] : bodyStream.readAllBytes();
+            return bufferedResponse(request, response.statusCode(), withoutBodyEncoding(response.allHeaders()), body);
+        }
+    }
+
+    /**
+     * @param body the decoded body; the headers must not declare an encoding of it
+     */
+    public static GitHubConnectorResponse bufferedResponse(
+            GitHubConnectorRequest request,
+            int statusCode,
+            Map<String, List<String>> headers,
+            byte[] body) {
+
+        return new BufferedResponse(request, statusCode, headers, body);
+    }
+
+    /**
+     * @return the headers without those describing the encoding of the body
+     */
+    public static Map<String, List<String>> withoutBodyEncoding(Map<String, List<String>> headers) {
+
+        Map<String, List<String>> result = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        headers.forEach((name, values) -> {
+            // HttpURLConnection reports the status line as header without name
+            if (name != null && !BODY_ENCODING_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                result.put(name, List.copyOf(values));
+            }
+        });
+
+        return result;
+    }
+
+    private static class HeaderReplacingRequest implements GitHubConnectorRequest {
+
+        private final GitHubConnectorRequest request;
+
+        private final Map<String, List<String>> headers;
+
+        private HeaderReplacingRequest(GitHubConnectorRequest request, Map<String, List<String>> headers) {
+            this.request = request;
+            this.headers = headers;
+        }
+
+        @Override
+        public String method() {
+            return request.method();
+        }
+
+        @Override
+        public Map<String, List<String>> allHeaders() {
+            return headers;
+        }
+
+        @Override
+        public String header(String name) {
+            List<String> values = headers.get(name);
+            return values == null ? null : String.join(",", values);
+        }
+
+        @Override
+        public String contentType() {
+            return request.contentType();
+        }
+
+        @Override
+        public InputStream body() {
+            return request.body();
+        }
+
+        @Override
+        public URL url() {
+            return request.url();
+        }
+
+        @Override
+        public boolean hasBody() {
+            return request.hasBody();
+        }
+    }
+
+    private static class BufferedResponse extends GitHubConnectorResponse.ByteArrayResponse {
+
+        private final byte[] body;
+
+        private BufferedResponse(
+                GitHubConnectorRequest request,
+                int statusCode,
+                Map<String, List<String>> headers,
+                byte[] body) {
+
+            super(request, statusCode, headers);
+            this.body = body;
+        }
+
+        @Override
+        protected InputStream rawBodyStream() {
+            return new ByteArrayInputStream(body);
+        }
+    }
+
+}
@@ -0,0 +1,462 @@
+package de.leipzig.htwk.gitrdf.worker.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.transport.PackedObjectInfo;
+import org.eclipse.jgit.util.NB;
+
+/**
+ * Writes loose objects into a single pack with index, instead of one file per object.
+ * <p>
+ * Each loose object is inflated once, checked against its object id, and deflated into the pack without its header.
+ * Objects are stored whole, no deltas are searched, so packing costs about as much as copying the loose files.
+ * <p>
+ * The version 2 index is written here as well. The index writer of JGit is internal API, and the public pack parser
+ * would inflate and hash every object a second time.
+ * <p>
+ * A writer that isn't finished must be closed, which discards the incomplete pack.
+ */
+public final class LooseObjectPackWriter implements AutoCloseable {
+
+    private static final int PACK_HEADER_LENGTH = 12;
+
+    private static final int PACK_VERSION = 2;
+
+    private static final byte[] INDEX_SIGNATURE = { (byte) 0xff, 't', 'O', 'c' };
+
+    private static final int INDEX_VERSION = 2;
+
+    private static final long MAX_INDEX_OFFSET_32 = 0x7fffffffL;
+
+    private static final int INDEX_OFFSET_64_FLAG = 0x80000000;
+
+    private final File packDirectory;
+
+    private final File tempPackFile;
+
+    private final OutputStream packOutputStream;
+
+    private final List<PackedObjectInfo> objects = new ArrayList<>();
+
+    private final Inflater inflater = new Inflater();
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    private final MessageDigest objectDigest = Constants.newMessageDigest();
+
+    private final byte[] inflateBuffer;
+
+    private final byte[] readBuffer;
+
+    private final byte[] writeBuffer;
+
+    private long offset = PACK_HEADER_LENGTH;
+
+    private boolean finished = false;
+
+    public LooseObjectPackWriter(File packDirectory, int bufferLengthInBytes) throws IOException {
+
+        this.packDirectory = packDirectory;
+        this.tempPackFile = File.createTempFile("incoming_", ".pack", packDirectory);
+        this.packOutputStream = new BufferedOutputStream(new FileOutputStream(tempPackFile), bufferLengthInBytes);
+        this.inflateBuffer = new byte[bufferLengthInBytes];
+        this.readBuffer = new byte[bufferLengthInBytes];
+        this.writeBuffer = new byte[bufferLengthInBytes];
+
+        try {
+            // The object count is filled in by finish()
+            packOutputStream.write(new byte[PACK_HEADER_LENGTH]);
+        } catch (IOException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Adds a loose object. The stream is read up to its end, but not closed.
+     *
+     * @param looseObject the content of the loose object file, i.e. the deflated object with header
+     */
+    public void add(ObjectId objectId, InputStream looseObject) throws IOException {
+
+        inflater.reset();
+        deflater.reset();
+        objectDigest.reset();
+
+        CRC32 crc = new CRC32();
+        long startOffset = offset;
+
+        try {
+
+            int inflatedLength = 0;
+            int headerEnd = -1;
+
+            while (headerEnd < 0 && inflatedLength < inflateBuffer.length) {
+
+                int inflated = inflateNext(looseObject, inflatedLength);
+
+                if (inflated == 0) {
+                    break;
+                }
+
+                inflatedLength += inflated;
+                headerEnd = indexOf(inflateBuffer, inflatedLength, (byte) 0);
+            }
+
+            if (headerEnd < 0) {
+                throw new IOException("Loose object " + objectId.name() + " has no header");
+            }
+
+            String[] header = new String(inflateBuffer, 0, headerEnd, Constants.CHARSET).split(" ");
+
+            if (header.length != 2) {
+                throw new IOException("Loose object " + objectId.name() + " has an invalid header");
+            }
+
+            int type = decodeType(objectId, header[0]);
+            long size = Long.parseLong(header[1]);
+
+            // The object id is the hash of the inflated object with its header
+            objectDigest.update(inflateBuffer, 0, headerEnd + 1);
+
+            writeRaw(encodeObjectHeader(type, size), crc);
+
+            long remaining = size;
+            int chunkStart = headerEnd + 1;
+
+            while (true) {
+
+                int chunkLength = inflatedLength - chunkStart;
+                remaining -= chunkLength;
+
+                objectDigest.update(inflateBuffer, chunkStart, chunkLength);
+
+                deflater.setInput(inflateBuffer, chunkStart, chunkLength);
+                deflateInput(crc);
+
+                if (inflater.finished() || inflatedLength == 0) {
+                    break;
+                }
+
+                inflatedLength = inflateNext(looseObject, 0);
+                chunkStart = 0;
+            }
+
+            if (remaining != 0 || !inflater.finished()) {
+                throw new IOException("Loose object " + objectId.name() + " is truncated or too long");
+            }
+
+            ObjectId contentId = ObjectId.fromRaw(objectDigest.digest());
+
+            if (!contentId.equals(objectId)) {
+                throw new IOException("Loose object " + objectId.name() + " has the content of " + contentId.name());
+            }
+
+            deflater.finish();
+
+            while (!deflater.finished()) {
+                writeDeflated(crc);
+            }
+
+        } catch (DataFormatException | IllegalArgumentException ex) {
+            throw new IOException("Loose object " + objectId.name() + " is corrupt", ex);
+        }
+
+        PackedObjectInfo objectInfo = new PackedObjectInfo(objectId);
+        objectInfo.setOffset(startOffset);
+        objectInfo.setCRC((int) crc.getValue());
+        objects.add(objectInfo);
+    }
+
+    /**
+     * Completes the pack and its index in the pack directory. Without added objects nothing is written. If completing
+     * fails, the incomplete pack and index are deleted.
+     */
+    public void finish() throws IOException {
+
+        if (finished) {
+            throw new IllegalStateException("Pack is already finished");
+        }
+
+        finished = true;
+
+        File indexFile = null;
+        boolean moved = false;
+
+        try {
+
+            packOutputStream.close();
+
+            if (objects.isEmpty()) {
+                return;
+            }
+
+            byte[] packChecksum = completePackFile();
+
+            Collections.sort(objects);
+
+            MessageDigest nameDigest = Constants.newMessageDigest();
+            byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+
+            for (PackedObjectInfo objectInfo : objects) {
+                objectInfo.copyRawTo(rawId, 0);
+                nameDigest.update(rawId);
+            }
+
+            String packName = "pack-" + ObjectId.fromRaw(nameDigest.digest()).name();
+            indexFile = new File(packDirectory, packName + ".idx");
+
+            writeIndex(indexFile, packChecksum);
+
+            if (!tempPackFile.renameTo(new File(packDirectory, packName + ".pack"))) {
+                throw new IOException("Unable to move pack " + tempPackFile + " into place");
+            }
+
+            moved = true;
+
+        } finally {
+
+            inflater.end();
+            deflater.end();
+
+            if (!moved) {
+                tempPackFile.delete();
+                if (indexFile != null) {
+                    indexFile.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Discards the pack if it isn't finished. Does nothing after {@link #finish()}.
+     */
+    @Override
+    public void close() {
+
+        if (finished) {
+            return;
+        }
+
+        finished = true;
+
+        try {
+            packOutputStream.close();
+        } catch (IOException ignored) {
+            // The pack is deleted anyway
+        }
+
+        inflater.end();
+        deflater.end();
+        tempPackFile.delete();
+    }
+
+    public int getObjectCount() {
+        return objects.size();
+    }
+
+    /**
+     * Fills in the pack header and appends the pack checksum.
+     *
+     * @return the pack checksum
+     */
+    private byte[] completePackFile() throws IOException {
+
+        try (RandomAccessFile packFile = new RandomAccessFile(tempPackFile, "rw")) {
+
+            byte[] header = new byte[PACK_HEADER_LENGTH];
+            System.arraycopy(Constants.PACK_SIGNATURE, 0, header, 0, 4);
+            NB.encodeInt32(header, 4, PACK_VERSION);
+            NB.encodeInt32(header, 8, objects.size());
+
+            packFile.write(header);
+
+            MessageDigest packDigest = Constants.newMessageDigest();
+            packFile.seek(0);
+
+            int read;
+            while ((read = packFile.read(readBuffer)) > 0) {
+                packDigest.update(readBuffer, 0, read);
+            }
+
+            byte[] packChecksum = packDigest.digest();
+            packFile.write(packChecksum);
+
+            return packChecksum;
+        }
+    }
+
+    /**
+     * Writes the version 2 index of the sorted objects: fan-out table, object ids, CRCs, 32 bit offsets, offsets that
+     * don't fit 31 bits, the pack checksum and the checksum of the index itself.
+     */
+    private void writeIndex(File indexFile, byte[] packChecksum) throws IOException {
+
+        MessageDigest indexDigest = Constants.newMessageDigest();
+
+        try (DigestOutputStream digestOutputStream = new DigestOutputStream(
+                new BufferedOutputStream(new FileOutputStream(indexFile)), indexDigest)) {
+
+            DataOutputStream indexOutputStream = new DataOutputStream(digestOutputStream);
+
+            indexOutputStream.write(INDEX_SIGNATURE);
+            indexOutputStream.writeInt(INDEX_VERSION);
+
+            int[] fanOut = new int[256];
+
+            for (PackedObjectInfo objectInfo : objects) {
+                fanOut[objectInfo.getFirstByte()]++;
+            }
+
+            int objectCount = 0;
+
+            for (int firstByte = 0; firstByte < fanOut.length; firstByte++) {
+                objectCount += fanOut[firstByte];
+                indexOutputStream.writeInt(objectCount);
+            }
+
+            byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+
+            for (PackedObjectInfo objectInfo : objects) {
+                objectInfo.copyRawTo(rawId, 0);
+                indexOutputStream.write(rawId);
+            }
+
+            for (PackedObjectInfo objectInfo : objects) {
+                indexOutputStream.writeInt(objectInfo.getCRC());
+            }
+
+            List<Long> largeOffsets = new ArrayList<>();
+
+            for (PackedObjectInfo objectInfo : objects) {
+                if (objectInfo.getOffset() <= MAX_INDEX_OFFSET_32) {
+                    indexOutputStream.writeInt((int) objectInfo.getOffset());
+                } else {
+                    indexOutputStream.writeInt(INDEX_OFFSET_64_FLAG | largeOffsets.size());
+                    largeOffsets.add(objectInfo.getOffset());
+                }
+            }
+
+            for (long largeOffset : largeOffsets) {
+                indexOutputStream.writeLong(largeOffset);
+            }
+
+            indexOutputStream.write(packChecksum);
+            indexOutputStream.flush();
+
+            // The index checksum covers everything before it, so it's written past the digest
+            digestOutputStream.on(false);
+            digestOutputStream.write(indexDigest.digest());
+        }
+    }
+
+    /**
+     * Inflates the next bytes into the buffer at the given position.
+     *
+     * @return the number of inflated bytes, 0 at the end of the object or the stream
+     */
+    private int inflateNext(InputStream looseObject, int position) throws IOException, DataFormatException {
+
+        while (true) {
+
+            int inflated = inflater.inflate(inflateBuffer, position, inflateBuffer.length - position);
+
+            if (inflated > 0 || inflater.finished()) {
+                return inflated;
+            }
+
+            if (inflater.needsDictionary()) {
+                throw new DataFormatException("Dictionary required");
+            }
+
+            int read = looseObject.read(readBuffer);
+
+            if (read < 0) {
+                return 0;
+            }
+
+            inflater.setInput(readBuffer, 0, read);
+        }
+    }
+
+    private void deflateInput(CRC32 crc) throws IOException {
+        while (!deflater.needsInput()) {
+            writeDeflated(crc);
+        }
+    }
+
+    private void writeDeflated(CRC32 crc) throws IOException {
+        int deflated = deflater.deflate(writeBuffer);
+        crc.update(writeBuffer, 0, deflated);
+        packOutputStream.write(writeBuffer, 0, deflated);
+        offset += deflated;
+    }
+
+    private static int decodeType(ObjectId objectId, String typeName) throws IOException {
+        return switch (typeName) {
+            case Constants.TYPE_COMMIT -> Constants.OBJ_COMMIT;
+            case Constants.TYPE_TREE -> Constants.OBJ_TREE;
+            case Constants.TYPE_BLOB -> Constants.OBJ_BLOB;
+            case Constants.TYPE_TAG -> Constants.OBJ_TAG;
+            default -> throw new IOException("Loose object " + objectId.name() + " has unknown type " + typeName);
+        };
+    }
+
+    private void writeRaw(byte[] bytes, CRC32 crc) throws IOException {
+        crc.update(bytes, 0, bytes.length);
+        packOutputStream.write(bytes);
+        offset += bytes.length;
+    }
+
+    /**
+     * Encodes the type and inflated size of a whole object in the variable length pack format.
+     */
+    private static byte[] encodeObjectHeader(int type, long size) {
+
+        byte[] header = new byte[10];
+        int length = 0;
+
+        int current = (type << 4) | (int) (size & 0x0f);
+        size >>>= 4;
+
+        while (size > 0) {
+            header[length++] = (byte) (current | 0x80);
+            current = (int) (size & 0x7f);
+            size >>>= 7;
+        }
+
+        header[length++] = (byte) current;
+
+        byte[] encoded = new byte[length];
+        System.arraycopy(header, 0, encoded, 0, length);
+        return encoded;
+    }
+
+    private static int indexOf(byte[] bytes, int length, byte value) {
+        for (int ii = 0; ii < length; ii++) {
+            if (bytes[ii] == value) {
+                return ii;
+            }
+        }
+        return -1;
+    }
+
+}
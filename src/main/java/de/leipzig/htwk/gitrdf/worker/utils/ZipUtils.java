@@ -2,17 +2,30 @@ package de.leipzig.htwk.gitrdf.worker.utils;
 
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.lib.ObjectId;
 
 import java.io.*;
 import java.nio.file.Files;
 import java.sql.Blob;
 import java.sql.SQLException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
+@Slf4j
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class ZipUtils {
 
+    private static final String DOT_GIT_DIRECTORY_PREFIX = ".git/";
+
+    private static final Pattern LOOSE_OBJECT_PATTERN
+            = Pattern.compile("\\.git/objects/([0-9a-f]{2})/([0-9a-f]{38})");
+
+    private static final int GIT_DIRECTORY_BUFFER_LENGTH = 64 * 1024;
+
     public static File writeInputStreamZipToTempFile(InputStream inputStream, int bufferLengthInBytes) throws IOException {
 
         File tempZipDirectory = Files.createTempFile("tempZipFile", "zip").toFile();
@@ -91,6 +104,96 @@ public final class ZipUtils {
 
     }
 
+    public static File extractGitDirectory(Blob blob) throws SQLException, IOException {
+        return extractGitDirectory(blob.getBinaryStream());
+    }
+
+    /**
+     * Extracts only the {@code .git} directory at the root of the zip, in a single pass over the zip stream.
+     * Working tree files are skipped, and loose objects are written into one pack instead of one file each, so
+     * uploads with many loose objects don't create thousands of small files.
+     *
+     * @return the directory containing the extracted {@code .git} directory
+     */
+    public static File extractGitDirectory(InputStream inputStream) throws IOException {
+
+        File gitRepositoryTempDirectory = Files.createTempDirectory("GitRepositoryTempDirectory").toFile();
+        File packDirectory = new File(gitRepositoryTempDirectory, ".git/objects/pack");
+
+        byte[] buffer = new byte[GIT_DIRECTORY_BUFFER_LENGTH];
+        LooseObjectPackWriter looseObjectPackWriter = null;
+        int skippedEntries = 0;
+
+        try {
+
+            try (ZipInputStream zipStream = new ZipInputStream(inputStream)) {
+
+                ZipEntry zipEntry;
+
+                while ((zipEntry = zipStream.getNextEntry()) != null) {
+
+                    if (zipEntry.isDirectory() || !zipEntry.getName().startsWith(DOT_GIT_DIRECTORY_PREFIX)) {
+                        skippedEntries++;
+                        continue;
+                    }
+
+                    Matcher looseObjectMatcher = LOOSE_OBJECT_PATTERN.matcher(zipEntry.getName());
+
+                    if (looseObjectMatcher.matches()) {
+
+                        if (looseObjectPackWriter == null) {
+                            createDirectories(packDirectory);
+                            looseObjectPackWriter = new LooseObjectPackWriter(packDirectory, GIT_DIRECTORY_BUFFER_LENGTH);
+                        }
+
+                        ObjectId objectId = ObjectId.fromString(looseObjectMatcher.group(1) + looseObjectMatcher.group(2));
+                        looseObjectPackWriter.add(objectId, zipStream);
+                        continue;
+                    }
+
+                    File newFile = newFile(gitRepositoryTempDirectory, zipEntry);
+                    createDirectories(newFile.getParentFile());
+
+                    try (FileOutputStream fileOutputStream = new FileOutputStream(newFile)) {
+
+                        int len;
+
+                        while ((len = zipStream.read(buffer)) > 0) {
+                            fileOutputStream.write(buffer, 0, len);
+                        }
+                    }
+                }
+            }
+
+            // Git expects these directories, even if the zip didn't contain entries for them
+            createDirectories(new File(gitRepositoryTempDirectory, ".git/refs"));
+            createDirectories(packDirectory);
+
+            if (looseObjectPackWriter != null) {
+                looseObjectPackWriter.finish();
+            }
+
+
+        } catch (IOException | RuntimeException ex) {
+            if (looseObjectPackWriter != null) {
+                looseObjectPackWriter.close();
+            }
+            FileUtils.deleteQuietly(gitRepositoryTempDirectory);
+            throw ex;
+        }
+
+        log.info("Extracted git directory with {} loose objects packed and {} other entries skipped",
+                looseObjectPackWriter == null ? 0 : looseObjectPackWriter.getObjectCount(), skippedEntries);
+
+        return gitRepositoryTempDirectory;
+    }
+
+    private static void createDirectories(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create directory: " + directory);
+        }
+    }
+
     private static File newFile(File destinationDir, ZipEntry zipEntry) throws IOException {
 
         File destFile = new File(destinationDir, zipEntry.getName());
@@ -0,0 +1,405 @@
+package de.leipzig.htwk.gitrdf.worker.utils.rdf.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.jena.atlas.io.IndentedLineBuffer;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.apache.jena.riot.out.NodeFormatter;
+import org.apache.jena.riot.out.NodeFormatterTTL;
+import org.apache.jena.riot.out.NodeToLabel;
+import org.apache.jena.riot.system.PrefixMap;
+import org.apache.jena.riot.system.PrefixMapFactory;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.riot.tokens.Tokenizer;
+import org.apache.jena.riot.tokens.TokenizerText;
+import org.apache.jena.vocabulary.RDF;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rewrites a Turtle (or N-Triples) file as subject-grouped, prefix-compressed Turtle in bounded memory.
+ * <p>
+ * The file is parsed as a stream. Every triple is formatted into its Turtle terms and collected in runs of at most
+ * {@code runSize} triples, which are sorted and spilled to disk. The sorted runs are then merged, duplicates are
+ * dropped and the result is written grouped by subject and predicate. Blank nodes are written with labels instead of
+ * nested {@code [ ... ]} blocks, since nesting would need the whole graph.
+ * <p>
+ * Prefixes may be declared anywhere in the file, so the runs hold full IRIs, which every node formats to the same
+ * way. The prefixes are only applied to the merged terms while writing the result.
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class RdfExternalSortTidier {
+
+    private static final String PREDICATE_INDENT = "        ";
+
+    private static final String RDF_TYPE_TERM = "<" + RDF.type.getURI() + ">";
+
+    private static final Comparator<String[]> TRIPLE_TERM_ORDER = Comparator
+            .<String[], String>comparing(terms -> terms[0])
+            .thenComparing(terms -> terms[1])
+            .thenComparing(terms -> terms[2]);
+
+    public static void tidyFile(File file, int runSize) throws IOException {
+
+        if (runSize <= 0) {
+            throw new IllegalArgumentException("Sort run size must be greater than 0, but was " + runSize);
+        }
+
+        File tidiedFile = Files.createTempFile("temp-rdf-tidy-file", ".ttl").toFile();
+
+        SortedRunCollector collector = new SortedRunCollector(runSize);
+
+        try {
+
+            RDFParser.source(file.toPath())
+                    .lang(Lang.TURTLE)
+                    .labelToNode(LabelToNode.createUseLabelAsGiven())
+                    .parse(collector);
+
+            collector.spillCurrentRun();
+
+            log.info("Parsed {} triples into {} sorted runs, start merging", collector.tripleCount,
+                    collector.runFiles.size());
+
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(tidiedFile), StandardCharsets.UTF_8))) {
+
+                writePrefixes(out, collector.prefixMap);
+
+                try (MergingIterator sortedTriples = new MergingIterator(collector.runFiles)) {
+                    writeGroupedTriples(out, sortedTriples, new TermAbbreviator(collector.prefixMap));
+                }
+            }
+
+            Files.move(tidiedFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        } finally {
+
+            for (File runFile : collector.runFiles) {
+                FileUtils.deleteQuietly(runFile);
+            }
+
+            FileUtils.deleteQuietly(tidiedFile);
+        }
+    }
+
+    private static void writePrefixes(Writer out, PrefixMap prefixMap) throws IOException {
+
+        Map<String, String> prefixes = prefixMap.getMapping();
+
+        if (prefixes.isEmpty()) {
+            return;
+        }
+
+        for (Map.Entry<String, String> prefix : prefixes.entrySet()) {
+            out.write("PREFIX " + prefix.getKey() + ": <" + prefix.getValue() + ">\n");
+        }
+
+        out.write("\n");
+    }
+
+    private static void writeGroupedTriples(
+            Writer out,
+            Iterator<String[]> sortedTriples,
+            TermAbbreviator termAbbreviator) throws IOException {
+
+        String[] previous = null;
+
+        while (sortedTriples.hasNext()) {
+
+            String[] current = sortedTriples.next();
+
+            if (previous == null || !previous[0].equals(current[0])) {
+
+                if (previous != null) {
+                    out.write(" .\n\n");
+                }
+
+                out.write(termAbbreviator.abbreviate(current[0]));
+                out.write("\n" + PREDICATE_INDENT);
+                out.write(abbreviatePredicate(termAbbreviator, current[1]));
+                out.write(" ");
+
+            } else if (!previous[1].equals(current[1])) {
+
+                out.write(" ;\n" + PREDICATE_INDENT);
+                out.write(abbreviatePredicate(termAbbreviator, current[1]));
+                out.write(" ");
+
+            } else if (!previous[2].equals(current[2])) {
+
+                out.write(" ,\n" + PREDICATE_INDENT + PREDICATE_INDENT);
+
+            } else {
+                continue; // duplicate triple
+            }
+
+            out.write(termAbbreviator.abbreviate(current[2]));
+            previous = current;
+        }
+
+        if (previous != null) {
+            out.write(" .\n");
+        }
+    }
+
+    private static String abbreviatePredicate(TermAbbreviator termAbbreviator, String predicate) {
+        return RDF_TYPE_TERM.equals(predicate) ? "a" : termAbbreviator.abbreviate(predicate);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static NodeFormatter createNodeFormatter(PrefixMap prefixMap) {
+        return new NodeFormatterTTL(null, prefixMap, NodeToLabel.createBNodeByLabelEncoded());
+    }
+
+    /**
+     * Formats incoming triples with full IRIs and spills them to disk as sorted runs.
+     */
+    private static class SortedRunCollector extends StreamRDFBase {
+
+        private final int runSize;
+
+        private final PrefixMap prefixMap = PrefixMapFactory.create();
+
+        private final NodeFormatter nodeFormatter = createNodeFormatter(PrefixMapFactory.emptyPrefixMap());
+
+        private final IndentedLineBuffer buffer = new IndentedLineBuffer();
+
+        private final List<File> runFiles = new ArrayList<>();
+
+        private List<String[]> currentRun = new ArrayList<>();
+
+        private long tripleCount = 0;
+
+        SortedRunCollector(int runSize) {
+            this.runSize = runSize;
+        }
+
+        @Override
+        public void prefix(String prefix, String iri) {
+            prefixMap.add(prefix, iri);
+        }
+
+        @Override
+        public void triple(Triple triple) {
+
+            currentRun.add(new String[] {
+                    format(triple.getSubject()), format(triple.getPredicate()), format(triple.getObject()) });
+            tripleCount++;
+
+            if (currentRun.size() >= runSize) {
+                try {
+                    spillCurrentRun();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException("Failed to spill sorted rdf run to disk", ex);
+                }
+            }
+        }
+
+        private String format(Node node) {
+            buffer.clear();
+            nodeFormatter.format(buffer, node);
+            return buffer.asString();
+        }
+
+        private void spillCurrentRun() throws IOException {
+
+            if (currentRun.isEmpty()) {
+                return;
+            }
+
+            currentRun.sort(TRIPLE_TERM_ORDER);
+
+            File runFile = Files.createTempFile("temp-rdf-sorted-run", ".dat").toFile();
+            runFiles.add(runFile);
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile)))) {
+                for (String[] terms : currentRun) {
+                    writeString(out, terms[0]);
+                    writeString(out, terms[1]);
+                    writeString(out, terms[2]);
+                }
+            }
+
+            currentRun = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Formats the full IRIs of merged terms with the prefixes of the whole file.
+     */
+    private static class TermAbbreviator {
+
+        private final NodeFormatter nodeFormatter;
+
+        private final IndentedLineBuffer buffer = new IndentedLineBuffer();
+
+        TermAbbreviator(PrefixMap prefixMap) {
+            this.nodeFormatter = createNodeFormatter(prefixMap);
+        }
+
+        private String abbreviate(String term) {
+
+            // Blank node labels don't depend on prefixes
+            if (term.startsWith("_:")) {
+                return term;
+            }
+
+            Tokenizer tokenizer = TokenizerText.fromString(term);
+
+            try {
+                buffer.clear();
+                nodeFormatter.format(buffer, tokenizer.next().asNode());
+                return buffer.asString();
+            } finally {
+                tokenizer.close();
+            }
+        }
+    }
+
+    /**
+     * K-way merge over the sorted run files.
+     */
+    private static class MergingIterator implements Iterator<String[]>, Closeable {
+
+        private final PriorityQueue<RunReader> queue
+                = new PriorityQueue<>((left, right) -> TRIPLE_TERM_ORDER.compare(left.current, right.current));
+
+        private final List<RunReader> openedReaders = new ArrayList<>();
+
+        MergingIterator(List<File> runFiles) throws IOException {
+
+            try {
+                for (File runFile : runFiles) {
+                    RunReader runReader = new RunReader(runFile);
+                    openedReaders.add(runReader);
+                    if (runReader.advance()) {
+                        queue.add(runReader);
+                    }
+                }
+            } catch (IOException | RuntimeException ex) {
+                close();
+                throw ex;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            IOException failure = null;
+
+            // Readers of exhausted runs are closed already, closing them again does nothing
+            for (RunReader runReader : openedReaders) {
+                try {
+                    runReader.in.close();
+                } catch (IOException ex) {
+                    failure = ex;
+                }
+            }
+
+            queue.clear();
+            openedReaders.clear();
+
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public String[] next() {
+
+            RunReader runReader = queue.poll();
+
+            if (runReader == null) {
+                throw new NoSuchElementException();
+            }
+
+            String[] terms = runReader.current;
+
+            try {
+                if (runReader.advance()) {
+                    queue.add(runReader);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Failed to read sorted rdf run from disk", ex);
+            }
+
+            return terms;
+        }
+    }
+
+    private static class RunReader {
+
+        private final DataInputStream in;
+
+        private String[] current;
+
+        RunReader(File runFile) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(runFile)));
+        }
+
+        private boolean advance() throws IOException {
+
+            String subject;
+
+            try {
+                subject = readString(in);
+            } catch (EOFException ex) {
+                in.close();
+                current = null;
+                return false;
+            }
+
+            current = new String[] { subject, readString(in), readString(in) };
+            return true;
+        }
+    }
+
+}
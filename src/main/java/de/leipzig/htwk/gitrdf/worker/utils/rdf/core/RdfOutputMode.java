@@ -0,0 +1,30 @@
+package de.leipzig.htwk.gitrdf.worker.utils.rdf.core;
+
+/**
+ * How the triples of a conversion run are written to the rdf temp file.
+ */
+public enum RdfOutputMode {
+
+    /**
+     * Collects all triples in an in-memory Jena model and serializes it once at the end. Peak heap grows with the
+     * size of the repository, but the output can be pretty printed afterwards.
+     */
+    MODEL,
+
+    /**
+     * Streams Turtle blocks (triples grouped by consecutive subject) straight to the output file. Only the blank
+     * node labels of the document are kept in memory.
+     */
+    TURTLE_BLOCKS,
+
+    /**
+     * Streams N-Triples straight to the output file with constant memory. N-Triples is a subset of Turtle, so the
+     * output can still be read by every Turtle parser.
+     */
+    NTRIPLES;
+
+    public boolean isStreaming() {
+        return this != MODEL;
+    }
+
+}
@@ -0,0 +1,100 @@
+package de.leipzig.htwk.gitrdf.worker.utils.rdf.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+import org.apache.jena.riot.system.StreamRDFWriter;
+
+import lombok.Getter;
+
+/**
+ * Target of all triples of a conversion run, backed either by an in-memory model or by a streaming writer.
+ * <p>
+ * The {@link StreamRDF} handed out by {@link #getWriter()} can be started and finished once per batch, as the
+ * conversion services do. In the streaming modes these calls only mark batch boundaries; the underlying writer is
+ * started when the sink is opened and finished when the sink is closed. The given output stream is not closed by
+ * the sink.
+ */
+public final class RdfOutputSink implements AutoCloseable {
+
+    @Getter
+    private final RdfOutputMode mode;
+
+    @Getter
+    private final StreamRDF writer;
+
+    private final OutputStream outputStream;
+
+    private final Model model;
+
+    private final StreamRDF streamWriter;
+
+    private RdfOutputSink(RdfOutputMode mode, OutputStream outputStream) {
+
+        this.mode = mode;
+        this.outputStream = outputStream;
+
+        if (mode.isStreaming()) {
+            this.model = null;
+            this.streamWriter = StreamRDFWriter.getWriterStream(outputStream, streamingFormatOf(mode));
+            this.streamWriter.start();
+            this.writer = new BatchBoundaryStreamRDF(this.streamWriter);
+        } else {
+            this.model = ModelFactory.createDefaultModel();
+            this.streamWriter = null;
+            this.writer = StreamRDFLib.graph(this.model.getGraph());
+        }
+    }
+
+    public static RdfOutputSink open(RdfOutputMode mode, OutputStream outputStream) {
+        return new RdfOutputSink(mode, outputStream);
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (mode.isStreaming()) {
+            streamWriter.finish();
+        } else {
+            RDFDataMgr.write(outputStream, model, RDFFormat.TURTLE);
+        }
+
+        outputStream.flush();
+    }
+
+    private static RDFFormat streamingFormatOf(RdfOutputMode mode) {
+        return switch (mode) {
+            case TURTLE_BLOCKS -> RDFFormat.TURTLE_BLOCKS;
+            case NTRIPLES -> RDFFormat.NTRIPLES_UTF8;
+            default -> throw new IllegalArgumentException("Output mode '" + mode + "' is not a streaming mode");
+        };
+    }
+
+    /**
+     * Ignores the per batch start and finish calls, so that the wrapped writer produces one continuous document.
+     */
+    private static class BatchBoundaryStreamRDF extends StreamRDFWrapper {
+
+        BatchBoundaryStreamRDF(StreamRDF other) {
+            super(other);
+        }
+
+        @Override
+        public void start() {
+            // document is started when the sink is opened
+        }
+
+        @Override
+        public void finish() {
+            // document is finished when the sink is closed
+        }
+    }
+
+}
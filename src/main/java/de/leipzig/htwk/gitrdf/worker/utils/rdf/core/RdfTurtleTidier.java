@@ -15,10 +15,27 @@ import org.apache.jena.riot.RDFFormat;
 
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class RdfTurtleTidier {
 
+    /**
+     * Tidies files up to {@code inMemoryMaxBytes} in memory as pretty Turtle. Larger files are tidied with the
+     * bounded memory {@link RdfExternalSortTidier}.
+     */
+    public static void tidyFile(File file, long inMemoryMaxBytes, int sortRunSize) throws IOException {
+
+        if (file.length() <= inMemoryMaxBytes) {
+            tidyFile(file);
+            return;
+        }
+
+        log.info("Rdf file has {} bytes, tidying it with sorted runs of {} triples", file.length(), sortRunSize);
+        RdfExternalSortTidier.tidyFile(file, sortRunSize);
+    }
+
     public static void tidyFile(File file) throws IOException {
         Model model = ModelFactory.createDefaultModel();
         try (InputStream in = new FileInputStream(file)) {
@@ -0,0 +1,25 @@
+package de.leipzig.htwk.gitrdf.worker.utils.rdf.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDFBase;
+
+import lombok.Getter;
+
+/**
+ * Collects triples in memory, so that they can be computed on a worker thread and written to the output of the
+ * run later, in a deterministic order.
+ */
+public class TripleCollector extends StreamRDFBase {
+
+    @Getter
+    private final List<Triple> triples = new ArrayList<>();
+
+    @Override
+    public void triple(Triple triple) {
+        triples.add(triple);
+    }
+
+}
@@ -0,0 +1,27 @@
+package de.leipzig.htwk.gitrdf.worker.utils.rdf.git;
+
+/**
+ * How the branches containing each converted commit are written, if commit branches are enabled for an order.
+ */
+public enum BranchMembershipEncoding {
+
+    /**
+     * One {@code git:inBranch} triple for every pair of commit and branch containing it.
+     */
+    PER_COMMIT,
+
+    /**
+     * One {@code git:mergeBaseWithHead} triple per branch, pointing to the newest converted commits the branch
+     * contains (its merge bases with the converted HEAD). A branch contains these commits and all their ancestors,
+     * which are already linked by {@code git:hasParent}. Full membership is recovered with:
+     * <pre>
+     * PREFIX git: &lt;https://purl.archive.org/git2rdf/v2/git2RDFLab-git#&gt;
+     * SELECT ?commit ?branch WHERE {
+     *     ?branch git:mergeBaseWithHead ?base .
+     *     ?base git:hasParent* ?commit .
+     * }
+     * </pre>
+     */
+    HEAD_REACHABILITY
+
+}
@@ -0,0 +1,23 @@
+package de.leipzig.htwk.gitrdf.worker.utils.rdf.git;
+
+/**
+ * How much of each commit diff is written. Every level writes the changed files with their change type and names.
+ */
+public enum CommitDiffLevel {
+
+    /**
+     * Tree diff only. No blob is loaded.
+     */
+    NAME_STATUS,
+
+    /**
+     * Additionally the number of added and deleted lines per file.
+     */
+    NUMSTAT,
+
+    /**
+     * Additionally every edit hunk with its line ranges.
+     */
+    HUNKS
+
+}
@@ -18,7 +18,6 @@ import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.Edit;
-import org.eclipse.jgit.patch.FileHeader;
 
 import de.leipzig.htwk.gitrdf.worker.utils.rdf.core.RdfUtils;
 import lombok.AccessLevel;
@@ -106,6 +105,8 @@ public class RdfCommitUtils {
 
     public static Node branchHeadCommitProperty() { return uri(GIT_NS + "headCommit"); }
 
+    public static Node branchMergeBaseWithHeadProperty() { return uri(GIT_NS + "mergeBaseWithHead"); }
+
     public static Node tagPointsToProperty() { return uri(GIT_NS + "pointsTo"); }
 
     public static Node owlSameAsProperty() { return uri(OWL_NS + "sameAs"); }
@@ -145,6 +146,18 @@ public class RdfCommitUtils {
         return uri(GIT_NS + "newFileName");
     }
 
+    public static Node commitDiffEntryLinesAddedProperty() {
+        return uri(GIT_NS + "linesAdded");
+    }
+
+    public static Node commitDiffEntryLinesDeletedProperty() {
+        return uri(GIT_NS + "linesDeleted");
+    }
+
+    public static Node commitDiffEntryContentSkippedProperty() {
+        return uri(GIT_NS + "contentSkipped");
+    }
+
     public static Node commitDiffEditResource() {
         return uri(GIT_NS + "hasEdit");
     }
@@ -206,6 +219,10 @@ public class RdfCommitUtils {
         return uri(GIT_NS + "snapshotDate");
     }
 
+    public static Node branchSnapshotContentSkippedProperty() {
+        return uri(GIT_NS + "blameSkipped");
+    }
+
     public static Node commitTagNameProperty() {
         return uri(GIT_NS + "tagName");
     }
@@ -254,6 +271,13 @@ public class RdfCommitUtils {
         return Triple.create(snapshotLineEntryNode, branchSnapshotCommitHashProperty(), stringLiteral(commitHash));
     }
 
+    /**
+     * Marks a snapshot file entry that has no line entries, because its blame was skipped.
+     */
+    public static Triple createBranchSnapshotContentSkippedProperty(Node snapshotFileEntryNode, String reason) {
+        return Triple.create(snapshotFileEntryNode, branchSnapshotContentSkippedProperty(), stringLiteral(reason));
+    }
+
     // Commit
 
     public static Triple createRdfTypeProperty(String commitUri) {
@@ -314,12 +338,27 @@ public class RdfCommitUtils {
         return Triple.create(diffEntryNode, rdfTypeProperty(), uri(GIT_NS + "CommitDiffEntry"));
     }
 
-    public static Triple createCommitDiffEntryOldFileNameProperty(Node diffEntryNode, FileHeader fileHeader) {
-        return Triple.create(diffEntryNode, commitDiffEntryOldFileNameProperty(), stringLiteral(fileHeader.getOldPath()));
+    public static Triple createCommitDiffEntryOldFileNameProperty(Node diffEntryNode, DiffEntry diffEntry) {
+        return Triple.create(diffEntryNode, commitDiffEntryOldFileNameProperty(), stringLiteral(diffEntry.getOldPath()));
+    }
+
+    public static Triple createCommitDiffEntryNewFileNameProperty(Node diffEntryNode, DiffEntry diffEntry) {
+        return Triple.create(diffEntryNode, commitDiffEntryNewFileNameProperty(), stringLiteral(diffEntry.getNewPath()));
     }
 
-    public static Triple createCommitDiffEntryNewFileNameProperty(Node diffEntryNode, FileHeader fileHeader) {
-        return Triple.create(diffEntryNode, commitDiffEntryNewFileNameProperty(), stringLiteral(fileHeader.getNewPath()));
+    public static Triple createCommitDiffEntryLinesAddedProperty(Node diffEntryNode, int linesAdded) {
+        return Triple.create(diffEntryNode, commitDiffEntryLinesAddedProperty(), RdfUtils.integerLiteral(linesAdded));
+    }
+
+    public static Triple createCommitDiffEntryLinesDeletedProperty(Node diffEntryNode, int linesDeleted) {
+        return Triple.create(diffEntryNode, commitDiffEntryLinesDeletedProperty(), RdfUtils.integerLiteral(linesDeleted));
+    }
+
+    /**
+     * Marks a diff entry whose content wasn't diffed, with the reason ({@code binary} or {@code size}).
+     */
+    public static Triple createCommitDiffEntryContentSkippedProperty(Node diffEntryNode, String reason) {
+        return Triple.create(diffEntryNode, commitDiffEntryContentSkippedProperty(), stringLiteral(reason));
     }
 
     public static Triple createCommitDiffEditResource(Node diffEntryNode, Node diffEditNode) {
@@ -416,6 +455,10 @@ public class RdfCommitUtils {
         return Triple.create(uri(branchUri), branchHeadCommitProperty(), uri(commitUri));
     }
 
+    public static Triple createBranchMergeBaseWithHeadProperty(String branchUri, String commitUri) {
+        return Triple.create(uri(branchUri), branchMergeBaseWithHeadProperty(), uri(commitUri));
+    }
+
     public static Triple createBranchOfProperty(String branchUri, String repositoryUri) {
         return Triple.create(uri(branchUri), branchOfProperty(), uri(repositoryUri));
     }
@@ -25,32 +25,40 @@ public class RdfGitCommitUserUtils {
     // Method to retrieve GitHub user information from a commit hash
     public static GithubUserInfo getGitHubUserInfoFromCommit(GHRepository repo, String commitHash) {
         try {
-            GHCommit commit = repo.getCommit(commitHash);
-            GHUser author = commit.getAuthor();
-
-            if (author == null) {
-                return null;
-            }
-
-            String login = author.getLogin();
-            if (login == null || login.isEmpty()) {
-                return null;
-            }
-            
-            // Note: Automated accounts (bots) should still get User entities created for SHACL validation
-            // The isAutomatedAccount check was removed to ensure all users have corresponding RDF entities
-
-            String uri = GithubUriUtils.getUserUri(login);
-            long id = author.getId();
-            String name = author.getName();
-            String gitAuthorEmail = commit.getCommitShortInfo().getAuthor().getEmail();
-            return new GithubUserInfo(uri, login, id, name, gitAuthorEmail);
+            return fetchGitHubUserInfoFromCommit(repo, commitHash);
         } catch (IOException e) {
             log.info("Could not retrieve github-user from commit hash '{}'", commitHash, e);
             return null;
         }
     }
 
+    /**
+     * Like {@link #getGitHubUserInfoFromCommit(GHRepository, String)}, but a failed lookup is thrown instead of being
+     * returned as null, so callers can tell an author without GitHub account from an error.
+     */
+    public static GithubUserInfo fetchGitHubUserInfoFromCommit(GHRepository repo, String commitHash) throws IOException {
+        GHCommit commit = repo.getCommit(commitHash);
+        GHUser author = commit.getAuthor();
+
+        if (author == null) {
+            return null;
+        }
+
+        String login = author.getLogin();
+        if (login == null || login.isEmpty()) {
+            return null;
+        }
+
+        // Note: Automated accounts (bots) should still get User entities created for SHACL validation
+        // The isAutomatedAccount check was removed to ensure all users have corresponding RDF entities
+
+        String uri = GithubUriUtils.getUserUri(login);
+        long id = author.getId();
+        String name = author.getName();
+        String gitAuthorEmail = commit.getCommitShortInfo().getAuthor().getEmail();
+        return new GithubUserInfo(uri, login, id, name, gitAuthorEmail);
+    }
+
     // Legacy method kept for compatibility
     public static String getGitHubUserFromCommit(GHRepository repo, String commitHash) {
         GithubUserInfo info = getGitHubUserInfoFromCommit(repo, commitHash);
@@ -11,6 +11,8 @@ import org.apache.jena.riot.system.StreamRDF;
 import org.kohsuke.github.GHUser;
 import org.kohsuke.github.GitHub;
 
+import de.leipzig.htwk.gitrdf.worker.identity.CachedGithubUser;
+import de.leipzig.htwk.gitrdf.worker.identity.GithubIdentityCache;
 import de.leipzig.htwk.gitrdf.worker.utils.GithubUriUtils;
 import lombok.extern.slf4j.Slf4j;
 
@@ -24,6 +26,16 @@ public class GithubUserValidator {
     // Cache GitHub API user data to prevent duplicate API calls (but always write RDF to each model)
     private static final Map<String, GHUser> apiUserCache = new ConcurrentHashMap<>();
 
+    // Persistent user profiles shared across runs and workers, set by the conversion service
+    private static volatile GithubIdentityCache identityCache;
+
+    /**
+     * Sets the persistent cache that is consulted before user profiles are fetched from the GitHub API.
+     */
+    public static void useIdentityCache(GithubIdentityCache githubIdentityCache) {
+        identityCache = githubIdentityCache;
+    }
+
     public static String validateAndEnsureUser(StreamRDF writer, GitHub github, GHUser ghUser) {
         // Enhanced null safety checks - allow null writer for validation-only mode
         if (writer == null) {
@@ -60,11 +72,21 @@ public class GithubUserValidator {
             return null;
         }
         
+        // Embedded users fetch their profile on first access, a cached profile saves that request
+        CachedGithubUser cachedUser = findCachedUser(login);
+        if (cachedUser != null && cachedUser.isFound()) {
+            if (writer != null) {
+                createCachedGithubUserRdf(writer, cachedUser, userUri);
+            }
+            return userUri;
+        }
+
         try {
             // ALWAYS create the GitHub user RDF representation when writer is provided
             // (Cache only prevents duplicate API calls, not duplicate RDF creation)
             if (writer != null) {
                 createGithubUserRdf(writer, ghUser, userUri);
+                storeCachedUser(ghUser);
                 log.info("Created GitHub user RDF for: {}", login);
             } else {
                 log.debug("Validation-only mode: Skipping RDF creation for: {}", login);
@@ -162,11 +184,23 @@ public class GithubUserValidator {
             // Check API cache first to prevent duplicate API calls
             GHUser ghUser = apiUserCache.get(actualLogin);
             if (ghUser == null) {
+                // Then the persistent cache, which also remembers accounts that don't exist anymore
+                CachedGithubUser cachedUser = findCachedUser(actualLogin);
+                if (cachedUser != null) {
+                    if (cachedUser.isFound()) {
+                        createCachedGithubUserRdf(writer, cachedUser, userUri);
+                    } else {
+                        createBasicGithubUserRdf(writer, actualLogin, userUri);
+                    }
+                    return userUri;
+                }
+
                 // Not in cache - make API call
                 ghUser = github.getUser(actualLogin);
                 if (ghUser != null) {
                     // Cache the API result for future use
                     apiUserCache.put(actualLogin, ghUser);
+                    storeCachedUser(ghUser);
                     log.debug("Cached GitHub user data for: {}", actualLogin);
                 } else {
                     log.warn("GitHub API returned null user for login '{}'", actualLogin);
@@ -183,6 +217,9 @@ public class GithubUserValidator {
             // Create fallback users for all HTTP errors to ensure User entities always exist
             if (e.getResponseCode() == 404) {
                 log.warn("GitHub user '{}' not found (404) - likely deleted account. Creating basic user entry.", actualLogin);
+                if (identityCache != null) {
+                    identityCache.storeMissingUser(actualLogin);
+                }
             } else {
                 log.warn("GitHub API HTTP error {} for user '{}': {}. Creating fallback user entry to ensure User entity exists.", 
                          e.getResponseCode(), actualLogin, e.getMessage());
@@ -302,6 +339,57 @@ public class GithubUserValidator {
             requiredTriples.size(), optionalTriples.size(), login);
     }
     
+    /**
+     * Creates the GitHub user RDF representation from a cached profile, mirroring {@link #createGithubUserRdfAtomic}
+     */
+    private static void createCachedGithubUserRdf(StreamRDF writer, CachedGithubUser cachedUser, String userUri) {
+
+        String login = cachedUser.getLogin();
+
+        writer.triple(RdfGithubUserUtils.createGitHubUserType(userUri));
+        writer.triple(RdfGithubUserUtils.createUsernamePropertyForGithub(userUri, login));
+        writer.triple(RdfGithubUserUtils.createUserIdProperty(userUri, cachedUser.getUserId()));
+
+        if (cachedUser.getName() != null && !cachedUser.getName().trim().isEmpty()) {
+            writer.triple(RdfGithubUserUtils.createNameProperty(userUri, cachedUser.getName()));
+        }
+
+        if (cachedUser.getEmail() != null && !cachedUser.getEmail().trim().isEmpty()) {
+            writer.triple(RdfGithubUserUtils.createEmailProperty(userUri, cachedUser.getEmail()));
+        }
+
+        if (cachedUser.getUserType() != null && !cachedUser.getUserType().trim().isEmpty()) {
+            writer.triple(RdfGithubUserUtils.createUserTypeProperty(userUri, cachedUser.getUserType()));
+        } else if (isBotAccount(login.toLowerCase())) {
+            writer.triple(RdfGithubUserUtils.createUserTypeProperty(userUri, "Bot"));
+        }
+
+        log.debug("Created GitHub user RDF from identity cache for: {}", login);
+    }
+
+    private static CachedGithubUser findCachedUser(String login) {
+        GithubIdentityCache cache = identityCache;
+        return cache == null ? null : cache.findUser(login);
+    }
+
+    /**
+     * Stores the profile of a user whose details were already fetched, so this doesn't cause additional requests.
+     */
+    private static void storeCachedUser(GHUser ghUser) {
+
+        GithubIdentityCache cache = identityCache;
+
+        if (cache == null) {
+            return;
+        }
+
+        try {
+            cache.storeUser(ghUser.getLogin(), ghUser.getId(), ghUser.getType(), ghUser.getName(), ghUser.getEmail());
+        } catch (Exception e) {
+            log.debug("Failed to store GitHub user '{}' in identity cache: {}", ghUser.getLogin(), e.getMessage());
+        }
+    }
+
     private static void createBasicGithubUserRdf(StreamRDF writer, String login, String userUri) {
         if (writer == null) {
             log.error("Cannot create basic user RDF: writer is null");
@@ -0,0 +1,18 @@
+CREATE TABLE GITHUB_IDENTITY_EMAIL  (
+	EMAIL VARCHAR(320) NOT NULL,
+	LOGIN VARCHAR(100),
+	USER_ID BIGINT,
+	RESOLVED_DATE TIMESTAMP NOT NULL,
+	constraint GITHUB_IDENTITY_EMAIL_PK primary key (EMAIL)
+);
+
+CREATE TABLE GITHUB_IDENTITY_USER  (
+	LOGIN VARCHAR(100) NOT NULL,
+	FOUND BOOLEAN NOT NULL,
+	USER_ID BIGINT,
+	USER_TYPE VARCHAR(50),
+	NAME VARCHAR(512),
+	EMAIL VARCHAR(320),
+	RESOLVED_DATE TIMESTAMP NOT NULL,
+	constraint GITHUB_IDENTITY_USER_PK primary key (LOGIN)
+);
@@ -0,0 +1,14 @@
+CREATE TABLE BRANCH_SNAPSHOT  (
+	REPOSITORY_KEY VARCHAR(512) NOT NULL,
+	HEAD_COMMIT CHAR(40) NOT NULL,
+	CREATED_DATE TIMESTAMP NOT NULL,
+	constraint BRANCH_SNAPSHOT_PK primary key (REPOSITORY_KEY)
+);
+
+CREATE TABLE BRANCH_SNAPSHOT_FILE  (
+	REPOSITORY_KEY VARCHAR(512) NOT NULL,
+	PATH TEXT NOT NULL,
+	BLOB_ID CHAR(40) NOT NULL,
+	LINE_COMMITS TEXT NOT NULL,
+	constraint BRANCH_SNAPSHOT_FILE_PK primary key (REPOSITORY_KEY, PATH)
+);
@@ -0,0 +1,5 @@
+CREATE TABLE GITHUB_ORDER_RATE_LIMIT_WAIT  (
+	ORDER_ID BIGINT NOT NULL,
+	WAIT_UNTIL TIMESTAMP NOT NULL,
+	constraint GITHUB_ORDER_RATE_LIMIT_WAIT_PK primary key (ORDER_ID)
+);
@@ -0,0 +1 @@
+ALTER TABLE GITHUB_ORDER_RATE_LIMIT_WAIT ADD COLUMN PARK_COUNT INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,188 @@
+package de.leipzig.htwk.gitrdf.worker.calculator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand;
+import org.eclipse.jgit.api.MergeResult;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.leipzig.htwk.gitrdf.worker.config.FileFilterConfig;
+import de.leipzig.htwk.gitrdf.worker.handler.LockHandler;
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.core.TripleCollector;
+import de.leipzig.htwk.gitrdf.worker.utils.rdf.git.RdfCommitUtils;
+
+/**
+ * Both branch snapshot engines have to write the same line entries. The fixture repository has a rename on a side
+ * branch, a merge touching the same file from both parents, a whitespace only change and an excluded directory.
+ */
+class HistoryBlameCalculatorParityTest {
+
+    private static final Node ANY_NODE = NodeFactory.createBlankNode();
+
+    private static final Node FILENAME_PREDICATE
+            = RdfCommitUtils.createBranchSnapshotFilenameProperty(ANY_NODE, "").getPredicate();
+
+    private static final Node LINE_ENTRY_PREDICATE
+            = RdfCommitUtils.createBranchSnapshotLineEntryProperty(ANY_NODE, ANY_NODE).getPredicate();
+
+    private static final Node COMMIT_HASH_PREDICATE
+            = RdfCommitUtils.createBranchSnapshotCommitHashProperty(ANY_NODE, "").getPredicate();
+
+    private static final Node LINE_BEGIN_PREDICATE = RdfCommitUtils.createLineBeginProperty(ANY_NODE, 0).getPredicate();
+
+    private static final Node LINE_END_PREDICATE = RdfCommitUtils.createLineEndProperty(ANY_NODE, 0).getPredicate();
+
+    @TempDir
+    Path repositoryDirectory;
+
+    @Test
+    void historyPassWritesSameLineEntriesAsPerFileBlame() throws Exception {
+
+        Git git = createFixtureRepository(repositoryDirectory.toFile());
+
+        try {
+
+            Map<String, List<String>> perFileEntries
+                    = calculateLineEntries(git.getRepository(), BranchSnapshotEngine.PER_FILE);
+            Map<String, List<String>> historyPassEntries
+                    = calculateLineEntries(git.getRepository(), BranchSnapshotEngine.HISTORY_PASS);
+
+            assertThat(perFileEntries).containsOnlyKeys("src/renamed.txt", "b.txt", "c.txt", "vendor/lib.txt");
+            assertThat(perFileEntries.get("src/renamed.txt")).hasSizeGreaterThan(1);
+            assertThat(perFileEntries.get("b.txt")).hasSizeGreaterThan(1);
+            assertThat(perFileEntries.get("vendor/lib.txt")).isEmpty();
+
+            assertThat(historyPassEntries).isEqualTo(perFileEntries);
+
+        } finally {
+            git.getRepository().close();
+        }
+    }
+
+    private static Git createFixtureRepository(File directory) throws Exception {
+
+        Git git = Git.init().setDirectory(directory).call();
+
+        writeFile(directory, "a.txt", "a1", "a2", "a3", "a4", "a5", "a6", "a7", "a8", "a9");
+        writeFile(directory, "b.txt", "b1", "b2", "b3", "b4", "b5", "b6", "b7", "b8", "b9", "b10");
+        writeFile(directory, "vendor/lib.txt", "v1", "v2");
+        commitAll(git, "Initial commit");
+
+        writeFile(directory, "a.txt", "a1", "a2", "a3 changed", "a4", "a5", "a6", "a7", "a8", "a9", "a10");
+        commitAll(git, "Change a");
+
+        git.branchCreate().setName("feature").call();
+        git.checkout().setName("feature").call();
+
+        Files.delete(directory.toPath().resolve("a.txt"));
+        writeFile(directory, "src/renamed.txt", "a1", "a2", "a3 changed", "a4", "a5 renamed", "a6", "a7", "a8", "a9", "a10");
+        commitAll(git, "Rename a");
+
+        writeFile(directory, "b.txt", "b1 feature", "b2", "b3", "b4", "b5", "b6", "b7", "b8", "b9", "b10");
+        writeFile(directory, "c.txt", "c1", "c2", "c3");
+        commitAll(git, "Add c and change b on feature");
+
+        git.checkout().setName("master").call();
+
+        writeFile(directory, "b.txt", "b1", "b2", "b3", "b4", "b5", "b6", "  b7", "b8", "b9", "b10 master");
+        commitAll(git, "Change b on master");
+
+        MergeResult mergeResult = git.merge()
+                .include(git.getRepository().resolve("feature"))
+                .setFastForward(MergeCommand.FastForwardMode.NO_FF)
+                .setMessage("Merge feature")
+                .call();
+
+        assertThat(mergeResult.getMergeStatus().isSuccessful()).isTrue();
+
+        writeFile(directory, "src/renamed.txt", "a1", "a2 after merge", "a3 changed", "a4", "a5 renamed", "a6", "a7", "a8", "a9", "a10");
+        writeFile(directory, "c.txt", "c1", "c2", "c3", "c4");
+        writeFile(directory, "vendor/lib.txt", "v1", "v2", "v3");
+        commitAll(git, "Change after merge");
+
+        return git;
+    }
+
+    private static void writeFile(File directory, String path, String... lines) throws IOException {
+        Path file = directory.toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, String.join("\n", lines) + "\n", StandardCharsets.UTF_8);
+    }
+
+    private static void commitAll(Git git, String message) throws Exception {
+        git.add().addFilepattern(".").call();
+        git.add().addFilepattern(".").setUpdate(true).call();
+        git.commit().setMessage(message).setAuthor("Author", "author@example.com").call();
+    }
+
+    /**
+     * @return the line entries of every file as {@code commit begin-end}, sorted, by file name
+     */
+    private static Map<String, List<String>> calculateLineEntries(Repository repository, BranchSnapshotEngine engine)
+            throws IOException {
+
+        FileFilterConfig fileFilterConfig = new FileFilterConfig(false, List.of("vendor/**"), 0, false);
+        FileClassifier fileClassifier
+                = FileClassifier.create(repository, repository.resolve(Constants.HEAD), fileFilterConfig);
+
+        // The lock is never renewed, since the renew time can't be reached
+        LockHandler lockHandler = new LockHandler(Long.MAX_VALUE, Clock.systemUTC(), null, "parity-test");
+
+        TripleCollector collector = new TripleCollector();
+
+        new BranchSnapshotCalculator(collector, repository, "https://example.org/snapshot", lockHandler, 1, engine,
+                fileClassifier, null, null).calculateBranchSnapshot();
+
+        Map<Node, String> fileNamesByFileNode = new HashMap<>();
+        Map<String, List<String>> lineEntriesByFileName = new TreeMap<>();
+
+        // The triples of a line entry are written one after another, starting with the link from its file entry
+        List<String> fileLineEntries = null;
+        List<String> lineEntry = new ArrayList<>();
+
+        for (Triple triple : collector.getTriples()) {
+
+            Node predicate = triple.getPredicate();
+
+            if (predicate.equals(FILENAME_PREDICATE)) {
+                String fileName = triple.getObject().getLiteralLexicalForm();
+                fileNamesByFileNode.put(triple.getSubject(), fileName);
+                lineEntriesByFileName.put(fileName, new ArrayList<>());
+            } else if (predicate.equals(LINE_ENTRY_PREDICATE)) {
+                fileLineEntries = lineEntriesByFileName.get(fileNamesByFileNode.get(triple.getSubject()));
+                lineEntry.clear();
+            } else if (predicate.equals(COMMIT_HASH_PREDICATE)
+                    || predicate.equals(LINE_BEGIN_PREDICATE)
+                    || predicate.equals(LINE_END_PREDICATE)) {
+                lineEntry.add(triple.getObject().getLiteralLexicalForm());
+                if (lineEntry.size() == 3) {
+                    fileLineEntries.add(lineEntry.get(0) + " " + lineEntry.get(1) + "-" + lineEntry.get(2));
+                }
+            }
+        }
+
+        lineEntriesByFileName.values().forEach(lineEntries -> lineEntries.sort(null));
+
+        return lineEntriesByFileName;
+    }
+
+}
@@ -0,0 +1,326 @@
+package de.leipzig.htwk.gitrdf.worker.graphql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.GHIssue;
+import org.kohsuke.github.GHIssueComment;
+import org.kohsuke.github.GHPullRequestReview;
+import org.kohsuke.github.GHPullRequestReviewComment;
+import org.kohsuke.github.GHReaction;
+import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.GitHubBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.leipzig.htwk.gitrdf.worker.graphql.GithubGraphqlIssueFetcher.IssueSubResources;
+import de.leipzig.htwk.gitrdf.worker.service.impl.GithubHandlerService;
+
+/**
+ * Runs the GraphQL engine against a stub server answering the batch query and the page query of an overflowing
+ * connection, and compares its result with what the REST client reads from the same data.
+ * <p>
+ * The stub data has an issue whose comments overflow the batch query, comments of a user and a bot, a deleted review
+ * comment author and reactions on both kinds of comments.
+ */
+class GithubGraphqlIssueFetcherTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String BATCH_RESPONSE = """
+            {"data": {"rateLimit": {"cost": 1, "remaining": 4999}, "repository": {
+              "i1": {"__typename": "Issue", "id": "I_1", "comments": {
+                "pageInfo": {"hasNextPage": true, "endCursor": "cursor-1"},
+                "nodes": [{"id": "IC_101", "fullDatabaseId": "101", "body": "First",
+                  "createdAt": "2024-01-01T10:00:00Z", "updatedAt": "2024-01-01T10:00:00Z",
+                  "url": "https://github.com/o/n/issues/1#issuecomment-101", "authorAssociation": "OWNER",
+                  "author": {"__typename": "User", "login": "alice", "url": "https://github.com/alice",
+                    "avatarUrl": "https://avatars/alice", "databaseId": 11},
+                  "reactions": {"pageInfo": {"hasNextPage": false, "endCursor": null}, "nodes": [
+                    {"databaseId": 501, "content": "THUMBS_UP", "createdAt": "2024-01-01T11:00:00Z",
+                      "user": {"__typename": "User", "login": "bob", "url": "https://github.com/bob",
+                        "avatarUrl": "https://avatars/bob", "databaseId": 12}}]}}]}},
+              "i2": {"__typename": "PullRequest", "id": "PR_2",
+                "comments": {"pageInfo": {"hasNextPage": false, "endCursor": null}, "nodes": []},
+                "reviews": {"pageInfo": {"hasNextPage": false, "endCursor": null}, "nodes": [
+                  {"id": "PRR_301", "fullDatabaseId": "301", "body": "Looks good", "state": "APPROVED",
+                    "submittedAt": "2024-01-02T10:00:00Z", "url": "https://github.com/o/n/pull/2#pullrequestreview-301",
+                    "authorAssociation": "MEMBER", "commit": {"oid": "abc123"},
+                    "author": {"__typename": "User", "login": "bob", "url": "https://github.com/bob",
+                      "avatarUrl": "https://avatars/bob", "databaseId": 12},
+                    "comments": {"pageInfo": {"hasNextPage": false, "endCursor": null}, "nodes": [
+                      {"id": "PRRC_401", "fullDatabaseId": "401", "body": "Nit",
+                        "createdAt": "2024-01-02T09:00:00Z", "updatedAt": "2024-01-02T09:00:00Z",
+                        "url": "https://github.com/o/n/pull/2#discussion_r401", "path": "a.txt",
+                        "diffHunk": "@@ -1 +1 @@", "authorAssociation": "NONE", "replyTo": null,
+                        "commit": {"oid": "abc123"}, "originalCommit": {"oid": "abc123"}, "author": null,
+                        "reactions": {"pageInfo": {"hasNextPage": false, "endCursor": null}, "nodes": [
+                          {"databaseId": 502, "content": "HEART", "createdAt": "2024-01-02T12:00:00Z",
+                            "user": {"__typename": "User", "login": "alice", "url": "https://github.com/alice",
+                              "avatarUrl": "https://avatars/alice", "databaseId": 11}}]}}]}}]}}}}}
+            """;
+
+    private static final String COMMENT_PAGE_RESPONSE = """
+            {"data": {"rateLimit": {"cost": 1, "remaining": 4998}, "node": {"comments": {
+              "pageInfo": {"hasNextPage": false, "endCursor": "cursor-2"},
+              "nodes": [{"id": "IC_102", "fullDatabaseId": "102", "body": "Second",
+                "createdAt": "2024-01-01T12:00:00Z", "updatedAt": "2024-01-01T12:00:00Z",
+                "url": "https://github.com/o/n/issues/1#issuecomment-102", "authorAssociation": "NONE",
+                "author": {"__typename": "Bot", "login": "renovate", "url": "https://github.com/apps/renovate",
+                  "avatarUrl": "https://avatars/renovate", "databaseId": 13},
+                "reactions": {"pageInfo": {"hasNextPage": false, "endCursor": null}, "nodes": []}}]}}}}
+            """;
+
+    /**
+     * The same data as REST responses, by path. {base} is replaced with the URL of the stub server.
+     */
+    private static final Map<String, String> REST_RESPONSES = Map.of(
+            "/repos/o/n", """
+                    {"id": 1, "name": "n", "full_name": "o/n", "owner": {"login": "o", "id": 1},
+                      "url": "{base}/repos/o/n", "html_url": "https://github.com/o/n"}
+                    """,
+            "/repos/o/n/issues/1", """
+                    {"id": 1001, "number": 1, "title": "Issue", "state": "open",
+                      "url": "{base}/repos/o/n/issues/1", "html_url": "https://github.com/o/n/issues/1"}
+                    """,
+            "/repos/o/n/issues/2", """
+                    {"id": 1002, "number": 2, "title": "Pull request", "state": "open",
+                      "url": "{base}/repos/o/n/issues/2", "html_url": "https://github.com/o/n/pull/2",
+                      "pull_request": {"url": "{base}/repos/o/n/pulls/2"}}
+                    """,
+            "/repos/o/n/pulls/2", """
+                    {"id": 2002, "number": 2, "title": "Pull request", "state": "open",
+                      "url": "{base}/repos/o/n/pulls/2", "html_url": "https://github.com/o/n/pull/2"}
+                    """,
+            "/repos/o/n/issues/1/comments", """
+                    [{"id": 101, "node_id": "IC_101", "body": "First", "author_association": "OWNER",
+                       "created_at": "2024-01-01T10:00:00Z", "updated_at": "2024-01-01T10:00:00Z",
+                       "html_url": "https://github.com/o/n/issues/1#issuecomment-101",
+                       "user": {"login": "alice", "id": 11, "type": "User"}},
+                     {"id": 102, "node_id": "IC_102", "body": "Second", "author_association": "NONE",
+                       "created_at": "2024-01-01T12:00:00Z", "updated_at": "2024-01-01T12:00:00Z",
+                       "html_url": "https://github.com/o/n/issues/1#issuecomment-102",
+                       "user": {"login": "renovate[bot]", "id": 13, "type": "Bot"}}]
+                    """,
+            "/repos/o/n/issues/comments/101/reactions", """
+                    [{"id": 501, "content": "+1", "created_at": "2024-01-01T11:00:00Z",
+                       "user": {"login": "bob", "id": 12, "type": "User"}}]
+                    """,
+            "/repos/o/n/issues/comments/102/reactions", "[]",
+            "/repos/o/n/pulls/2/reviews", """
+                    [{"id": 301, "node_id": "PRR_301", "body": "Looks good", "state": "APPROVED",
+                       "submitted_at": "2024-01-02T10:00:00Z", "commit_id": "abc123",
+                       "html_url": "https://github.com/o/n/pull/2#pullrequestreview-301",
+                       "user": {"login": "bob", "id": 12, "type": "User"}}]
+                    """,
+            "/repos/o/n/pulls/2/reviews/301/comments", """
+                    [{"id": 401, "node_id": "PRRC_401", "body": "Nit", "path": "a.txt", "diff_hunk": "@@ -1 +1 @@",
+                       "commit_id": "abc123", "original_commit_id": "abc123", "pull_request_review_id": 301,
+                       "created_at": "2024-01-02T09:00:00Z", "updated_at": "2024-01-02T09:00:00Z",
+                       "html_url": "https://github.com/o/n/pull/2#discussion_r401",
+                       "user": {"login": "ghost", "id": 10137, "type": "User"}}]
+                    """,
+            "/repos/o/n/pulls/comments/401/reactions", """
+                    [{"id": 502, "content": "heart", "created_at": "2024-01-02T12:00:00Z",
+                       "user": {"login": "alice", "id": 11, "type": "User"}}]
+                    """);
+
+    private static final Map<String, Long> USER_IDS
+            = Map.of("alice", 11L, "bob", 12L, "renovate[bot]", 13L, "ghost", 10137L);
+
+    private final List<JsonNode> pageQueryVariables = new ArrayList<>();
+
+    private final List<String> restRequestPaths = new ArrayList<>();
+
+    private HttpServer server;
+
+    private String baseUrl;
+
+    @BeforeEach
+    void startStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopStubServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void graphqlEngineReadsSameSubResourcesAsRest() throws Exception {
+
+        GitHub gitHub = new GitHubBuilder().withEndpoint(baseUrl).build();
+        GHRepository repository = gitHub.getRepository("o/n");
+        List<GHIssue> issues = List.of(repository.getIssue(1), repository.getIssue(2));
+        restRequestPaths.clear();
+
+        GithubHandlerService githubHandlerService = mock(GithubHandlerService.class);
+        when(githubHandlerService.getEncodedGraphqlAuthorization()).thenReturn("Bearer test");
+
+        GithubGraphqlClient graphqlClient
+                = new GithubGraphqlClient(githubHandlerService, OBJECT_MAPPER, baseUrl + "/graphql");
+
+        Map<Integer, IssueSubResources> subResourcesByNumber
+                = new GithubGraphqlIssueFetcher(graphqlClient, gitHub, "o", "n")
+                        .fetch(issues, true, true, repository::getPullRequest);
+
+        assertThat(subResourcesByNumber).containsOnlyKeys(1, 2);
+
+        // The overflowing comments of issue 1 were paged once, from the end cursor of the batch query
+        assertThat(pageQueryVariables).hasSize(1);
+        assertThat(pageQueryVariables.get(0).path("id").asText()).isEqualTo("I_1");
+        assertThat(pageQueryVariables.get(0).path("after").asText()).isEqualTo("cursor-1");
+
+        IssueSubResources issue = subResourcesByNumber.get(1);
+
+        assertThat(issue.getIssueComments()).extracting(GHIssueComment::getId).containsExactly(101L, 102L);
+        assertThat(issue.getIssueComments()).extracting(GHIssueComment::getUserName)
+                .containsExactly("alice", "renovate[bot]");
+        assertThat(issue.getIssueCommentReactions().get(101L)).extracting(this::describe)
+                .containsExactly("501 +1 bob");
+        assertThat(issue.getIssueCommentReactions().get(102L)).isEmpty();
+        assertThat(issue.getReviews()).isNull();
+
+        IssueSubResources pullRequest = subResourcesByNumber.get(2);
+
+        assertThat(pullRequest.getIssueComments()).isEmpty();
+        assertThat(pullRequest.getReviews()).extracting(this::describe)
+                .containsExactly("301 APPROVED bob abc123 Looks good");
+        assertThat(pullRequest.getReviewComments().get(301L)).extracting(this::describe)
+                .containsExactly("401 ghost a.txt abc123 Nit");
+        assertThat(pullRequest.getReviewCommentReactions().get(401L)).extracting(this::describe)
+                .containsExactly("502 heart alice");
+
+        // Bound objects request their own sub-resources like objects read with REST, without reading the repository
+        assertThat(describeReactions(issue.getIssueComments().get(0).listReactions().toList()))
+                .containsExactly("501 +1 bob");
+        assertThat(pullRequest.getReviews().get(0).listReviewComments().toList()).extracting(this::describe)
+                .containsExactly("401 ghost a.txt abc123 Nit");
+
+        assertThat(restRequestPaths).doesNotContain("/repos/o/n");
+
+        // The REST client reads the same data
+        List<GHIssueComment> restComments = issues.get(0).getComments();
+
+        assertThat(issue.getIssueComments()).extracting(this::describe)
+                .containsExactlyElementsOf(restComments.stream().map(this::describe).toList());
+
+        for (GHIssueComment restComment : restComments) {
+            assertThat(issue.getIssueCommentReactions().get(restComment.getId())).extracting(this::describe)
+                    .containsExactlyElementsOf(describeReactions(restComment.listReactions().toList()));
+        }
+
+        List<GHPullRequestReview> restReviews = repository.getPullRequest(2).listReviews().toList();
+
+        assertThat(pullRequest.getReviews()).extracting(this::describe)
+                .containsExactlyElementsOf(restReviews.stream().map(this::describe).toList());
+
+        List<GHPullRequestReviewComment> restReviewComments = restReviews.get(0).listReviewComments().toList();
+
+        assertThat(pullRequest.getReviewComments().get(301L)).extracting(this::describe)
+                .containsExactlyElementsOf(restReviewComments.stream().map(this::describe).toList());
+        assertThat(pullRequest.getReviewCommentReactions().get(401L)).extracting(this::describe)
+                .containsExactlyElementsOf(describeReactions(restReviewComments.get(0).listReactions().toList()));
+    }
+
+    private String describe(GHIssueComment comment) {
+        try {
+            return comment.getId() + " " + comment.getUser().getLogin() + " " + comment.getCreatedAt().toInstant()
+                    + " " + comment.getHtmlUrl() + " " + comment.getBody();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private String describe(GHPullRequestReview review) {
+        try {
+            return review.getId() + " " + review.getState() + " " + review.getUser().getLogin() + " "
+                    + review.getCommitId() + " " + review.getBody();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private String describe(GHPullRequestReviewComment comment) {
+        try {
+            return comment.getId() + " " + comment.getUser().getLogin() + " " + comment.getPath() + " "
+                    + comment.getCommitId() + " " + comment.getBody();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private String describe(GHReaction reaction) {
+        return reaction.getId() + " " + reaction.getContent().getContent() + " " + reaction.getUser().getLogin();
+    }
+
+    private List<String> describeReactions(List<GHReaction> reactions) {
+        return reactions.stream().map(this::describe).toList();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        String path = exchange.getRequestURI().getPath();
+        String response = null;
+
+        if ("POST".equals(exchange.getRequestMethod()) && "/graphql".equals(path)) {
+
+            JsonNode request = OBJECT_MAPPER.readTree(exchange.getRequestBody());
+
+            if (request.path("query").asText().contains("issueOrPullRequest")) {
+                response = BATCH_RESPONSE;
+            } else {
+                pageQueryVariables.add(request.path("variables"));
+                response = COMMENT_PAGE_RESPONSE;
+            }
+
+        } else if (path.startsWith("/users/")) {
+
+            restRequestPaths.add(path);
+
+            String login = path.substring("/users/".length());
+
+            if (USER_IDS.containsKey(login)) {
+                response = OBJECT_MAPPER.createObjectNode().put("login", login).put("id", USER_IDS.get(login))
+                        .toString();
+            }
+
+        } else {
+
+            restRequestPaths.add(path);
+
+            if (REST_RESPONSES.containsKey(path)) {
+                response = REST_RESPONSES.get(path).replace("{base}", baseUrl);
+            }
+        }
+
+        byte[] body = (response == null ? "{\"message\": \"Not Found\"}" : response).getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(response == null ? 404 : 200, body.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+}